@@ -36,6 +36,17 @@ CREATE TABLE IF NOT EXISTS verification_codes (
     INDEX idx_expired_at (expired_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci COMMENT='验证码表';
 
+-- 创建登录失败计数表
+CREATE TABLE IF NOT EXISTS login_failures (
+    failure_key VARCHAR(80) PRIMARY KEY COMMENT '计数键（手机号|客户端IP）',
+    phone VARCHAR(20) NOT NULL COMMENT '手机号',
+    client_ip VARCHAR(45) NOT NULL COMMENT '客户端IP',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '时间窗内失败次数',
+    window_start DATETIME NOT NULL COMMENT '时间窗开始时间',
+    updated_at DATETIME NOT NULL COMMENT '更新时间',
+    INDEX idx_login_failures_window (window_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='登录失败计数表';
+
 -- 创建农户商品表
 CREATE TABLE IF NOT EXISTS farmer_products (
     id VARCHAR(36) PRIMARY KEY COMMENT '商品ID',
@@ -55,7 +66,9 @@ CREATE TABLE IF NOT EXISTS farmer_products (
     INDEX idx_farmer_id (farmer_id),
     INDEX idx_status (status),
     INDEX idx_name (name),
-    INDEX idx_category (category)
+    INDEX idx_category (category),
+    INDEX idx_status_created_at (status, created_at, id),
+    INDEX idx_farmer_created_at (farmer_id, created_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci COMMENT='农户商品表';
 
 -- 创建索引
@@ -95,6 +108,7 @@ CREATE TABLE IF NOT EXISTS financing_applications (
     purpose VARCHAR(500) NOT NULL COMMENT '资金用途',
     status VARCHAR(20) NOT NULL DEFAULT 'APPLIED' COMMENT '状态: APPLIED-已申请, REVIEWING-审批中, APPROVED-已通过, REJECTED-已拒绝, SIGNED-已签约, DISBURSED-已放款, REPAYING-还款中, SETTLED-已结清',
     interest_rate DECIMAL(5,2) COMMENT '实际利率（%）',
+    repayment_method VARCHAR(20) DEFAULT 'EQUAL_INSTALLMENT' COMMENT '还款方式: EQUAL_INSTALLMENT-等额本息, EQUAL_PRINCIPAL-等额本金, BULLET-按月付息到期还本, SEASONAL-按月付息收获季还本',
     credit_score INT COMMENT '信用评分',
     reviewer_id VARCHAR(36) COMMENT '审批人ID',
     reviewed_at DATETIME COMMENT '审批时间',
@@ -109,6 +123,7 @@ CREATE TABLE IF NOT EXISTS financing_applications (
     INDEX idx_status (status),
     INDEX idx_product_id (product_id),
     INDEX idx_created_at (created_at),
+    INDEX idx_financing_status_created (status, created_at),
     FOREIGN KEY (farmer_id) REFERENCES users(id),
     FOREIGN KEY (product_id) REFERENCES loan_products(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='融资申请表';
@@ -139,11 +154,15 @@ CREATE TABLE IF NOT EXISTS repayment_schedules (
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING-待还款, PAID-已还款, OVERDUE-已逾期',
     paid_at DATETIME COMMENT '还款时间',
     paid_amount DECIMAL(15,2) COMMENT '实际还款金额',
+    accrued_interest DECIMAL(15,2) NOT NULL DEFAULT 0 COMMENT '已计入流水的应计利息（元）',
+    accrued_penalty DECIMAL(15,2) NOT NULL DEFAULT 0 COMMENT '已计入流水的逾期罚息（元）',
+    penalty_days INT NOT NULL DEFAULT 0 COMMENT '已计罚息的逾期天数',
     created_at DATETIME NOT NULL COMMENT '创建时间',
     updated_at DATETIME NOT NULL COMMENT '更新时间',
     INDEX idx_financing_id (financing_id),
     INDEX idx_due_date (due_date),
     INDEX idx_status (status),
+    INDEX idx_schedule_status_due_date (status, due_date),
     FOREIGN KEY (financing_id) REFERENCES financing_applications(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='还款计划表';
 
@@ -168,6 +187,30 @@ CREATE TABLE IF NOT EXISTS repayment_records (
     FOREIGN KEY (schedule_id) REFERENCES repayment_schedules(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='还款记录表';
 
+-- 创建计息流水表（只增不改）
+CREATE TABLE IF NOT EXISTS loan_accruals (
+    id VARCHAR(36) PRIMARY KEY COMMENT '流水ID',
+    financing_id VARCHAR(36) NOT NULL COMMENT '融资申请ID',
+    schedule_id VARCHAR(36) NOT NULL COMMENT '还款计划ID',
+    accrual_date DATE NOT NULL COMMENT '计息日',
+    accrual_type VARCHAR(20) NOT NULL COMMENT '类型: INTEREST-应计利息, PENALTY-逾期罚息',
+    amount DECIMAL(15,2) NOT NULL COMMENT '本笔金额（元）',
+    accrual_days INT COMMENT '本笔覆盖的逾期天数（罚息）',
+    rate DECIMAL(10,6) COMMENT '罚息日利率',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    UNIQUE KEY uk_accrual_schedule_date_type (schedule_id, accrual_date, accrual_type),
+    INDEX idx_accrual_financing_date (financing_id, accrual_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='计息流水表';
+
+-- 创建融资计息余额表
+CREATE TABLE IF NOT EXISTS loan_accrual_balances (
+    financing_id VARCHAR(36) PRIMARY KEY COMMENT '融资申请ID',
+    accrued_interest DECIMAL(15,2) NOT NULL DEFAULT 0 COMMENT '累计应计利息（元）',
+    accrued_penalty DECIMAL(15,2) NOT NULL DEFAULT 0 COMMENT '累计逾期罚息（元）',
+    last_accrual_date DATE COMMENT '最近计息日',
+    updated_at DATETIME COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='融资计息余额表';
+
 -- 创建电子合同表
 CREATE TABLE IF NOT EXISTS contracts (
     id VARCHAR(36) PRIMARY KEY COMMENT '合同ID',
@@ -252,11 +295,24 @@ CREATE TABLE IF NOT EXISTS credit_scores (
     reviewed_at DATETIME COMMENT '评分时间',
     created_at DATETIME NOT NULL COMMENT '创建时间',
     INDEX idx_financing_id (financing_id),
-    INDEX idx_farmer_id (farmer_id),
+    INDEX idx_credit_score_farmer_created (farmer_id, created_at),
     INDEX idx_total_score (total_score),
     FOREIGN KEY (financing_id) REFERENCES financing_applications(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='信用评分记录表';
 
+-- 创建农户最新信用评分表
+CREATE TABLE IF NOT EXISTS latest_credit_scores (
+    farmer_id VARCHAR(36) PRIMARY KEY COMMENT '农户ID',
+    credit_score_id VARCHAR(36) NOT NULL COMMENT '对应的信用评分ID',
+    financing_id VARCHAR(36) NOT NULL COMMENT '融资申请ID',
+    total_score INT NOT NULL COMMENT '综合评分（0-100）',
+    risk_level VARCHAR(20) NOT NULL COMMENT '风险等级: LOW-低风险, MEDIUM-中风险, HIGH-高风险',
+    suggested_amount DECIMAL(15,2) COMMENT '建议额度（元）',
+    scored_at DATETIME NOT NULL COMMENT '评分时间',
+    updated_at DATETIME NOT NULL COMMENT '更新时间',
+    INDEX idx_latest_score_total (total_score)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='农户最新信用评分表';
+
 -- 创建放款记录表
 CREATE TABLE IF NOT EXISTS disbursements (
     id VARCHAR(36) PRIMARY KEY COMMENT '放款ID',
@@ -275,10 +331,28 @@ CREATE TABLE IF NOT EXISTS disbursements (
     INDEX idx_financing_id (financing_id),
     INDEX idx_status (status),
     INDEX idx_disbursed_at (disbursed_at),
+    INDEX idx_disbursements_created_at (created_at),
+    INDEX idx_disbursements_status_created (status, created_at),
+    INDEX idx_disbursements_disbursed_by (disbursed_by),
     FOREIGN KEY (financing_id) REFERENCES financing_applications(id),
     FOREIGN KEY (contract_id) REFERENCES contracts(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='放款记录表';
 
+-- 创建银行每日汇总表
+CREATE TABLE IF NOT EXISTS bank_daily_rollups (
+    id VARCHAR(36) PRIMARY KEY COMMENT '汇总ID',
+    stat_date DATE NOT NULL COMMENT '统计日期',
+    bank_id VARCHAR(36) NOT NULL COMMENT '银行ID（放款操作员）',
+    disbursed_count INT NOT NULL DEFAULT 0 COMMENT '放款笔数',
+    disbursed_amount DECIMAL(15,2) NOT NULL DEFAULT 0 COMMENT '放款金额',
+    repaid_principal DECIMAL(15,2) NOT NULL DEFAULT 0 COMMENT '归还本金',
+    settled_count INT NOT NULL DEFAULT 0 COMMENT '结清笔数',
+    overdue_count INT NOT NULL DEFAULT 0 COMMENT '逾期笔数（每日快照）',
+    updated_at DATETIME NOT NULL COMMENT '更新时间',
+    UNIQUE KEY uk_rollup_date_bank (stat_date, bank_id),
+    INDEX idx_rollup_bank_date (bank_id, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='银行每日汇总表';
+
 -- 创建对账记录表
 CREATE TABLE IF NOT EXISTS reconciliation_records (
     id VARCHAR(36) PRIMARY KEY COMMENT '对账记录ID',
@@ -298,10 +372,22 @@ CREATE TABLE IF NOT EXISTS reconciliation_records (
     created_at DATETIME NOT NULL COMMENT '创建时间',
     INDEX idx_financing_id (financing_id),
     INDEX idx_reconciliation_date (reconciliation_date),
+    INDEX idx_reconciliation_date_financing (reconciliation_date, financing_id),
     INDEX idx_status (status),
     FOREIGN KEY (financing_id) REFERENCES financing_applications(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='对账记录表';
 
+-- 创建对账进度检查点表
+CREATE TABLE IF NOT EXISTS reconciliation_checkpoints (
+    reconciliation_date DATE PRIMARY KEY COMMENT '对账日期',
+    last_financing_id VARCHAR(36) COMMENT '已连续完成的最大融资申请ID',
+    processed_count INT NOT NULL DEFAULT 0 COMMENT '已写入的对账记录数',
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING' COMMENT '状态: RUNNING-进行中, COMPLETED-已完成',
+    lease_owner VARCHAR(36) COMMENT '当前持有租约的执行ID',
+    lease_until DATETIME COMMENT '租约到期时间',
+    updated_at DATETIME NOT NULL COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='对账进度检查点表';
+
 -- 创建银行客户关系表
 CREATE TABLE IF NOT EXISTS bank_customer_relations (
     id VARCHAR(36) PRIMARY KEY COMMENT '关系ID',
@@ -426,6 +512,27 @@ CREATE TABLE IF NOT EXISTS risk_indicators (
     INDEX idx_indicator_date (indicator_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='风险指标记录表';
 
+-- 创建风险预警表
+CREATE TABLE IF NOT EXISTS risk_alerts (
+    id VARCHAR(36) PRIMARY KEY COMMENT '预警ID',
+    dedup_key VARCHAR(80) NOT NULL COMMENT '去重键（HIGH_RISK:农户ID、OVERDUE:融资申请ID）',
+    alert_type VARCHAR(20) NOT NULL COMMENT '预警类型: HIGH_RISK-高风险客户, OVERDUE-逾期',
+    alert_level VARCHAR(20) NOT NULL COMMENT '预警级别: LOW, MEDIUM, HIGH, CRITICAL',
+    customer_id VARCHAR(36) COMMENT '客户（农户）ID',
+    financing_id VARCHAR(36) COMMENT '融资申请ID',
+    description VARCHAR(500) COMMENT '预警描述',
+    status VARCHAR(20) NOT NULL COMMENT '状态: OPEN-待处理, ACKNOWLEDGED-已确认, CLOSED-已关闭',
+    raised_at DATETIME NOT NULL COMMENT '最近一次打开时间',
+    occurrences INT NOT NULL DEFAULT 1 COMMENT '打开次数',
+    acknowledged_by VARCHAR(36) COMMENT '确认人ID',
+    acknowledged_at DATETIME COMMENT '确认时间',
+    closed_at DATETIME COMMENT '关闭时间',
+    updated_at DATETIME NOT NULL COMMENT '更新时间',
+    UNIQUE KEY uk_risk_alert_dedup_key (dedup_key),
+    INDEX idx_risk_alert_status_raised (status, raised_at, id),
+    INDEX idx_risk_alert_financing (financing_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='风险预警表';
+
 -- 创建银行系统配置表
 CREATE TABLE IF NOT EXISTS bank_system_config (
     id VARCHAR(36) PRIMARY KEY COMMENT '配置ID',
@@ -629,6 +736,8 @@ CREATE TABLE IF NOT EXISTS orders (
     INDEX idx_farmer_id (farmer_id),
     INDEX idx_status (status),
     INDEX idx_created_at (created_at),
+    INDEX idx_orders_created_amount (created_at, total_amount),
+    INDEX idx_orders_refund_status_created (refund_status, created_at),
     FOREIGN KEY (buyer_id) REFERENCES users(id),
     FOREIGN KEY (farmer_id) REFERENCES users(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表';
@@ -883,6 +992,7 @@ CREATE TABLE IF NOT EXISTS buyer_orders (
     INDEX idx_buyer_orders_buyer (buyer_id),
     INDEX idx_buyer_orders_status (status),
     INDEX idx_buyer_orders_created_at (created_at),
+    INDEX idx_buyer_orders_buyer_created_at (buyer_id, created_at, id),
     INDEX idx_buyer_orders_refund_status (refund_status),
     FOREIGN KEY (buyer_id) REFERENCES users(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='买家订单表';
@@ -902,6 +1012,19 @@ CREATE TABLE IF NOT EXISTS buyer_order_items (
     FOREIGN KEY (product_id) REFERENCES farmer_products(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='买家订单项表';
 
+-- 创建库存预占表
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id VARCHAR(36) PRIMARY KEY COMMENT '预占记录ID',
+    order_id VARCHAR(36) NOT NULL COMMENT '买家订单ID',
+    product_id VARCHAR(36) NOT NULL COMMENT '商品ID',
+    quantity INT NOT NULL COMMENT '预占数量',
+    status VARCHAR(20) NOT NULL DEFAULT 'RESERVED' COMMENT '状态：RESERVED/CONFIRMED/RELEASED',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    updated_at DATETIME NOT NULL COMMENT '更新时间',
+    INDEX idx_stock_reservation_order (order_id),
+    INDEX idx_stock_reservation_product (product_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='库存预占表';
+
 -- 创建买家购物车表
 CREATE TABLE IF NOT EXISTS buyer_cart_items (
     id VARCHAR(36) PRIMARY KEY COMMENT '购物车项ID',
@@ -936,3 +1059,30 @@ CREATE TABLE IF NOT EXISTS buyer_addresses (
     INDEX idx_buyer_addresses_default (is_default),
     FOREIGN KEY (buyer_id) REFERENCES users(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='买家收货地址表';
+
+-- 创建通知出箱表
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id VARCHAR(36) PRIMARY KEY COMMENT '通知ID',
+    user_id VARCHAR(36) NOT NULL COMMENT '接收用户ID',
+    channel VARCHAR(20) NOT NULL COMMENT '渠道: IN_APP-站内信, SMS-短信, EMAIL-邮件',
+    type VARCHAR(30) NOT NULL COMMENT '通知类型',
+    business_id VARCHAR(36) COMMENT '关联业务ID',
+    title VARCHAR(100) NOT NULL COMMENT '标题',
+    content TEXT NOT NULL COMMENT '内容',
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING' COMMENT '状态: PENDING-待投递, SENDING-投递中, SENT-已投递, SKIPPED-无联系方式, FAILED-失败',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '已尝试次数',
+    next_attempt_at DATETIME NOT NULL COMMENT '下次可投递时间（投递中为租约到期时间）',
+    last_error VARCHAR(500) COMMENT '最近一次失败原因',
+    created_at DATETIME NOT NULL COMMENT '创建时间',
+    sent_at DATETIME COMMENT '投递时间',
+    INDEX idx_notification_outbox_status_next (status, next_attempt_at),
+    INDEX idx_notification_outbox_user (user_id, channel)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='通知出箱表';
+
+-- 创建访问量统计表
+CREATE TABLE IF NOT EXISTS traffic_stats (
+    period_key VARCHAR(16) PRIMARY KEY COMMENT '统计周期: 日期(yyyy-MM-dd)或TOTAL-累计',
+    pv BIGINT NOT NULL COMMENT '页面访问量',
+    uv_sketch VARBINARY(12288) NOT NULL COMMENT 'UV的HyperLogLog草图(p=14, 每寄存器6位)',
+    updated_at DATETIME NOT NULL COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='访问量统计表';
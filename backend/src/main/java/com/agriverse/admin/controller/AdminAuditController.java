@@ -57,6 +57,26 @@ public class AdminAuditController {
         }
     }
     
+    /**
+     * 重建商品检索索引
+     */
+    @Operation(summary = "重建商品检索索引", description = "从数据库全量重建商品全文检索索引")
+    @ApiResponses({
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "重建成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
+    })
+    @PostMapping("/product/search-index/rebuild")
+    public ResponseEntity<ApiResponse<Long>> rebuildProductSearchIndex(Principal principal) {
+        try {
+            long count = auditService.rebuildProductSearchIndex(principal.getName());
+            return ResponseEntity.ok(ApiResponse.success("重建成功", count));
+        } catch (Exception e) {
+            log.error("重建商品检索索引异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "重建失败，请稍后重试"));
+        }
+    }
+    
     /**
      * 审核内容
      */
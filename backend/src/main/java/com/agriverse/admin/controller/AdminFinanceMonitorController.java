@@ -3,6 +3,7 @@ package com.agriverse.admin.controller;
 import com.agriverse.admin.dto.FinanceMonitorResponse;
 import com.agriverse.admin.service.AdminFinanceMonitorService;
 import com.agriverse.dto.ApiResponse;
+import com.agriverse.exception.BusinessException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -10,9 +11,11 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Slf4j
 @RestController
@@ -24,27 +27,50 @@ import org.springframework.web.bind.annotation.*;
 @SecurityRequirement(name = "Bearer Authentication")
 public class AdminFinanceMonitorController {
     private final AdminFinanceMonitorService financeMonitorService;
-    
+
     /**
      * 获取融资监控数据
      */
-    @Operation(summary = "获取融资监控数据", description = "获取融资申请统计和列表")
+    @Operation(summary = "获取融资监控数据", description = "获取融资申请统计和一页申请列表（游标分页）")
     @ApiResponses({
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "分页游标无效"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
     })
     @GetMapping("/monitor")
-    public ResponseEntity<ApiResponse<FinanceMonitorResponse>> getFinanceMonitor() {
+    public ResponseEntity<ApiResponse<FinanceMonitorResponse>> getFinanceMonitor(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer pageSize) {
         try {
-            FinanceMonitorResponse monitor = financeMonitorService.getFinanceMonitor();
+            FinanceMonitorResponse monitor = financeMonitorService.getFinanceMonitor(status, cursor, pageSize);
             return ResponseEntity.ok(ApiResponse.success("获取成功", monitor));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取融资监控数据异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(ApiResponse.error(500, "获取失败，请稍后重试"));
         }
     }
-}
-
-
 
+    /**
+     * 流式导出融资申请
+     */
+    @Operation(summary = "流式导出融资申请", description = "以 NDJSON 格式（每行一条）按创建时间倒序返回全部融资申请")
+    @GetMapping(value = "/applications/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamApplications(@RequestParam(required = false) String status) {
+        StreamingResponseBody body = out -> {
+            try {
+                financeMonitorService.streamApplications(status, out);
+            } catch (Exception e) {
+                log.error("导出融资申请异常: status={}", status, e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+}
@@ -5,6 +5,7 @@ import com.agriverse.admin.dto.RefundDisputeResponse;
 import com.agriverse.admin.service.AdminRefundService;
 import com.agriverse.dto.ApiResponse;
 import com.agriverse.entity.Order;
+import com.agriverse.util.PageCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -13,9 +14,11 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.security.Principal;
 import java.util.List;
@@ -34,16 +37,23 @@ public class AdminRefundController {
     /**
      * 获取退款纠纷列表
      */
-    @Operation(summary = "获取退款纠纷列表", description = "获取所有需要仲裁的退款纠纷")
+    @Operation(summary = "获取退款纠纷列表",
+        description = "游标分页获取需要仲裁的退款纠纷，下一页游标在 X-Next-Cursor 响应头中返回")
     @ApiResponses({
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
     })
     @GetMapping("/disputes")
-    public ResponseEntity<ApiResponse<List<RefundDisputeResponse>>> getRefundDisputes() {
+    public ResponseEntity<ApiResponse<List<RefundDisputeResponse>>> getRefundDisputes(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer pageSize) {
         try {
-            List<RefundDisputeResponse> disputes = refundService.getRefundDisputes();
-            return ResponseEntity.ok(ApiResponse.success("获取成功", disputes));
+            PageCursor.Slice<RefundDisputeResponse> disputes = refundService.getRefundDisputes(cursor, pageSize);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (disputes.hasMore()) {
+                response.header(PageCursor.NEXT_CURSOR_HEADER, disputes.nextCursor());
+            }
+            return response.body(ApiResponse.success("获取成功", disputes.content()));
         } catch (Exception e) {
             log.error("获取退款纠纷列表异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -51,6 +61,25 @@ public class AdminRefundController {
         }
     }
 
+    /**
+     * 流式导出退款纠纷
+     */
+    @Operation(summary = "流式导出退款纠纷", description = "以 NDJSON 格式（每行一条）返回全部需要仲裁的退款纠纷")
+    @GetMapping(value = "/disputes/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamRefundDisputes() {
+        StreamingResponseBody body = out -> {
+            try {
+                refundService.streamRefundDisputes(out);
+            } catch (Exception e) {
+                log.error("导出退款纠纷异常", e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+
     /**
      * 获取退款详情
      */
@@ -19,7 +19,9 @@ public class FinanceMonitorResponse {
     private Integer approvedCount;        // 已批准数量
     private BigDecimal totalAmount;        // 融资总额
     private BigDecimal repayingAmount;    // 还款中金额
-    private List<FinancingApplication> applications; // 融资申请列表
+    private List<FinancingApplication> applications; // 融资申请列表（当前页）
+    private String nextCursor;            // 下一页游标，没有更多数据时为空
+    private Boolean hasMore;              // 是否还有下一页
 }
 
 
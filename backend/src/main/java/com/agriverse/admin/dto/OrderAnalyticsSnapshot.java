@@ -0,0 +1,34 @@
+package com.agriverse.admin.dto;
+
+import com.agriverse.bank.dto.TrendData;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单统计快照
+ * 由数据库聚合查询得到，管理端仪表盘与订单统计共用
+ *
+ * @param totalOrders              订单总数
+ * @param totalAmount              订单总额
+ * @param todayOrders              今日订单数
+ * @param todayAmount              今日订单额
+ * @param orderTrend               近几个月的订单数（含本月，无订单的月份为0）
+ * @param revenueTrend             近几个月的订单额
+ * @param statusDistribution       订单状态分布
+ * @param refundStatusDistribution 退款状态分布
+ * @param computedAt               统计时间
+ */
+public record OrderAnalyticsSnapshot(
+        long totalOrders,
+        BigDecimal totalAmount,
+        long todayOrders,
+        BigDecimal todayAmount,
+        List<TrendData> orderTrend,
+        List<TrendData> revenueTrend,
+        Map<String, Long> statusDistribution,
+        Map<String, Long> refundStatusDistribution,
+        LocalDateTime computedAt) {
+}
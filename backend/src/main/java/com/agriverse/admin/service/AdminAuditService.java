@@ -11,12 +11,15 @@ import com.agriverse.admin.repository.AdminContentAuditRepository;
 import com.agriverse.admin.repository.AdminExpertAuditRepository;
 import com.agriverse.admin.repository.AdminProductAuditRepository;
 import com.agriverse.auth.repository.UserRepository;
+import com.agriverse.auth.service.UserProfileResolver;
 import com.agriverse.entity.FarmerProduct;
 import com.agriverse.entity.User;
 import com.agriverse.farmer.repository.FarmerProductRepository;
+import com.agriverse.farmer.service.ProductSearchIndex;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -32,6 +35,8 @@ public class AdminAuditService {
     private final FarmerProductRepository farmerProductRepository;
     private final UserRepository userRepository;
     private final AdminOperationLogService operationLogService;
+    private final UserProfileResolver userProfileResolver;
+    private final ProductSearchIndex productSearchIndex;
     
     /**
      * 审核商品
@@ -57,6 +62,7 @@ public class AdminAuditService {
             product.setStatus(FarmerProduct.ProductStatus.OFF); // 下架
         }
         farmerProductRepository.save(product);
+        productSearchIndex.indexAfterCommit(product);
         
         // 记录操作日志
         operationLogService.logOperation(
@@ -119,6 +125,7 @@ public class AdminAuditService {
             // 更新用户角色为专家
             expert.setRole(User.UserRole.EXPERT);
             userRepository.save(expert);
+            userProfileResolver.invalidate(expert.getId());
         } else if ("REJECTED".equals(request.getAuditStatus())) {
             // 如果拒绝，可以保持原角色或设置为其他角色
             // 这里保持原角色不变
@@ -137,6 +144,23 @@ public class AdminAuditService {
         return saved;
     }
     
+    /**
+     * 从数据库重建商品检索索引（不在事务内执行，避免持久化上下文累积全部商品）
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long rebuildProductSearchIndex(String operatorId) {
+        long count = productSearchIndex.rebuild();
+        operationLogService.logOperation(
+            operatorId,
+            AdminOperationLog.ActionType.PRODUCT_AUDIT,
+            "重建商品检索索引: " + count + " 条",
+            AdminOperationLog.TargetType.PRODUCT,
+            null,
+            "商品检索索引"
+        );
+        return count;
+    }
+    
     /**
      * 获取待审核商品列表
      */
@@ -3,53 +3,127 @@ package com.agriverse.admin.service;
 import com.agriverse.admin.dto.FinanceMonitorResponse;
 import com.agriverse.finance.entity.FinancingApplication;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
+import com.agriverse.util.NdjsonWriter;
+import com.agriverse.util.PageCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.Set;
 
+/**
+ * 融资监控服务
+ * 统计数据由按状态分组的聚合查询得到，申请列表按游标分页返回，全量数据通过 NDJSON 流式导出
+ */
 @Service
 @RequiredArgsConstructor
 public class AdminFinanceMonitorService {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final Set<FinancingApplication.FinancingStatus> PENDING = EnumSet.of(
+        FinancingApplication.FinancingStatus.APPLIED,
+        FinancingApplication.FinancingStatus.REVIEWING);
+
+    private static final Set<FinancingApplication.FinancingStatus> APPROVED = EnumSet.of(
+        FinancingApplication.FinancingStatus.APPROVED,
+        FinancingApplication.FinancingStatus.SIGNED,
+        FinancingApplication.FinancingStatus.DISBURSED);
+
     private final FinancingApplicationRepository applicationRepository;
-    
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
     /**
-     * 获取融资监控数据
+     * 获取融资监控数据，申请列表只返回一页
+     *
+     * @param status   申请状态，为空时不过滤
+     * @param cursor   上一页返回的 nextCursor，空字符串表示第一页
+     * @param pageSize 每页条数
      */
-    public FinanceMonitorResponse getFinanceMonitor() {
-        List<FinancingApplication> allApplications = applicationRepository.findAll();
-        
-        Integer totalApplications = allApplications.size();
-        Integer pendingApprovals = (int) allApplications.stream()
-            .filter(a -> a.getStatus() == FinancingApplication.FinancingStatus.APPLIED ||
-                        a.getStatus() == FinancingApplication.FinancingStatus.REVIEWING)
-            .count();
-        Integer approvedCount = (int) allApplications.stream()
-            .filter(a -> a.getStatus() == FinancingApplication.FinancingStatus.APPROVED ||
-                        a.getStatus() == FinancingApplication.FinancingStatus.SIGNED ||
-                        a.getStatus() == FinancingApplication.FinancingStatus.DISBURSED)
-            .count();
-        
-        BigDecimal totalAmount = allApplications.stream()
-            .map(FinancingApplication::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal repayingAmount = allApplications.stream()
-            .filter(a -> a.getStatus() == FinancingApplication.FinancingStatus.REPAYING)
-            .map(FinancingApplication::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
+    @Transactional(readOnly = true)
+    public FinanceMonitorResponse getFinanceMonitor(String status, String cursor, Integer pageSize) {
+        long totalApplications = 0;
+        long pendingApprovals = 0;
+        long approvedCount = 0;
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        BigDecimal repayingAmount = BigDecimal.ZERO;
+        for (Object[] row : applicationRepository.summarizeByStatus()) {
+            FinancingApplication.FinancingStatus rowStatus = (FinancingApplication.FinancingStatus) row[0];
+            long count = ((Number) row[1]).longValue();
+            BigDecimal amount = (BigDecimal) row[2];
+            totalApplications += count;
+            totalAmount = totalAmount.add(amount);
+            if (PENDING.contains(rowStatus)) {
+                pendingApprovals += count;
+            } else if (APPROVED.contains(rowStatus)) {
+                approvedCount += count;
+            } else if (rowStatus == FinancingApplication.FinancingStatus.REPAYING) {
+                repayingAmount = repayingAmount.add(amount);
+            }
+        }
+
+        PageCursor.Slice<FinancingApplication> page = getApplicationPage(status, cursor, pageSize);
+
         return FinanceMonitorResponse.builder()
-            .totalApplications(totalApplications)
-            .pendingApprovals(pendingApprovals)
-            .approvedCount(approvedCount)
+            .totalApplications((int) totalApplications)
+            .pendingApprovals((int) pendingApprovals)
+            .approvedCount((int) approvedCount)
             .totalAmount(totalAmount)
             .repayingAmount(repayingAmount)
-            .applications(allApplications)
+            .applications(page.content())
+            .nextCursor(page.nextCursor())
+            .hasMore(page.hasMore())
             .build();
     }
-}
 
+    /**
+     * 游标分页获取融资申请（按创建时间倒序）
+     */
+    @Transactional(readOnly = true)
+    public PageCursor.Slice<FinancingApplication> getApplicationPage(String status, String cursor, Integer pageSize) {
+        return findPage(parseStatus(status), PageCursor.decode(cursor),
+            PageCursor.pageSize(pageSize, DEFAULT_PAGE_SIZE));
+    }
 
+    /**
+     * 以 NDJSON 格式逐页写出融资申请（不关闭输出流）
+     *
+     * @return 写出条数
+     */
+    @Transactional(readOnly = true)
+    public int streamApplications(String status, OutputStream out) throws IOException {
+        FinancingApplication.FinancingStatus statusEnum = parseStatus(status);
+        return new NdjsonWriter(objectMapper, out).writePages(
+            cursor -> findPage(statusEnum, cursor, NdjsonWriter.STREAM_PAGE_SIZE),
+            entityManager::clear);
+    }
+
+    private PageCursor.Slice<FinancingApplication> findPage(FinancingApplication.FinancingStatus status,
+                                                            PageCursor cursor, int pageSize) {
+        return PageCursor.slice(
+            applicationRepository.findPageAfter(status, cursor.createdAt(), cursor.id(),
+                PageRequest.ofSize(pageSize + 1)),
+            pageSize, FinancingApplication::getCreatedAt, FinancingApplication::getId);
+    }
 
+    /**
+     * 解析状态参数，为空或无法识别时不过滤
+     */
+    private static FinancingApplication.FinancingStatus parseStatus(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        try {
+            return FinancingApplication.FinancingStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -5,15 +5,15 @@ import com.agriverse.admin.entity.AdminGrayRelease;
 import com.agriverse.admin.entity.AdminOperationLog;
 import com.agriverse.admin.repository.AdminGrayReleaseRepository;
 import com.agriverse.auth.repository.UserRepository;
-import com.agriverse.entity.User;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
+import java.security.Principal;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -23,6 +23,7 @@ public class AdminGrayReleaseService {
     private final AdminGrayReleaseRepository grayReleaseRepository;
     private final AdminOperationLogService operationLogService;
     private final UserRepository userRepository;
+    private final GrayReleaseEvaluator grayReleaseEvaluator;
     
     /**
      * 创建灰度发布
@@ -41,6 +42,7 @@ public class AdminGrayReleaseService {
             .build();
         
         AdminGrayRelease saved = grayReleaseRepository.save(grayRelease);
+        grayReleaseEvaluator.reloadAfterCommit();
         
         // 记录操作日志
         operationLogService.logOperation(
@@ -77,6 +79,7 @@ public class AdminGrayReleaseService {
         }
         
         AdminGrayRelease saved = grayReleaseRepository.save(grayRelease);
+        grayReleaseEvaluator.reloadAfterCommit();
         
         // 记录操作日志
         operationLogService.logOperation(
@@ -103,47 +106,41 @@ public class AdminGrayReleaseService {
     
     /**
      * 检查功能是否对用户启用
+     * 按用户ID判断时需要读取用户属性；请求中应优先使用按认证主体判断的重载，不访问数据库
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean isFeatureEnabledForUser(String featureName, String userId) {
-        Optional<AdminGrayRelease> grayReleaseOpt = grayReleaseRepository.findByFeatureName(featureName);
-        
-        if (grayReleaseOpt.isEmpty()) {
+        if (!grayReleaseEvaluator.isActive(featureName)) {
             return false;
         }
-        
-        AdminGrayRelease grayRelease = grayReleaseOpt.get();
-        if (!grayRelease.getEnabled()) {
-            return false;
-        }
-        
-        // 根据发布比例和目标用户判断
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            return false;
+        return userRepository.findById(userId)
+            .map(user -> grayReleaseEvaluator.isEnabled(featureName, GrayReleaseEvaluator.Subject.of(user)))
+            .orElse(false);
+    }
+
+    /**
+     * 检查功能是否对当前认证用户启用，用户属性取自访问令牌
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public boolean isFeatureEnabled(String featureName, Principal principal) {
+        GrayReleaseEvaluator.Subject subject = GrayReleaseEvaluator.Subject.of(principal);
+        if (subject == null && principal != null) {
+            return isFeatureEnabledForUser(featureName, principal.getName());
         }
-        
-        User user = userOpt.get();
-        
-        // 检查目标用户类型
-        if (grayRelease.getTargetUsers() == AdminGrayRelease.TargetUsers.NEW) {
-            // 新用户：注册时间在30天内
-            if (user.getCreatedAt() == null || 
-                user.getCreatedAt().isBefore(LocalDateTime.now().minusDays(30))) {
-                return false;
-            }
-        } else if (grayRelease.getTargetUsers() == AdminGrayRelease.TargetUsers.VIP) {
-            // VIP用户：这里可以根据业务逻辑判断，暂时使用邮箱已验证作为VIP标识
-            if (!Boolean.TRUE.equals(user.getEmailVerified())) {
-                return false;
-            }
+        return grayReleaseEvaluator.isEnabled(featureName, subject);
+    }
+
+    /**
+     * 一次求出全部灰度功能对当前认证用户的启用状态
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Map<String, Boolean> evaluateAll(Principal principal) {
+        GrayReleaseEvaluator.Subject subject = GrayReleaseEvaluator.Subject.of(principal);
+        if (subject == null && principal != null) {
+            subject = userRepository.findById(principal.getName())
+                .map(GrayReleaseEvaluator.Subject::of)
+                .orElse(null);
         }
-        // ALL类型不需要额外检查
-        
-        // 根据发布比例判断（使用用户ID的哈希值）
-        int userHash = Math.abs(userId.hashCode());
-        int percent = userHash % 100;
-        
-        return percent < grayRelease.getReleasePercent();
+        return grayReleaseEvaluator.evaluateAll(subject);
     }
 }
-
@@ -1,5 +1,6 @@
 package com.agriverse.admin.service;
 
+import com.agriverse.admin.dto.OrderAnalyticsSnapshot;
 import com.agriverse.admin.dto.OrderSearchRequest;
 import com.agriverse.admin.dto.OrderStatisticsResponse;
 import com.agriverse.entity.Order;
@@ -12,72 +13,30 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class AdminOrderService {
     private final OrderRepository orderRepository;
+    private final OrderAnalyticsService orderAnalyticsService;
 
     /**
-     * 获取订单统计
+     * 获取订单统计（聚合查询，短时缓存）
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public OrderStatisticsResponse getOrderStatistics() {
-        LocalDate today = LocalDate.now();
-        LocalDateTime todayStart = today.atStartOfDay();
-        LocalDateTime todayEnd = today.atTime(23, 59, 59);
-
-        // 订单总数和总额
-        List<Order> allOrders = orderRepository.findAll();
-        Long totalOrders = (long) allOrders.size();
-        BigDecimal totalAmount = allOrders.stream()
-            .map(Order::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 今日订单
-        List<Order> todayOrders = orderRepository.findByCreatedAtBetween(todayStart, todayEnd);
-        Integer todayOrdersCount = todayOrders.size();
-        BigDecimal todayAmount = todayOrders.stream()
-            .map(Order::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 订单状态分布
-        Map<String, Long> statusDistribution = new HashMap<>();
-        for (Order.OrderStatus status : Order.OrderStatus.values()) {
-            Long count = orderRepository.countByStatus(status);
-            if (count > 0) {
-                statusDistribution.put(status.name(), count);
-            }
-        }
-
-        // 退款状态分布
-        Map<String, Long> refundStatusDistribution = new HashMap<>();
-        List<Order> refundOrders = orderRepository.findAll().stream()
-            .filter(o -> o.getRefundStatus() != null)
-            .collect(java.util.stream.Collectors.toList());
-        refundStatusDistribution = refundOrders.stream()
-            .filter(o -> o.getRefundStatus() != null)
-            .collect(Collectors.groupingBy(
-                o -> o.getRefundStatus().name(),
-                Collectors.counting()
-            ));
+        OrderAnalyticsSnapshot snapshot = orderAnalyticsService.getSnapshot();
 
         return OrderStatisticsResponse.builder()
-            .totalOrders(totalOrders)
-            .totalAmount(totalAmount)
-            .todayOrders(todayOrdersCount)
-            .todayAmount(todayAmount)
-            .statusDistribution(statusDistribution)
-            .refundStatusDistribution(refundStatusDistribution)
+            .totalOrders(snapshot.totalOrders())
+            .totalAmount(snapshot.totalAmount())
+            .todayOrders((int) snapshot.todayOrders())
+            .todayAmount(snapshot.todayAmount())
+            .statusDistribution(snapshot.statusDistribution())
+            .refundStatusDistribution(snapshot.refundStatusDistribution())
             .build();
     }
 
@@ -7,13 +7,27 @@ import com.agriverse.entity.Order;
 import com.agriverse.entity.RefundHistory;
 import com.agriverse.order.repository.OrderRepository;
 import com.agriverse.order.repository.RefundHistoryRepository;
-import com.agriverse.auth.repository.UserRepository;
+import com.agriverse.auth.service.UserProfileResolver;
+import com.agriverse.buyer.service.BuyerOrderService;
+import com.agriverse.util.NdjsonWriter;
+import com.agriverse.util.PageCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -21,26 +35,73 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional
 public class AdminRefundService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * 需要平台介入的退款状态
+     */
+    private static final Set<Order.RefundStatus> DISPUTE_STATUSES = EnumSet.of(
+        Order.RefundStatus.PENDING,
+        Order.RefundStatus.REJECTED,
+        Order.RefundStatus.ESCALATED);
+
     private final OrderRepository orderRepository;
     private final RefundHistoryRepository refundHistoryRepository;
-    private final UserRepository userRepository;
+    private final UserProfileResolver userProfileResolver;
     private final AdminOperationLogService operationLogService;
+    private final BuyerOrderService buyerOrderService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
     /**
-     * 获取退款纠纷列表
+     * 游标分页获取退款纠纷列表（待处理、已拒绝、已升级仲裁），按创建时间倒序
+     *
+     * @param cursor   上一页返回的 nextCursor，空字符串表示第一页
+     * @param pageSize 每页条数
      */
-    public List<RefundDisputeResponse> getRefundDisputes() {
-        // 获取需要仲裁的退款订单（状态为REJECTED或ESCALATED）
-        List<Order> disputeOrders = orderRepository.findAll().stream()
-            .filter(o -> o.getRefundStatus() != null && 
-                (o.getRefundStatus() == Order.RefundStatus.REJECTED ||
-                 o.getRefundStatus() == Order.RefundStatus.ESCALATED ||
-                 o.getRefundStatus() == Order.RefundStatus.PENDING))
-            .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public PageCursor.Slice<RefundDisputeResponse> getRefundDisputes(String cursor, Integer pageSize) {
+        return findDisputePage(PageCursor.decode(cursor), PageCursor.pageSize(pageSize, DEFAULT_PAGE_SIZE));
+    }
+
+    /**
+     * 以 NDJSON 格式逐页写出全部退款纠纷（不关闭输出流）
+     *
+     * @return 写出条数
+     */
+    @Transactional(readOnly = true)
+    public int streamRefundDisputes(OutputStream out) throws IOException {
+        return new NdjsonWriter(objectMapper, out).writePages(
+            cursor -> findDisputePage(cursor, NdjsonWriter.STREAM_PAGE_SIZE),
+            entityManager::clear);
+    }
+
+    private PageCursor.Slice<RefundDisputeResponse> findDisputePage(PageCursor cursor, int pageSize) {
+        PageCursor.Slice<Order> page = PageCursor.slice(
+            orderRepository.findByRefundStatusInAfter(DISPUTE_STATUSES, cursor.createdAt(), cursor.id(),
+                PageRequest.ofSize(pageSize + 1)),
+            pageSize, Order::getCreatedAt, Order::getId);
+        List<Order> disputeOrders = page.content();
+        if (disputeOrders.isEmpty()) {
+            return new PageCursor.Slice<>(List.of(), page.nextCursor());
+        }
 
-        return disputeOrders.stream()
-            .map(this::convertToRefundDisputeResponse)
+        // 本页相关的买家与农户名称、退款历史各一次查询
+        Set<String> userIds = new HashSet<>();
+        disputeOrders.forEach(o -> {
+            userIds.add(o.getBuyerId());
+            userIds.add(o.getFarmerId());
+        });
+        Map<String, UserProfileResolver.UserProfile> profiles = userProfileResolver.resolveAll(userIds);
+        Map<String, List<RefundHistory>> histories = refundHistoryRepository
+            .findByOrderIdInOrderByCreatedAtDesc(disputeOrders.stream().map(Order::getId).toList())
+            .stream()
+            .collect(Collectors.groupingBy(RefundHistory::getOrderId));
+
+        List<RefundDisputeResponse> content = disputeOrders.stream()
+            .map(o -> convertToRefundDisputeResponse(o, histories.getOrDefault(o.getId(), List.of()), profiles))
             .collect(Collectors.toList());
+        return new PageCursor.Slice<>(content, page.nextCursor());
     }
 
     /**
@@ -54,7 +115,9 @@ public class AdminRefundService {
             throw new EntityNotFoundException("该订单没有退款记录");
         }
 
-        return convertToRefundDisputeResponse(order);
+        return convertToRefundDisputeResponse(order,
+            refundHistoryRepository.findByOrderIdOrderByCreatedAtDesc(order.getId()),
+            userProfileResolver.resolveAll(List.of(order.getBuyerId(), order.getFarmerId())));
     }
 
     /**
@@ -72,6 +135,8 @@ public class AdminRefundService {
         if ("SUCCESS".equals(request.getResult())) {
             order.setRefundStatus(Order.RefundStatus.SUCCESS);
             order.setStatus(Order.OrderStatus.REFUNDED);
+            // 对应的买家订单（与 orders 共用订单ID，退款历史即按该ID记录）置为已退款并释放预占库存
+            buyerOrderService.completeArbitratedRefund(order.getId());
         } else if ("FAILED".equals(request.getResult())) {
             order.setRefundStatus(Order.RefundStatus.FAILED);
         }
@@ -85,6 +150,7 @@ public class AdminRefundService {
             .action("SUCCESS".equals(request.getResult()) ? "平台仲裁：退款成功" : "平台仲裁：退款失败")
             .actor(RefundHistory.ActorType.ADMIN)
             .note(request.getNote())
+            .createdAt(LocalDateTime.now())
             .build();
         refundHistoryRepository.save(history);
 
@@ -104,9 +170,9 @@ public class AdminRefundService {
     /**
      * 转换为退款纠纷响应
      */
-    private RefundDisputeResponse convertToRefundDisputeResponse(Order order) {
-        // 获取退款历史
-        List<RefundHistory> histories = refundHistoryRepository.findByOrderIdOrderByCreatedAtDesc(order.getId());
+    private RefundDisputeResponse convertToRefundDisputeResponse(Order order,
+                                                                 List<RefundHistory> histories,
+                                                                 Map<String, UserProfileResolver.UserProfile> profiles) {
         List<RefundDisputeResponse.RefundHistoryItem> historyItems = histories.stream()
             .map(h -> RefundDisputeResponse.RefundHistoryItem.builder()
                 .action(h.getAction())
@@ -117,11 +183,11 @@ public class AdminRefundService {
             .collect(Collectors.toList());
 
         // 获取买家和农户信息
-        String buyerName = userRepository.findById(order.getBuyerId())
-            .map(u -> u.getName() != null ? u.getName() : u.getPhone())
+        String buyerName = Optional.ofNullable(profiles.get(order.getBuyerId()))
+            .map(UserProfileResolver.UserProfile::displayName)
             .orElse("未知");
-        String farmerName = userRepository.findById(order.getFarmerId())
-            .map(u -> u.getName() != null ? u.getName() : u.getPhone())
+        String farmerName = Optional.ofNullable(profiles.get(order.getFarmerId()))
+            .map(UserProfileResolver.UserProfile::displayName)
             .orElse("未知");
 
         return RefundDisputeResponse.builder()
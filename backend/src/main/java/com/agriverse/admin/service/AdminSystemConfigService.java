@@ -3,26 +3,67 @@ package com.agriverse.admin.service;
 import com.agriverse.admin.dto.SystemConfigRequest;
 import com.agriverse.admin.entity.AdminSystemConfig;
 import com.agriverse.admin.repository.AdminSystemConfigRepository;
+import com.agriverse.util.ConfigRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class AdminSystemConfigService {
     private final AdminSystemConfigRepository configRepository;
+    private final ObjectMapper objectMapper;
+    private ConfigRegistry registry;
+
+    @PostConstruct
+    public void init() {
+        registry = new ConfigRegistry("admin", () -> configRepository.findAll().stream()
+                .map(AdminSystemConfigService::toSource)
+                .toList(), objectMapper);
+        registry.reload();
+    }
+
+    /**
+     * 定时全量重载，同步其他实例上的配置修改
+     */
+    @Scheduled(fixedDelayString = "${app.config.reload-interval-ms:60000}",
+            initialDelayString = "${app.config.reload-interval-ms:60000}")
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void reload() {
+        registry.reload();
+    }
     
     /**
-     * 获取配置值
+     * 获取配置值（读取内存快照，不访问数据库）
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public String getConfigValue(String configKey) {
-        return configRepository.findByConfigKey(configKey)
-            .map(AdminSystemConfig::getConfigValue)
-            .orElse(null);
+        return registry.get(configKey);
+    }
+
+    /**
+     * 获取配置值（带类型转换）
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public <T> T getConfigValue(String configKey, Class<T> type) {
+        return registry.get(configKey, type);
+    }
+
+    /**
+     * 监听配置变更，注册时立即以当前值回调一次
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void watch(String configKey, Consumer<ConfigRegistry.ConfigValue> listener) {
+        registry.watch(configKey, listener);
     }
     
     /**
@@ -47,7 +88,9 @@ public class AdminSystemConfigService {
         }
         config.setUpdatedBy(updatedBy);
         
-        return configRepository.save(config);
+        AdminSystemConfig saved = configRepository.save(config);
+        registry.publishAfterCommit(toSource(saved));
+        return saved;
     }
     
     /**
@@ -63,6 +106,11 @@ public class AdminSystemConfigService {
     public List<AdminSystemConfig> getAllConfigs() {
         return configRepository.findAll();
     }
+
+    private static ConfigRegistry.Source toSource(AdminSystemConfig config) {
+        return new ConfigRegistry.Source(config.getConfigKey(), config.getConfigValue(),
+                config.getConfigType() != null ? config.getConfigType().name() : null);
+    }
 }
 
 
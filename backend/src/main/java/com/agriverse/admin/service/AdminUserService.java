@@ -7,6 +7,7 @@ import com.agriverse.admin.dto.UserStatusUpdateRequest;
 import com.agriverse.admin.entity.AdminOperationLog;
 import com.agriverse.entity.User;
 import com.agriverse.auth.repository.UserRepository;
+import com.agriverse.auth.service.UserProfileResolver;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -28,6 +29,7 @@ import java.util.Map;
 public class AdminUserService {
     private final UserRepository userRepository;
     private final AdminOperationLogService operationLogService;
+    private final UserProfileResolver userProfileResolver;
     
     /**
      * 搜索用户
@@ -80,6 +82,7 @@ public class AdminUserService {
         boolean enabled = "ACTIVE".equalsIgnoreCase(request.getStatus());
         user.setEnabled(enabled);
         User saved = userRepository.save(user);
+        userProfileResolver.invalidate(saved.getId());
         
         // 记录操作日志
         operationLogService.logOperation(
@@ -105,6 +108,7 @@ public class AdminUserService {
         User.UserRole oldRole = user.getRole();
         user.setRole(newRole);
         User saved = userRepository.save(user);
+        userProfileResolver.invalidate(saved.getId());
         
         // 记录操作日志
         operationLogService.logOperation(
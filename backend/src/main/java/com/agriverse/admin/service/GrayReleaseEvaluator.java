@@ -0,0 +1,198 @@
+package com.agriverse.admin.service;
+
+import com.agriverse.admin.entity.AdminGrayRelease;
+import com.agriverse.admin.repository.AdminGrayReleaseRepository;
+import com.agriverse.entity.User;
+import com.agriverse.util.JwtTokenProvider;
+import com.agriverse.util.Murmur3;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 灰度规则求值器
+ * 全部灰度规则预编译为内存中的不可变快照，判断时不访问数据库；
+ * 用户按 murmur3(功能名:用户ID) 稳定分桶，同一用户在同一功能上的结果不随实例、语言或重启变化，
+ * 不同功能之间的分桶相互独立
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GrayReleaseEvaluator {
+    /**
+     * 分桶数，与发布比例（0-100）一一对应
+     */
+    private static final int BUCKETS = 100;
+
+    /**
+     * 新用户：注册时间在30天内
+     */
+    private static final long NEW_USER_MILLIS = Duration.ofDays(30).toMillis();
+
+    private final AdminGrayReleaseRepository grayReleaseRepository;
+
+    private volatile Map<String, Rule> rules = Map.of();
+
+    /**
+     * 从数据库重新加载全部灰度规则
+     */
+    @PostConstruct
+    public synchronized void reload() {
+        List<AdminGrayRelease> releases = grayReleaseRepository.findAll();
+        // 同名功能存在多条记录时以最近更新的为准
+        rules = releases.stream()
+                .filter(r -> r.getFeatureName() != null)
+                .sorted(Comparator.comparing(AdminGrayRelease::getUpdatedAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder())))
+                .collect(Collectors.toMap(AdminGrayRelease::getFeatureName, Rule::compile,
+                        (older, newer) -> newer, LinkedHashMap::new));
+        log.debug("灰度规则已加载: size={}", rules.size());
+    }
+
+    /**
+     * 定时重载，同步其他实例上的规则修改
+     */
+    @Scheduled(fixedDelayString = "${app.gray-release.reload-interval-ms:60000}",
+            initialDelayString = "${app.gray-release.reload-interval-ms:60000}")
+    public void scheduledReload() {
+        reload();
+    }
+
+    /**
+     * 规则修改的事务提交后重载，回滚则不生效
+     */
+    public void reloadAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload();
+                }
+            });
+        } else {
+            reload();
+        }
+    }
+
+    /**
+     * 功能是否存在且已开启（不涉及用户）
+     */
+    public boolean isActive(String featureName) {
+        Rule rule = rules.get(featureName);
+        return rule != null && rule.enabled();
+    }
+
+    /**
+     * 判断功能是否对用户启用，用户为null时视为未启用
+     */
+    public boolean isEnabled(String featureName, Subject subject) {
+        Rule rule = rules.get(featureName);
+        return rule != null && subject != null && rule.matches(subject, System.currentTimeMillis());
+    }
+
+    /**
+     * 一次求出全部功能对用户的启用状态
+     */
+    public Map<String, Boolean> evaluateAll(Subject subject) {
+        long now = System.currentTimeMillis();
+        Map<String, Rule> snapshot = rules;
+        Map<String, Boolean> result = new LinkedHashMap<>(snapshot.size() * 2);
+        for (Rule rule : snapshot.values()) {
+            result.put(rule.featureName(), subject != null && rule.matches(subject, now));
+        }
+        return result;
+    }
+
+    /**
+     * 用户在功能上的分桶，取值 [0, 100)
+     */
+    public static int bucket(String featureName, String userId) {
+        return Murmur3.bucket(featureName + ":" + userId, 0, BUCKETS);
+    }
+
+    /**
+     * 灰度判断所需的用户属性
+     *
+     * @param userId          用户ID
+     * @param createdAtMillis 注册时间戳（毫秒），未知时为null
+     * @param emailVerified   邮箱是否已验证
+     */
+    public record Subject(String userId, Long createdAtMillis, boolean emailVerified) {
+
+        public static Subject of(User user) {
+            LocalDateTime createdAt = user.getCreatedAt();
+            return new Subject(user.getId(),
+                    createdAt != null ? createdAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null,
+                    Boolean.TRUE.equals(user.getEmailVerified()));
+        }
+
+        public static Subject of(JwtTokenProvider.TokenPrincipal principal) {
+            return new Subject(principal.userId(), principal.createdAtMillis(), principal.emailVerified());
+        }
+
+        /**
+         * 从当前认证主体读取用户属性，认证主体不是访问令牌时返回null
+         */
+        public static Subject of(Principal principal) {
+            if (principal instanceof Authentication authentication
+                    && authentication.getPrincipal() instanceof JwtTokenProvider.TokenPrincipal token) {
+                return of(token);
+            }
+            if (principal instanceof JwtTokenProvider.TokenPrincipal token) {
+                return of(token);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 预编译的灰度规则
+     */
+    private record Rule(String featureName, boolean enabled, int percent, AdminGrayRelease.TargetUsers target) {
+
+        static Rule compile(AdminGrayRelease release) {
+            int percent = release.getReleasePercent() != null ? release.getReleasePercent() : 0;
+            return new Rule(release.getFeatureName(),
+                    Boolean.TRUE.equals(release.getEnabled()),
+                    Math.max(0, Math.min(BUCKETS, percent)),
+                    release.getTargetUsers() != null ? release.getTargetUsers() : AdminGrayRelease.TargetUsers.ALL);
+        }
+
+        boolean matches(Subject subject, long now) {
+            if (!enabled || percent == 0) {
+                return false;
+            }
+            switch (target) {
+                case NEW -> {
+                    if (subject.createdAtMillis() == null || subject.createdAtMillis() < now - NEW_USER_MILLIS) {
+                        return false;
+                    }
+                }
+                // VIP用户：暂时使用邮箱已验证作为VIP标识
+                case VIP -> {
+                    if (!subject.emailVerified()) {
+                        return false;
+                    }
+                }
+                default -> {
+                }
+            }
+            return percent >= BUCKETS || bucket(featureName, subject.userId()) < percent;
+        }
+    }
+}
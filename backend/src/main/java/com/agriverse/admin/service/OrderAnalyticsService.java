@@ -0,0 +1,137 @@
+package com.agriverse.admin.service;
+
+import com.agriverse.admin.dto.OrderAnalyticsSnapshot;
+import com.agriverse.bank.dto.TrendData;
+import com.agriverse.order.repository.OrderRepository;
+import com.agriverse.util.SingleFlightCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单统计服务
+ * 订单数、订单额、按月趋势及状态分布全部由 SUM/COUNT GROUP BY 聚合查询得到，不加载订单实体；
+ * 结果短时缓存，多个管理员同时刷新仪表盘时只计算一次
+ */
+@Service
+public class OrderAnalyticsService {
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("M月");
+
+    /**
+     * 仪表盘与订单统计默认展示的趋势月数（含本月），两处共享同一份缓存
+     */
+    public static final int DEFAULT_TREND_MONTHS = 6;
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final SingleFlightCache<Integer, OrderAnalyticsSnapshot> cache;
+    private final Timer computeTimer;
+
+    public OrderAnalyticsService(OrderRepository orderRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.order-analytics.ttl-seconds:30}") long ttlSeconds) {
+        this.orderRepository = orderRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cache = new SingleFlightCache<>(ttlSeconds * 1000);
+        this.computeTimer = Timer.builder("order.analytics.compute")
+                .description("订单统计聚合查询耗时")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 读取默认趋势月数的订单统计
+     */
+    public OrderAnalyticsSnapshot getSnapshot() {
+        return getSnapshot(DEFAULT_TREND_MONTHS);
+    }
+
+    /**
+     * 读取订单统计（短时缓存），趋势包含本月在内的最近 months 个月
+     */
+    public OrderAnalyticsSnapshot getSnapshot(int months) {
+        return cache.get(months, () -> computeTimer.record(
+                () -> readOnlyTransaction.execute(status -> compute(months, LocalDateTime.now()))));
+    }
+
+    /**
+     * 失效缓存的统计结果
+     */
+    public void invalidate() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 执行聚合查询计算统计
+     */
+    public OrderAnalyticsSnapshot compute(int months, LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+
+        Object[] total = orderRepository.summarizeAll().get(0);
+        Object[] todayTotal = orderRepository.summarizeBetween(
+                today.atStartOfDay(), today.plusDays(1).atStartOfDay()).get(0);
+
+        // 按月汇总，无订单的月份补0
+        YearMonth current = YearMonth.from(today);
+        YearMonth first = current.minusMonths(months - 1L);
+        Map<YearMonth, Object[]> byMonth = new HashMap<>();
+        for (Object[] row : orderRepository.summarizeByMonthSince(first.atDay(1).atStartOfDay())) {
+            byMonth.put(YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue()), row);
+        }
+        List<TrendData> orderTrend = new ArrayList<>(months);
+        List<TrendData> revenueTrend = new ArrayList<>(months);
+        for (YearMonth month = first; !month.isAfter(current); month = month.plusMonths(1)) {
+            Object[] row = byMonth.get(month);
+            String label = month.format(MONTH_LABEL);
+            orderTrend.add(new TrendData(label, row != null ? BigDecimal.valueOf(count(row[2])) : BigDecimal.ZERO));
+            revenueTrend.add(new TrendData(label, row != null ? amount(row[3]) : BigDecimal.ZERO));
+        }
+
+        return new OrderAnalyticsSnapshot(
+                count(total[0]),
+                amount(total[1]),
+                count(todayTotal[0]),
+                amount(todayTotal[1]),
+                List.copyOf(orderTrend),
+                List.copyOf(revenueTrend),
+                distribution(orderRepository.countByStatusGroup()),
+                distribution(orderRepository.countByRefundStatusGroup()),
+                now);
+    }
+
+    private static Map<String, Long> distribution(List<Object[]> rows) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                result.put(((Enum<?>) row[0]).name(), count(row[1]));
+            }
+        }
+        return result;
+    }
+
+    private static long count(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private static BigDecimal amount(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,43 @@
+package com.agriverse.analytics.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 访问量统计实体
+ * 每天一行，另有一行累计值；PV 为各节点累加值，UV 由 HyperLogLog 草图（固定12KB）估计，
+ * 各节点刷新时将本地草图按寄存器取最大值合并进来
+ */
+@Entity
+@Table(name = "traffic_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrafficStat {
+    /**
+     * 累计行的统计周期键
+     */
+    public static final String TOTAL = "TOTAL";
+
+    /**
+     * 统计周期：日期（yyyy-MM-dd）或 TOTAL
+     */
+    @Id
+    @Column(name = "period_key", length = 16)
+    private String periodKey;
+
+    @Column(nullable = false)
+    private Long pv;
+
+    /**
+     * UV 的 HyperLogLog 草图（每寄存器6位的紧凑格式）
+     */
+    @Column(name = "uv_sketch", nullable = false, length = 12288)
+    private byte[] uvSketch;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,75 @@
+package com.agriverse.analytics.filter;
+
+import com.agriverse.analytics.service.TrafficAnalyticsService;
+import com.agriverse.util.ClientIpResolver;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 访问量统计过滤器
+ * 注册在安全过滤链之后，已登录请求按用户ID计 UV，匿名请求按 IP 与 User-Agent 计 UV；
+ * 不写 Cookie，也不访问数据库
+ */
+@Component
+public class TrafficTrackingFilter extends OncePerRequestFilter {
+
+    private final TrafficAnalyticsService trafficAnalyticsService;
+    private final boolean enabled;
+    private final List<String> excludePaths;
+
+    public TrafficTrackingFilter(TrafficAnalyticsService trafficAnalyticsService,
+                                 @Value("${app.analytics.enabled:true}") boolean enabled,
+                                 @Value("${app.analytics.exclude-paths:/actuator,/swagger-ui,/v3/api-docs}")
+                                 List<String> excludePaths) {
+        this.trafficAnalyticsService = trafficAnalyticsService;
+        this.enabled = enabled;
+        this.excludePaths = excludePaths;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        if (!enabled || "OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String prefix : excludePaths) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        trafficAnalyticsService.record(visitorId(request));
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * 访客标识：登录用户为 u:用户ID，匿名访客为 a:IP|User-Agent
+     */
+    static String visitorId(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "u:" + authentication.getName();
+        }
+        String userAgent = request.getHeader("User-Agent");
+        return "a:" + ClientIpResolver.resolve(request) + "|" + (userAgent != null ? userAgent : "");
+    }
+}
@@ -0,0 +1,174 @@
+package com.agriverse.analytics.service;
+
+import com.agriverse.analytics.entity.TrafficStat;
+import com.agriverse.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 访问量统计服务
+ * 请求线程上只做一次 LongAdder 累加和一次 HyperLogLog 寄存器更新，均无锁；
+ * 定时把本地 PV 增量与 UV 草图合并进数据库的当日行和累计行（草图合并取最大值，重复合并不影响结果），
+ * 累计 UV 直接由累计草图估计，无需扫描历史数据
+ */
+@Slf4j
+@Service
+public class TrafficAnalyticsService {
+    private static final String LOCK_SQL = "SELECT pv, uv_sketch FROM traffic_stats WHERE period_key = ? FOR UPDATE";
+
+    private static final String UPDATE_SQL = "UPDATE traffic_stats SET pv = pv + ?, uv_sketch = ?, updated_at = ? " +
+            "WHERE period_key = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO traffic_stats (period_key, pv, uv_sketch, updated_at) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String READ_SQL = "SELECT period_key, pv, uv_sketch FROM traffic_stats WHERE period_key IN (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<LocalDate, DayTraffic> days = new ConcurrentHashMap<>();
+    private volatile DayTraffic current;
+
+    public TrafficAnalyticsService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param visitorId 访客标识（登录用户ID或匿名访客标识）
+     */
+    public void record(String visitorId) {
+        DayTraffic day = today();
+        day.pv.increment();
+        day.visitors.add(visitorId);
+    }
+
+    private DayTraffic today() {
+        DayTraffic day = current;
+        LocalDate today = LocalDate.now();
+        if (day == null || !day.date.equals(today)) {
+            day = days.computeIfAbsent(today, DayTraffic::new);
+            current = day;
+        }
+        return day;
+    }
+
+    /**
+     * 将本地统计合并进数据库；合并失败的 PV 增量放回，下次重试
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.flush-interval-ms:60000}",
+            initialDelayString = "${app.analytics.flush-interval-ms:60000}")
+    public synchronized void flush() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        for (DayTraffic day : days.values()) {
+            long pv = day.pv.sumThenReset();
+            if (pv == 0) {
+                // 过去的日期在上一次刷新后已无新访问，可以丢弃本地草图
+                if (day.date.isBefore(today)) {
+                    days.remove(day.date, day);
+                }
+                continue;
+            }
+            byte[] sketch = day.visitors.toBytes();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    mergeInto(day.date.toString(), pv, sketch, now);
+                    mergeInto(TrafficStat.TOTAL, pv, sketch, now);
+                });
+            } catch (RuntimeException e) {
+                day.pv.add(pv);
+                log.error("访问量统计刷新失败: date={}, pv={}", day.date, pv, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * 锁定统计行，PV 累加、草图取最大值合并；行不存在时插入，并发插入冲突时改为更新
+     */
+    private void mergeInto(String periodKey, long pv, byte[] sketch, LocalDateTime now) {
+        List<byte[]> stored = jdbcTemplate.query(LOCK_SQL, (rs, i) -> rs.getBytes(2), periodKey);
+        if (stored.isEmpty()) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, periodKey, pv, sketch, now);
+                return;
+            } catch (DuplicateKeyException e) {
+                stored = jdbcTemplate.query(LOCK_SQL, (rs, i) -> rs.getBytes(2), periodKey);
+            }
+        }
+        byte[] merged = HyperLogLog.fromBytes(stored.get(0)).merge(HyperLogLog.fromBytes(sketch)).toBytes();
+        jdbcTemplate.update(UPDATE_SQL, pv, merged, now, periodKey);
+    }
+
+    /**
+     * 今日及累计 PV/UV：数据库中已合并的值加上本节点尚未刷新的部分
+     */
+    public TrafficSummary getSummary() {
+        LocalDate today = LocalDate.now();
+        String todayKey = today.toString();
+        long todayPv = 0;
+        long totalPv = 0;
+        HyperLogLog todayUv = new HyperLogLog();
+        HyperLogLog totalUv = new HyperLogLog();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(READ_SQL, todayKey, TrafficStat.TOTAL)) {
+            long pv = ((Number) row.get("PV")).longValue();
+            HyperLogLog sketch = HyperLogLog.fromBytes((byte[]) row.get("UV_SKETCH"));
+            if (todayKey.equals(row.get("PERIOD_KEY"))) {
+                todayPv = pv;
+                todayUv.merge(sketch);
+            } else {
+                totalPv = pv;
+                totalUv.merge(sketch);
+            }
+        }
+        for (DayTraffic day : days.values()) {
+            long pending = day.pv.sum();
+            totalPv += pending;
+            totalUv.merge(day.visitors);
+            if (day.date.equals(today)) {
+                todayPv += pending;
+                todayUv.merge(day.visitors);
+            }
+        }
+        return new TrafficSummary(todayPv, totalPv, todayUv.estimate(), totalUv.estimate());
+    }
+
+    /**
+     * 访问量汇总
+     */
+    public record TrafficSummary(long todayPv, long totalPv, long todayUv, long totalUv) {
+    }
+
+    /**
+     * 本节点某一天的访问统计
+     */
+    private static final class DayTraffic {
+        private final LocalDate date;
+        private final LongAdder pv = new LongAdder();
+        private final HyperLogLog visitors = new HyperLogLog();
+
+        DayTraffic(LocalDate date) {
+            this.date = date;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.agriverse.auth.controller;
 
 import com.agriverse.auth.service.AuthService;
+import com.agriverse.auth.service.AuthThrottleService;
 import com.agriverse.dto.*;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.util.ClientIpResolver;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -32,11 +36,21 @@ public class AuthController {
      * POST /api/auth/login
      */
     @PostMapping("/login")
-    public ResponseEntity<ApiResponse<LoginResponse>> login(@Valid @RequestBody LoginRequest request) {
+    public ResponseEntity<ApiResponse<LoginResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                            HttpServletRequest httpRequest) {
         try {
             log.info("处理登录请求: phone={}", request.getPhone());
-            LoginResponse response = authService.login(request);
+            LoginResponse response = authService.login(request, ClientIpResolver.resolve(httpRequest));
             return ResponseEntity.ok(ApiResponse.success("登录成功", response));
+        } catch (BusinessException e) {
+            if (isThrottled(e)) {
+                log.warn("登录被限流: phone={}, {}", request.getPhone(), e.getMessage());
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(ApiResponse.error(429, e.getMessage()));
+            }
+            log.error("登录失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(ApiResponse.error(401, e.getMessage()));
         } catch (RuntimeException e) {
             log.error("登录失败: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -78,17 +92,23 @@ public class AuthController {
      * POST /api/auth/send-code
      */
     @PostMapping("/send-code")
-    public ResponseEntity<ApiResponse<Object>> sendVerificationCode(@Valid @RequestBody SendCodeRequest request) {
+    public ResponseEntity<ApiResponse<Object>> sendVerificationCode(@Valid @RequestBody SendCodeRequest request,
+                                                                    HttpServletRequest httpRequest) {
         try {
             log.info("处理发送验证码请求: phone={}, type={}", request.getPhone(), request.getType());
-            Object response = authService.sendVerificationCode(request);
+            Object response = authService.sendVerificationCode(request, ClientIpResolver.resolve(httpRequest));
             return ResponseEntity.ok(ApiResponse.success("验证码已发送", response));
-        } catch (RuntimeException e) {
-            log.error("发送验证码失败: {}", e.getMessage());
-            if (e.getMessage().contains("频繁")) {
+        } catch (BusinessException e) {
+            if (isThrottled(e)) {
+                log.warn("发送验证码被限流: email={}, {}", request.getEmail(), e.getMessage());
                 return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
                         .body(ApiResponse.error(429, e.getMessage()));
             }
+            log.error("发送验证码失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(400, e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("发送验证码失败: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
@@ -103,11 +123,21 @@ public class AuthController {
      * POST /api/auth/verify-code
      */
     @PostMapping("/verify-code")
-    public ResponseEntity<ApiResponse<Object>> verifyCode(@Valid @RequestBody VerifyCodeRequest request) {
+    public ResponseEntity<ApiResponse<Object>> verifyCode(@Valid @RequestBody VerifyCodeRequest request,
+                                                          HttpServletRequest httpRequest) {
         try {
             log.info("处理验证验证码请求: email={}, type={}", request.getEmail(), request.getType());
-            Object response = authService.verifyVerificationCode(request);
+            Object response = authService.verifyVerificationCode(request, ClientIpResolver.resolve(httpRequest));
             return ResponseEntity.ok(ApiResponse.success("验证成功", response));
+        } catch (BusinessException e) {
+            if (isThrottled(e)) {
+                log.warn("验证验证码被限流: email={}, {}", request.getEmail(), e.getMessage());
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .body(ApiResponse.error(429, e.getMessage()));
+            }
+            log.error("验证验证码失败: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(400, e.getMessage()));
         } catch (RuntimeException e) {
             log.error("验证验证码失败: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -228,4 +258,11 @@ public class AuthController {
     public ResponseEntity<ApiResponse<Object>> health() {
         return ResponseEntity.ok(ApiResponse.success("OK", null));
     }
+
+    /**
+     * 仅限流异常映射为 429，其余业务异常沿用各接口原有的状态码
+     */
+    private boolean isThrottled(BusinessException e) {
+        return AuthThrottleService.TOO_MANY_REQUESTS.equals(e.getCode());
+    }
 }
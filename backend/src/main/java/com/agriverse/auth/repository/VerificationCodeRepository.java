@@ -2,7 +2,12 @@ package com.agriverse.auth.repository;
 
 import com.agriverse.entity.VerificationCode;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
@@ -48,4 +53,30 @@ public interface VerificationCodeRepository extends JpaRepository<VerificationCo
                         String code,
                         VerificationCode.CodeType type,
                         LocalDateTime now);
+
+        /**
+         * 查询邮箱最新的未使用且未过期的验证码
+         */
+        Optional<VerificationCode> findFirstByEmailAndTypeAndUsedFalseAndExpiredAtAfterOrderByCreatedAtDesc(
+                        String email,
+                        VerificationCode.CodeType type,
+                        LocalDateTime now);
+
+        /**
+         * 标记验证码为已使用
+         */
+        @Transactional
+        @Modifying
+        @Query("UPDATE VerificationCode v SET v.used = true WHERE v.id = :id")
+        int markUsed(@Param("id") String id);
+
+        /**
+         * 尝试次数加一，已使用或次数已达上限时不更新（返回0）
+         * 在独立事务中提交，校验失败导致调用方事务回滚时计数仍然保留
+         */
+        @Transactional(propagation = Propagation.REQUIRES_NEW)
+        @Modifying
+        @Query("UPDATE VerificationCode v SET v.attempts = v.attempts + 1 " +
+                        "WHERE v.id = :id AND v.used = false AND v.attempts < :maxAttempts")
+        int incrementAttempts(@Param("id") String id, @Param("maxAttempts") int maxAttempts);
 }
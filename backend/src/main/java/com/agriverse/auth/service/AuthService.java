@@ -1,10 +1,8 @@
 package com.agriverse.auth.service;
 
 import com.agriverse.auth.repository.UserRepository;
-import com.agriverse.auth.repository.VerificationCodeRepository;
 import com.agriverse.dto.*;
 import com.agriverse.entity.User;
-import com.agriverse.entity.VerificationCode;
 import com.agriverse.util.JwtTokenProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,9 +24,6 @@ public class AuthService {
     @Autowired
     private UserRepository userRepository;
 
-    @Autowired
-    private VerificationCodeRepository verificationCodeRepository;
-
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
@@ -38,15 +33,26 @@ public class AuthService {
     @Autowired
     private VerificationCodeService verificationCodeService;
 
+    @Autowired
+    private AuthThrottleService throttleService;
+
     /**
      * 用户登录
+     *
+     * @param clientIp 客户端IP，用于限流
      */
-    public LoginResponse login(LoginRequest request) {
+    public LoginResponse login(LoginRequest request, String clientIp) {
         log.info("用户登录请求: phone={}", request.getPhone());
 
+        // 限流：IP 请求数与该手机号在该IP上的失败次数
+        throttleService.checkLogin(request.getPhone(), clientIp);
+
         // 查询用户
         User user = userRepository.findByPhone(request.getPhone())
-                .orElseThrow(() -> new RuntimeException("用户不存在"));
+                .orElseThrow(() -> {
+                    throttleService.recordLoginFailure(request.getPhone(), clientIp);
+                    return new RuntimeException("用户不存在");
+                });
 
         // 检查账户是否被禁用
         if (!user.getEnabled()) {
@@ -55,26 +61,19 @@ public class AuthService {
 
         // 验证密码
         if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            // 增加登录失败次数
-            user.setLoginAttempts(user.getLoginAttempts() + 1);
-            if (user.getLoginAttempts() >= 5) {
-                user.setEnabled(false);
-                log.warn("用户账户已被锁定: phone={}", request.getPhone());
-            }
-            userRepository.save(user);
+            // 失败次数按手机号+IP记在数据库，超过后暂时拒绝该IP上的该手机号登录
+            throttleService.recordLoginFailure(request.getPhone(), clientIp);
             throw new RuntimeException("密码错误");
         }
 
         // 登录成功，重置失败次数和更新最后登录时间
+        throttleService.recordLoginSuccess(request.getPhone(), clientIp);
         user.setLoginAttempts(0);
         user.setLastLoginTime(LocalDateTime.now());
         userRepository.save(user);
 
         // 生成 token
-        String accessToken = jwtTokenProvider.generateAccessToken(
-                user.getId(),
-                user.getPhone(),
-                user.getRole().name());
+        String accessToken = jwtTokenProvider.generateAccessToken(user);
         String refreshToken = jwtTokenProvider.generateRefreshToken(user.getId());
 
         log.info("用户登录成功: phone={}, userId={}", request.getPhone(), user.getId());
@@ -123,10 +122,7 @@ public class AuthService {
         markVerificationCodeAsUsedByEmail(request.getEmail(), request.getCode(), "register");
 
         // 生成 token
-        String accessToken = jwtTokenProvider.generateAccessToken(
-                user.getId(),
-                user.getPhone(),
-                user.getRole().name());
+        String accessToken = jwtTokenProvider.generateAccessToken(user);
         String refreshToken = jwtTokenProvider.generateRefreshToken(user.getId());
 
         log.info("用户注册成功: phone={}, userId={}", request.getPhone(), user.getId());
@@ -136,10 +132,15 @@ public class AuthService {
 
     /**
      * 发送验证码
+     *
+     * @param clientIp 客户端IP，用于限流
      */
-    public Map<String, Object> sendVerificationCode(SendCodeRequest request) {
+    public Map<String, Object> sendVerificationCode(SendCodeRequest request, String clientIp) {
         log.info("发送验证码请求: phone={}, email={}, type={}", request.getPhone(), request.getEmail(), request.getType());
 
+        // 限流：IP、目标邮箱/手机号及发送冷却时间，在查询数据库之前拒绝轰炸请求
+        throttleService.checkSendCode(request.getEmail(), request.getPhone(), clientIp);
+
         // 如果是注册验证码，检查手机号和邮箱是否已被注册
         if ("register".equalsIgnoreCase(request.getType())) {
             if (userRepository.existsByPhone(request.getPhone())) {
@@ -150,24 +151,6 @@ public class AuthService {
             }
         }
 
-        // 检查是否频繁发送
-        VerificationCode lastCode = verificationCodeRepository
-                .findFirstByEmailAndTypeOrderByCreatedAtDesc(
-                        request.getEmail(),
-                        VerificationCode.CodeType.valueOf(request.getType().toUpperCase()))
-                .orElse(null);
-
-        if (lastCode != null && !lastCode.isExpired()) {
-            LocalDateTime now = LocalDateTime.now();
-            long secondsSinceCreation = java.time.temporal.ChronoUnit.SECONDS
-                    .between(lastCode.getCreatedAt(), now);
-
-            if (secondsSinceCreation < 60) {
-                log.warn("验证码发送过于频繁: email={}", request.getEmail());
-                throw new RuntimeException("验证码发送过于频繁，请稍后再试");
-            }
-        }
-
         // 生成验证码并发送（通过邮箱）
         String code = verificationCodeService.generateAndSendCode(
                 request.getPhone(),
@@ -186,10 +169,14 @@ public class AuthService {
 
     /**
      * 验证验证码
+     *
+     * @param clientIp 客户端IP，用于限流
      */
-    public Map<String, Object> verifyVerificationCode(VerifyCodeRequest request) {
+    public Map<String, Object> verifyVerificationCode(VerifyCodeRequest request, String clientIp) {
         log.info("验证验证码请求: email={}, type={}", request.getEmail(), request.getType());
 
+        throttleService.checkVerify(clientIp);
+
         try {
             verifyVerificationCodeByEmail(request.getEmail(), request.getCode(), request.getType());
             Map<String, Object> result = new HashMap<>();
@@ -219,10 +206,7 @@ public class AuthService {
                 .orElseThrow(() -> new RuntimeException("用户不存在"));
 
         // 生成新的 token
-        String accessToken = jwtTokenProvider.generateAccessToken(
-                user.getId(),
-                user.getPhone(),
-                user.getRole().name());
+        String accessToken = jwtTokenProvider.generateAccessToken(user);
         String refreshToken = jwtTokenProvider.generateRefreshToken(user.getId());
 
         Map<String, Object> result = new HashMap<>();
@@ -293,38 +277,14 @@ public class AuthService {
      * 内部方法：验证验证码（基于邮箱）
      */
     private void verifyVerificationCodeByEmail(String email, String code, String type) {
-        VerificationCode verCode = verificationCodeRepository
-                .findByEmailAndCodeAndTypeAndUsedFalseAndExpiredAtAfter(
-                        email,
-                        code,
-                        VerificationCode.CodeType.valueOf(type.toUpperCase()),
-                        LocalDateTime.now())
-                .orElseThrow(() -> new RuntimeException("验证码错误或已过期"));
-
-        // 增加尝试次数
-        verCode.setAttempts(verCode.getAttempts() + 1);
-        if (verCode.getAttempts() > 3) {
-            throw new RuntimeException("验证码尝试次数过多");
-        }
-        verificationCodeRepository.save(verCode);
+        verificationCodeService.verify(email, code, type);
     }
 
     /**
      * 内部方法：标记验证码为已使用（基于邮箱）
      */
     private void markVerificationCodeAsUsedByEmail(String email, String code, String type) {
-        VerificationCode verCode = verificationCodeRepository
-                .findByEmailAndCodeAndTypeAndUsedFalseAndExpiredAtAfter(
-                        email,
-                        code,
-                        VerificationCode.CodeType.valueOf(type.toUpperCase()),
-                        LocalDateTime.now())
-                .orElse(null);
-
-        if (verCode != null) {
-            verCode.setUsed(true);
-            verificationCodeRepository.save(verCode);
-        }
+        verificationCodeService.consume(email, code, type);
     }
 
     /**
@@ -0,0 +1,174 @@
+package com.agriverse.auth.service;
+
+import com.agriverse.exception.BusinessException;
+import com.agriverse.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 认证限流服务
+ * 验证码发送、校验与登录按邮箱、手机号、IP 分别做令牌桶限流，在内存中判断，
+ * 短信/邮件轰炸和撞库流量在访问数据库之前即被拒绝；
+ * 登录失败按手机号+IP计数并记录在数据库，多实例共享同一计数，且不会因他人撞库锁住机主
+ */
+@Slf4j
+@Service
+public class AuthThrottleService {
+
+    /**
+     * 限流拒绝的业务错误码，控制器据此返回 429
+     */
+    public static final String TOO_MANY_REQUESTS = "TOO_MANY_REQUESTS";
+
+    private static final String RECORD_FAILURE_SQL = "INSERT INTO login_failures (failure_key, phone, client_ip, " +
+            "attempts, window_start, updated_at) VALUES (?, ?, ?, 1, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "attempts = CASE WHEN window_start <= ? THEN 1 ELSE attempts + 1 END, " +
+            "window_start = CASE WHEN window_start <= ? THEN ? ELSE window_start END, updated_at = ?";
+
+    private static final String FAILURES_SQL = "SELECT attempts FROM login_failures " +
+            "WHERE failure_key = ? AND window_start > ?";
+
+    private final VerificationCodeService verificationCodeService;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /** 同一邮箱两次发送验证码的最小间隔 */
+    private final TokenBucketLimiter<String> sendCodeCooldown;
+    /** 同一邮箱/手机号在时间窗内的发送次数 */
+    private final TokenBucketLimiter<String> sendCodePerTarget;
+    /** 同一IP在时间窗内的发送次数 */
+    private final TokenBucketLimiter<String> sendCodePerIp;
+    /** 同一IP的验证码校验次数 */
+    private final TokenBucketLimiter<String> verifyPerIp;
+    /** 同一IP的登录次数 */
+    private final TokenBucketLimiter<String> loginPerIp;
+    /** 同一手机号在同一IP上时间窗内允许的登录失败次数，登录成功后清零 */
+    private final int loginFailureCapacity;
+    private final Duration loginFailurePeriod;
+
+    public AuthThrottleService(
+            VerificationCodeService verificationCodeService,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${verification-code.cooldown-period:60}") long cooldownSeconds,
+            @Value("${app.auth-throttle.send-code-per-target.capacity:10}") int perTargetCapacity,
+            @Value("${app.auth-throttle.send-code-per-target.period-seconds:3600}") long perTargetPeriod,
+            @Value("${app.auth-throttle.send-code-per-ip.capacity:20}") int perIpCapacity,
+            @Value("${app.auth-throttle.send-code-per-ip.period-seconds:3600}") long perIpPeriod,
+            @Value("${app.auth-throttle.verify-per-ip.capacity:30}") int verifyCapacity,
+            @Value("${app.auth-throttle.verify-per-ip.period-seconds:60}") long verifyPeriod,
+            @Value("${app.auth-throttle.login-per-ip.capacity:30}") int loginCapacity,
+            @Value("${app.auth-throttle.login-per-ip.period-seconds:60}") long loginPeriod,
+            @Value("${app.auth-throttle.login-failures-per-phone-ip.capacity:5}") int failureCapacity,
+            @Value("${app.auth-throttle.login-failures-per-phone-ip.period-seconds:900}") long failurePeriod) {
+        this.verificationCodeService = verificationCodeService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.sendCodeCooldown = new TokenBucketLimiter<>(1, Duration.ofSeconds(cooldownSeconds));
+        this.sendCodePerTarget = new TokenBucketLimiter<>(perTargetCapacity, Duration.ofSeconds(perTargetPeriod));
+        this.sendCodePerIp = new TokenBucketLimiter<>(perIpCapacity, Duration.ofSeconds(perIpPeriod));
+        this.verifyPerIp = new TokenBucketLimiter<>(verifyCapacity, Duration.ofSeconds(verifyPeriod));
+        this.loginPerIp = new TokenBucketLimiter<>(loginCapacity, Duration.ofSeconds(loginPeriod));
+        this.loginFailureCapacity = failureCapacity;
+        this.loginFailurePeriod = Duration.ofSeconds(failurePeriod);
+    }
+
+    /**
+     * 发送验证码前检查：IP、目标邮箱/手机号、同邮箱冷却时间
+     */
+    public void checkSendCode(String email, String phone, String clientIp) {
+        require(clientIp == null || sendCodePerIp.tryAcquire(clientIp), "send_code_ip",
+                "请求过于频繁，请稍后再试");
+        String emailKey = email != null ? "email:" + email.toLowerCase(Locale.ROOT) : null;
+        if (emailKey != null) {
+            require(sendCodeCooldown.tryAcquire(emailKey), "send_code_cooldown",
+                    "验证码发送过于频繁，请稍后再试");
+            require(sendCodePerTarget.tryAcquire(emailKey), "send_code_target",
+                    "验证码发送过于频繁，请稍后再试");
+        }
+        if (phone != null) {
+            require(sendCodePerTarget.tryAcquire("phone:" + phone), "send_code_target",
+                    "验证码发送过于频繁，请稍后再试");
+        }
+    }
+
+    /**
+     * 校验验证码前检查IP
+     */
+    public void checkVerify(String clientIp) {
+        require(clientIp == null || verifyPerIp.tryAcquire(clientIp), "verify_ip",
+                "请求过于频繁，请稍后再试");
+    }
+
+    /**
+     * 登录前检查：IP 请求数（内存）及该手机号在该IP上的失败次数（数据库）
+     */
+    public void checkLogin(String phone, String clientIp) {
+        require(clientIp == null || loginPerIp.tryAcquire(clientIp), "login_ip",
+                "请求过于频繁，请稍后再试");
+        List<Integer> failures = jdbcTemplate.queryForList(FAILURES_SQL, Integer.class,
+                failureKey(phone, clientIp), LocalDateTime.now().minus(loginFailurePeriod));
+        require(failures.isEmpty() || failures.get(0) < loginFailureCapacity, "login_failures",
+                "登录失败次数过多，请稍后再试");
+    }
+
+    /**
+     * 记录一次登录失败
+     * 在独立事务中提交，登录抛出异常导致外层事务回滚时计数仍然保留
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordLoginFailure(String phone, String clientIp) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime windowFloor = now.minus(loginFailurePeriod);
+        jdbcTemplate.update(RECORD_FAILURE_SQL, failureKey(phone, clientIp), phone, ipOrUnknown(clientIp),
+                now, now, windowFloor, windowFloor, now, now);
+    }
+
+    /**
+     * 登录成功后清除该手机号在该IP上的失败计数
+     */
+    public void recordLoginSuccess(String phone, String clientIp) {
+        jdbcTemplate.update("DELETE FROM login_failures WHERE failure_key = ?", failureKey(phone, clientIp));
+    }
+
+    /**
+     * 定期清理已补满的令牌桶与过期验证码
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        int buckets = sendCodeCooldown.evictIdle() + sendCodePerTarget.evictIdle() + sendCodePerIp.evictIdle()
+                + verifyPerIp.evictIdle() + loginPerIp.evictIdle();
+        int codes = verificationCodeService.evictExpired();
+        int failures = jdbcTemplate.update("DELETE FROM login_failures WHERE window_start <= ?",
+                LocalDateTime.now().minus(loginFailurePeriod));
+        if (buckets > 0 || codes > 0 || failures > 0) {
+            log.debug("认证限流清理: buckets={}, codes={}, loginFailures={}", buckets, codes, failures);
+        }
+    }
+
+    private static String failureKey(String phone, String clientIp) {
+        return phone + "|" + ipOrUnknown(clientIp);
+    }
+
+    private static String ipOrUnknown(String clientIp) {
+        return clientIp != null ? clientIp : "unknown";
+    }
+
+    private void require(boolean allowed, String limiter, String message) {
+        if (!allowed) {
+            meterRegistry.counter("auth.throttle.rejected", "limiter", limiter).increment();
+            throw new BusinessException(TOO_MANY_REQUESTS, message);
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package com.agriverse.auth.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 邮件服务
  * 支持QQ邮箱、163邮箱等SMTP服务
+ * 邮件进入有界队列后立即返回，由若干发送线程异步投递：每个发送线程持有一条复用的 SMTP 连接，
+ * 一次取出队列中积压的多封邮件在同一连接上连续发送，空闲超时后关闭连接；队列满时按超时等待后拒绝
  */
 @Slf4j
 @Service
@@ -18,38 +40,116 @@ public class EmailService {
     @Autowired(required = false)
     private JavaMailSender mailSender;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${spring.mail.from:your-qq-email@qq.com}")
     private String fromEmail;
 
+    @Value("${app.mail.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.mail.connections:2}")
+    private int connections;
+
+    @Value("${app.mail.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.enqueue-timeout-ms:100}")
+    private long enqueueTimeoutMs;
+
+    @Value("${app.mail.idle-close-seconds:30}")
+    private long idleCloseSeconds;
+
+    private BlockingQueue<PendingMail> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    private Counter sentCounter;
+    private Counter failedCounter;
+    private Counter droppedCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        sentCounter = Counter.builder("mail.sent").description("发送成功的邮件数").register(meterRegistry);
+        failedCounter = Counter.builder("mail.failed").description("发送失败的邮件数").register(meterRegistry);
+        droppedCounter = Counter.builder("mail.dropped").description("队列已满被拒绝的邮件数").register(meterRegistry);
+        batchTimer = Timer.builder("mail.batch").description("单批邮件发送耗时").register(meterRegistry);
+        Gauge.builder("mail.queue.size", this, s -> s.queue.size())
+                .description("等待发送的邮件数").register(meterRegistry);
+
+        if (mailSender == null) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < connections; i++) {
+            Thread worker = new Thread(new SenderWorker(), "mail-sender-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+        for (Thread worker : workers) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<PendingMail> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.forEach(mail -> mail.future().completeExceptionally(new IllegalStateException("邮件服务已关闭")));
+        if (!remaining.isEmpty()) {
+            log.warn("邮件服务关闭，未发送邮件 {} 封", remaining.size());
+        }
+    }
+
     /**
-     * 发送邮件
+     * 发送邮件（异步）
      * 
      * @param to      收件人邮箱
      * @param subject 邮件主题
      * @param content 邮件内容
+     * @return 邮件实际发出后完成，发送失败时异常完成
+     * @throws RuntimeException 发送队列已满（等待 app.mail.enqueue-timeout-ms 后仍无空位）
      */
-    public void sendEmail(String to, String subject, String content) {
+    public CompletableFuture<Void> sendEmail(String to, String subject, String content) {
         log.info("发送邮件: to={}, subject={}", to, subject);
 
-        // 如果配置了邮件服务器，则发送真实邮件
-        if (mailSender != null) {
-            try {
-                SimpleMailMessage message = new SimpleMailMessage();
-                message.setTo(to);
-                message.setSubject(subject);
-                message.setText(content);
-                message.setFrom(fromEmail); // 从配置文件读取发件人地址
-                mailSender.send(message);
-                log.info("邮件发送成功: to={}, from={}", to, fromEmail);
-            } catch (Exception e) {
-                log.error("邮件发送失败: to={}", to, e);
-                throw new RuntimeException("邮件发送失败: " + e.getMessage(), e);
-            }
-        } else {
-            // 未配置邮件服务器时，仅记录日志（开发环境）
+        // 未配置邮件服务器时，仅记录日志（开发环境）
+        if (mailSender == null) {
             log.warn("邮件服务未配置，模拟发送邮件: to={}, subject={}, content={}", to, subject, content);
             log.warn("请在 application.yml 中配置 spring.mail 相关参数以启用真实邮件发送");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText(content);
+        message.setFrom(fromEmail); // 从配置文件读取发件人地址
+        PendingMail mail = new PendingMail(message, new CompletableFuture<>());
+        boolean accepted;
+        try {
+            accepted = queue.offer(mail, enqueueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
         }
+        if (!accepted) {
+            droppedCounter.increment();
+            log.error("邮件发送队列已满: to={}, queued={}", to, queue.size());
+            throw new RuntimeException("邮件发送队列已满，请稍后重试");
+        }
+        return mail.future();
     }
 
     /**
@@ -59,7 +159,7 @@ public class EmailService {
      * @param code  验证码
      * @param type  验证码类型
      */
-    public void sendVerificationCode(String email, String code, String type) {
+    public CompletableFuture<Void> sendVerificationCode(String email, String code, String type) {
         String subject = switch (type.toLowerCase()) {
             case "register" -> "AgriVerse 注册验证码";
             case "login" -> "AgriVerse 登录验证码";
@@ -95,6 +195,130 @@ public class EmailService {
                     code);
         };
 
-        sendEmail(email, subject, content);
+        return sendEmail(email, subject, content);
+    }
+
+    /**
+     * 发送线程：持有一条复用的 SMTP 连接，按批取出队列中的邮件在该连接上发送
+     */
+    private final class SenderWorker implements Runnable {
+        private Transport transport;
+
+        @Override
+        public void run() {
+            List<PendingMail> batch = new ArrayList<>(batchSize);
+            while (running) {
+                try {
+                    PendingMail first = queue.poll(idleCloseSeconds, TimeUnit.SECONDS);
+                    if (first == null) {
+                        closeTransport();
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    batchTimer.record(() -> sendBatch(batch));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (RuntimeException e) {
+                    log.error("邮件批次发送异常", e);
+                    batch.forEach(mail -> fail(mail, e));
+                } finally {
+                    batch.clear();
+                }
+            }
+            closeTransport();
+        }
+
+        private void sendBatch(List<PendingMail> batch) {
+            if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+                // 非标准实现（如测试替身）：交给其批量接口
+                try {
+                    mailSender.send(batch.stream().map(PendingMail::message).toArray(SimpleMailMessage[]::new));
+                    batch.forEach(this::succeed);
+                } catch (RuntimeException e) {
+                    batch.forEach(mail -> fail(mail, e));
+                }
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    send(sender, batch.get(i));
+                    succeed(batch.get(i));
+                } catch (MessagingException | RuntimeException e) {
+                    fail(batch.get(i), e);
+                    if (transport == null) {
+                        // 无法建立连接，本批余下邮件直接失败，不再逐封等待连接超时
+                        batch.subList(i + 1, batch.size()).forEach(mail -> fail(mail, e));
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * 在复用连接上发送一封邮件；连接已断开时重连后重试一次
+         */
+        private void send(JavaMailSenderImpl sender, PendingMail mail) throws MessagingException {
+            MimeMessage mime = sender.createMimeMessage();
+            mail.message().copyTo(new MimeMailMessage(mime));
+            mime.setSentDate(new Date());
+            mime.saveChanges();
+            Transport connected = connectedTransport(sender);
+            try {
+                connected.sendMessage(mime, mime.getAllRecipients());
+            } catch (MessagingException e) {
+                if (connected.isConnected()) {
+                    throw e;
+                }
+                log.info("SMTP 连接已断开，重新连接: {}", e.getMessage());
+                closeTransport();
+                connectedTransport(sender).sendMessage(mime, mime.getAllRecipients());
+            }
+        }
+
+        private Transport connectedTransport(JavaMailSenderImpl sender) throws MessagingException {
+            if (transport == null || !transport.isConnected()) {
+                closeTransport();
+                String protocol = sender.getProtocol() != null ? sender.getProtocol() : "smtp";
+                Transport t = sender.getSession().getTransport(protocol);
+                // 与 JavaMailSenderImpl 一致：未配置账号时不做认证
+                String username = StringUtils.hasLength(sender.getUsername()) ? sender.getUsername() : null;
+                String password = StringUtils.hasLength(sender.getPassword()) ? sender.getPassword() : null;
+                t.connect(sender.getHost(), sender.getPort(), username, password);
+                transport = t;
+                log.debug("SMTP 连接已建立: host={}, thread={}", sender.getHost(), Thread.currentThread().getName());
+            }
+            return transport;
+        }
+
+        private void closeTransport() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    log.debug("关闭 SMTP 连接失败: {}", e.getMessage());
+                }
+                transport = null;
+            }
+        }
+
+        private void succeed(PendingMail mail) {
+            sentCounter.increment();
+            log.info("邮件发送成功: to={}, from={}", String.join(",", mail.message().getTo()), fromEmail);
+            mail.future().complete(null);
+        }
+
+        private void fail(PendingMail mail, Exception e) {
+            failedCounter.increment();
+            log.error("邮件发送失败: to={}, error={}", String.join(",", mail.message().getTo()), e.getMessage());
+            mail.future().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 排队中的邮件
+     */
+    private record PendingMail(SimpleMailMessage message, CompletableFuture<Void> future) {
     }
 }
@@ -0,0 +1,111 @@
+package com.agriverse.auth.service;
+
+import com.agriverse.auth.repository.UserRepository;
+import com.agriverse.entity.User;
+import com.agriverse.util.TtlCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 用户展示信息解析服务
+ * 为商品列表、详情、退款纠纷等DTO组装提供农户/买家名称，
+ * 每页只发起一次 findAllById，并在进程内按TTL缓存解析结果
+ */
+@Slf4j
+@Service
+public class UserProfileResolver {
+
+    private final UserRepository userRepository;
+    private final TtlCache<String, UserProfile> cache;
+
+    public UserProfileResolver(UserRepository userRepository,
+                               @Value("${app.user-profile-cache.max-size:10000}") int maxSize,
+                               @Value("${app.user-profile-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.cache = new TtlCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    /**
+     * 解析单个用户
+     */
+    public Optional<UserProfile> resolve(String userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(resolveAll(Set.of(userId)).get(userId));
+    }
+
+    /**
+     * 批量解析用户，缓存未命中的部分通过一次查询加载
+     *
+     * @return 用户ID -> 展示信息（不存在的用户不在结果中）
+     */
+    public Map<String, UserProfile> resolveAll(Collection<String> userIds) {
+        Map<String, UserProfile> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        for (String userId : userIds) {
+            if (userId == null) {
+                continue;
+            }
+            UserProfile cached = cache.get(userId);
+            if (cached != null) {
+                result.put(userId, cached);
+            } else {
+                missing.add(userId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, UserProfile> loaded = new HashMap<>();
+            for (User user : userRepository.findAllById(missing)) {
+                loaded.put(user.getId(), UserProfile.of(user));
+            }
+            cache.putAll(loaded);
+            result.putAll(loaded);
+            log.debug("批量加载用户信息: requested={}, loaded={}", missing.size(), loaded.size());
+        }
+        return result;
+    }
+
+    /**
+     * 用户信息变更后失效缓存
+     */
+    public void invalidate(String userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * 用户展示信息
+     */
+    public record UserProfile(String id, String name, String phone) {
+
+        static UserProfile of(User user) {
+            return new UserProfile(user.getId(), user.getName(), user.getPhone());
+        }
+
+        /**
+         * 展示名称：优先姓名，其次手机号
+         */
+        public String displayName() {
+            return name != null ? name : phone;
+        }
+
+        /**
+         * 展示名称，姓名为空时使用默认值
+         */
+        public String nameOr(String defaultName) {
+            return Objects.requireNonNullElse(name, defaultName);
+        }
+    }
+}
@@ -2,21 +2,30 @@ package com.agriverse.auth.service;
 
 import com.agriverse.auth.repository.VerificationCodeRepository;
 import com.agriverse.entity.VerificationCode;
+import com.agriverse.util.TtlCache;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.Random;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 验证码服务
+ * 验证码保存在进程内按过期时间淘汰的存储中，校验不查询数据库；
+ * 开启写穿时签发和使用各写一次数据库，每次校验以条件更新在数据库中计一次尝试（多实例共享尝试上限），
+ * 内存未命中时从数据库回读（如其他实例签发的验证码）
  */
 @Slf4j
 @Service
-@Transactional
 public class VerificationCodeService {
 
     @Autowired
@@ -28,32 +37,58 @@ public class VerificationCodeService {
     @Value("${verification-code.expiration:600}")
     private int codeExpiration;
 
+    @Value("${verification-code.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${verification-code.write-through:true}")
+    private boolean writeThrough;
+
+    @Value("${verification-code.store-max-size:100000}")
+    private int storeMaxSize;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private TtlCache<String, IssuedCode> codes;
+
+    @PostConstruct
+    public void init() {
+        codes = new TtlCache<>(storeMaxSize, codeExpiration * 1000L);
+    }
+
     /**
-     * 生成并发送验证码（通过邮箱）
+     * 生成并发送验证码（通过邮箱），同一邮箱同一类型的新验证码覆盖旧验证码
      */
     public String generateAndSendCode(String phone, String email, String type) {
         // 生成6位随机验证码
         String code = generateCode();
+        VerificationCode.CodeType codeType = VerificationCode.CodeType.valueOf(type.toUpperCase());
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiredAt = now.plusSeconds(codeExpiration);
+
+        String id = null;
+        if (writeThrough) {
+            VerificationCode verificationCode = VerificationCode.builder()
+                    .phone(phone)
+                    .email(email)
+                    .code(code)
+                    .type(codeType)
+                    .expiredAt(expiredAt)
+                    .attempts(0)
+                    .used(false)
+                    .createdAt(now)
+                    .build();
+            id = verificationCodeRepository.save(verificationCode).getId();
+        }
+        codes.putUntil(key(email, codeType), new IssuedCode(id, code), toMillis(expiredAt));
 
-        // 创建验证码实体
-        VerificationCode verificationCode = VerificationCode.builder()
-                .phone(phone)
-                .email(email)
-                .code(code)
-                .type(VerificationCode.CodeType.valueOf(type.toUpperCase()))
-                .expiredAt(LocalDateTime.now().plusSeconds(codeExpiration))
-                .attempts(0)
-                .used(false)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        // 保存验证码到数据库
-        verificationCode = verificationCodeRepository.save(verificationCode);
-
-        // 发送邮件
+        // 发送邮件（异步，不等待 SMTP）
         try {
-            emailService.sendVerificationCode(email, code, type);
-            log.info("验证码已发送: email={}, type={}, code={}", email, type, code);
+            emailService.sendVerificationCode(email, code, type).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    log.error("验证码发送失败: email={}, type={}, error={}", email, type, e.getMessage());
+                }
+            });
+            log.info("验证码已提交发送: email={}, type={}", email, type);
         } catch (Exception e) {
             log.error("验证码发送失败: email={}, type={}", email, type, e);
             // 这里可以根据需要决定是否抛出异常
@@ -63,20 +98,117 @@ public class VerificationCodeService {
         return code;
     }
 
+    /**
+     * 校验验证码，每次校验（无论对错）计一次尝试，超过次数后验证码作废
+     */
+    public void verify(String email, String code, String type) {
+        VerificationCode.CodeType codeType = VerificationCode.CodeType.valueOf(type.toUpperCase());
+        String key = key(email, codeType);
+        IssuedCode issued = lookup(key, email, codeType);
+        if (issued == null || issued.used) {
+            throw new RuntimeException("验证码错误或已过期");
+        }
+        // 写穿时尝试次数以数据库为准，其他实例上的尝试和使用同样计入
+        boolean exhausted = writeThrough && issued.id != null
+                ? verificationCodeRepository.incrementAttempts(issued.id, maxAttempts) == 0
+                : issued.attempts.incrementAndGet() > maxAttempts;
+        if (exhausted) {
+            codes.invalidate(key);
+            log.warn("验证码尝试次数过多: email={}, type={}", email, type);
+            throw new RuntimeException("验证码尝试次数过多");
+        }
+        if (!issued.matches(code)) {
+            throw new RuntimeException("验证码错误或已过期");
+        }
+    }
+
+    /**
+     * 标记验证码为已使用
+     */
+    public void consume(String email, String code, String type) {
+        VerificationCode.CodeType codeType = VerificationCode.CodeType.valueOf(type.toUpperCase());
+        String key = key(email, codeType);
+        IssuedCode issued = lookup(key, email, codeType);
+        if (issued == null || !issued.matches(code)) {
+            return;
+        }
+        issued.used = true;
+        codes.invalidate(key);
+        if (writeThrough && issued.id != null) {
+            verificationCodeRepository.markUsed(issued.id);
+        }
+    }
+
+    /**
+     * 读取内存中的验证码，未命中且开启写穿时从数据库回读最新的有效验证码
+     */
+    private IssuedCode lookup(String key, String email, VerificationCode.CodeType type) {
+        IssuedCode issued = codes.get(key);
+        if (issued != null || !writeThrough) {
+            return issued;
+        }
+        VerificationCode stored = verificationCodeRepository
+                .findFirstByEmailAndTypeAndUsedFalseAndExpiredAtAfterOrderByCreatedAtDesc(
+                        email, type, LocalDateTime.now())
+                .orElse(null);
+        if (stored == null) {
+            return null;
+        }
+        issued = new IssuedCode(stored.getId(), stored.getCode());
+        issued.attempts.set(stored.getAttempts() != null ? stored.getAttempts() : 0);
+        codes.putUntil(key, issued, toMillis(stored.getExpiredAt()));
+        return issued;
+    }
+
     /**
      * 生成随机验证码
      */
     private String generateCode() {
-        Random random = new Random();
         int code = 100000 + random.nextInt(900000);
         return String.valueOf(code);
     }
 
+    private static String key(String email, VerificationCode.CodeType type) {
+        return email.toLowerCase(Locale.ROOT) + "|" + type.name();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 清理内存中已过期的验证码，返回清理数量
+     */
+    public int evictExpired() {
+        return codes.evictExpired();
+    }
+
     /**
      * 删除过期的验证码
      */
+    @Transactional
     public void deleteExpiredCodes() {
         log.info("清理过期的验证码");
         verificationCodeRepository.deleteByExpiredAtBefore(LocalDateTime.now());
     }
+
+    /**
+     * 已签发的验证码
+     */
+    private static final class IssuedCode {
+        private final String id;
+        private final String code;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private volatile boolean used;
+
+        IssuedCode(String id, String code) {
+            this.id = id;
+            this.code = code;
+        }
+
+        boolean matches(String candidate) {
+            return candidate != null && MessageDigest.isEqual(
+                    code.getBytes(StandardCharsets.US_ASCII), candidate.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.agriverse.bank.controller;
 
 import com.agriverse.bank.dto.DashboardStatisticsResponse;
 import com.agriverse.bank.service.BankDashboardService;
+import com.agriverse.bank.service.BankRollupService;
 import com.agriverse.dto.ApiResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -28,20 +29,33 @@ import java.security.Principal;
 @Tag(name = "银行仪表盘", description = "银行数据统计和趋势分析接口")
 @SecurityRequirement(name = "Bearer Authentication")
 public class BankDashboardController {
+    private static final String SCOPE_ALL = "all";
+    private static final String SCOPE_OPERATOR = "operator";
+    
     private final BankDashboardService dashboardService;
+    private final BankRollupService rollupService;
     
     /**
      * 获取仪表盘统计数据
+     *
+     * @param scope 统计范围：all（默认）全部银行；operator 只统计当前操作员放出的贷款
      */
-    @Operation(summary = "获取仪表盘统计数据", description = "获取今日放款、在贷余额、待审批、逾期等统计数据")
+    @Operation(summary = "获取仪表盘统计数据", description = "获取今日放款、在贷余额、待审批、逾期等统计数据，" +
+        "scope=operator 时只统计当前操作员放出的贷款")
     @ApiResponses({
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "统计范围无效"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
     })
     @GetMapping("/statistics")
-    public ResponseEntity<ApiResponse<DashboardStatisticsResponse>> getStatistics(Principal principal) {
+    public ResponseEntity<ApiResponse<DashboardStatisticsResponse>> getStatistics(
+            @RequestParam(defaultValue = SCOPE_ALL) String scope, Principal principal) {
+        if (!SCOPE_ALL.equalsIgnoreCase(scope) && !SCOPE_OPERATOR.equalsIgnoreCase(scope)) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(400, "无效的统计范围: " + scope));
+        }
         try {
-            String bankId = principal.getName(); // 假设principal.getName()返回bankId
+            // 银行以放款操作员ID标识，与每日汇总的 bank_id 一致
+            String bankId = SCOPE_OPERATOR.equalsIgnoreCase(scope) ? principal.getName() : null;
             DashboardStatisticsResponse statistics = dashboardService.getDashboardStatistics(bankId);
             return ResponseEntity.ok(ApiResponse.success("获取成功", statistics));
         } catch (Exception e) {
@@ -50,5 +64,25 @@ public class BankDashboardController {
                 .body(ApiResponse.error(500, "获取失败，请稍后重试"));
         }
     }
+    
+    /**
+     * 重建每日汇总数据
+     */
+    @Operation(summary = "重建每日汇总数据", description = "按放款、还款历史全量回填仪表盘使用的每日汇总表")
+    @ApiResponses({
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "重建成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
+    })
+    @PostMapping("/rollup/rebuild")
+    public ResponseEntity<ApiResponse<Integer>> rebuildRollup(Principal principal) {
+        try {
+            log.info("重建银行每日汇总: operatorId={}", principal.getName());
+            int rows = rollupService.rebuild();
+            return ResponseEntity.ok(ApiResponse.success("重建成功", rows));
+        } catch (Exception e) {
+            log.error("重建银行每日汇总异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "重建失败，请稍后重试"));
+        }
+    }
 }
-
@@ -3,21 +3,29 @@ package com.agriverse.bank.controller;
 import com.agriverse.bank.dto.*;
 import com.agriverse.bank.entity.LoanProduct;
 import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.LatestCreditScore;
 import com.agriverse.bank.entity.Disbursement;
 import com.agriverse.bank.service.LoanProductService;
 import com.agriverse.bank.service.BankApprovalService;
+import com.agriverse.bank.service.CreditScoreService;
 import com.agriverse.bank.service.DisbursementService;
 import com.agriverse.bank.service.BankStatisticsService;
 import com.agriverse.bank.service.ReconciliationService;
+import com.agriverse.bank.service.ReconciliationExportService;
 import com.agriverse.bank.service.OverdueManagementService;
 import com.agriverse.bank.service.PostLoanService;
+import com.agriverse.finance.service.LoanAccrualService;
 import com.agriverse.finance.service.OverdueService;
 import com.agriverse.bank.entity.ReconciliationRecord;
 import com.agriverse.bank.dto.ReconciliationExportRequest;
+import com.agriverse.exception.BusinessException;
 import com.agriverse.finance.entity.FinancingApplication;
 import com.agriverse.finance.entity.Contract;
+import com.agriverse.finance.entity.LoanAccrual;
+import com.agriverse.finance.entity.LoanAccrualBalance;
 import com.agriverse.finance.service.ContractService;
 import com.agriverse.dto.ApiResponse;
+import com.agriverse.util.PageCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -25,13 +33,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -54,8 +67,11 @@ public class BankLoanController {
     private final BankStatisticsService statisticsService;
     private final OverdueService overdueService;
     private final ReconciliationService reconciliationService;
+    private final ReconciliationExportService reconciliationExportService;
     private final OverdueManagementService overdueManagementService;
     private final PostLoanService postLoanService;
+    private final LoanAccrualService accrualService;
+    private final CreditScoreService creditScoreService;
     
     /**
      * 创建贷款产品
@@ -176,6 +192,29 @@ public class BankLoanController {
         }
     }
     
+    /**
+     * 批量审批申请
+     */
+    @Operation(summary = "批量审批申请", description = "一次提交多笔审批，批准的申请统一生成还款计划；任一申请不允许审批时整批不生效")
+    @PostMapping("/approvals/batch")
+    public ResponseEntity<ApiResponse<List<FinancingApplication>>> approveBatch(
+            @Parameter(description = "审批请求列表", required = true)
+            @Valid @RequestBody List<@Valid ApprovalRequest> requests,
+            Principal principal) {
+        try {
+            String reviewerId = principal.getName();
+            List<FinancingApplication> applications = approvalService.approveApplications(requests, reviewerId);
+            return ResponseEntity.ok(ApiResponse.success("审批成功", applications));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error(400, e.getMessage()));
+        } catch (Exception e) {
+            log.error("批量审批申请异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "审批失败，请稍后重试"));
+        }
+    }
+    
     /**
      * 计算信用评分
      */
@@ -194,6 +233,45 @@ public class BankLoanController {
         }
     }
     
+    /**
+     * 获取农户最新信用评分
+     */
+    @Operation(summary = "获取农户最新信用评分", description = "按农户读取最新一次信用评分（人工评分或夜间批量重新评分）")
+    @GetMapping("/credit-score/latest/{farmerId}")
+    public ResponseEntity<ApiResponse<LatestCreditScore>> getLatestCreditScore(@PathVariable String farmerId) {
+        try {
+            LatestCreditScore score = creditScoreService.getLatestScore(farmerId);
+            if (score == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error(404, "该农户暂无信用评分"));
+            }
+            return ResponseEntity.ok(ApiResponse.success("获取成功", score));
+        } catch (Exception e) {
+            log.error("获取最新信用评分异常: farmerId={}", farmerId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "获取失败，请稍后重试"));
+        }
+    }
+    
+    /**
+     * 手动触发批量重新评分
+     */
+    @Operation(summary = "批量重新评分", description = "按还款行为为所有在途贷款农户重新计算信用评分")
+    @PostMapping("/credit-score/rescore")
+    public ResponseEntity<ApiResponse<Integer>> rescorePortfolio() {
+        try {
+            int count = creditScoreService.rescorePortfolio(LocalDate.now());
+            return ResponseEntity.ok(ApiResponse.success("评分完成，共评分 " + count + " 个农户", count));
+        } catch (BusinessException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(409, e.getMessage()));
+        } catch (Exception e) {
+            log.error("批量重新评分异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "评分失败，请稍后重试"));
+        }
+    }
+    
     /**
      * 生成合同
      */
@@ -246,14 +324,21 @@ public class BankLoanController {
     }
     
     /**
-     * 获取放款列表
+     * 获取放款列表（游标分页，下一页游标在 X-Next-Cursor 响应头中返回）
      */
     @GetMapping("/disbursements")
     public ResponseEntity<ApiResponse<List<Disbursement>>> getDisbursements(
-            @RequestParam(required = false) String status) {
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer pageSize) {
         try {
-            List<Disbursement> disbursements = disbursementService.getDisbursements(status);
-            return ResponseEntity.ok(ApiResponse.success("获取成功", disbursements));
+            PageCursor.Slice<Disbursement> disbursements =
+                disbursementService.getDisbursements(status, cursor, pageSize);
+            return withNextCursor(disbursements.nextCursor())
+                .body(ApiResponse.success("获取成功", disbursements.content()));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取放款列表异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -261,6 +346,25 @@ public class BankLoanController {
         }
     }
     
+    /**
+     * 流式导出放款记录（NDJSON，每行一条）
+     */
+    @GetMapping(value = "/disbursements/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDisbursements(
+            @RequestParam(required = false) String status) {
+        StreamingResponseBody body = out -> {
+            try {
+                disbursementService.streamDisbursements(status, out);
+            } catch (Exception e) {
+                log.error("导出放款记录异常: status={}", status, e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+    
     /**
      * 获取审批统计
      */
@@ -308,6 +412,9 @@ public class BankLoanController {
         try {
             int count = overdueService.checkOverdueManually();
             return ResponseEntity.ok(ApiResponse.success("检测完成，共更新 " + count + " 条逾期记录", count));
+        } catch (BusinessException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(409, e.getMessage()));
         } catch (Exception e) {
             log.error("逾期检测异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -361,7 +468,7 @@ public class BankLoanController {
     }
     
     /**
-     * 计算逾期罚息
+     * 获取逾期罚息（尚未还清的逾期计划上已计提的罚息）
      */
     @GetMapping("/overdue/{financingId}/penalty")
     public ResponseEntity<ApiResponse<BigDecimal>> calculateOverduePenalty(@PathVariable String financingId) {
@@ -375,6 +482,63 @@ public class BankLoanController {
         }
     }
     
+    /**
+     * 获取计息余额
+     */
+    @Operation(summary = "获取计息余额", description = "返回融资的累计应计利息、累计逾期罚息和最近计息日")
+    @GetMapping("/accruals/{financingId}")
+    public ResponseEntity<ApiResponse<LoanAccrualBalance>> getAccrualBalance(@PathVariable String financingId) {
+        try {
+            LoanAccrualBalance balance = accrualService.getBalance(financingId);
+            return ResponseEntity.ok(ApiResponse.success("获取成功", balance));
+        } catch (Exception e) {
+            log.error("获取计息余额异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "获取失败，请稍后重试"));
+        }
+    }
+    
+    /**
+     * 获取计息流水
+     */
+    @GetMapping("/accruals/{financingId}/entries")
+    public ResponseEntity<ApiResponse<List<LoanAccrual>>> getAccruals(@PathVariable String financingId) {
+        try {
+            List<LoanAccrual> accruals = accrualService.getAccruals(financingId);
+            return ResponseEntity.ok(ApiResponse.success("获取成功", accruals));
+        } catch (Exception e) {
+            log.error("获取计息流水异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "获取失败，请稍后重试"));
+        }
+    }
+    
+    /**
+     * 手动计息（按日期）
+     */
+    @PostMapping("/accruals/run")
+    public ResponseEntity<ApiResponse<Integer>> runAccrual(@RequestParam(required = false) String date) {
+        try {
+            java.time.LocalDate accrualDate = date != null ? 
+                java.time.LocalDate.parse(date) : 
+                java.time.LocalDate.now();
+            int count = accrualService.accrue(accrualDate);
+            return ResponseEntity.ok(ApiResponse.success("计息完成，共记 " + count + " 笔流水", count));
+        } catch (java.time.format.DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(400, "日期格式错误"));
+        } catch (BusinessException e) {
+            if (LoanAccrualService.INVALID_ACCRUAL_DATE.equals(e.getCode())) {
+                return ResponseEntity.badRequest().body(ApiResponse.error(400, e.getMessage()));
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(409, e.getMessage()));
+        } catch (Exception e) {
+            log.error("计息异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "计息失败，请稍后重试"));
+        }
+    }
+    
     /**
      * 对账（按日期）
      */
@@ -387,6 +551,9 @@ public class BankLoanController {
                 java.time.LocalDate.now().minusDays(1);
             int count = reconciliationService.reconcileByDate(reconcileDate);
             return ResponseEntity.ok(ApiResponse.success("对账完成，共处理 " + count + " 笔", count));
+        } catch (BusinessException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiResponse.error(409, e.getMessage()));
         } catch (Exception e) {
             log.error("对账异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -395,19 +562,26 @@ public class BankLoanController {
     }
     
     /**
-     * 获取对账列表
+     * 获取对账列表（游标分页，下一页游标在 X-Next-Cursor 响应头中返回；全量数据请使用导出接口）
      */
     @GetMapping("/reconciliation/list")
     public ResponseEntity<ApiResponse<List<ReconciliationRecord>>> getReconciliationList(
             @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer pageSize) {
         try {
             java.time.LocalDate start = startDate != null ? 
                 java.time.LocalDate.parse(startDate) : null;
             java.time.LocalDate end = endDate != null ? 
                 java.time.LocalDate.parse(endDate) : null;
-            List<ReconciliationRecord> records = reconciliationService.getReconciliationList(start, end);
-            return ResponseEntity.ok(ApiResponse.success("获取成功", records));
+            PageCursor.Slice<ReconciliationRecord> records =
+                reconciliationService.getReconciliationList(start, end, cursor, pageSize);
+            return withNextCursor(records.nextCursor())
+                .body(ApiResponse.success("获取成功", records.content()));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取对账列表异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -455,13 +629,24 @@ public class BankLoanController {
     }
     
     /**
-     * 获取所有贷后监控列表
+     * 分页获取贷后监控列表（不含还款计划明细，明细通过单笔监控接口获取）
      */
+    @Operation(summary = "获取贷后监控列表",
+        description = "在途贷款的期数与金额分布，服务端排序分页；sort 可选 overdueAmount（默认）、repaymentRate、" +
+            "pendingAmount、overdueInstallments、amount、nextDueDate，direction 为 ASC 或 DESC（默认）")
     @GetMapping("/post-loan/monitoring")
-    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getAllPostLoanMonitoring() {
+    public ResponseEntity<ApiResponse<Page<PostLoanMonitoringRow>>> getAllPostLoanMonitoring(
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String direction,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Map<String, Object>> monitoringList = postLoanService.getAllPostLoanMonitoring();
+            Page<PostLoanMonitoringRow> monitoringList =
+                postLoanService.getAllPostLoanMonitoring(sort, direction, page, size);
             return ResponseEntity.ok(ApiResponse.success("获取成功", monitoringList));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取贷后监控列表异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -470,40 +655,67 @@ public class BankLoanController {
     }
     
     /**
-     * 导出对账单
+     * 导出对账单（CSV / Excel / NDJSON），流式写入响应
      */
     @PostMapping("/reconciliation/export")
-    public ResponseEntity<ApiResponse<String>> exportReconciliation(
+    public ResponseEntity<StreamingResponseBody> exportReconciliation(
             @RequestBody ReconciliationExportRequest request) {
+        ReconciliationExportService.ExportFormat format;
         try {
-            // TODO: 实现Excel/CSV导出功能
-            // 这里返回文件URL或文件ID
-            String fileUrl = "/exports/reconciliation_" + 
-                (request.getStartDate() != null ? request.getStartDate() : "") + ".xlsx";
-            return ResponseEntity.ok(ApiResponse.success("导出成功", fileUrl));
-        } catch (Exception e) {
-            log.error("导出对账单异常", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error(500, "导出失败，请稍后重试"));
+            format = ReconciliationExportService.ExportFormat.of(request.getFormat());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+        return streamExport(request, format, "reconciliation_");
     }
     
     /**
-     * 导出T+1文件
+     * 导出T+1文件（用于银行内部系统对接的定长格式），流式写入响应
      */
     @PostMapping("/reconciliation/export-t1")
-    public ResponseEntity<ApiResponse<String>> exportT1File(
+    public ResponseEntity<StreamingResponseBody> exportT1File(
             @RequestBody ReconciliationExportRequest request) {
-        try {
-            // TODO: 实现T+1格式文件导出（用于银行内部系统对接）
-            String fileUrl = "/exports/t1_" + 
-                (request.getStartDate() != null ? request.getStartDate() : "") + ".txt";
-            return ResponseEntity.ok(ApiResponse.success("导出成功", fileUrl));
-        } catch (Exception e) {
-            log.error("导出T+1文件异常", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(ApiResponse.error(500, "导出失败，请稍后重试"));
+        return streamExport(request, ReconciliationExportService.ExportFormat.T1, "t1_");
+    }
+    
+    /**
+     * 未指定日期时导出T-1日，仅指定截止日期时导出当日
+     */
+    private ResponseEntity<StreamingResponseBody> streamExport(ReconciliationExportRequest request,
+                                                               ReconciliationExportService.ExportFormat format,
+                                                               String filePrefix) {
+        java.time.LocalDate end = request.getEndDate() != null ? 
+            request.getEndDate() : 
+            (request.getStartDate() != null ? request.getStartDate() : java.time.LocalDate.now().minusDays(1));
+        java.time.LocalDate start = request.getStartDate() != null ? request.getStartDate() : end;
+        if (start.isAfter(end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> {
+            try {
+                reconciliationExportService.export(start, end, format, out);
+            } catch (Exception e) {
+                log.error("导出对账单异常: format={}, {}~{}", format, start, end, e);
+                throw e;
+            }
+        };
+        String fileName = filePrefix + start + (start.equals(end) ? "" : "_" + end) + "." + format.getExtension();
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+            .contentType(MediaType.parseMediaType(format.getContentType()))
+            .body(body);
+    }
+    
+    /**
+     * 有下一页时在响应头中返回游标
+     */
+    private static ResponseEntity.BodyBuilder withNextCursor(String nextCursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (nextCursor != null) {
+            response.header(PageCursor.NEXT_CURSOR_HEADER, nextCursor);
         }
+        return response;
     }
     
     /**
@@ -3,20 +3,24 @@ package com.agriverse.bank.controller;
 import com.agriverse.bank.dto.RiskAlert;
 import com.agriverse.bank.dto.RiskDashboardResponse;
 import com.agriverse.bank.entity.RiskIndicator;
+import com.agriverse.bank.service.RiskAlertService;
 import com.agriverse.bank.service.RiskManagementService;
 import com.agriverse.dto.ApiResponse;
+import com.agriverse.exception.BusinessException;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.security.Principal;
 
 /**
  * 银行风控控制器
@@ -31,6 +35,7 @@ import java.util.List;
 @SecurityRequirement(name = "Bearer Authentication")
 public class BankRiskController {
     private final RiskManagementService riskService;
+    private final RiskAlertService alertService;
     
     /**
      * 获取风控仪表盘数据
@@ -55,16 +60,23 @@ public class BankRiskController {
     /**
      * 获取风险预警列表
      */
-    @Operation(summary = "获取风险预警列表", description = "获取所有风险预警信息")
+    @Operation(summary = "获取风险预警列表", description = "按打开时间倒序分页获取风险预警，默认返回未关闭（待处理、已确认）的预警")
     @ApiResponses({
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "参数错误"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
     })
     @GetMapping("/alerts")
-    public ResponseEntity<ApiResponse<List<RiskAlert>>> getRiskAlerts() {
+    public ResponseEntity<ApiResponse<Page<RiskAlert>>> getRiskAlerts(
+            @Parameter(description = "预警状态：OPEN、ACKNOWLEDGED、CLOSED（可选）") @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<RiskAlert> alerts = riskService.getRiskAlerts();
+            Page<RiskAlert> alerts = alertService.getAlerts(status, page, size);
             return ResponseEntity.ok(ApiResponse.success("获取成功", alerts));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取风险预警异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -72,6 +84,50 @@ public class BankRiskController {
         }
     }
     
+    /**
+     * 确认风险预警
+     */
+    @Operation(summary = "确认风险预警", description = "将待处理的风险预警标记为已确认，触发条件消除后预警自动关闭")
+    @ApiResponses({
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "确认成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "预警不存在或已关闭"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
+    })
+    @PostMapping("/alerts/{id}/acknowledge")
+    public ResponseEntity<ApiResponse<RiskAlert>> acknowledgeRiskAlert(@PathVariable String id, Principal principal) {
+        try {
+            RiskAlert alert = alertService.acknowledge(id, principal.getName());
+            return ResponseEntity.ok(ApiResponse.success("确认成功", alert));
+        } catch (BusinessException e) {
+            return ResponseEntity.badRequest()
+                .body(ApiResponse.error(400, e.getMessage()));
+        } catch (Exception e) {
+            log.error("确认风险预警异常: alertId={}", id, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "确认失败，请稍后重试"));
+        }
+    }
+    
+    /**
+     * 重建风险预警
+     */
+    @Operation(summary = "重建风险预警", description = "按现有信用评分和逾期还款计划补齐风险预警，已有预警保留ID和确认状态")
+    @ApiResponses({
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "重建成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "500", description = "服务器错误")
+    })
+    @PostMapping("/alerts/rebuild")
+    public ResponseEntity<ApiResponse<Integer>> rebuildRiskAlerts() {
+        try {
+            int count = alertService.rebuild();
+            return ResponseEntity.ok(ApiResponse.success("重建成功", count));
+        } catch (Exception e) {
+            log.error("重建风险预警异常", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(ApiResponse.error(500, "重建失败，请稍后重试"));
+        }
+    }
+    
     /**
      * 手动计算风险指标
      */
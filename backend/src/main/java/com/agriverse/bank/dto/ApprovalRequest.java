@@ -25,5 +25,7 @@ public class ApprovalRequest {
     private Integer creditScore; // 信用评分（批准时）
     
     private BigDecimal interestRate; // 实际利率（批准时）
+    
+    private String repaymentMethod; // 还款方式（批准时可调整，为空时沿用申请时的方式）
 }
 
@@ -2,6 +2,7 @@ package com.agriverse.bank.dto;
 
 import com.agriverse.bank.entity.CustomerContactRecord;
 import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.LatestCreditScore;
 import com.agriverse.finance.entity.FinancingApplication;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -35,7 +36,8 @@ public class CustomerDetailResponse {
     private String notes;
     private LocalDateTime lastContactAt;
     private List<FinancingApplication> loanHistory; // 贷款历史
-    private List<CreditScore> creditHistory;        // 信用评分历史
+    private LatestCreditScore latestCreditScore;    // 最新信用评分
+    private List<CreditScore> creditHistory;        // 最近信用评分历史（最多10条）
     private List<CustomerContactRecord> contactRecords; // 联系记录
 }
 
@@ -0,0 +1,36 @@
+package com.agriverse.bank.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * 贷后监控列表行
+ * 期数、金额由按融资分组的聚合查询得到，不含还款计划明细（明细在单笔监控接口中按需加载）
+ *
+ * @param nextDueDate 最早一期未还计划的到期日，已全部还清时为空
+ */
+public record PostLoanMonitoringRow(
+        String financingId,
+        String farmerId,
+        BigDecimal amount,
+        String status,
+        int totalInstallments,
+        int paidInstallments,
+        int pendingInstallments,
+        int overdueInstallments,
+        BigDecimal totalAmount,
+        BigDecimal paidAmount,
+        BigDecimal pendingAmount,
+        BigDecimal overdueAmount,
+        LocalDate nextDueDate) {
+
+    /**
+     * 还款率（%）= 已还本息 / 应还本息总额
+     */
+    public BigDecimal getRepaymentRate() {
+        return totalAmount.compareTo(BigDecimal.ZERO) > 0 ?
+            paidAmount.divide(totalAmount, 4, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)) :
+            BigDecimal.ZERO;
+    }
+}
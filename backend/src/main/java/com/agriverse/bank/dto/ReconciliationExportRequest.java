@@ -15,7 +15,7 @@ import java.time.LocalDate;
 public class ReconciliationExportRequest {
     private LocalDate startDate;
     private LocalDate endDate;
-    private String format; // EXCEL, CSV, T1
+    private String format; // EXCEL, CSV, T1, NDJSON
 }
 
 
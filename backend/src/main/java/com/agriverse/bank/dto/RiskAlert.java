@@ -23,6 +23,9 @@ public class RiskAlert {
     private String financingId;
     private String description;
     private LocalDateTime alertTime;
+    private String status;         // OPEN, ACKNOWLEDGED, CLOSED
+    private String acknowledgedBy;
+    private LocalDateTime acknowledgedAt;
 }
 
 
@@ -0,0 +1,68 @@
+package com.agriverse.bank.dto;
+
+import com.agriverse.bank.entity.RiskIndicator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * 在途贷款组合风险快照
+ * 由数据库聚合查询得到的笔数与金额，比率在此按百分比计算
+ */
+public record RiskPortfolioSnapshot(
+        long totalLoans,
+        BigDecimal totalAmount,
+        long jointLoans,
+        long overdueLoans,
+        BigDecimal overdueAmount,
+        long badDebtLoans,
+        BigDecimal badDebtAmount) {
+
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+    /**
+     * 逾期率 = 逾期应还本息 / 在途贷款总额
+     */
+    public BigDecimal overdueRate() {
+        return percent(overdueAmount, totalAmount);
+    }
+
+    /**
+     * 不良率 = 逾期90天以上应还本息 / 在途贷款总额
+     */
+    public BigDecimal badDebtRate() {
+        return percent(badDebtAmount, totalAmount);
+    }
+
+    /**
+     * 联合贷占比 = 关联贷款产品的在途笔数 / 在途笔数
+     */
+    public BigDecimal jointLoanRatio() {
+        return percent(BigDecimal.valueOf(jointLoans), BigDecimal.valueOf(totalLoans));
+    }
+
+    public RiskIndicator toIndicator(LocalDate indicatorDate) {
+        return RiskIndicator.builder()
+            .id(UUID.randomUUID().toString())
+            .indicatorDate(indicatorDate)
+            .totalLoans((int) totalLoans)
+            .totalAmount(totalAmount)
+            .overdueLoans((int) overdueLoans)
+            .overdueAmount(overdueAmount)
+            .overdueRate(overdueRate())
+            .badDebtLoans((int) badDebtLoans)
+            .badDebtAmount(badDebtAmount)
+            .badDebtRate(badDebtRate())
+            .creditBalance(totalAmount)
+            .jointLoanRatio(jointLoanRatio())
+            .build();
+    }
+
+    private static BigDecimal percent(BigDecimal part, BigDecimal whole) {
+        return whole.compareTo(BigDecimal.ZERO) > 0 ?
+            part.divide(whole, 4, RoundingMode.HALF_UP).multiply(HUNDRED) :
+            BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,79 @@
+package com.agriverse.bank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 银行每日业务汇总实体
+ * 每个银行每天一行，放款、还款时增量累加，仪表盘趋势按月聚合读取
+ */
+@Entity
+@Table(name = "bank_daily_rollups", indexes = {
+    @Index(name = "uk_rollup_date_bank", columnList = "stat_date, bank_id", unique = true),
+    @Index(name = "idx_rollup_bank_date", columnList = "bank_id, stat_date")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BankDailyRollup {
+    /**
+     * 放款记录未关联操作员时归入的银行ID
+     */
+    public static final String UNASSIGNED_BANK = "UNASSIGNED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "stat_date", nullable = false)
+    private LocalDate statDate;
+
+    /**
+     * 银行ID（放款操作员）
+     */
+    @Column(name = "bank_id", nullable = false, length = 36)
+    private String bankId;
+
+    /**
+     * 当日放款笔数
+     */
+    @Column(name = "disbursed_count", nullable = false)
+    @Builder.Default
+    private Integer disbursedCount = 0;
+
+    /**
+     * 当日放款金额
+     */
+    @Column(name = "disbursed_amount", nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal disbursedAmount = BigDecimal.ZERO;
+
+    /**
+     * 当日归还本金
+     */
+    @Column(name = "repaid_principal", nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal repaidPrincipal = BigDecimal.ZERO;
+
+    /**
+     * 当日结清笔数
+     */
+    @Column(name = "settled_count", nullable = false)
+    @Builder.Default
+    private Integer settledCount = 0;
+
+    /**
+     * 当日逾期融资笔数（每日快照）
+     */
+    @Column(name = "overdue_count", nullable = false)
+    @Builder.Default
+    private Integer overdueCount = 0;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "credit_scores", indexes = {
     @Index(name = "idx_financing_id", columnList = "financing_id"),
-    @Index(name = "idx_farmer_id", columnList = "farmer_id"),
+    @Index(name = "idx_credit_score_farmer_created", columnList = "farmer_id, created_at"),
     @Index(name = "idx_total_score", columnList = "total_score")
 })
 @Data
@@ -15,7 +15,10 @@ import java.time.LocalDateTime;
 @Table(name = "disbursements", indexes = {
     @Index(name = "idx_financing_id", columnList = "financing_id"),
     @Index(name = "idx_status", columnList = "status"),
-    @Index(name = "idx_disbursed_at", columnList = "disbursed_at")
+    @Index(name = "idx_disbursed_at", columnList = "disbursed_at"),
+    @Index(name = "idx_disbursements_created_at", columnList = "created_at"),
+    @Index(name = "idx_disbursements_status_created", columnList = "status, created_at"),
+    @Index(name = "idx_disbursements_disbursed_by", columnList = "disbursed_by")
 })
 @Data
 @Builder
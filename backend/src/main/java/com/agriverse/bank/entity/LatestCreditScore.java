@@ -0,0 +1,50 @@
+package com.agriverse.bank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 农户最新信用评分（物化）
+ * 每个农户一行，信用评分保存时随之更新；审批、风险预警、客户详情按主键读取，不再扫描评分历史
+ */
+@Entity
+@Table(name = "latest_credit_scores", indexes = {
+    @Index(name = "idx_latest_score_total", columnList = "total_score")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatestCreditScore {
+    @Id
+    @Column(name = "farmer_id", length = 36)
+    private String farmerId;
+
+    /**
+     * 对应的信用评分记录ID
+     */
+    @Column(name = "credit_score_id", nullable = false, length = 36)
+    private String creditScoreId;
+
+    @Column(name = "financing_id", nullable = false, length = 36)
+    private String financingId;
+
+    @Column(name = "total_score", nullable = false)
+    private Integer totalScore;
+
+    @Column(name = "risk_level", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private CreditScore.RiskLevel riskLevel;
+
+    @Column(name = "suggested_amount", precision = 15, scale = 2)
+    private BigDecimal suggestedAmount;
+
+    @Column(name = "scored_at", nullable = false)
+    private LocalDateTime scoredAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
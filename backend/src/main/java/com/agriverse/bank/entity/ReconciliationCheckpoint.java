@@ -0,0 +1,65 @@
+package com.agriverse.bank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 对账进度检查点实体
+ * 每个对账日一行，记录已连续完成的最大融资申请ID，中断后从该位置继续；
+ * 同时作为该日期的对账租约，持有未过期租约的实例才能推进检查点
+ */
+@Entity
+@Table(name = "reconciliation_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationCheckpoint {
+    @Id
+    @Column(name = "reconciliation_date", nullable = false)
+    private LocalDate reconciliationDate;
+
+    /**
+     * 已完成的最大融资申请ID（按ID升序分块，此ID及之前的分块均已写入）
+     */
+    @Column(name = "last_financing_id", length = 36)
+    private String lastFinancingId;
+
+    /**
+     * 已写入的对账记录数
+     */
+    @Column(name = "processed_count", nullable = false)
+    @Builder.Default
+    private Integer processedCount = 0;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private CheckpointStatus status = CheckpointStatus.RUNNING;
+
+    /**
+     * 当前持有租约的执行ID
+     */
+    @Column(name = "lease_owner", length = 36)
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间，为空或已过期时其他实例可以接手
+     */
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * 检查点状态枚举
+     */
+    public enum CheckpointStatus {
+        RUNNING,    // 进行中（或中断）
+        COMPLETED   // 已完成
+    }
+}
@@ -15,6 +15,7 @@ import java.time.LocalDateTime;
 @Table(name = "reconciliation_records", indexes = {
     @Index(name = "idx_financing_id", columnList = "financing_id"),
     @Index(name = "idx_reconciliation_date", columnList = "reconciliation_date"),
+    @Index(name = "idx_reconciliation_date_financing", columnList = "reconciliation_date, financing_id"),
     @Index(name = "idx_status", columnList = "status")
 })
 @Data
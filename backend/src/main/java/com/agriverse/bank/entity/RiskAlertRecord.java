@@ -0,0 +1,93 @@
+package com.agriverse.bank.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 风险预警实体
+ * 同一去重键（高风险按农户、逾期按融资申请）只有一条记录：条件再次满足时刷新并重新打开，条件消除时关闭，ID 保持不变
+ */
+@Entity
+@Table(name = "risk_alerts", indexes = {
+    @Index(name = "uk_risk_alert_dedup_key", columnList = "dedup_key", unique = true),
+    @Index(name = "idx_risk_alert_status_raised", columnList = "status, raised_at, id"),
+    @Index(name = "idx_risk_alert_financing", columnList = "financing_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RiskAlertRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    /**
+     * 去重键，如 HIGH_RISK:{农户ID}、OVERDUE:{融资申请ID}
+     */
+    @Column(name = "dedup_key", nullable = false, length = 80)
+    private String dedupKey;
+
+    @Column(name = "alert_type", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private AlertType alertType;
+
+    @Column(name = "alert_level", nullable = false, length = 20)
+    private String alertLevel;
+
+    @Column(name = "customer_id", length = 36)
+    private String customerId;
+
+    @Column(name = "financing_id", length = 36)
+    private String financingId;
+
+    @Column(length = 500)
+    private String description;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private AlertStatus status;
+
+    /**
+     * 最近一次打开（或重新打开）的时间
+     */
+    @Column(name = "raised_at", nullable = false)
+    private LocalDateTime raisedAt;
+
+    /**
+     * 打开次数，关闭后再次触发时累加
+     */
+    @Column(nullable = false)
+    private Integer occurrences;
+
+    @Column(name = "acknowledged_by", length = 36)
+    private String acknowledgedBy;
+
+    @Column(name = "acknowledged_at")
+    private LocalDateTime acknowledgedAt;
+
+    @Column(name = "closed_at")
+    private LocalDateTime closedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * 预警类型枚举
+     */
+    public enum AlertType {
+        HIGH_RISK,  // 高风险客户（农户最新信用评分低于60分）
+        OVERDUE     // 融资存在逾期还款
+    }
+
+    /**
+     * 预警状态枚举
+     */
+    public enum AlertStatus {
+        OPEN,          // 待处理
+        ACKNOWLEDGED,  // 已确认
+        CLOSED         // 已关闭（触发条件已消除）
+    }
+}
@@ -0,0 +1,14 @@
+package com.agriverse.bank.event;
+
+import com.agriverse.bank.entity.CreditScore;
+
+import java.util.List;
+
+/**
+ * 信用评分保存事件
+ * 人工评分或批量重新评分保存后发布，供风险预警等下游消费；同一融资以列表中最后一条为最新评分
+ *
+ * @param scores 本次保存的信用评分
+ */
+public record CreditScoreSavedEvent(List<CreditScore> scores) {
+}
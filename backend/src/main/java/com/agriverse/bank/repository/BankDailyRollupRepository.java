@@ -0,0 +1,63 @@
+package com.agriverse.bank.repository;
+
+import com.agriverse.bank.entity.BankDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 银行每日汇总Repository
+ */
+@Repository
+public interface BankDailyRollupRepository extends JpaRepository<BankDailyRollup, String> {
+
+    /**
+     * 按月汇总指定日期范围内的放款与还款（bankId 为空时统计全部银行，下同）
+     *
+     * @return [年, 月, 放款笔数, 放款金额, 归还本金]
+     */
+    @Query("SELECT YEAR(r.statDate), MONTH(r.statDate), SUM(r.disbursedCount), " +
+           "SUM(r.disbursedAmount), SUM(r.repaidPrincipal) FROM BankDailyRollup r " +
+           "WHERE (:bankId IS NULL OR r.bankId = :bankId) AND r.statDate >= :startDate AND r.statDate <= :endDate " +
+           "GROUP BY YEAR(r.statDate), MONTH(r.statDate)")
+    List<Object[]> sumByMonth(@Param("bankId") String bankId,
+                              @Param("startDate") LocalDate startDate,
+                              @Param("endDate") LocalDate endDate);
+
+    /**
+     * 指定日期范围内的放款笔数
+     */
+    @Query("SELECT COALESCE(SUM(r.disbursedCount), 0) FROM BankDailyRollup r " +
+           "WHERE (:bankId IS NULL OR r.bankId = :bankId) AND r.statDate >= :startDate AND r.statDate <= :endDate")
+    Long sumDisbursedCount(@Param("bankId") String bankId,
+                           @Param("startDate") LocalDate startDate,
+                           @Param("endDate") LocalDate endDate);
+
+    /**
+     * 指定日期范围内的放款金额
+     */
+    @Query("SELECT COALESCE(SUM(r.disbursedAmount), 0) FROM BankDailyRollup r " +
+           "WHERE (:bankId IS NULL OR r.bankId = :bankId) AND r.statDate >= :startDate AND r.statDate <= :endDate")
+    BigDecimal sumDisbursedAmount(@Param("bankId") String bankId,
+                                  @Param("startDate") LocalDate startDate,
+                                  @Param("endDate") LocalDate endDate);
+
+    /**
+     * 指定日期之前（不含）的在贷余额：累计放款 - 累计归还本金
+     */
+    @Query("SELECT COALESCE(SUM(r.disbursedAmount - r.repaidPrincipal), 0) FROM BankDailyRollup r " +
+           "WHERE (:bankId IS NULL OR r.bankId = :bankId) AND r.statDate < :date")
+    BigDecimal sumOutstandingBefore(@Param("bankId") String bankId, @Param("date") LocalDate date);
+
+    /**
+     * 当前在贷笔数：累计放款笔数 - 累计结清笔数
+     */
+    @Query("SELECT COALESCE(SUM(r.disbursedCount - r.settledCount), 0) FROM BankDailyRollup r " +
+           "WHERE :bankId IS NULL OR r.bankId = :bankId")
+    Long sumOutstandingCount(@Param("bankId") String bankId);
+}
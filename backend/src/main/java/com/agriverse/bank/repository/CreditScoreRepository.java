@@ -5,7 +5,6 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
-import java.util.Optional;
 
 /**
  * 信用评分Repository
@@ -13,13 +12,8 @@ import java.util.Optional;
 @Repository
 public interface CreditScoreRepository extends JpaRepository<CreditScore, String> {
     /**
-     * 根据融资申请ID查询信用评分
+     * 查询农户最近10条信用评分，按创建时间降序（最新评分见 LatestCreditScore）
      */
-    Optional<CreditScore> findByFinancingId(String financingId);
-    
-    /**
-     * 根据农户ID查询信用评分列表，按创建时间降序
-     */
-    List<CreditScore> findByFarmerIdOrderByCreatedAtDesc(String farmerId);
+    List<CreditScore> findTop10ByFarmerIdOrderByCreatedAtDesc(String farmerId);
 }
 
@@ -1,6 +1,7 @@
 package com.agriverse.bank.repository;
 
 import com.agriverse.bank.entity.Disbursement;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -26,6 +27,19 @@ public interface DisbursementRepository extends JpaRepository<Disbursement, Stri
      */
     List<Disbursement> findByStatus(Disbursement.DisbursementStatus status);
     
+    /**
+     * 游标分页：取指定位置之后的放款记录，status 为空时不过滤状态
+     * 按 (createdAt, id) 倒序定位，配合 idx_disbursements_created_at / idx_disbursements_status_created 索引
+     */
+    @Query("SELECT d FROM Disbursement d WHERE " +
+           "(:status IS NULL OR d.status = :status) AND " +
+           "d.createdAt <= :createdAt AND (d.createdAt < :createdAt OR d.id < :id) " +
+           "ORDER BY d.createdAt DESC, d.id DESC")
+    List<Disbursement> findPageAfter(@Param("status") Disbursement.DisbursementStatus status,
+                                     @Param("createdAt") LocalDateTime createdAt,
+                                     @Param("id") String id,
+                                     Pageable limit);
+    
     /**
      * 计算指定时间范围内的放款总金额
      */
@@ -0,0 +1,12 @@
+package com.agriverse.bank.repository;
+
+import com.agriverse.bank.entity.LatestCreditScore;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 农户最新信用评分Repository
+ */
+@Repository
+public interface LatestCreditScoreRepository extends JpaRepository<LatestCreditScore, String> {
+}
@@ -0,0 +1,14 @@
+package com.agriverse.bank.repository;
+
+import com.agriverse.bank.entity.ReconciliationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+/**
+ * 对账进度检查点Repository
+ */
+@Repository
+public interface ReconciliationCheckpointRepository extends JpaRepository<ReconciliationCheckpoint, LocalDate> {
+}
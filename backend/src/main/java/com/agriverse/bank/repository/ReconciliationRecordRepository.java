@@ -1,12 +1,20 @@
 package com.agriverse.bank.repository;
 
 import com.agriverse.bank.entity.ReconciliationRecord;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 对账记录Repository
@@ -32,7 +40,51 @@ public interface ReconciliationRecordRepository extends JpaRepository<Reconcilia
      * 根据日期范围查询
      */
     List<ReconciliationRecord> findByReconciliationDateBetween(LocalDate startDate, LocalDate endDate);
+    
+    /**
+     * 游标分页：按 (对账日期, 融资申请ID) 倒序取指定位置之后的对账记录，日期为空时不限制该端
+     * 同一融资每日只有一条对账记录，二者即可唯一定位；配合 idx_reconciliation_date_financing 索引只扫描一页数据
+     */
+    @Query("SELECT r FROM ReconciliationRecord r WHERE " +
+           "(:startDate IS NULL OR r.reconciliationDate >= :startDate) AND " +
+           "(:endDate IS NULL OR r.reconciliationDate <= :endDate) AND " +
+           "r.reconciliationDate <= :afterDate AND " +
+           "(r.reconciliationDate < :afterDate OR r.financingId < :afterFinancingId) " +
+           "ORDER BY r.reconciliationDate DESC, r.financingId DESC")
+    List<ReconciliationRecord> findPageAfter(@Param("startDate") LocalDate startDate,
+                                             @Param("endDate") LocalDate endDate,
+                                             @Param("afterDate") LocalDate afterDate,
+                                             @Param("afterFinancingId") String afterFinancingId,
+                                             Pageable limit);
+    
+    /**
+     * 按日期范围逐行读取对账记录（只读游标，供流式导出使用，调用方须在事务内消费并关闭）
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM ReconciliationRecord r WHERE r.reconciliationDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY r.reconciliationDate ASC, r.financingId ASC")
+    Stream<ReconciliationRecord> streamByReconciliationDateBetween(@Param("startDate") LocalDate startDate,
+                                                                   @Param("endDate") LocalDate endDate);
+    
+    /**
+     * 删除指定日期下融资申请ID落在 (afterId, lastId] 区间的对账记录
+     * 按区间而不是按本次在途ID删除，区间内已结清、不再对账的融资的旧记录一并清除
+     */
+    @Modifying
+    @Query("DELETE FROM ReconciliationRecord r WHERE r.reconciliationDate = :date " +
+           "AND r.financingId > :afterId AND r.financingId <= :lastId")
+    int deleteByReconciliationDateAndFinancingIdRange(@Param("date") LocalDate date,
+                                                      @Param("afterId") String afterId,
+                                                      @Param("lastId") String lastId);
+    
+    /**
+     * 删除指定日期下融资申请ID大于 afterId 的对账记录
+     */
+    @Modifying
+    @Query("DELETE FROM ReconciliationRecord r WHERE r.reconciliationDate = :date AND r.financingId > :afterId")
+    int deleteByReconciliationDateAndFinancingIdAfter(@Param("date") LocalDate date,
+                                                      @Param("afterId") String afterId);
 }
-
-
-
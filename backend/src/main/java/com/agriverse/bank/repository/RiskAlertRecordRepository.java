@@ -0,0 +1,27 @@
+package com.agriverse.bank.repository;
+
+import com.agriverse.bank.entity.RiskAlertRecord;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 风险预警Repository
+ */
+@Repository
+public interface RiskAlertRecordRepository extends JpaRepository<RiskAlertRecord, String> {
+    /**
+     * 按状态分页查询预警，按打开时间降序（走 status, raised_at, id 索引）
+     */
+    Page<RiskAlertRecord> findByStatusInOrderByRaisedAtDescIdDesc(Collection<RiskAlertRecord.AlertStatus> statuses,
+                                                                  Pageable pageable);
+
+    /**
+     * 根据去重键查询预警
+     */
+    Optional<RiskAlertRecord> findByDedupKey(String dedupKey);
+}
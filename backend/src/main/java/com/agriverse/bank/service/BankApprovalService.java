@@ -3,6 +3,8 @@ package com.agriverse.bank.service;
 import com.agriverse.bank.dto.ApprovalRequest;
 import com.agriverse.bank.dto.CreditScoreRequest;
 import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.LatestCreditScore;
+import com.agriverse.bank.event.CreditScoreSavedEvent;
 import com.agriverse.bank.repository.CreditScoreRepository;
 import com.agriverse.exception.BusinessException;
 import com.agriverse.finance.entity.FinancingApplication;
@@ -12,11 +14,15 @@ import com.agriverse.finance.service.FinancingApplicationService;
 import com.agriverse.notification.service.NotificationService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 银行审批服务
@@ -28,7 +34,9 @@ public class BankApprovalService {
     private final FinancingApplicationRepository applicationRepository;
     private final FinancingApplicationService financingApplicationService;
     private final CreditScoreRepository creditScoreRepository;
+    private final CreditScoreService creditScoreService;
     private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * 获取待审批列表
@@ -41,6 +49,55 @@ public class BankApprovalService {
      * 审批融资申请
      */
     public FinancingApplication approveApplication(ApprovalRequest request, String reviewerId) {
+        return approveApplications(List.of(request), reviewerId).get(0);
+    }
+    
+    /**
+     * 批量审批融资申请
+     * 所有批准的申请一次性生成还款计划并批量写入，任一申请不允许审批时整批回滚
+     */
+    public List<FinancingApplication> approveApplications(List<ApprovalRequest> requests, String reviewerId) {
+        List<FinancingApplication> results = new ArrayList<>(requests.size());
+        List<FinancingApplication> approved = new ArrayList<>();
+        for (ApprovalRequest request : requests) {
+            FinancingApplication application = review(request, reviewerId);
+            if (application.getStatus() == FinancingApplication.FinancingStatus.APPROVED) {
+                approved.add(application);
+            }
+            results.add(application);
+        }
+        
+        // 未指定评分的申请取农户最新信用评分，一次批量读取
+        List<String> unscoredFarmerIds = approved.stream()
+            .filter(a -> a.getCreditScore() == null)
+            .map(FinancingApplication::getFarmerId)
+            .distinct()
+            .toList();
+        if (!unscoredFarmerIds.isEmpty()) {
+            Map<String, LatestCreditScore> latestScores = creditScoreService.getLatestScores(unscoredFarmerIds);
+            for (FinancingApplication application : approved) {
+                LatestCreditScore latest = latestScores.get(application.getFarmerId());
+                if (application.getCreditScore() == null && latest != null) {
+                    application.setCreditScore(latest.getTotalScore());
+                }
+            }
+        }
+        
+        // 生成还款计划
+        if (!approved.isEmpty()) {
+            financingApplicationService.generateRepaymentSchedules(approved);
+        }
+        
+        for (int i = 0; i < requests.size(); i++) {
+            notifyDecision(results.get(i), requests.get(i), reviewerId);
+        }
+        return applicationRepository.saveAll(results);
+    }
+    
+    /**
+     * 校验状态并记录审批结果
+     */
+    private FinancingApplication review(ApprovalRequest request, String reviewerId) {
         FinancingApplication application = applicationRepository.findById(request.getFinancingId())
             .orElseThrow(() -> new EntityNotFoundException("融资申请不存在"));
         
@@ -60,10 +117,24 @@ public class BankApprovalService {
             if (request.getInterestRate() != null) {
                 application.setInterestRate(request.getInterestRate());
             }
-            
-            // 生成还款计划
-            financingApplicationService.generateRepaymentSchedule(application);
-            
+            if (request.getRepaymentMethod() != null && !request.getRepaymentMethod().isBlank()) {
+                application.setRepaymentMethod(
+                    FinancingApplicationService.parseRepaymentMethod(request.getRepaymentMethod()));
+            }
+        } else if ("REJECT".equals(request.getAction())) {
+            application.setStatus(FinancingApplication.FinancingStatus.REJECTED);
+            application.setReviewerId(reviewerId);
+            application.setReviewedAt(java.time.LocalDateTime.now());
+            application.setReviewComment(request.getReviewComment());
+        }
+        return application;
+    }
+    
+    /**
+     * 添加时间线并发送审批通知
+     */
+    private void notifyDecision(FinancingApplication application, ApprovalRequest request, String reviewerId) {
+        if (application.getStatus() == FinancingApplication.FinancingStatus.APPROVED) {
             // 添加时间线
             financingApplicationService.addTimeline(application.getId(), 
                 FinancingTimeline.ActorType.BANK, reviewerId, "审批通过", request.getReviewComment());
@@ -71,12 +142,7 @@ public class BankApprovalService {
             // 发送审批通过通知
             notificationService.sendApprovalNotification(application.getFarmerId(), 
                 application.getId(), "APPROVED", request.getReviewComment());
-        } else if ("REJECT".equals(request.getAction())) {
-            application.setStatus(FinancingApplication.FinancingStatus.REJECTED);
-            application.setReviewerId(reviewerId);
-            application.setReviewedAt(java.time.LocalDateTime.now());
-            application.setReviewComment(request.getReviewComment());
-            
+        } else if (application.getStatus() == FinancingApplication.FinancingStatus.REJECTED) {
             // 添加时间线
             financingApplicationService.addTimeline(application.getId(), 
                 FinancingTimeline.ActorType.BANK, reviewerId, "审批拒绝", request.getReviewComment());
@@ -85,8 +151,6 @@ public class BankApprovalService {
             notificationService.sendApprovalNotification(application.getFarmerId(), 
                 application.getId(), "REJECTED", request.getReviewComment());
         }
-        
-        return applicationRepository.save(application);
     }
     
     /**
@@ -122,19 +186,7 @@ public class BankApprovalService {
         int totalScore = (int)(creditHistoryScore * 0.3 + incomeScore * 0.2 + 
                               assetScore * 0.2 + debtRatioScore * 0.15 + experienceScore * 0.15);
         
-        // 风险等级
-        CreditScore.RiskLevel riskLevel;
-        if (totalScore >= 80) {
-            riskLevel = CreditScore.RiskLevel.LOW;
-        } else if (totalScore >= 60) {
-            riskLevel = CreditScore.RiskLevel.MEDIUM;
-        } else {
-            riskLevel = CreditScore.RiskLevel.HIGH;
-        }
-        
-        // 建议额度
-        BigDecimal suggestedAmount = BigDecimal.valueOf(totalScore * 1000);
-        
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
         CreditScore creditScore = CreditScore.builder()
             .financingId(request.getFinancingId())
             .farmerId(application.getFarmerId())
@@ -144,13 +196,16 @@ public class BankApprovalService {
             .debtRatioScore(debtRatioScore)
             .experienceScore(experienceScore)
             .totalScore(totalScore)
-            .riskLevel(riskLevel)
-            .suggestedAmount(suggestedAmount)
+            .riskLevel(CreditScoreService.riskLevelOf(totalScore))
+            .suggestedAmount(CreditScoreService.suggestedAmountOf(totalScore))
             .reviewerId(reviewerId)
-            .reviewedAt(java.time.LocalDateTime.now())
+            .reviewedAt(now)
+            .createdAt(now)
             .build();
         
-        return creditScoreRepository.save(creditScore);
+        CreditScore saved = creditScoreRepository.save(creditScore);
+        eventPublisher.publishEvent(new CreditScoreSavedEvent(List.of(saved)));
+        return saved;
     }
 }
 
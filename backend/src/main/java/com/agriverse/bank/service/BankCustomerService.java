@@ -7,6 +7,7 @@ import com.agriverse.bank.dto.CustomerSearchRequest;
 import com.agriverse.bank.entity.BankCustomerRelation;
 import com.agriverse.bank.entity.CustomerContactRecord;
 import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.LatestCreditScore;
 import com.agriverse.bank.repository.BankCustomerRelationRepository;
 import com.agriverse.bank.repository.CreditScoreRepository;
 import com.agriverse.bank.repository.CustomerContactRecordRepository;
@@ -44,6 +45,7 @@ public class BankCustomerService {
     private final CustomerContactRecordRepository contactRepository;
     private final FinancingApplicationRepository applicationRepository;
     private final CreditScoreRepository creditScoreRepository;
+    private final CreditScoreService creditScoreService;
     private final UserRepository userRepository;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
@@ -103,9 +105,10 @@ public class BankCustomerService {
         List<FinancingApplication> loanHistory = applicationRepository
             .findByFarmerId(relation.getCustomerId());
         
-        // 获取信用评分历史
+        // 获取最新信用评分和最近的评分历史
+        LatestCreditScore latestCreditScore = creditScoreService.getLatestScore(relation.getCustomerId());
         List<CreditScore> creditHistory = creditScoreRepository
-            .findByFarmerIdOrderByCreatedAtDesc(relation.getCustomerId());
+            .findTop10ByFarmerIdOrderByCreatedAtDesc(relation.getCustomerId());
         
         // 获取联系记录
         List<CustomerContactRecord> contactRecords = contactRepository
@@ -127,6 +130,7 @@ public class BankCustomerService {
             .notes(relation.getNotes())
             .lastContactAt(relation.getLastContactAt())
             .loanHistory(loanHistory)
+            .latestCreditScore(latestCreditScore)
             .creditHistory(creditHistory)
             .contactRecords(contactRecords)
             .build();
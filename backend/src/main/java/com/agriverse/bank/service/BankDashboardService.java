@@ -2,10 +2,8 @@ package com.agriverse.bank.service;
 
 import com.agriverse.bank.dto.DashboardStatisticsResponse;
 import com.agriverse.bank.dto.TrendData;
-import com.agriverse.bank.entity.Disbursement;
-import com.agriverse.bank.repository.DisbursementRepository;
+import com.agriverse.bank.repository.BankDailyRollupRepository;
 import com.agriverse.finance.entity.FinancingApplication;
-import com.agriverse.finance.entity.RepaymentSchedule;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
 import lombok.RequiredArgsConstructor;
@@ -14,12 +12,12 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * 银行仪表盘服务
@@ -29,130 +27,84 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class BankDashboardService {
     private final FinancingApplicationRepository applicationRepository;
-    private final DisbursementRepository disbursementRepository;
     private final RepaymentScheduleRepository scheduleRepository;
+    private final BankDailyRollupRepository rollupRepository;
     
     /**
      * 获取仪表盘统计数据
+     * 放款、在贷余额、逾期及趋势均读取每日汇总表，不再加载融资申请和放款明细；
+     * bankId 为空时统计全部银行，否则只统计该银行（放款操作员）放出的贷款。
+     * 待审批申请尚未归属银行，始终为全部待审批数量
+     *
+     * @param bankId 银行（放款操作员）ID，为空时统计全部
      */
     public DashboardStatisticsResponse getDashboardStatistics(String bankId) {
         LocalDate today = LocalDate.now();
-        LocalDateTime todayStart = today.atStartOfDay();
-        LocalDateTime todayEnd = today.atTime(23, 59, 59);
         
         // 今日放款统计
-        List<Disbursement> todayDisbursements = disbursementRepository
-            .findByStatusAndDisbursedAtBetween(
-                Disbursement.DisbursementStatus.SUCCESS,
-                todayStart, todayEnd);
+        Long todayDisbursedCount = rollupRepository.sumDisbursedCount(bankId, today, today);
+        BigDecimal todayDisbursedAmount = rollupRepository.sumDisbursedAmount(bankId, today, today);
         
-        int todayDisbursedCount = todayDisbursements.size();
-        BigDecimal todayDisbursedAmount = todayDisbursements.stream()
-            .map(Disbursement::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // 在贷余额统计
-        List<FinancingApplication> outstandingApplications = applicationRepository
-            .findByStatusIn(List.of(
-                FinancingApplication.FinancingStatus.DISBURSED,
-                FinancingApplication.FinancingStatus.REPAYING));
-        
-        int outstandingLoansCount = outstandingApplications.size();
-        BigDecimal outstandingAmount = outstandingApplications.stream()
-            .map(FinancingApplication::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // 在贷余额统计（截至今日：累计放款 - 累计归还本金）
+        Long outstandingLoansCount = rollupRepository.sumOutstandingCount(bankId);
+        BigDecimal outstandingAmount = rollupRepository.sumOutstandingBefore(bankId, today.plusDays(1));
         
         // 待审批数量
         Long pendingApprovalsCount = applicationRepository
             .countByStatus(FinancingApplication.FinancingStatus.APPLIED);
         
         // 逾期融资数量
-        LocalDate now = LocalDate.now();
-        List<RepaymentSchedule> overdueSchedules = scheduleRepository
-            .findOverdueSchedules(now);
-        Set<String> overdueFinancingIds = overdueSchedules.stream()
-            .map(RepaymentSchedule::getFinancingId)
-            .collect(Collectors.toSet());
-        int overdueLoansCount = overdueFinancingIds.size();
+        long overdueLoansCount = bankId != null
+            ? scheduleRepository.countOverdueFinancingsByBank(bankId, today)
+            : scheduleRepository.countOverdueFinancings(today);
         
         // 趋势数据（近6个月）
-        List<TrendData> disbursementTrend = getDisbursementTrend(6);
-        List<TrendData> balanceTrend = getBalanceTrend(6);
+        MonthlyTrend trend = getMonthlyTrend(bankId, 6);
         
         return DashboardStatisticsResponse.builder()
-            .todayDisbursedCount(todayDisbursedCount)
+            .todayDisbursedCount(todayDisbursedCount.intValue())
             .todayDisbursedAmount(todayDisbursedAmount)
-            .outstandingLoansCount(outstandingLoansCount)
+            .outstandingLoansCount(outstandingLoansCount.intValue())
             .outstandingAmount(outstandingAmount)
             .pendingApprovalsCount(pendingApprovalsCount != null ? pendingApprovalsCount.intValue() : 0)
-            .overdueLoansCount(overdueLoansCount)
-            .disbursementTrend(disbursementTrend)
-            .balanceTrend(balanceTrend)
+            .overdueLoansCount((int) overdueLoansCount)
+            .disbursementTrend(trend.disbursement())
+            .balanceTrend(trend.balance())
             .build();
     }
     
     /**
-     * 获取放款趋势
+     * 获取放款趋势与余额趋势
+     * 一次按月聚合查询得到每月放款额和归还本金，月末余额 = 窗口前余额 + 逐月净放款
      */
-    private List<TrendData> getDisbursementTrend(int months) {
-        List<TrendData> trend = new ArrayList<>();
-        LocalDate endDate = LocalDate.now();
+    private MonthlyTrend getMonthlyTrend(String bankId, int months) {
+        LocalDate firstMonth = LocalDate.now().minusMonths(months - 1).withDayOfMonth(1);
+        LocalDate lastDay = LocalDate.now().withDayOfMonth(1).plusMonths(1).minusDays(1);
         
-        for (int i = months - 1; i >= 0; i--) {
-            LocalDate monthStart = endDate.minusMonths(i).withDayOfMonth(1);
-            LocalDate monthEnd = monthStart.withDayOfMonth(monthStart.lengthOfMonth());
-            
-            List<Disbursement> disbursements = disbursementRepository
-                .findByStatusAndDisbursedAtBetween(
-                    Disbursement.DisbursementStatus.SUCCESS,
-                    monthStart.atStartOfDay(),
-                    monthEnd.atTime(23, 59, 59));
-            
-            BigDecimal amount = disbursements.stream()
-                .map(Disbursement::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            trend.add(new TrendData(
-                monthStart.format(DateTimeFormatter.ofPattern("M月")),
-                amount
-            ));
+        Map<YearMonth, Object[]> byMonth = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByMonth(bankId, firstMonth, lastDay)) {
+            byMonth.put(YearMonth.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue()), row);
         }
         
-        return trend;
-    }
-    
-    /**
-     * 获取余额趋势
-     */
-    private List<TrendData> getBalanceTrend(int months) {
-        List<TrendData> trend = new ArrayList<>();
-        LocalDate endDate = LocalDate.now();
+        List<TrendData> disbursementTrend = new ArrayList<>();
+        List<TrendData> balanceTrend = new ArrayList<>();
+        BigDecimal balance = rollupRepository.sumOutstandingBefore(bankId, firstMonth);
+        DateTimeFormatter label = DateTimeFormatter.ofPattern("M月");
         
-        for (int i = months - 1; i >= 0; i--) {
-            LocalDate monthEnd = endDate.minusMonths(i).withDayOfMonth(1).plusMonths(1).minusDays(1);
-            
-            // 计算该月末的在贷余额（已放款且未结清的申请）
-            List<FinancingApplication> applications = applicationRepository
-                .findByStatusIn(List.of(
-                    FinancingApplication.FinancingStatus.DISBURSED,
-                    FinancingApplication.FinancingStatus.REPAYING));
+        for (int i = 0; i < months; i++) {
+            YearMonth month = YearMonth.from(firstMonth).plusMonths(i);
+            Object[] row = byMonth.get(month);
+            BigDecimal disbursed = row != null ? (BigDecimal) row[3] : BigDecimal.ZERO;
+            BigDecimal repaid = row != null ? (BigDecimal) row[4] : BigDecimal.ZERO;
+            balance = balance.add(disbursed).subtract(repaid);
             
-            // 过滤出在该月末之前放款的申请
-            BigDecimal balance = applications.stream()
-                .filter(a -> a.getDisbursedAt() != null && 
-                           a.getDisbursedAt().toLocalDate().isBefore(monthEnd.plusDays(1)))
-                .map(FinancingApplication::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            trend.add(new TrendData(
-                monthEnd.format(DateTimeFormatter.ofPattern("M月")),
-                balance
-            ));
+            disbursementTrend.add(new TrendData(month.format(label), disbursed));
+            balanceTrend.add(new TrendData(month.format(label), balance));
         }
         
-        return trend;
+        return new MonthlyTrend(disbursementTrend, balanceTrend);
+    }
+    
+    private record MonthlyTrend(List<TrendData> disbursement, List<TrendData> balance) {
     }
 }
-
-
-
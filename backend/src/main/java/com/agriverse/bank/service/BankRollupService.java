@@ -0,0 +1,233 @@
+package com.agriverse.bank.service;
+
+import com.agriverse.bank.entity.BankDailyRollup;
+import com.agriverse.bank.repository.BankDailyRollupRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 银行每日汇总服务
+ * 放款、还款在同一事务内对 (日期, 银行) 行做原子累加，逾期笔数每日快照一次；
+ * 汇总表为空或数据异常时可按放款、还款历史全量回填
+ */
+@Slf4j
+@Service
+public class BankRollupService {
+    private static final String UPSERT_SQL = "INSERT INTO bank_daily_rollups (id, stat_date, bank_id, " +
+            "disbursed_count, disbursed_amount, repaid_principal, settled_count, overdue_count, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?) ON DUPLICATE KEY UPDATE " +
+            "disbursed_count = disbursed_count + ?, disbursed_amount = disbursed_amount + ?, " +
+            "repaid_principal = repaid_principal + ?, settled_count = settled_count + ?, updated_at = ?";
+
+    private static final String OVERDUE_SNAPSHOT_SQL = "INSERT INTO bank_daily_rollups (id, stat_date, bank_id, " +
+            "disbursed_count, disbursed_amount, repaid_principal, settled_count, overdue_count, updated_at) " +
+            "VALUES (?, ?, ?, 0, 0, 0, 0, ?, ?) ON DUPLICATE KEY UPDATE overdue_count = ?, updated_at = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO bank_daily_rollups (id, stat_date, bank_id, " +
+            "disbursed_count, disbursed_amount, repaid_principal, settled_count, overdue_count, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String BANK_OF_FINANCING_SQL = "SELECT COALESCE(disbursed_by, '" +
+            BankDailyRollup.UNASSIGNED_BANK + "') FROM disbursements WHERE financing_id = ? AND status = 'SUCCESS'";
+
+    private static final String BANK_EXPR = "COALESCE(d.disbursed_by, '" + BankDailyRollup.UNASSIGNED_BANK + "')";
+
+    private static final String BACKFILL_DISBURSED_SQL = "SELECT CAST(d.disbursed_at AS DATE), " + BANK_EXPR +
+            ", COUNT(*), SUM(d.amount) FROM disbursements d " +
+            "WHERE d.status = 'SUCCESS' AND d.disbursed_at IS NOT NULL " +
+            "GROUP BY CAST(d.disbursed_at AS DATE), " + BANK_EXPR;
+
+    private static final String BACKFILL_REPAID_SQL = "SELECT CAST(r.paid_at AS DATE), " + BANK_EXPR +
+            ", SUM(r.principal) FROM repayment_records r " +
+            "JOIN disbursements d ON d.financing_id = r.financing_id AND d.status = 'SUCCESS' " +
+            "GROUP BY CAST(r.paid_at AS DATE), " + BANK_EXPR;
+
+    // 结清日期取结清那笔（即最后一笔）还款的还款时间，与增量累加一致，不受融资申请后续修改影响
+    private static final String BACKFILL_SETTLED_SQL = "SELECT CAST(t.settled_at AS DATE), t.bank_id, COUNT(*) " +
+            "FROM (SELECT a.id, " + BANK_EXPR + " AS bank_id, MAX(r.paid_at) AS settled_at " +
+            "FROM financing_applications a " +
+            "JOIN disbursements d ON d.financing_id = a.id AND d.status = 'SUCCESS' " +
+            "JOIN repayment_records r ON r.financing_id = a.id " +
+            "WHERE a.status = 'SETTLED' GROUP BY a.id, " + BANK_EXPR + ") t " +
+            "GROUP BY CAST(t.settled_at AS DATE), t.bank_id";
+
+    private static final String OVERDUE_BY_BANK_SQL = "SELECT " + BANK_EXPR + ", COUNT(DISTINCT s.financing_id) " +
+            "FROM repayment_schedules s " +
+            "JOIN disbursements d ON d.financing_id = s.financing_id AND d.status = 'SUCCESS' " +
+            "WHERE s.status = 'OVERDUE' OR (s.status = 'PENDING' AND s.due_date < ?) " +
+            "GROUP BY " + BANK_EXPR;
+
+    private final BankDailyRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+
+    public BankRollupService(BankDailyRollupRepository rollupRepository,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 记录一笔放款（须在放款事务内调用）
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDisbursement(String bankId, LocalDateTime disbursedAt, BigDecimal amount) {
+        upsert(disbursedAt.toLocalDate(), bankIdOrUnassigned(bankId), 1, amount, BigDecimal.ZERO, 0);
+    }
+
+    /**
+     * 记录一笔还款（须在还款事务内调用），没有成功放款记录的融资不计入汇总
+     *
+     * @param settled 本次还款后该融资是否由未结清变为结清
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordRepayment(String financingId, LocalDateTime paidAt, BigDecimal principal, boolean settled) {
+        List<String> banks = jdbcTemplate.queryForList(BANK_OF_FINANCING_SQL, String.class, financingId);
+        if (banks.isEmpty()) {
+            log.debug("融资无成功放款记录，跳过还款汇总: financingId={}", financingId);
+            return;
+        }
+        upsert(paidAt.toLocalDate(), banks.get(0), 0, BigDecimal.ZERO,
+                principal != null ? principal : BigDecimal.ZERO, settled ? 1 : 0);
+    }
+
+    /**
+     * 每日逾期笔数快照（在逾期检查任务之后执行）
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void snapshotOverdue() {
+        int banks = transactionTemplate.execute(status -> snapshotOverdue(LocalDate.now()));
+        log.info("逾期笔数快照完成: banks={}", banks);
+    }
+
+    /**
+     * 按放款、还款历史全量重建汇总表
+     *
+     * @return 重建的汇总行数
+     */
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        int rows = transactionTemplate.execute(status -> {
+            Map<Key, Row> merged = new LinkedHashMap<>();
+            jdbcTemplate.query(BACKFILL_DISBURSED_SQL, rs -> {
+                Row row = merged.computeIfAbsent(new Key(rs.getObject(1, LocalDate.class), rs.getString(2)), Row::new);
+                row.disbursedCount = rs.getInt(3);
+                row.disbursedAmount = rs.getBigDecimal(4);
+            });
+            jdbcTemplate.query(BACKFILL_REPAID_SQL, rs -> {
+                Row row = merged.computeIfAbsent(new Key(rs.getObject(1, LocalDate.class), rs.getString(2)), Row::new);
+                row.repaidPrincipal = rs.getBigDecimal(3);
+            });
+            jdbcTemplate.query(BACKFILL_SETTLED_SQL, rs -> {
+                Row row = merged.computeIfAbsent(new Key(rs.getObject(1, LocalDate.class), rs.getString(2)), Row::new);
+                row.settledCount = rs.getInt(3);
+            });
+
+            jdbcTemplate.update("DELETE FROM bank_daily_rollups");
+            LocalDateTime now = LocalDateTime.now();
+            jdbcTemplate.batchUpdate(INSERT_SQL, new ArrayList<>(merged.values()), batchSize, (ps, row) -> {
+                ps.setString(1, UUID.randomUUID().toString());
+                ps.setObject(2, row.statDate);
+                ps.setString(3, row.bankId);
+                ps.setInt(4, row.disbursedCount);
+                ps.setBigDecimal(5, row.disbursedAmount);
+                ps.setBigDecimal(6, row.repaidPrincipal);
+                ps.setInt(7, row.settledCount);
+                ps.setInt(8, 0);
+                ps.setObject(9, now);
+            });
+            snapshotOverdue(LocalDate.now());
+            return merged.size();
+        });
+        log.info("银行每日汇总重建完成: rows={}, elapsed={}ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * 启动时汇总表为空而已有放款记录（首次上线），自动回填
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (rollupRepository.count() == 0 && jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM disbursements WHERE status = 'SUCCESS'", Long.class) > 0) {
+                log.info("银行每日汇总表为空，开始按历史数据回填");
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.error("银行每日汇总回填失败", e);
+        }
+    }
+
+    private int snapshotOverdue(LocalDate date) {
+        List<Object[]> counts = jdbcTemplate.query(OVERDUE_BY_BANK_SQL,
+                (rs, i) -> new Object[]{rs.getString(1), rs.getInt(2)}, date);
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(OVERDUE_SNAPSHOT_SQL, counts, batchSize, (ps, c) -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setObject(2, date);
+            ps.setString(3, (String) c[0]);
+            ps.setInt(4, (Integer) c[1]);
+            ps.setObject(5, now);
+            ps.setInt(6, (Integer) c[1]);
+            ps.setObject(7, now);
+        });
+        return counts.size();
+    }
+
+    private void upsert(LocalDate date, String bankId, int disbursedCount, BigDecimal disbursedAmount,
+                        BigDecimal repaidPrincipal, int settledCount) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(UPSERT_SQL,
+                UUID.randomUUID().toString(), date, bankId,
+                disbursedCount, disbursedAmount, repaidPrincipal, settledCount, now,
+                disbursedCount, disbursedAmount, repaidPrincipal, settledCount, now);
+    }
+
+    private static String bankIdOrUnassigned(String bankId) {
+        return bankId != null && !bankId.isEmpty() ? bankId : BankDailyRollup.UNASSIGNED_BANK;
+    }
+
+    /**
+     * 回填时合并的一行汇总
+     */
+    private static final class Row {
+        final LocalDate statDate;
+        final String bankId;
+        int disbursedCount;
+        BigDecimal disbursedAmount = BigDecimal.ZERO;
+        BigDecimal repaidPrincipal = BigDecimal.ZERO;
+        int settledCount;
+
+        Row(Key key) {
+            this.statDate = key.statDate();
+            this.bankId = key.bankId();
+        }
+    }
+
+    private record Key(LocalDate statDate, String bankId) {
+    }
+}
@@ -2,18 +2,24 @@ package com.agriverse.bank.service;
 
 import com.agriverse.bank.entity.BankSystemConfig;
 import com.agriverse.bank.repository.BankSystemConfigRepository;
-import com.agriverse.exception.BusinessException;
+import com.agriverse.util.ConfigRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * 银行系统配置服务
+ * 配置读取走进程内的不可变快照（启动时全量加载，修改提交后原子刷新，定时全量重载兜底多实例间的修改），
+ * 不访问数据库，数值、布尔、JSON 配置在加载时即完成解析
  */
 @Slf4j
 @Service
@@ -21,42 +27,57 @@ import java.util.UUID;
 @Transactional
 public class BankSystemConfigService {
     private final BankSystemConfigRepository configRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper;
+    private ConfigRegistry registry;
+
+    @PostConstruct
+    public void init() {
+        registry = new ConfigRegistry("bank", () -> configRepository.findAll().stream()
+                .map(BankSystemConfigService::toSource)
+                .toList(), objectMapper);
+        registry.reload();
+    }
+
+    /**
+     * 定时全量重载，同步其他实例上的配置修改
+     */
+    @Scheduled(fixedDelayString = "${app.config.reload-interval-ms:60000}",
+            initialDelayString = "${app.config.reload-interval-ms:60000}")
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void reload() {
+        registry.reload();
+    }
     
     /**
      * 获取配置值
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public String getConfigValue(String configKey) {
-        return configRepository.findByConfigKey(configKey)
-            .map(BankSystemConfig::getConfigValue)
-            .orElse(null);
+        return registry.get(configKey);
     }
     
     /**
      * 获取配置值（带类型转换）
      */
+    @Transactional(propagation = Propagation.SUPPORTS)
     public <T> T getConfigValue(String configKey, Class<T> type) {
-        BankSystemConfig config = configRepository.findByConfigKey(configKey)
-            .orElse(null);
-        
-        if (config == null) {
-            return null;
-        }
-        
-        try {
-            switch (config.getConfigType()) {
-                case NUMBER:
-                    return type.cast(Double.parseDouble(config.getConfigValue()));
-                case BOOLEAN:
-                    return type.cast(Boolean.parseBoolean(config.getConfigValue()));
-                case JSON:
-                    return objectMapper.readValue(config.getConfigValue(), type);
-                default:
-                    return type.cast(config.getConfigValue());
-            }
-        } catch (Exception e) {
-            throw new BusinessException("配置值类型转换失败: " + configKey);
-        }
+        return registry.get(configKey, type);
+    }
+
+    /**
+     * 获取数值配置，未配置时返回默认值
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public double getDouble(String configKey, double defaultValue) {
+        return registry.getDouble(configKey, defaultValue);
+    }
+
+    /**
+     * 监听配置变更，注册时立即以当前值回调一次
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public void watch(String configKey, Consumer<ConfigRegistry.ConfigValue> listener) {
+        registry.watch(configKey, listener);
     }
     
     /**
@@ -79,7 +100,9 @@ public class BankSystemConfigService {
         }
         config.setUpdatedBy(updatedBy);
         
-        return configRepository.save(config);
+        BankSystemConfig saved = configRepository.save(config);
+        registry.publishAfterCommit(toSource(saved));
+        return saved;
     }
     
     /**
@@ -95,5 +118,10 @@ public class BankSystemConfigService {
     public List<BankSystemConfig> getAllConfigs() {
         return configRepository.findAll();
     }
+
+    private static ConfigRegistry.Source toSource(BankSystemConfig config) {
+        return new ConfigRegistry.Source(config.getConfigKey(), config.getConfigValue(),
+                config.getConfigType() != null ? config.getConfigType().name() : null);
+    }
 }
 
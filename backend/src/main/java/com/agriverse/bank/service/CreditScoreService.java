@@ -0,0 +1,408 @@
+package com.agriverse.bank.service;
+
+import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.LatestCreditScore;
+import com.agriverse.bank.event.CreditScoreSavedEvent;
+import com.agriverse.bank.repository.CreditScoreRepository;
+import com.agriverse.bank.repository.LatestCreditScoreRepository;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.finance.repository.FinancingApplicationRepository;
+import com.agriverse.finance.repository.RepaymentScheduleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 信用评分服务
+ * 每个农户的最新评分物化在 latest_credit_scores 中，信用评分保存事件到达时随之更新，读取按主键；
+ * 夜间批量重新评分把在途贷款农户按ID升序分块，在有界线程池中按块独立事务根据还款行为计算评分并批量写入；
+ * 与最新评分相同的结果不写入，评分历史只随评分变化增长，而不是每晚每个在途农户一条
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CreditScoreService {
+    /**
+     * 批量重新评分记录的评分人
+     */
+    public static final String RESCORING_REVIEWER = "SYSTEM";
+
+    private static final String INSERT_SCORE_SQL = "INSERT INTO credit_scores (id, financing_id, farmer_id, " +
+        "credit_history_score, income_score, asset_score, debt_ratio_score, experience_score, total_score, " +
+        "risk_level, suggested_amount, reviewer_id, reviewed_at, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPSERT_LATEST_SQL = "INSERT INTO latest_credit_scores (farmer_id, credit_score_id, " +
+        "financing_id, total_score, risk_level, suggested_amount, scored_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE credit_score_id = ?, financing_id = ?, total_score = ?, risk_level = ?, " +
+        "suggested_amount = ?, scored_at = ?, updated_at = ?";
+
+    /**
+     * 按评分历史回填每个农户的最新评分（首次上线）
+     */
+    private static final String BACKFILL_LATEST_SQL = "INSERT INTO latest_credit_scores (farmer_id, " +
+        "credit_score_id, financing_id, total_score, risk_level, suggested_amount, scored_at, updated_at) " +
+        "SELECT farmer_id, id, financing_id, total_score, risk_level, suggested_amount, scored_at, ? FROM (" +
+        "SELECT farmer_id, id, financing_id, total_score, risk_level, suggested_amount, " +
+        "COALESCE(reviewed_at, created_at) AS scored_at, ROW_NUMBER() OVER (PARTITION BY farmer_id " +
+        "ORDER BY COALESCE(reviewed_at, created_at) DESC, id DESC) AS rn FROM credit_scores) t WHERE rn = 1";
+
+    /**
+     * 没有已到期期次时的信用历史分
+     */
+    private static final int NEUTRAL_HISTORY_SCORE = 70;
+
+    private final CreditScoreRepository creditScoreRepository;
+    private final LatestCreditScoreRepository latestRepository;
+    private final FinancingApplicationRepository applicationRepository;
+    private final RepaymentScheduleRepository scheduleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.credit-rescoring.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.credit-rescoring.workers:4}")
+    private int workers;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 队列满时由提交线程自己执行分块，在途分块数始终有界
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(workers * 2),
+            r -> {
+                Thread thread = new Thread(r, "rescore-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 获取农户最新信用评分
+     */
+    public LatestCreditScore getLatestScore(String farmerId) {
+        return latestRepository.findById(farmerId).orElse(null);
+    }
+
+    /**
+     * 批量获取农户最新信用评分，从未评分的农户不在结果中
+     */
+    public Map<String, LatestCreditScore> getLatestScores(Collection<String> farmerIds) {
+        return latestRepository.findAllById(farmerIds).stream()
+            .collect(Collectors.toMap(LatestCreditScore::getFarmerId, Function.identity()));
+    }
+
+    /**
+     * 信用评分保存后更新农户最新评分（同一农户以事件中最后一条为准）
+     */
+    @EventListener
+    public void onCreditScoreSaved(CreditScoreSavedEvent event) {
+        Map<String, CreditScore> latest = new LinkedHashMap<>();
+        event.scores().forEach(score -> latest.put(score.getFarmerId(), score));
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(UPSERT_LATEST_SQL, new ArrayList<>(latest.values()), batchSize, (ps, s) -> {
+            LocalDateTime scoredAt = s.getReviewedAt() != null ? s.getReviewedAt() : now;
+            ps.setString(1, s.getFarmerId());
+            ps.setString(2, s.getId());
+            ps.setString(3, s.getFinancingId());
+            ps.setInt(4, s.getTotalScore());
+            ps.setString(5, s.getRiskLevel().name());
+            ps.setBigDecimal(6, s.getSuggestedAmount());
+            ps.setObject(7, scoredAt);
+            ps.setObject(8, now);
+            ps.setString(9, s.getId());
+            ps.setString(10, s.getFinancingId());
+            ps.setInt(11, s.getTotalScore());
+            ps.setString(12, s.getRiskLevel().name());
+            ps.setBigDecimal(13, s.getSuggestedAmount());
+            ps.setObject(14, scoredAt);
+            ps.setObject(15, now);
+        });
+    }
+
+    /**
+     * 启动时最新评分表为空而已有评分历史（首次上线），按历史回填；先于风险预警回填执行
+     */
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (latestRepository.count() == 0 && creditScoreRepository.count() > 0) {
+                int rows = jdbcTemplate.update(BACKFILL_LATEST_SQL, LocalDateTime.now());
+                log.info("农户最新信用评分回填完成: farmers={}", rows);
+            }
+        } catch (RuntimeException e) {
+            log.error("农户最新信用评分回填失败", e);
+        }
+    }
+
+    /**
+     * 夜间批量重新评分（凌晨2点30分，在逾期检测和每日计息之后执行）
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void rescoreNightly() {
+        log.info("开始批量重新评分");
+        int count = rescorePortfolio(LocalDate.now());
+        log.info("批量重新评分完成，评分有变化的农户 {} 个", count);
+    }
+
+    /**
+     * 按截至 asOf 的还款行为为所有在途贷款农户重新评分
+     *
+     * @return 写入新评分的农户数（评分与最新评分相同的农户不计）
+     */
+    public int rescorePortfolio(LocalDate asOf) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("RESCORING_RUNNING", "批量重新评分正在进行中");
+        }
+        long start = System.currentTimeMillis();
+        Deque<Future<Integer>> inFlight = new ArrayDeque<>();
+        int chunks = 0;
+        int scored = 0;
+        try {
+            String afterId = "";
+            while (true) {
+                List<String> farmerIds = applicationRepository.findActiveFarmerIdsAfter(afterId,
+                    PageRequest.of(0, chunkSize));
+                if (farmerIds.isEmpty()) {
+                    break;
+                }
+                afterId = farmerIds.get(farmerIds.size() - 1);
+                inFlight.add(executor.submit(() -> rescoreChunk(farmerIds, asOf)));
+                chunks++;
+                while (!inFlight.isEmpty() && inFlight.peek().isDone()) {
+                    scored += await(inFlight.poll());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                scored += await(inFlight.poll());
+            }
+        } catch (RuntimeException e) {
+            inFlight.forEach(future -> future.cancel(true));
+            throw e;
+        } finally {
+            running.set(false);
+        }
+        log.info("批量重新评分: asOf={}, chunks={}, farmers={}, elapsed={}ms",
+            asOf, chunks, scored, System.currentTimeMillis() - start);
+        return scored;
+    }
+
+    /**
+     * 风险等级：80分及以上低风险，60分及以上中风险，其余高风险
+     */
+    public static CreditScore.RiskLevel riskLevelOf(int totalScore) {
+        if (totalScore >= 80) {
+            return CreditScore.RiskLevel.LOW;
+        }
+        return totalScore >= 60 ? CreditScore.RiskLevel.MEDIUM : CreditScore.RiskLevel.HIGH;
+    }
+
+    /**
+     * 建议额度：综合评分 × 1000 元
+     */
+    public static BigDecimal suggestedAmountOf(int totalScore) {
+        return BigDecimal.valueOf(totalScore * 1000L);
+    }
+
+    /**
+     * 为一块农户重新评分（独立事务）：还款行为一次分组聚合，收入、资产、经验分沿用农户最新一次评分，
+     * 评分与最新一次相同时跳过
+     */
+    private int rescoreChunk(List<String> farmerIds, LocalDate asOf) {
+        return transactionTemplate.execute(status -> {
+            Map<String, String> financingIds = new HashMap<>();
+            // 按创建时间升序，最后放入的是农户最近的一笔在途贷款
+            for (Object[] row : applicationRepository.findActiveFinancingIdsByFarmerIdIn(farmerIds)) {
+                financingIds.put((String) row[0], (String) row[1]);
+            }
+            Map<String, Object[]> behaviors = new HashMap<>();
+            for (Object[] row : scheduleRepository.summarizeBehaviorByFarmerIdIn(farmerIds)) {
+                behaviors.put((String) row[0], row);
+            }
+            Map<String, CreditScore> priors = creditScoreRepository.findAllById(
+                    getLatestScores(farmerIds).values().stream().map(LatestCreditScore::getCreditScoreId).toList())
+                .stream()
+                .collect(Collectors.toMap(CreditScore::getFarmerId, Function.identity()));
+
+            LocalDateTime now = LocalDateTime.now();
+            List<CreditScore> scores = new ArrayList<>(farmerIds.size());
+            for (String farmerId : farmerIds) {
+                String financingId = financingIds.get(farmerId);
+                if (financingId == null) {
+                    continue;
+                }
+                CreditScore prior = priors.get(farmerId);
+                CreditScore score = score(farmerId, financingId, behaviors.get(farmerId), prior, asOf, now);
+                if (!sameScore(prior, score)) {
+                    scores.add(score);
+                }
+            }
+            if (scores.isEmpty()) {
+                return 0;
+            }
+
+            jdbcTemplate.batchUpdate(INSERT_SCORE_SQL, scores, batchSize, (ps, s) -> {
+                ps.setString(1, s.getId());
+                ps.setString(2, s.getFinancingId());
+                ps.setString(3, s.getFarmerId());
+                ps.setInt(4, s.getCreditHistoryScore());
+                ps.setObject(5, s.getIncomeScore());
+                ps.setObject(6, s.getAssetScore());
+                ps.setInt(7, s.getDebtRatioScore());
+                ps.setObject(8, s.getExperienceScore());
+                ps.setInt(9, s.getTotalScore());
+                ps.setString(10, s.getRiskLevel().name());
+                ps.setBigDecimal(11, s.getSuggestedAmount());
+                ps.setString(12, s.getReviewerId());
+                ps.setObject(13, s.getReviewedAt());
+                ps.setObject(14, s.getCreatedAt());
+            });
+            // 同一事务内更新最新评分和风险预警
+            eventPublisher.publishEvent(new CreditScoreSavedEvent(scores));
+            return scores.size();
+        });
+    }
+
+    /**
+     * 按还款行为评分
+     * 信用历史分 = 已到期期次中按时还款的比例（无已到期期次时70分），最早一期逾期每2天扣1分、最多扣50分；
+     * 负债分 = 100 − 逾期本息占未还本息的百分比；综合评分 = 信用历史分 × 60% + 负债分 × 40%
+     *
+     * @param behavior [农户ID, 已到期期次数, 按时还款期次数, 最早逾期到期日, 未还本息, 逾期本息]，没有还款计划时为空
+     */
+    private static CreditScore score(String farmerId, String financingId, Object[] behavior, CreditScore prior,
+                                     LocalDate asOf, LocalDateTime now) {
+        int historyScore = NEUTRAL_HISTORY_SCORE;
+        int debtScore = 100;
+        if (behavior != null) {
+            long dueCount = ((Number) behavior[1]).longValue();
+            long onTimeCount = ((Number) behavior[2]).longValue();
+            LocalDate earliestOverdue = toLocalDate(behavior[3]);
+            BigDecimal outstanding = toBigDecimal(behavior[4]);
+            BigDecimal overdue = toBigDecimal(behavior[5]);
+            if (dueCount > 0) {
+                long overdueDays = earliestOverdue != null
+                    ? Math.max(0, ChronoUnit.DAYS.between(earliestOverdue, asOf)) : 0;
+                historyScore = (int) Math.max(0, onTimeCount * 100 / dueCount - Math.min(50, overdueDays / 2));
+            }
+            if (outstanding.signum() > 0) {
+                debtScore = Math.max(0, 100 - overdue.multiply(BigDecimal.valueOf(100))
+                    .divide(outstanding, 0, RoundingMode.HALF_UP).intValue());
+            }
+        }
+        int totalScore = (historyScore * 6 + debtScore * 4 + 5) / 10;
+
+        return CreditScore.builder()
+            .id(UUID.randomUUID().toString())
+            .financingId(financingId)
+            .farmerId(farmerId)
+            .creditHistoryScore(historyScore)
+            .incomeScore(prior != null ? prior.getIncomeScore() : null)
+            .assetScore(prior != null ? prior.getAssetScore() : null)
+            .debtRatioScore(debtScore)
+            .experienceScore(prior != null ? prior.getExperienceScore() : null)
+            .totalScore(totalScore)
+            .riskLevel(riskLevelOf(totalScore))
+            .suggestedAmount(suggestedAmountOf(totalScore))
+            .reviewerId(RESCORING_REVIEWER)
+            .reviewedAt(now)
+            .createdAt(now)
+            .build();
+    }
+
+    /**
+     * 重新评分结果与最新评分是否相同（同一笔贷款、各项评分一致）
+     */
+    private static boolean sameScore(CreditScore prior, CreditScore score) {
+        return prior != null
+            && Objects.equals(prior.getFinancingId(), score.getFinancingId())
+            && Objects.equals(prior.getCreditHistoryScore(), score.getCreditHistoryScore())
+            && Objects.equals(prior.getDebtRatioScore(), score.getDebtRatioScore())
+            && Objects.equals(prior.getIncomeScore(), score.getIncomeScore())
+            && Objects.equals(prior.getAssetScore(), score.getAssetScore())
+            && Objects.equals(prior.getExperienceScore(), score.getExperienceScore())
+            && Objects.equals(prior.getTotalScore(), score.getTotalScore());
+    }
+
+    private static int await(Future<Integer> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("批量重新评分被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("批量重新评分分块失败", e.getCause());
+        }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
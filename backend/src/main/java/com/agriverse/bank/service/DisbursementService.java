@@ -8,12 +8,18 @@ import com.agriverse.finance.entity.Contract;
 import com.agriverse.finance.entity.FinancingApplication;
 import com.agriverse.finance.repository.ContractRepository;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
+import com.agriverse.util.NdjsonWriter;
+import com.agriverse.util.PageCursor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * 放款服务
@@ -22,9 +28,14 @@ import java.util.List;
 @RequiredArgsConstructor
 @Transactional
 public class DisbursementService {
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     private final DisbursementRepository disbursementRepository;
     private final FinancingApplicationRepository applicationRepository;
     private final ContractRepository contractRepository;
+    private final BankRollupService bankRollupService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
     
     /**
      * 放款
@@ -69,23 +80,57 @@ public class DisbursementService {
         application.setDisbursedAmount(request.getAmount());
         applicationRepository.save(application);
         
+        // 累加当日放款汇总
+        bankRollupService.recordDisbursement(operatorId, saved.getDisbursedAt(), saved.getAmount());
+        
         return saved;
     }
     
     /**
-     * 获取放款列表
+     * 游标分页获取放款列表（按创建时间倒序），status 为空或无法识别时不过滤
+     *
+     * @param cursor   上一页返回的 nextCursor，空字符串表示第一页
+     * @param pageSize 每页条数
      */
-    public List<Disbursement> getDisbursements(String status) {
-        if (status != null && !status.isEmpty()) {
-            try {
-                Disbursement.DisbursementStatus statusEnum = 
-                    Disbursement.DisbursementStatus.valueOf(status);
-                return disbursementRepository.findByStatus(statusEnum);
-            } catch (IllegalArgumentException e) {
-                return disbursementRepository.findAll();
-            }
+    @Transactional(readOnly = true)
+    public PageCursor.Slice<Disbursement> getDisbursements(String status, String cursor, Integer pageSize) {
+        return findPage(parseStatus(status), PageCursor.decode(cursor),
+            PageCursor.pageSize(pageSize, DEFAULT_PAGE_SIZE));
+    }
+    
+    /**
+     * 以 NDJSON 格式逐页写出放款记录（不关闭输出流）
+     *
+     * @return 写出条数
+     */
+    @Transactional(readOnly = true)
+    public int streamDisbursements(String status, OutputStream out) throws IOException {
+        Disbursement.DisbursementStatus statusEnum = parseStatus(status);
+        return new NdjsonWriter(objectMapper, out).writePages(
+            cursor -> findPage(statusEnum, cursor, NdjsonWriter.STREAM_PAGE_SIZE),
+            entityManager::clear);
+    }
+    
+    private PageCursor.Slice<Disbursement> findPage(Disbursement.DisbursementStatus status,
+                                                    PageCursor cursor, int pageSize) {
+        return PageCursor.slice(
+            disbursementRepository.findPageAfter(status, cursor.createdAt(), cursor.id(),
+                PageRequest.ofSize(pageSize + 1)),
+            pageSize, Disbursement::getCreatedAt, Disbursement::getId);
+    }
+    
+    /**
+     * 解析状态参数，为空或无法识别时不过滤
+     */
+    private static Disbursement.DisbursementStatus parseStatus(String status) {
+        if (status == null || status.isEmpty()) {
+            return null;
+        }
+        try {
+            return Disbursement.DisbursementStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return null;
         }
-        return disbursementRepository.findAll();
     }
     
     /**
@@ -1,14 +1,18 @@
 package com.agriverse.bank.service;
 
 import com.agriverse.finance.entity.FinancingApplication;
+import com.agriverse.finance.event.LoanOverdueEvent;
 import com.agriverse.finance.entity.RepaymentSchedule;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
+import com.agriverse.finance.service.LoanAccrualService;
 import com.agriverse.notification.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -25,9 +29,15 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Transactional
 public class OverdueManagementService {
+    /**
+     * 逾期事件中按块查询农户ID的融资笔数
+     */
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+    
     private final FinancingApplicationRepository applicationRepository;
     private final RepaymentScheduleRepository scheduleRepository;
     private final NotificationService notificationService;
+    private final LoanAccrualService accrualService;
     
     /**
      * 获取逾期统计
@@ -109,28 +119,18 @@ public class OverdueManagementService {
     }
     
     /**
-     * 计算逾期罚息
+     * 获取逾期罚息：尚未还清的逾期计划上由每日计息任务计提的罚息之和
+     * （已还清计划的罚息不计入；含已还部分的累计罚息见 {@link #getCumulativePenalty}）
      */
     public BigDecimal calculateOverduePenalty(String financingId) {
-        LocalDate today = LocalDate.now();
-        List<RepaymentSchedule> overdueSchedules = scheduleRepository
-            .findByFinancingIdAndStatus(financingId, RepaymentSchedule.ScheduleStatus.OVERDUE);
-        
-        BigDecimal totalPenalty = BigDecimal.ZERO;
-        
-        for (RepaymentSchedule schedule : overdueSchedules) {
-            long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(schedule.getDueDate(), today);
-            if (overdueDays > 0) {
-                BigDecimal overdueAmount = schedule.getPrincipal().add(schedule.getInterest());
-                // 罚息 = 逾期金额 × 0.05% × 逾期天数
-                BigDecimal penalty = overdueAmount
-                    .multiply(BigDecimal.valueOf(0.0005))
-                    .multiply(BigDecimal.valueOf(overdueDays));
-                totalPenalty = totalPenalty.add(penalty);
-            }
-        }
-        
-        return totalPenalty.setScale(2, java.math.RoundingMode.HALF_UP);
+        return scheduleRepository.sumOverduePenalty(financingId);
+    }
+    
+    /**
+     * 获取累计逾期罚息（计息余额中的累计值，包括已还清计划的罚息）
+     */
+    public BigDecimal getCumulativePenalty(String financingId) {
+        return accrualService.getAccruedPenalty(financingId);
     }
     
     /**
@@ -167,5 +167,34 @@ public class OverdueManagementService {
         notificationService.sendOverdueAlert(application.getFarmerId(), 
             financingId, overdueAmount, overdueDays);
     }
+    
+    /**
+     * 还款计划批量转为逾期后，向相关农户发送逾期提醒（按本次新逾期的金额和最早到期日计算）
+     * 农户ID按块用 IN 查询投影读取，单次事件涉及的融资再多也不会一次加载全部融资申请。
+     * 发布事务提交后在独立的新事务中执行（无事务发布时直接执行），失败不影响风险预警等其他监听器
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onLoanOverdue(LoanOverdueEvent event) {
+        List<LoanOverdueEvent.OverdueLoan> loans = event.loans();
+        for (int from = 0; from < loans.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<LoanOverdueEvent.OverdueLoan> chunk = loans.subList(from,
+                Math.min(from + LOOKUP_CHUNK_SIZE, loans.size()));
+            Map<String, String> farmerIds = new HashMap<>();
+            for (Object[] row : applicationRepository.findFarmerIdsByIdIn(
+                    chunk.stream().map(LoanOverdueEvent.OverdueLoan::financingId).toList())) {
+                farmerIds.put((String) row[0], (String) row[1]);
+            }
+            
+            for (LoanOverdueEvent.OverdueLoan loan : chunk) {
+                String farmerId = farmerIds.get(loan.financingId());
+                if (farmerId == null) {
+                    log.warn("融资申请不存在: financingId={}", loan.financingId());
+                    continue;
+                }
+                long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(loan.earliestDueDate(), event.asOf());
+                notificationService.sendOverdueAlert(farmerId, loan.financingId(), loan.overdueAmount(), overdueDays);
+            }
+        }
+    }
 }
-
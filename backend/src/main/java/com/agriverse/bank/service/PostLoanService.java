@@ -1,103 +1,155 @@
 package com.agriverse.bank.service;
 
+import com.agriverse.bank.dto.PostLoanMonitoringRow;
+import com.agriverse.exception.BusinessException;
 import com.agriverse.finance.entity.FinancingApplication;
 import com.agriverse.finance.entity.RepaymentSchedule;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * 贷后管理服务
+ * 监控列表由一条按融资分组的聚合查询得到期数与金额分布，在数据库中排序分页；
+ * 还款计划明细只在查看单笔贷款时加载
  */
 @Service
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class PostLoanService {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final String ACTIVE_STATUSES = "('DISBURSED', 'REPAYING')";
+
+    private static final String SUMMARY_SQL = "SELECT a.id, a.farmer_id, a.amount, a.status, " +
+            "COUNT(s.id) AS total_installments, " +
+            "COALESCE(SUM(CASE WHEN s.status = 'PAID' THEN 1 ELSE 0 END), 0) AS paid_installments, " +
+            "COALESCE(SUM(CASE WHEN s.status = 'PENDING' THEN 1 ELSE 0 END), 0) AS pending_installments, " +
+            "COALESCE(SUM(CASE WHEN s.status = 'OVERDUE' THEN 1 ELSE 0 END), 0) AS overdue_installments, " +
+            "COALESCE(SUM(s.total_amount), 0) AS total_amount, " +
+            "COALESCE(SUM(CASE WHEN s.status = 'PAID' THEN s.total_amount ELSE 0 END), 0) AS paid_amount, " +
+            "COALESCE(SUM(CASE WHEN s.status = 'PENDING' THEN s.total_amount ELSE 0 END), 0) AS pending_amount, " +
+            "COALESCE(SUM(CASE WHEN s.status = 'OVERDUE' THEN s.total_amount ELSE 0 END), 0) AS overdue_amount, " +
+            "MIN(CASE WHEN s.status <> 'PAID' THEN s.due_date END) AS next_due_date " +
+            "FROM financing_applications a LEFT JOIN repayment_schedules s ON s.financing_id = a.id ";
+
+    private static final String GROUP_BY = " GROUP BY a.id, a.farmer_id, a.amount, a.status";
+
+    private static final RowMapper<PostLoanMonitoringRow> ROW_MAPPER = (rs, i) -> new PostLoanMonitoringRow(
+            rs.getString(1), rs.getString(2), rs.getBigDecimal(3), rs.getString(4),
+            rs.getInt(5), rs.getInt(6), rs.getInt(7), rs.getInt(8),
+            rs.getBigDecimal(9), rs.getBigDecimal(10), rs.getBigDecimal(11), rs.getBigDecimal(12),
+            rs.getObject(13, LocalDate.class));
+
     private final FinancingApplicationRepository applicationRepository;
     private final RepaymentScheduleRepository scheduleRepository;
+    private final JdbcTemplate jdbcTemplate;
     
     /**
-     * 获取贷后监控数据
+     * 获取贷后监控数据（单笔贷款，含还款计划明细）
      */
     public Map<String, Object> getPostLoanMonitoring(String financingId) {
         FinancingApplication application = applicationRepository.findById(financingId)
             .orElseThrow(() -> new jakarta.persistence.EntityNotFoundException("融资申请不存在"));
         
+        PostLoanMonitoringRow row = jdbcTemplate.queryForObject(
+            SUMMARY_SQL + "WHERE a.id = ?" + GROUP_BY, ROW_MAPPER, financingId);
         List<RepaymentSchedule> schedules = scheduleRepository
             .findByFinancingIdOrderByInstallmentNumberAsc(financingId);
         
-        // 统计信息
-        int totalInstallments = schedules.size();
-        int paidInstallments = (int) schedules.stream()
-            .filter(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.PAID)
-            .count();
-        int pendingInstallments = (int) schedules.stream()
-            .filter(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.PENDING)
-            .count();
-        int overdueInstallments = (int) schedules.stream()
-            .filter(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.OVERDUE)
-            .count();
-        
-        // 金额统计
-        BigDecimal totalAmount = schedules.stream()
-            .map(RepaymentSchedule::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal paidAmount = schedules.stream()
-            .filter(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.PAID)
-            .map(RepaymentSchedule::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal pendingAmount = schedules.stream()
-            .filter(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.PENDING)
-            .map(RepaymentSchedule::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal overdueAmount = schedules.stream()
-            .filter(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.OVERDUE)
-            .map(RepaymentSchedule::getTotalAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // 计算还款率
-        BigDecimal repaymentRate = totalAmount.compareTo(BigDecimal.ZERO) > 0 ?
-            paidAmount.divide(totalAmount, 4, java.math.RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100)) :
-            BigDecimal.ZERO;
-        
         Map<String, Object> monitoring = new HashMap<>();
         monitoring.put("financingId", financingId);
         monitoring.put("application", application);
-        monitoring.put("totalInstallments", totalInstallments);
-        monitoring.put("paidInstallments", paidInstallments);
-        monitoring.put("pendingInstallments", pendingInstallments);
-        monitoring.put("overdueInstallments", overdueInstallments);
-        monitoring.put("totalAmount", totalAmount);
-        monitoring.put("paidAmount", paidAmount);
-        monitoring.put("pendingAmount", pendingAmount);
-        monitoring.put("overdueAmount", overdueAmount);
-        monitoring.put("repaymentRate", repaymentRate);
+        monitoring.put("totalInstallments", row.totalInstallments());
+        monitoring.put("paidInstallments", row.paidInstallments());
+        monitoring.put("pendingInstallments", row.pendingInstallments());
+        monitoring.put("overdueInstallments", row.overdueInstallments());
+        monitoring.put("totalAmount", row.totalAmount());
+        monitoring.put("paidAmount", row.paidAmount());
+        monitoring.put("pendingAmount", row.pendingAmount());
+        monitoring.put("overdueAmount", row.overdueAmount());
+        monitoring.put("repaymentRate", row.getRepaymentRate());
+        monitoring.put("nextDueDate", row.nextDueDate());
         monitoring.put("schedules", schedules);
         
         return monitoring;
     }
     
     /**
-     * 获取所有贷后监控列表
+     * 分页获取在途贷款（已放款、还款中）的贷后监控列表
+     *
+     * @param sort      排序字段，见 {@link MonitoringSort}，为空时按逾期金额
+     * @param direction ASC 或 DESC，为空时降序
+     * @param page      页码，从0开始
+     * @param size      每页条数
      */
-    public List<Map<String, Object>> getAllPostLoanMonitoring() {
-        List<FinancingApplication> applications = applicationRepository.findByStatus(
-            FinancingApplication.FinancingStatus.DISBURSED);
-        applications.addAll(applicationRepository.findByStatus(
-            FinancingApplication.FinancingStatus.REPAYING));
+    public Page<PostLoanMonitoringRow> getAllPostLoanMonitoring(String sort, String direction,
+                                                               Integer page, Integer size) {
+        MonitoringSort sortKey = MonitoringSort.parse(sort);
+        Sort.Direction dir = direction == null || direction.isBlank() ? Sort.Direction.DESC :
+            Sort.Direction.fromOptionalString(direction.trim())
+                .orElseThrow(() -> new BusinessException("INVALID_SORT", "不支持的排序方向: " + direction));
+        int pageNumber = page != null && page > 0 ? page : 0;
+        int pageSize = size != null && size > 0 ? Math.min(size, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        
+        long total = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM financing_applications WHERE status IN " + ACTIVE_STATUSES, Long.class);
+        List<PostLoanMonitoringRow> rows = total == 0 ? List.of() : jdbcTemplate.query(
+            SUMMARY_SQL + "WHERE a.status IN " + ACTIVE_STATUSES + GROUP_BY +
+                " ORDER BY " + sortKey.expression + " " + dir.name() + ", a.id " + dir.name() +
+                " LIMIT ? OFFSET ?",
+            ROW_MAPPER, pageSize, (long) pageNumber * pageSize);
         
-        return applications.stream()
-            .map(a -> getPostLoanMonitoring(a.getId()))
-            .collect(java.util.stream.Collectors.toList());
+        return new PageImpl<>(rows, PageRequest.of(pageNumber, pageSize,
+            Sort.by(dir, sortKey.name().toLowerCase())), total);
     }
-}
+    
+    /**
+     * 监控列表排序字段，ORDER BY 表达式与查询中的聚合一致
+     */
+    public enum MonitoringSort {
+        OVERDUE_AMOUNT("overdue_amount"),
+        REPAYMENT_RATE("CASE WHEN COALESCE(SUM(s.total_amount), 0) > 0 THEN " +
+            "COALESCE(SUM(CASE WHEN s.status = 'PAID' THEN s.total_amount ELSE 0 END), 0) / SUM(s.total_amount) " +
+            "ELSE 0 END"),
+        PENDING_AMOUNT("pending_amount"),
+        OVERDUE_INSTALLMENTS("overdue_installments"),
+        AMOUNT("a.amount"),
+        NEXT_DUE_DATE("next_due_date");
+
+        private final String expression;
+
+        MonitoringSort(String expression) {
+            this.expression = expression;
+        }
 
+        /**
+         * 解析排序参数（大小写、驼峰均可），为空时按逾期金额
+         */
+        public static MonitoringSort parse(String sort) {
+            if (sort == null || sort.isBlank()) {
+                return OVERDUE_AMOUNT;
+            }
+            String normalized = sort.trim().replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase();
+            try {
+                return valueOf(normalized);
+            } catch (IllegalArgumentException e) {
+                throw new BusinessException("INVALID_SORT", "不支持的排序字段: " + sort);
+            }
+        }
+    }
+}
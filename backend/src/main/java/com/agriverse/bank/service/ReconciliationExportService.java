@@ -0,0 +1,362 @@
+package com.agriverse.bank.service;
+
+import com.agriverse.bank.entity.ReconciliationRecord;
+import com.agriverse.bank.repository.ReconciliationRecordRepository;
+import com.agriverse.util.NdjsonWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 对账单导出服务
+ * 通过只读游标逐行读取对账记录并直接写入输出流，写完一行即从持久化上下文中移除，
+ * 内存占用与导出行数无关；支持 CSV、Excel（SXSSF 滑动窗口）、T+1 定长文件和 NDJSON
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReconciliationExportService {
+    private static final String[] HEADERS = {
+        "融资申请ID", "对账日期", "放款金额", "已还本金", "已还利息", "待还本金", "待还利息",
+        "逾期本金", "逾期利息", "逾期罚息", "差异金额", "状态", "差异原因"
+    };
+
+    private final ReconciliationRecordRepository reconciliationRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 导出格式
+     */
+    @Getter
+    public enum ExportFormat {
+        CSV("csv", "text/csv;charset=UTF-8"),
+        EXCEL("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+        T1("txt", "text/plain;charset=US-ASCII"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+        private final String contentType;
+
+        ExportFormat(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        /**
+         * 解析请求中的格式，格式名和文件扩展名均可（如 excel / xlsx），未指定时导出 Excel
+         *
+         * @throws IllegalArgumentException 不支持的格式
+         */
+        public static ExportFormat of(String format) {
+            if (format == null || format.isBlank()) {
+                return EXCEL;
+            }
+            String value = format.trim();
+            for (ExportFormat candidate : values()) {
+                if (candidate.name().equalsIgnoreCase(value) || candidate.extension.equalsIgnoreCase(value)) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("不支持的导出格式: " + format);
+        }
+    }
+
+    /**
+     * 导出日期范围内的对账记录到输出流（不关闭输出流）
+     *
+     * @return 导出行数
+     */
+    @Transactional(readOnly = true)
+    public int export(LocalDate startDate, LocalDate endDate, ExportFormat format, OutputStream out)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        int rows = 0;
+        RecordWriter writer = switch (format) {
+            case CSV -> new CsvWriter(out);
+            case EXCEL -> new ExcelWriter(out);
+            case T1 -> new T1Writer(out, startDate, endDate);
+            case NDJSON -> new JsonLinesWriter(new NdjsonWriter(objectMapper, out));
+        };
+        try (Stream<ReconciliationRecord> records = reconciliationRepository
+                .streamByReconciliationDateBetween(startDate, endDate)) {
+            Iterator<ReconciliationRecord> iterator = records.iterator();
+            while (iterator.hasNext()) {
+                ReconciliationRecord record = iterator.next();
+                writer.write(record);
+                entityManager.detach(record);
+                rows++;
+            }
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+        log.info("对账单导出完成: format={}, {}~{}, rows={}, elapsed={}ms",
+            format, startDate, endDate, rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * 对账记录写出器
+     */
+    private interface RecordWriter {
+        void write(ReconciliationRecord record) throws IOException;
+
+        /**
+         * 写出尾部并刷新，不关闭底层输出流
+         */
+        void finish() throws IOException;
+
+        /**
+         * 释放写出器自身占用的资源（临时文件等）
+         */
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * CSV：UTF-8 带 BOM，便于 Excel 直接打开中文表头
+     */
+    private static final class CsvWriter implements RecordWriter {
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            writer.write('\uFEFF');
+            writer.write(String.join(",", HEADERS));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ReconciliationRecord r) throws IOException {
+            writer.write(escape(r.getFinancingId()));
+            writer.write(',');
+            writer.write(r.getReconciliationDate().toString());
+            for (BigDecimal amount : amounts(r)) {
+                writer.write(',');
+                writer.write(amount != null ? amount.toPlainString() : "");
+            }
+            writer.write(',');
+            writer.write(r.getStatus().name());
+            writer.write(',');
+            writer.write(escape(r.getDifferenceReason()));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+
+    /**
+     * Excel：SXSSF 只在内存保留最近 100 行，其余行写入压缩临时文件；单表满行后另起一张表
+     */
+    private static final class ExcelWriter implements RecordWriter {
+        private static final int WINDOW_SIZE = 100;
+        private static final int MAX_ROWS_PER_SHEET = 1_000_000;
+
+        private final OutputStream out;
+        private final SXSSFWorkbook workbook;
+        private Sheet sheet;
+        private int rowIndex;
+
+        ExcelWriter(OutputStream out) {
+            this.out = out;
+            this.workbook = new SXSSFWorkbook(WINDOW_SIZE);
+            workbook.setCompressTempFiles(true);
+            newSheet();
+        }
+
+        @Override
+        public void write(ReconciliationRecord r) {
+            if (rowIndex > MAX_ROWS_PER_SHEET) {
+                newSheet();
+            }
+            Row row = sheet.createRow(rowIndex++);
+            int col = 0;
+            row.createCell(col++).setCellValue(r.getFinancingId());
+            row.createCell(col++).setCellValue(r.getReconciliationDate().toString());
+            for (BigDecimal amount : amounts(r)) {
+                if (amount != null) {
+                    row.createCell(col).setCellValue(amount.doubleValue());
+                }
+                col++;
+            }
+            row.createCell(col++).setCellValue(r.getStatus().name());
+            if (r.getDifferenceReason() != null) {
+                row.createCell(col).setCellValue(r.getDifferenceReason());
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            workbook.write(out);
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            workbook.dispose();
+            workbook.close();
+        }
+
+        private void newSheet() {
+            sheet = workbook.createSheet("对账单" + (workbook.getNumberOfSheets() + 1));
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADERS.length; i++) {
+                header.createCell(i).setCellValue(HEADERS[i]);
+            }
+            rowIndex = 1;
+        }
+    }
+
+    /**
+     * NDJSON：每行一条对账记录，字段与对账列表接口一致，供程序批量消费
+     */
+    private record JsonLinesWriter(NdjsonWriter writer) implements RecordWriter {
+
+        @Override
+        public void write(ReconciliationRecord r) throws IOException {
+            writer.write(r);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * T+1 定长文件（供银行内部系统对接），ASCII 编码，每行191字符，CRLF 换行
+     * <pre>
+     * 头记录  H + 起始日期(8) + 截止日期(8) + 生成时间(14)，右补空格
+     * 明细    D + 融资申请ID(36,左对齐) + 对账日期(8) + 放款/已还本金/已还利息/待还本金/待还利息/
+     *         逾期本金/逾期利息/逾期罚息 各15位分（右对齐补零）+ 差异金额 符号(1)+15位分 + 状态(10,左对齐)
+     * 尾记录  T + 明细笔数(10) + 放款总额(18位分) + 已还本息总额(18位分)，右补空格
+     * </pre>
+     */
+    private static final class T1Writer implements RecordWriter {
+        private static final int RECORD_LENGTH = 191;
+        private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+        private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+        private final Writer writer;
+        private final StringBuilder line = new StringBuilder(RECORD_LENGTH);
+        private long count;
+        private long totalDisbursedCents;
+        private long totalRepaidCents;
+
+        T1Writer(OutputStream out, LocalDate startDate, LocalDate endDate) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 64 * 1024);
+            line.append('H').append(startDate.format(DATE)).append(endDate.format(DATE))
+                .append(LocalDateTime.now().format(TIMESTAMP));
+            writeLine();
+        }
+
+        @Override
+        public void write(ReconciliationRecord r) throws IOException {
+            line.append('D');
+            padRight(r.getFinancingId(), 36);
+            line.append(r.getReconciliationDate().format(DATE));
+            BigDecimal[] amounts = amounts(r);
+            for (int i = 0; i < amounts.length - 1; i++) {
+                padLeft(cents(amounts[i]), 15);
+            }
+            long difference = cents(amounts[amounts.length - 1]);
+            line.append(difference < 0 ? '-' : '+');
+            padLeft(Math.abs(difference), 15);
+            padRight(r.getStatus().name(), 10);
+            writeLine();
+
+            count++;
+            totalDisbursedCents += cents(r.getDisbursedAmount());
+            totalRepaidCents += cents(r.getRepaidPrincipal()) + cents(r.getRepaidInterest());
+        }
+
+        @Override
+        public void finish() throws IOException {
+            line.append('T');
+            padLeft(count, 10);
+            padLeft(totalDisbursedCents, 18);
+            padLeft(totalRepaidCents, 18);
+            writeLine();
+            writer.flush();
+        }
+
+        private void writeLine() throws IOException {
+            while (line.length() < RECORD_LENGTH) {
+                line.append(' ');
+            }
+            writer.append(line).append("\r\n");
+            line.setLength(0);
+        }
+
+        private void padRight(String value, int width) {
+            String text = value != null ? value : "";
+            if (text.length() > width) {
+                text = text.substring(0, width);
+            }
+            line.append(text);
+            for (int i = text.length(); i < width; i++) {
+                line.append(' ');
+            }
+        }
+
+        private void padLeft(long value, int width) {
+            String digits = Long.toString(value);
+            for (int i = digits.length(); i < width; i++) {
+                line.append('0');
+            }
+            line.append(digits);
+        }
+
+        private static long cents(BigDecimal amount) {
+            return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0L;
+        }
+    }
+
+    /**
+     * 按表头顺序排列的金额列：放款、已还本金、已还利息、待还本金、待还利息、逾期本金、逾期利息、逾期罚息、差异
+     */
+    private static BigDecimal[] amounts(ReconciliationRecord r) {
+        return new BigDecimal[]{
+            r.getDisbursedAmount(), r.getRepaidPrincipal(), r.getRepaidInterest(),
+            r.getPendingPrincipal(), r.getPendingInterest(),
+            r.getOverduePrincipal(), r.getOverdueInterest(), r.getOverduePenalty(),
+            r.getDifferenceAmount()
+        };
+    }
+}
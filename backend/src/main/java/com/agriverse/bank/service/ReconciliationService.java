@@ -1,42 +1,132 @@
 package com.agriverse.bank.service;
 
+import com.agriverse.bank.entity.ReconciliationCheckpoint;
 import com.agriverse.bank.entity.ReconciliationRecord;
+import com.agriverse.bank.repository.ReconciliationCheckpointRepository;
 import com.agriverse.bank.repository.ReconciliationRecordRepository;
+import com.agriverse.exception.BusinessException;
 import com.agriverse.finance.entity.FinancingApplication;
-import com.agriverse.finance.entity.RepaymentRecord;
 import com.agriverse.finance.entity.RepaymentSchedule;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.RepaymentRecordRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
+import com.agriverse.util.PageCursor;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * 对账服务
+ * 在途贷款按ID升序分块，每块用 IN 查询批量加载还款计划和还款汇总，在有界线程池中按块独立事务计算并批量写入；
+ * 按块推进检查点，中断后从最后一个连续完成的分块之后继续；逾期罚息取自每日计息任务维护的计息余额。
+ * 检查点行兼作数据库租约，同一日期同时只有一个实例在对账
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional
 public class ReconciliationService {
+    private static final String INSERT_SQL = "INSERT INTO reconciliation_records (id, financing_id, " +
+            "reconciliation_date, disbursed_amount, repaid_principal, repaid_interest, pending_principal, " +
+            "pending_interest, overdue_principal, overdue_interest, overdue_penalty, status, difference_amount, " +
+            "difference_reason, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String ENSURE_CHECKPOINT_SQL = "INSERT INTO reconciliation_checkpoints " +
+            "(reconciliation_date, processed_count, status, updated_at) VALUES (?, 0, 'COMPLETED', ?) " +
+            "ON DUPLICATE KEY UPDATE reconciliation_date = reconciliation_date";
+    
+    private static final String CLAIM_LEASE_SQL = "UPDATE reconciliation_checkpoints SET lease_owner = ?, " +
+            "lease_until = ? WHERE reconciliation_date = ? AND (lease_until IS NULL OR lease_until < ?)";
+    
+    private static final String SAVE_CHECKPOINT_SQL = "UPDATE reconciliation_checkpoints SET " +
+            "last_financing_id = ?, processed_count = ?, status = ?, lease_until = ?, updated_at = ? " +
+            "WHERE reconciliation_date = ? AND lease_owner = ?";
+    
+    private static final String RELEASE_LEASE_SQL = "UPDATE reconciliation_checkpoints SET lease_until = NULL " +
+            "WHERE reconciliation_date = ? AND lease_owner = ?";
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     private final ReconciliationRecordRepository reconciliationRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
     private final FinancingApplicationRepository applicationRepository;
     private final RepaymentScheduleRepository scheduleRepository;
     private final RepaymentRecordRepository repaymentRecordRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    
+    @Value("${app.reconciliation.chunk-size:1000}")
+    private int chunkSize;
+    
+    @Value("${app.reconciliation.workers:4}")
+    private int workers;
+    
+    /**
+     * 对账租约时长（秒），每推进一次检查点续期一次；实例宕机后租约过期即可由其他实例接手
+     */
+    @Value("${app.reconciliation.lease-seconds:600}")
+    private long leaseSeconds;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+    
+    private TransactionTemplate transactionTemplate;
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // 队列满时由提交线程自己执行分块，读取ID的速度随之放慢，在途分块数始终有界
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(workers * 2),
+            r -> {
+                Thread thread = new Thread(r, "reconcile-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
     
     /**
      * 自动对账（每天凌晨1点执行，对T-1日的数据进行对账）
      */
     @Scheduled(cron = "0 0 1 * * ?")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void autoReconcile() {
         log.info("开始自动对账");
         LocalDate yesterday = LocalDate.now().minusDays(1);
@@ -46,49 +136,186 @@ public class ReconciliationService {
     
     /**
      * 按日期对账
+     * 上次同日对账中断时从检查点继续，已完成的日期重新执行时从头覆盖；
+     * 先在检查点行上抢占租约，其他实例持有未过期租约时拒绝执行
+     *
+     * @return 该日期已写入的对账记录数
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public int reconcileByDate(LocalDate date) {
-        // 获取所有已放款的融资申请
-        List<FinancingApplication> applications = applicationRepository.findByStatus(
-            FinancingApplication.FinancingStatus.DISBURSED);
-        applications.addAll(applicationRepository.findByStatus(
-            FinancingApplication.FinancingStatus.REPAYING));
-        
-        int count = 0;
-        for (FinancingApplication application : applications) {
-            try {
-                ReconciliationRecord record = createReconciliationRecord(application, date);
-                reconciliationRepository.save(record);
-                count++;
-            } catch (Exception e) {
-                log.error("对账失败: financingId={}, error={}", application.getId(), e.getMessage());
+        String owner = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update(ENSURE_CHECKPOINT_SQL, date, now);
+        if (jdbcTemplate.update(CLAIM_LEASE_SQL, owner, now.plusSeconds(leaseSeconds), date, now) == 0) {
+            throw new BusinessException("RECONCILIATION_RUNNING", "该日期对账正在进行中");
+        }
+        try {
+            return runChunks(date, owner);
+        } finally {
+            jdbcTemplate.update(RELEASE_LEASE_SQL, date, owner);
+        }
+    }
+    
+    private int runChunks(LocalDate date, String owner) {
+        long start = System.currentTimeMillis();
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(date).orElseThrow();
+        checkpoint.setLeaseOwner(owner);
+        if (checkpoint.getStatus() == ReconciliationCheckpoint.CheckpointStatus.RUNNING
+                && checkpoint.getLastFinancingId() != null) {
+            log.info("从检查点继续对账: date={}, lastFinancingId={}, processed={}",
+                date, checkpoint.getLastFinancingId(), checkpoint.getProcessedCount());
+        } else {
+            checkpoint.setLastFinancingId(null);
+            checkpoint.setProcessedCount(0);
+        }
+        checkpoint.setStatus(ReconciliationCheckpoint.CheckpointStatus.RUNNING);
+        saveCheckpoint(checkpoint);
+        
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+        String afterId = checkpoint.getLastFinancingId() != null ? checkpoint.getLastFinancingId() : "";
+        int chunks = 0;
+        try {
+            while (true) {
+                List<String> ids = applicationRepository.findActiveIdsAfter(afterId, PageRequest.of(0, chunkSize));
+                if (ids.isEmpty()) {
+                    break;
+                }
+                String lowerId = afterId;
+                afterId = ids.get(ids.size() - 1);
+                String upperId = afterId;
+                inFlight.add(new Chunk(upperId, executor.submit(() -> reconcileChunk(lowerId, upperId, ids, date))));
+                chunks++;
+                advanceCheckpoint(inFlight, checkpoint, false);
             }
+            advanceCheckpoint(inFlight, checkpoint, true);
+        } catch (RuntimeException e) {
+            inFlight.forEach(chunk -> chunk.result().cancel(true));
+            log.error("对账中断: date={}, 已完成至 financingId={}", date, checkpoint.getLastFinancingId());
+            throw e;
         }
         
-        return count;
+        // 最后一块之后的融资已不在途，清除其旧记录并在同一事务内标记完成
+        String lastId = afterId;
+        transactionTemplate.executeWithoutResult(status -> {
+            reconciliationRepository.deleteByReconciliationDateAndFinancingIdAfter(date, lastId);
+            checkpoint.setStatus(ReconciliationCheckpoint.CheckpointStatus.COMPLETED);
+            saveCheckpoint(checkpoint);
+        });
+        log.info("对账完成: date={}, chunks={}, records={}, elapsed={}ms",
+            date, chunks, checkpoint.getProcessedCount(), System.currentTimeMillis() - start);
+        return checkpoint.getProcessedCount();
+    }
+    
+    /**
+     * 按提交顺序收取已完成的分块，检查点只推进到连续完成的最后一块
+     *
+     * @param waitAll 是否等待全部在途分块完成
+     */
+    private void advanceCheckpoint(Deque<Chunk> inFlight, ReconciliationCheckpoint checkpoint, boolean waitAll) {
+        boolean advanced = false;
+        while (!inFlight.isEmpty() && (waitAll || inFlight.peek().result().isDone())) {
+            Chunk chunk = inFlight.peek();
+            int written;
+            try {
+                written = chunk.result().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("对账被中断", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("对账分块失败: lastFinancingId=" + chunk.lastFinancingId(),
+                    e.getCause());
+            }
+            inFlight.poll();
+            checkpoint.setLastFinancingId(chunk.lastFinancingId());
+            checkpoint.setProcessedCount(checkpoint.getProcessedCount() + written);
+            advanced = true;
+        }
+        if (advanced) {
+            saveCheckpoint(checkpoint);
+        }
+    }
+    
+    /**
+     * 以租约持有者身份写检查点并续期租约，租约已被其他实例接手时中止本次对账
+     */
+    private void saveCheckpoint(ReconciliationCheckpoint checkpoint) {
+        LocalDateTime now = LocalDateTime.now();
+        checkpoint.setUpdatedAt(now);
+        checkpoint.setLeaseUntil(now.plusSeconds(leaseSeconds));
+        int updated = jdbcTemplate.update(SAVE_CHECKPOINT_SQL, checkpoint.getLastFinancingId(),
+            checkpoint.getProcessedCount(), checkpoint.getStatus().name(), checkpoint.getLeaseUntil(), now,
+            checkpoint.getReconciliationDate(), checkpoint.getLeaseOwner());
+        if (updated == 0) {
+            throw new IllegalStateException("对账租约已失效: date=" + checkpoint.getReconciliationDate());
+        }
+    }
+    
+    /**
+     * 对一块融资申请对账（独立事务）
+     * 先删除该日期下 (afterId, lastId] 区间内已有的对账记录再写入，重跑同一分块结果不重复，
+     * 区间内已不在途的融资的旧记录也随之清除
+     */
+    private int reconcileChunk(String afterId, String lastId, List<String> financingIds, LocalDate date) {
+        return transactionTemplate.execute(status -> {
+            List<FinancingApplication> applications = applicationRepository.findAllById(financingIds);
+            Map<String, List<RepaymentSchedule>> schedulesById = scheduleRepository
+                .findOutstandingByFinancingIdIn(financingIds).stream()
+                .collect(Collectors.groupingBy(RepaymentSchedule::getFinancingId));
+            Map<String, Object[]> repaidById = new HashMap<>();
+            for (Object[] row : repaymentRecordRepository.sumRepaidByFinancingIdIn(financingIds)) {
+                repaidById.put((String) row[0], row);
+            }
+            
+            List<ReconciliationRecord> records = new ArrayList<>(applications.size());
+            for (FinancingApplication application : applications) {
+                try {
+                    Object[] repaid = repaidById.get(application.getId());
+                    records.add(createReconciliationRecord(application,
+                        repaid != null ? (BigDecimal) repaid[1] : BigDecimal.ZERO,
+                        repaid != null ? (BigDecimal) repaid[2] : BigDecimal.ZERO,
+                        schedulesById.getOrDefault(application.getId(), List.of()), date));
+                } catch (Exception e) {
+                    log.error("对账失败: financingId={}, error={}", application.getId(), e.getMessage());
+                }
+            }
+            
+            reconciliationRepository.deleteByReconciliationDateAndFinancingIdRange(date, afterId, lastId);
+            insertRecords(records);
+            return records.size();
+        });
+    }
+    
+    private void insertRecords(List<ReconciliationRecord> records) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, records, batchSize, (ps, r) -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, r.getFinancingId());
+            ps.setObject(3, r.getReconciliationDate());
+            ps.setBigDecimal(4, r.getDisbursedAmount());
+            ps.setBigDecimal(5, r.getRepaidPrincipal());
+            ps.setBigDecimal(6, r.getRepaidInterest());
+            ps.setBigDecimal(7, r.getPendingPrincipal());
+            ps.setBigDecimal(8, r.getPendingInterest());
+            ps.setBigDecimal(9, r.getOverduePrincipal());
+            ps.setBigDecimal(10, r.getOverdueInterest());
+            ps.setBigDecimal(11, r.getOverduePenalty());
+            ps.setString(12, r.getStatus().name());
+            ps.setBigDecimal(13, r.getDifferenceAmount());
+            ps.setString(14, r.getDifferenceReason());
+            ps.setObject(15, now);
+        });
     }
     
     /**
      * 创建对账记录
+     *
+     * @param schedules 该融资待还、逾期的还款计划
      */
-    private ReconciliationRecord createReconciliationRecord(FinancingApplication application, LocalDate date) {
-        // 获取所有还款计划
-        List<RepaymentSchedule> schedules = scheduleRepository
-            .findByFinancingIdOrderByInstallmentNumberAsc(application.getId());
-        
-        // 获取所有还款记录
-        List<RepaymentRecord> records = repaymentRecordRepository
-            .findByFinancingIdOrderByPaidAtDesc(application.getId());
-        
-        // 计算已还本金和利息
-        BigDecimal repaidPrincipal = records.stream()
-            .map(RepaymentRecord::getPrincipal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal repaidInterest = records.stream()
-            .map(RepaymentRecord::getInterest)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
+    private ReconciliationRecord createReconciliationRecord(FinancingApplication application,
+                                                           BigDecimal repaidPrincipal,
+                                                           BigDecimal repaidInterest,
+                                                           List<RepaymentSchedule> schedules,
+                                                           LocalDate date) {
         // 计算待还本金和利息
         List<RepaymentSchedule> pendingSchedules = schedules.stream()
             .filter(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.PENDING)
@@ -115,8 +342,11 @@ public class ReconciliationService {
             .map(RepaymentSchedule::getInterest)
             .reduce(BigDecimal.ZERO, BigDecimal::add);
         
-        // 计算逾期罚息（假设为逾期金额的0.05%每天）
-        BigDecimal overduePenalty = calculateOverduePenalty(overdueSchedules);
+        // 逾期罚息：尚未还清的逾期计划上由每日计息任务计提的罚息
+        BigDecimal overduePenalty = overdueSchedules.stream()
+            .map(RepaymentSchedule::getAccruedPenalty)
+            .filter(Objects::nonNull)
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
         
         // 计算差异
         BigDecimal disbursedAmount = application.getDisbursedAmount() != null ? 
@@ -149,28 +379,6 @@ public class ReconciliationService {
             .build();
     }
     
-    /**
-     * 计算逾期罚息
-     */
-    private BigDecimal calculateOverduePenalty(List<RepaymentSchedule> overdueSchedules) {
-        BigDecimal totalPenalty = BigDecimal.ZERO;
-        LocalDate today = LocalDate.now();
-        
-        for (RepaymentSchedule schedule : overdueSchedules) {
-            long overdueDays = java.time.temporal.ChronoUnit.DAYS.between(schedule.getDueDate(), today);
-            if (overdueDays > 0) {
-                BigDecimal overdueAmount = schedule.getPrincipal().add(schedule.getInterest());
-                // 罚息 = 逾期金额 × 0.05% × 逾期天数
-                BigDecimal penalty = overdueAmount
-                    .multiply(BigDecimal.valueOf(0.0005))
-                    .multiply(BigDecimal.valueOf(overdueDays));
-                totalPenalty = totalPenalty.add(penalty);
-            }
-        }
-        
-        return totalPenalty.setScale(2, java.math.RoundingMode.HALF_UP);
-    }
-    
     /**
      * 获取对账统计
      */
@@ -205,15 +413,26 @@ public class ReconciliationService {
     }
     
     /**
-     * 获取对账列表
+     * 游标分页获取对账列表（按对账日期、融资申请ID倒序），起止日期为空时不限制该端
+     *
+     * @param cursor   上一页返回的 nextCursor，空字符串表示第一页
+     * @param pageSize 每页条数
      */
-    public List<ReconciliationRecord> getReconciliationList(LocalDate startDate, LocalDate endDate) {
-        if (startDate != null && endDate != null) {
-            return reconciliationRepository.findByReconciliationDateBetween(startDate, endDate);
-        }
-        return reconciliationRepository.findAll();
+    @Transactional(readOnly = true)
+    public PageCursor.Slice<ReconciliationRecord> getReconciliationList(LocalDate startDate, LocalDate endDate,
+                                                                       String cursor, Integer pageSize) {
+        // 游标位置为 (对账日期, 融资申请ID)，日期以当日零点存入游标
+        PageCursor position = PageCursor.decode(cursor);
+        int size = PageCursor.pageSize(pageSize, DEFAULT_PAGE_SIZE);
+        List<ReconciliationRecord> rows = reconciliationRepository.findPageAfter(startDate, endDate,
+            position.createdAt().toLocalDate(), position.id(), PageRequest.ofSize(size + 1));
+        return PageCursor.slice(rows, size,
+            r -> r.getReconciliationDate().atStartOfDay(), ReconciliationRecord::getFinancingId);
+    }
+    
+    /**
+     * 已提交的分块：块内最大融资申请ID及其写入记录数
+     */
+    private record Chunk(String lastFinancingId, Future<Integer> result) {
     }
 }
-
-
-
@@ -0,0 +1,333 @@
+package com.agriverse.bank.service;
+
+import com.agriverse.bank.dto.RiskAlert;
+import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.RiskAlertRecord;
+import com.agriverse.bank.event.CreditScoreSavedEvent;
+import com.agriverse.bank.repository.RiskAlertRecordRepository;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.finance.entity.RepaymentSchedule;
+import com.agriverse.finance.event.LoanOverdueEvent;
+import com.agriverse.finance.event.LoanRepaidEvent;
+import com.agriverse.finance.repository.FinancingApplicationRepository;
+import com.agriverse.finance.repository.RepaymentScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 风险预警服务
+ * 预警由事件驱动增量维护：信用评分保存时按农户最新评分打开或关闭高风险预警，还款计划转为逾期时打开逾期预警，
+ * 逾期期次全部还清后关闭。每个去重键只有一条记录、ID 稳定，可以确认；列表走 (status, raised_at) 索引分页查询
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class RiskAlertService {
+    /**
+     * 信用评分低于该分数时为高风险客户
+     */
+    public static final int HIGH_RISK_SCORE = 60;
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int LOOKUP_CHUNK_SIZE = 1000;
+
+    private static final Set<RiskAlertRecord.AlertStatus> ACTIVE = EnumSet.of(
+        RiskAlertRecord.AlertStatus.OPEN,
+        RiskAlertRecord.AlertStatus.ACKNOWLEDGED);
+
+    /**
+     * 打开预警：不存在时插入；已关闭时重新打开（清除确认信息、累加次数）；未关闭时只刷新内容。
+     * status 放在最后赋值，MySQL 按从左到右求值时前面的 CASE 仍读到旧状态
+     */
+    private static final String UPSERT_OPEN_SQL = "INSERT INTO risk_alerts (id, dedup_key, alert_type, alert_level, " +
+        "customer_id, financing_id, description, status, raised_at, occurrences, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, 'OPEN', ?, 1, ?) " +
+        "ON DUPLICATE KEY UPDATE alert_level = ?, customer_id = ?, financing_id = ?, description = ?, " +
+        "raised_at = CASE WHEN status = 'CLOSED' THEN ? ELSE raised_at END, " +
+        "occurrences = CASE WHEN status = 'CLOSED' THEN occurrences + 1 ELSE occurrences END, " +
+        "acknowledged_by = CASE WHEN status = 'CLOSED' THEN NULL ELSE acknowledged_by END, " +
+        "acknowledged_at = CASE WHEN status = 'CLOSED' THEN NULL ELSE acknowledged_at END, " +
+        "closed_at = NULL, updated_at = ?, " +
+        "status = CASE WHEN status = 'CLOSED' THEN 'OPEN' ELSE status END";
+
+    private static final String CLOSE_SQL = "UPDATE risk_alerts SET status = 'CLOSED', closed_at = ?, updated_at = ? " +
+        "WHERE dedup_key = ? AND status <> 'CLOSED'";
+
+    /**
+     * 关闭按融资去重的旧高风险预警（HIGH_RISK:融资申请ID）。高风险预警改为按农户去重后，
+     * 旧键不会再被评分事件匹配或关闭，需要一次性关闭，由按农户去重的预警接替
+     */
+    private static final String CLOSE_LEGACY_HIGH_RISK_SQL = "UPDATE risk_alerts SET status = 'CLOSED', " +
+        "closed_at = ?, updated_at = ? WHERE alert_type = 'HIGH_RISK' AND status <> 'CLOSED' " +
+        "AND (customer_id IS NULL OR dedup_key <> CONCAT('HIGH_RISK:', customer_id))";
+
+    /**
+     * 最新信用评分低于阈值的农户（回填用，走 total_score 索引）
+     */
+    private static final String LOW_SCORES_SQL = "SELECT financing_id, farmer_id, total_score " +
+        "FROM latest_credit_scores WHERE total_score < ?";
+
+    /**
+     * 存在逾期还款计划的融资（回填用）
+     */
+    private static final String OVERDUE_LOANS_SQL = "SELECT s.financing_id, a.farmer_id FROM repayment_schedules s " +
+        "JOIN financing_applications a ON a.id = s.financing_id WHERE s.status = 'OVERDUE' " +
+        "GROUP BY s.financing_id, a.farmer_id";
+
+    private final RiskAlertRecordRepository alertRepository;
+    private final FinancingApplicationRepository applicationRepository;
+    private final RepaymentScheduleRepository scheduleRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+
+    /**
+     * 信用评分保存后按农户的最新评分打开或关闭高风险预警
+     */
+    @EventListener
+    public void onCreditScoreSaved(CreditScoreSavedEvent event) {
+        Map<String, CreditScore> latest = new LinkedHashMap<>();
+        event.scores().forEach(score -> latest.put(score.getFarmerId(), score));
+
+        List<Alert> open = new ArrayList<>();
+        List<String> close = new ArrayList<>();
+        for (CreditScore score : latest.values()) {
+            if (score.getTotalScore() < HIGH_RISK_SCORE) {
+                open.add(highRisk(score.getFinancingId(), score.getFarmerId(), score.getTotalScore()));
+            } else {
+                close.add(dedupKey(RiskAlertRecord.AlertType.HIGH_RISK, score.getFarmerId()));
+            }
+        }
+        upsertOpen(open);
+        closeAlerts(close);
+    }
+
+    /**
+     * 还款计划批量转为逾期后打开逾期预警（融资所属农户按块批量查询，控制 IN 列表长度）
+     * 发布事务提交后在独立的新事务中执行（无事务发布时直接执行），不受逾期提醒等其他监听器失败的影响
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onLoanOverdue(LoanOverdueEvent event) {
+        List<String> financingIds = event.loans().stream().map(LoanOverdueEvent.OverdueLoan::financingId).toList();
+        Map<String, String> farmerIds = new LinkedHashMap<>();
+        for (int from = 0; from < financingIds.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = financingIds.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, financingIds.size()));
+            for (Object[] row : applicationRepository.findFarmerIdsByIdIn(chunk)) {
+                farmerIds.put((String) row[0], (String) row[1]);
+            }
+        }
+
+        List<Alert> open = new ArrayList<>(financingIds.size());
+        for (String financingId : financingIds) {
+            String farmerId = farmerIds.get(financingId);
+            if (farmerId == null) {
+                log.warn("融资申请不存在，跳过逾期预警: financingId={}", financingId);
+                continue;
+            }
+            open.add(overdue(financingId, farmerId));
+        }
+        upsertOpen(open);
+        log.info("逾期预警已更新: asOf={}, loans={}", event.asOf(), open.size());
+    }
+
+    /**
+     * 还款后融资不再有逾期期次时关闭逾期预警
+     */
+    @EventListener
+    public void onLoanRepaid(LoanRepaidEvent event) {
+        if (!scheduleRepository.existsByFinancingIdAndStatus(event.financingId(),
+                RepaymentSchedule.ScheduleStatus.OVERDUE)) {
+            closeAlerts(List.of(dedupKey(RiskAlertRecord.AlertType.OVERDUE, event.financingId())));
+        }
+    }
+
+    /**
+     * 分页获取风险预警（按打开时间倒序）
+     *
+     * @param status 预警状态，为空时返回未关闭（待处理、已确认）的预警
+     * @param page   页码，从0开始
+     * @param size   每页条数
+     */
+    @Transactional(readOnly = true)
+    public Page<RiskAlert> getAlerts(String status, Integer page, Integer size) {
+        int pageNumber = page != null && page > 0 ? page : 0;
+        int pageSize = size != null && size > 0 ? Math.min(size, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        return alertRepository.findByStatusInOrderByRaisedAtDescIdDesc(parseStatuses(status),
+                PageRequest.of(pageNumber, pageSize))
+            .map(RiskAlertService::toResponse);
+    }
+
+    /**
+     * 确认预警，已关闭的预警不能确认
+     */
+    public RiskAlert acknowledge(String alertId, String userId) {
+        RiskAlertRecord alert = alertRepository.findById(alertId)
+            .orElseThrow(() -> new BusinessException("ALERT_NOT_FOUND", "风险预警不存在"));
+        if (alert.getStatus() == RiskAlertRecord.AlertStatus.CLOSED) {
+            throw new BusinessException("ALERT_CLOSED", "风险预警已关闭");
+        }
+        if (alert.getStatus() == RiskAlertRecord.AlertStatus.OPEN) {
+            LocalDateTime now = LocalDateTime.now();
+            alert.setStatus(RiskAlertRecord.AlertStatus.ACKNOWLEDGED);
+            alert.setAcknowledgedBy(userId);
+            alert.setAcknowledgedAt(now);
+            alert.setUpdatedAt(now);
+            alertRepository.save(alert);
+        }
+        return toResponse(alert);
+    }
+
+    /**
+     * 按现有信用评分和逾期还款计划重建预警，已有记录保留ID和确认状态
+     *
+     * @return 打开的预警数
+     */
+    public int rebuild() {
+        long start = System.currentTimeMillis();
+        List<Alert> open = new ArrayList<>();
+        jdbcTemplate.query(LOW_SCORES_SQL, rs -> {
+            open.add(highRisk(rs.getString(1), rs.getString(2), rs.getInt(3)));
+        }, HIGH_RISK_SCORE);
+        jdbcTemplate.query(OVERDUE_LOANS_SQL, rs -> {
+            open.add(overdue(rs.getString(1), rs.getString(2)));
+        });
+        upsertOpen(open);
+        log.info("风险预警重建完成: alerts={}, elapsed={}ms", open.size(), System.currentTimeMillis() - start);
+        return open.size();
+    }
+
+    /**
+     * 关闭按融资去重的旧高风险预警
+     *
+     * @return 关闭的预警数
+     */
+    public int closeLegacyHighRiskAlerts() {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(CLOSE_LEGACY_HIGH_RISK_SQL, now, now);
+    }
+
+    /**
+     * 启动时预警表为空（首次上线），按历史数据回填；
+     * 存在按融资去重的旧高风险预警时关闭旧记录并重建，由按农户去重的预警接替
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (alertRepository.count() == 0) {
+                rebuild();
+                return;
+            }
+            int legacy = closeLegacyHighRiskAlerts();
+            if (legacy > 0) {
+                log.info("已关闭按融资去重的旧高风险预警: count={}", legacy);
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.error("风险预警回填失败", e);
+        }
+    }
+
+    private void upsertOpen(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(UPSERT_OPEN_SQL, alerts, batchSize, (ps, a) -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, a.dedupKey());
+            ps.setString(3, a.type().name());
+            ps.setString(4, a.level());
+            ps.setString(5, a.customerId());
+            ps.setString(6, a.financingId());
+            ps.setString(7, a.description());
+            ps.setObject(8, now);
+            ps.setObject(9, now);
+            ps.setString(10, a.level());
+            ps.setString(11, a.customerId());
+            ps.setString(12, a.financingId());
+            ps.setString(13, a.description());
+            ps.setObject(14, now);
+            ps.setObject(15, now);
+        });
+    }
+
+    private void closeAlerts(Collection<String> dedupKeys) {
+        if (dedupKeys.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(CLOSE_SQL, new ArrayList<>(dedupKeys), batchSize, (ps, key) -> {
+            ps.setObject(1, now);
+            ps.setObject(2, now);
+            ps.setString(3, key);
+        });
+    }
+
+    private static Alert highRisk(String financingId, String farmerId, int totalScore) {
+        return new Alert(dedupKey(RiskAlertRecord.AlertType.HIGH_RISK, farmerId), RiskAlertRecord.AlertType.HIGH_RISK,
+            "HIGH", farmerId, financingId, "客户信用评分低于" + HIGH_RISK_SCORE + "分（" + totalScore + "分）");
+    }
+
+    private static Alert overdue(String financingId, String farmerId) {
+        return new Alert(dedupKey(RiskAlertRecord.AlertType.OVERDUE, financingId), RiskAlertRecord.AlertType.OVERDUE,
+            "MEDIUM", farmerId, financingId, "融资申请存在逾期还款");
+    }
+
+    static String dedupKey(RiskAlertRecord.AlertType type, String subjectId) {
+        return type.name() + ":" + subjectId;
+    }
+
+    private static Set<RiskAlertRecord.AlertStatus> parseStatuses(String status) {
+        if (status == null || status.isBlank()) {
+            return ACTIVE;
+        }
+        try {
+            return EnumSet.of(RiskAlertRecord.AlertStatus.valueOf(status.trim().toUpperCase()));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("INVALID_ALERT_STATUS", "无效的预警状态: " + status);
+        }
+    }
+
+    private static RiskAlert toResponse(RiskAlertRecord alert) {
+        return RiskAlert.builder()
+            .id(alert.getId())
+            .alertType(alert.getAlertType().name())
+            .alertLevel(alert.getAlertLevel())
+            .customerId(alert.getCustomerId())
+            .financingId(alert.getFinancingId())
+            .description(alert.getDescription())
+            .alertTime(alert.getRaisedAt())
+            .status(alert.getStatus().name())
+            .acknowledgedBy(alert.getAcknowledgedBy())
+            .acknowledgedAt(alert.getAcknowledgedAt())
+            .build();
+    }
+
+    private record Alert(String dedupKey, RiskAlertRecord.AlertType type, String level, String customerId,
+                         String financingId, String description) {
+    }
+}
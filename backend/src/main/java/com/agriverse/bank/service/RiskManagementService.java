@@ -2,13 +2,10 @@ package com.agriverse.bank.service;
 
 import com.agriverse.bank.dto.RiskAlert;
 import com.agriverse.bank.dto.RiskDashboardResponse;
+import com.agriverse.bank.dto.RiskPortfolioSnapshot;
 import com.agriverse.bank.dto.TrendData;
-import com.agriverse.bank.entity.CreditScore;
 import com.agriverse.bank.entity.RiskIndicator;
-import com.agriverse.bank.repository.CreditScoreRepository;
 import com.agriverse.bank.repository.RiskIndicatorRepository;
-import com.agriverse.finance.entity.FinancingApplication;
-import com.agriverse.finance.entity.RepaymentSchedule;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
 import lombok.RequiredArgsConstructor;
@@ -18,14 +15,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -39,7 +31,16 @@ public class RiskManagementService {
     private final RiskIndicatorRepository indicatorRepository;
     private final FinancingApplicationRepository applicationRepository;
     private final RepaymentScheduleRepository scheduleRepository;
-    private final CreditScoreRepository creditScoreRepository;
+    private final RiskAlertService alertService;
+    
+    private static final long BAD_DEBT_DAYS = 90;
+    
+    /**
+     * 仪表盘展示的预警条数
+     */
+    private static final int DASHBOARD_ALERT_LIMIT = 20;
+    
+    private static final DateTimeFormatter MONTH_LABEL = DateTimeFormatter.ofPattern("M月");
     
     /**
      * 获取风控仪表盘数据
@@ -57,20 +58,20 @@ public class RiskManagementService {
         
         List<TrendData> overdueRateTrend = indicators.stream()
             .map(i -> new TrendData(
-                i.getIndicatorDate().format(DateTimeFormatter.ofPattern("M月")),
+                i.getIndicatorDate().format(MONTH_LABEL),
                 i.getOverdueRate() != null ? i.getOverdueRate() : BigDecimal.ZERO
             ))
             .collect(Collectors.toList());
         
         List<TrendData> badDebtRateTrend = indicators.stream()
             .map(i -> new TrendData(
-                i.getIndicatorDate().format(DateTimeFormatter.ofPattern("M月")),
+                i.getIndicatorDate().format(MONTH_LABEL),
                 i.getBadDebtRate() != null ? i.getBadDebtRate() : BigDecimal.ZERO
             ))
             .collect(Collectors.toList());
         
-        // 获取风险预警
-        List<RiskAlert> riskAlerts = getRiskAlerts();
+        // 获取最新一页未关闭的风险预警
+        List<RiskAlert> riskAlerts = alertService.getAlerts(null, 0, DASHBOARD_ALERT_LIMIT).getContent();
         
         return RiskDashboardResponse.builder()
             .currentOverdueRate(latest.getOverdueRate() != null ? latest.getOverdueRate() : BigDecimal.ZERO)
@@ -86,82 +87,30 @@ public class RiskManagementService {
     /**
      * 计算当前风险指标
      */
+    @Transactional(readOnly = true)
     public RiskIndicator calculateCurrentRiskIndicator() {
-        // 获取所有在途贷款
-        List<FinancingApplication> activeLoans = applicationRepository
-            .findByStatusIn(List.of(
-                FinancingApplication.FinancingStatus.DISBURSED,
-                FinancingApplication.FinancingStatus.REPAYING));
-        
-        int totalLoans = activeLoans.size();
-        BigDecimal totalAmount = activeLoans.stream()
-            .map(FinancingApplication::getAmount)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // 计算逾期
-        LocalDate today = LocalDate.now();
-        List<RepaymentSchedule> overdueSchedules = scheduleRepository
-            .findOverdueSchedules(today);
-        
-        Set<String> overdueFinancingIds = overdueSchedules.stream()
-            .map(RepaymentSchedule::getFinancingId)
-            .collect(Collectors.toSet());
-        
-        int overdueLoans = overdueFinancingIds.size();
-        BigDecimal overdueAmount = overdueSchedules.stream()
-            .map(s -> s.getPrincipal().add(s.getInterest()))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // 计算逾期率
-        BigDecimal overdueRate = totalAmount.compareTo(BigDecimal.ZERO) > 0 ?
-            overdueAmount.divide(totalAmount, 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100)) :
-            BigDecimal.ZERO;
-        
-        // 计算不良率（假设逾期90天以上为不良）
-        long badDebtDays = 90;
-        LocalDate badDebtDate = today.minusDays(badDebtDays);
-        int badDebtLoans = (int) overdueSchedules.stream()
-            .filter(s -> s.getDueDate().isBefore(badDebtDate))
-            .map(RepaymentSchedule::getFinancingId)
-            .distinct()
-            .count();
-        
-        BigDecimal badDebtAmount = overdueSchedules.stream()
-            .filter(s -> s.getDueDate().isBefore(badDebtDate))
-            .map(s -> s.getPrincipal().add(s.getInterest()))
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        BigDecimal badDebtRate = totalAmount.compareTo(BigDecimal.ZERO) > 0 ?
-            badDebtAmount.divide(totalAmount, 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100)) :
-            BigDecimal.ZERO;
-        
-        // 计算联合贷占比（假设有productId的是联合贷）
-        long jointLoanCount = activeLoans.stream()
-            .filter(a -> a.getProductId() != null)
-            .count();
-        
-        BigDecimal jointLoanRatio = totalLoans > 0 ?
-            BigDecimal.valueOf(jointLoanCount)
-                .divide(BigDecimal.valueOf(totalLoans), 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100)) :
-            BigDecimal.ZERO;
-        
-        return RiskIndicator.builder()
-            .id(UUID.randomUUID().toString())
-            .indicatorDate(LocalDate.now())
-            .totalLoans(totalLoans)
-            .totalAmount(totalAmount)
-            .overdueLoans(overdueLoans)
-            .overdueAmount(overdueAmount)
-            .overdueRate(overdueRate)
-            .badDebtLoans(badDebtLoans)
-            .badDebtAmount(badDebtAmount)
-            .badDebtRate(badDebtRate)
-            .creditBalance(totalAmount)
-            .jointLoanRatio(jointLoanRatio)
-            .build();
+        return getPortfolioSnapshot(LocalDate.now()).toIndicator(LocalDate.now());
+    }
+    
+    /**
+     * 汇总在途贷款组合风险
+     * 笔数、金额、90天不良分档和联合贷笔数均在数据库端聚合，不加载融资申请和还款计划明细
+     */
+    @Transactional(readOnly = true)
+    public RiskPortfolioSnapshot getPortfolioSnapshot(LocalDate today) {
+        Object[] loans = applicationRepository.summarizeActiveLoans().get(0);
+        // 逾期90天以上为不良
+        Object[] overdue = scheduleRepository
+            .summarizeOverdue(today, today.minusDays(BAD_DEBT_DAYS)).get(0);
+        
+        return new RiskPortfolioSnapshot(
+            ((Number) loans[0]).longValue(),
+            toBigDecimal(loans[1]),
+            ((Number) loans[2]).longValue(),
+            ((Number) overdue[0]).longValue(),
+            toBigDecimal(overdue[1]),
+            ((Number) overdue[2]).longValue(),
+            toBigDecimal(overdue[3]));
     }
     
     /**
@@ -182,54 +131,7 @@ public class RiskManagementService {
         log.info("风险指标计算完成: {}", today);
     }
     
-    /**
-     * 获取风险预警列表
-     */
-    public List<RiskAlert> getRiskAlerts() {
-        List<RiskAlert> alerts = new ArrayList<>();
-        
-        // 高风险客户预警
-        List<CreditScore> lowCreditScores = creditScoreRepository.findAll().stream()
-            .filter(cs -> cs.getTotalScore() < 60)
-            .collect(Collectors.toList());
-        
-        for (CreditScore cs : lowCreditScores) {
-            alerts.add(RiskAlert.builder()
-                .id(UUID.randomUUID().toString())
-                .alertType("HIGH_RISK")
-                .alertLevel("HIGH")
-                .customerId(cs.getFarmerId())
-                .description("客户信用评分低于60分")
-                .alertTime(LocalDateTime.now())
-                .build());
-        }
-        
-        // 逾期预警
-        LocalDate today = LocalDate.now();
-        List<RepaymentSchedule> overdueSchedules = scheduleRepository.findOverdueSchedules(today);
-        Set<String> overdueFinancingIds = overdueSchedules.stream()
-            .map(RepaymentSchedule::getFinancingId)
-            .collect(Collectors.toSet());
-        
-        for (String financingId : overdueFinancingIds) {
-            FinancingApplication application = applicationRepository.findById(financingId)
-                .orElse(null);
-            if (application != null) {
-                alerts.add(RiskAlert.builder()
-                    .id(UUID.randomUUID().toString())
-                    .alertType("OVERDUE")
-                    .alertLevel("MEDIUM")
-                    .customerId(application.getFarmerId())
-                    .financingId(financingId)
-                    .description("融资申请存在逾期还款")
-                    .alertTime(LocalDateTime.now())
-                    .build());
-            }
-        }
-        
-        return alerts;
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
     }
 }
-
-
-
@@ -1,6 +1,7 @@
 package com.agriverse.buyer.controller;
 
 import com.agriverse.dto.*;
+import com.agriverse.exception.BusinessException;
 import com.agriverse.buyer.service.BuyerOrderService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -63,14 +64,22 @@ public class BuyerOrderController {
             Principal principal,
             @RequestParam(required = false, defaultValue = "all") String status,
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "20") Integer pageSize) {
+            @RequestParam(required = false, defaultValue = "20") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "false") boolean withTotal) {
         try {
             String buyerId = principal.getName();
-            log.info("获取订单列表请求: buyerId={}, status={}, page={}, pageSize={}",
-                    buyerId, status, page, pageSize);
+            log.info("获取订单列表请求: buyerId={}, status={}, page={}, pageSize={}, cursor={}",
+                    buyerId, status, page, pageSize, cursor);
 
-            BuyerOrderListResponse response = buyerOrderService.getOrderList(buyerId, status, page, pageSize);
+            // 传入 cursor 参数（可为空串）时使用游标分页，否则按页码分页
+            BuyerOrderListResponse response = cursor != null
+                    ? buyerOrderService.getOrderListByCursor(buyerId, status, cursor, pageSize, withTotal)
+                    : buyerOrderService.getOrderList(buyerId, status, page, pageSize);
             return ResponseEntity.ok(ApiResponse.success("获取成功", response));
+        } catch (BusinessException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取订单列表异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
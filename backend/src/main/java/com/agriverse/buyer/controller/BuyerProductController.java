@@ -1,6 +1,7 @@
 package com.agriverse.buyer.controller;
 
 import com.agriverse.dto.*;
+import com.agriverse.exception.BusinessException;
 import com.agriverse.buyer.service.BuyerProductService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,7 +35,9 @@ public class BuyerProductController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String category,
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "20") Integer pageSize) {
+            @RequestParam(required = false, defaultValue = "20") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "false") boolean withTotal) {
         try {
             log.info("获取买家商品列表请求: search={}, category={}, page={}, pageSize={}",
                     search, category, page, pageSize);
@@ -44,10 +47,15 @@ public class BuyerProductController {
                     .category(category)
                     .page(page)
                     .pageSize(pageSize)
+                    .cursor(cursor)
+                    .withTotal(withTotal)
                     .build();
 
             BuyerProductListResponse response = buyerProductService.getProductList(request);
             return ResponseEntity.ok(ApiResponse.success("获取成功", response));
+        } catch (BusinessException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取买家商品列表异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
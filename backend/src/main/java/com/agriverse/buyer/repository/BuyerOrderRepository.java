@@ -29,6 +29,32 @@ public interface BuyerOrderRepository extends JpaRepository<BuyerOrder, String>
     Page<BuyerOrder> findByBuyerIdAndStatusOrderByCreatedAtDesc(
             String buyerId, BuyerOrder.OrderStatus status, Pageable pageable);
 
+    /**
+     * 游标分页：取指定位置之后的买家订单，status 为空时不过滤状态
+     * 按 (createdAt, id) 倒序定位（createdAt <= 游标作为索引范围条件），配合 idx_buyer_created_at 索引只扫描一页数据
+     */
+    @Query("SELECT o FROM BuyerOrder o WHERE " +
+            "o.buyerId = :buyerId AND " +
+            "(:status IS NULL OR o.status = :status) AND " +
+            "o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<BuyerOrder> findByBuyerIdAfter(
+            @Param("buyerId") String buyerId,
+            @Param("status") BuyerOrder.OrderStatus status,
+            @Param("createdAt") LocalDateTime createdAt,
+            @Param("id") String id,
+            Pageable limit);
+
+    /**
+     * 统计买家订单数量，status 为空时不过滤状态
+     */
+    @Query("SELECT COUNT(o) FROM BuyerOrder o WHERE " +
+            "o.buyerId = :buyerId AND " +
+            "(:status IS NULL OR o.status = :status)")
+    long countByBuyerIdAndOptionalStatus(
+            @Param("buyerId") String buyerId,
+            @Param("status") BuyerOrder.OrderStatus status);
+
     /**
      * 根据买家ID和日期范围查询订单列表
      */
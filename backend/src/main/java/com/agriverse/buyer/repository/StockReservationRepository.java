@@ -0,0 +1,48 @@
+package com.agriverse.buyer.repository;
+
+import com.agriverse.entity.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 库存预占记录Repository
+ */
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    /**
+     * 根据订单ID查询预占记录
+     */
+    List<StockReservation> findByOrderId(String orderId);
+
+    /**
+     * 检查订单是否存在预占记录
+     */
+    boolean existsByOrderId(String orderId);
+
+    /**
+     * 将订单下的预占记录从一个状态迁移到另一个状态
+     */
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to, r.updatedAt = :now " +
+            "WHERE r.orderId = :orderId AND r.status = :from")
+    int transitionByOrderId(@Param("orderId") String orderId,
+                            @Param("from") StockReservation.ReservationStatus from,
+                            @Param("to") StockReservation.ReservationStatus to,
+                            @Param("now") LocalDateTime now);
+
+    /**
+     * 迁移单条预占记录的状态（仅当当前状态不是目标状态时生效，返回受影响行数）
+     */
+    @Modifying
+    @Query("UPDATE StockReservation r SET r.status = :to, r.updatedAt = :now WHERE r.id = :id AND r.status <> :to")
+    int transitionById(@Param("id") String id,
+                       @Param("to") StockReservation.ReservationStatus to,
+                       @Param("now") LocalDateTime now);
+}
@@ -6,6 +6,8 @@ import com.agriverse.entity.BuyerOrderItem;
 import com.agriverse.entity.FarmerProduct;
 import com.agriverse.buyer.repository.BuyerOrderRepository;
 import com.agriverse.farmer.repository.FarmerProductRepository;
+import com.agriverse.util.PageCursor;
+import com.agriverse.util.PageTotalCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -16,7 +18,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +34,8 @@ import java.util.stream.Collectors;
 @Transactional
 public class BuyerOrderService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     @Autowired
     private BuyerOrderRepository buyerOrderRepository;
 
@@ -36,6 +45,12 @@ public class BuyerOrderService {
     @Autowired
     private com.agriverse.order.repository.RefundHistoryRepository refundHistoryRepository;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private PageTotalCache pageTotalCache;
+
     /**
      * 创建订单
      */
@@ -54,42 +69,40 @@ public class BuyerOrderService {
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        // 处理订单项并计算总金额
+        // 一次性批量加载订单涉及的全部商品
+        Set<String> productIds = request.getItems().stream()
+                .map(CreateOrderRequest.OrderItemRequest::getProductId)
+                .collect(Collectors.toSet());
+        Map<String, FarmerProduct> products = farmerProductRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(FarmerProduct::getId, Function.identity()));
+
+        // 单次遍历：校验商品、生成订单项、累计金额与各商品购买数量
         double totalAmount = 0.0;
-        List<BuyerOrderItem> items = request.getItems().stream()
-                .map(itemRequest -> {
-                    // 查询商品信息
-                    String productId = itemRequest.getProductId();
-                    FarmerProduct product = farmerProductRepository.findById(productId)
-                            .orElseThrow(() -> new RuntimeException("商品不存在: " + productId));
-
-                    // 检查商品是否已上架
-                    if (product.getStatus() != FarmerProduct.ProductStatus.ON) {
-                        throw new RuntimeException("商品未上架: " + product.getName());
-                    }
-
-                    // 检查库存
-                    if (product.getStock() < itemRequest.getQuantity()) {
-                        throw new RuntimeException("商品库存不足: " + product.getName() + "，当前库存: " + product.getStock());
-                    }
-
-                    // 创建订单项
-                    BuyerOrderItem orderItem = BuyerOrderItem.builder()
-                            .order(order)
-                            .productId(product.getId())
-                            .productName(product.getName())
-                            .price(product.getPrice())
-                            .quantity(itemRequest.getQuantity())
-                            .build();
-
-                    return orderItem;
-                })
-                .collect(Collectors.toList());
+        List<BuyerOrderItem> items = new ArrayList<>(request.getItems().size());
+        Map<String, Integer> quantities = new HashMap<>();
+        for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
+            String productId = itemRequest.getProductId();
+            FarmerProduct product = products.get(productId);
+            if (product == null) {
+                throw new RuntimeException("商品不存在: " + productId);
+            }
 
-        // 计算总金额
-        totalAmount = items.stream()
-                .mapToDouble(item -> item.getPrice() * item.getQuantity())
-                .sum();
+            // 检查商品是否已上架
+            if (product.getStatus() != FarmerProduct.ProductStatus.ON) {
+                throw new RuntimeException("商品未上架: " + product.getName());
+            }
+
+            // 创建订单项（库存在预占时以条件更新校验）
+            items.add(BuyerOrderItem.builder()
+                    .order(order)
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .price(product.getPrice())
+                    .quantity(itemRequest.getQuantity())
+                    .build());
+            totalAmount += product.getPrice() * itemRequest.getQuantity();
+            quantities.merge(productId, itemRequest.getQuantity(), Integer::sum);
+        }
 
         order.setTotalAmount(totalAmount);
         order.setItems(items);
@@ -97,14 +110,8 @@ public class BuyerOrderService {
         // 保存订单
         BuyerOrder savedOrder = buyerOrderRepository.save(order);
 
-        // 扣减库存
-        for (BuyerOrderItem item : items) {
-            String productId = item.getProductId();
-            FarmerProduct product = farmerProductRepository.findById(productId)
-                    .orElseThrow(() -> new RuntimeException("商品不存在: " + productId));
-            product.setStock(product.getStock() - item.getQuantity());
-            farmerProductRepository.save(product);
-        }
+        // 预占库存（同一商品多行已合并），库存不足时整个订单回滚
+        stockReservationService.reserve(savedOrder.getId(), quantities);
 
         log.info("订单创建成功: orderId={}, totalAmount={}", savedOrder.getId(), totalAmount);
 
@@ -122,7 +129,7 @@ public class BuyerOrderService {
         Pageable pageable = PageRequest.of(
                 page - 1,
                 pageSize,
-                Sort.by(Sort.Direction.DESC, "createdAt"));
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"));
 
         Page<BuyerOrder> orderPage;
         if (status != null && !status.isEmpty() && !"all".equals(status)) {
@@ -147,6 +154,44 @@ public class BuyerOrderService {
                 .build();
     }
 
+    /**
+     * 游标分页获取订单列表
+     *
+     * @param cursor    上一页返回的 nextCursor，空字符串表示第一页
+     * @param withTotal 是否返回总数（缓存的近似值）
+     */
+    @Transactional(readOnly = true)
+    public BuyerOrderListResponse getOrderListByCursor(String buyerId, String status, String cursor,
+                                                       Integer pageSize, boolean withTotal) {
+        log.info("游标分页获取订单列表: buyerId={}, status={}, pageSize={}", buyerId, status, pageSize);
+
+        PageCursor position = PageCursor.decode(cursor);
+        int size = PageCursor.pageSize(pageSize, DEFAULT_PAGE_SIZE);
+        BuyerOrder.OrderStatus orderStatus = status != null && !status.isEmpty() && !"all".equals(status)
+                ? convertToOrderStatus(status)
+                : null;
+
+        List<BuyerOrder> rows = buyerOrderRepository.findByBuyerIdAfter(
+                buyerId, orderStatus, position.createdAt(), position.id(), PageRequest.ofSize(size + 1));
+        PageCursor.Slice<BuyerOrder> slice = PageCursor.slice(
+                rows, size, BuyerOrder::getCreatedAt, BuyerOrder::getId);
+
+        Long total = withTotal
+                ? pageTotalCache.get("orders|" + buyerId + "|" + orderStatus,
+                        () -> buyerOrderRepository.countByBuyerIdAndOptionalStatus(buyerId, orderStatus))
+                : null;
+
+        return BuyerOrderListResponse.builder()
+                .orders(slice.content().stream()
+                        .map(this::convertToOrderResponse)
+                        .collect(Collectors.toList()))
+                .total(total)
+                .pageSize(size)
+                .nextCursor(slice.nextCursor())
+                .hasMore(slice.hasMore())
+                .build();
+    }
+
     /**
      * 获取订单详情
      */
@@ -170,6 +215,13 @@ public class BuyerOrderService {
                 .orElseThrow(() -> new RuntimeException("订单不存在或无权访问"));
 
         BuyerOrder.OrderStatus newStatus = convertToOrderStatus(request.getStatus());
+        if (newStatus == BuyerOrder.OrderStatus.PAID) {
+            stockReservationService.confirm(orderId);
+        } else if ((newStatus == BuyerOrder.OrderStatus.CANCELLED || newStatus == BuyerOrder.OrderStatus.REFUNDED)
+                && order.getStatus() != BuyerOrder.OrderStatus.CANCELLED
+                && order.getStatus() != BuyerOrder.OrderStatus.REFUNDED) {
+            stockReservationService.release(orderId, order.getItems());
+        }
         order.setStatus(newStatus);
         order.setUpdatedAt(LocalDateTime.now());
 
@@ -192,16 +244,8 @@ public class BuyerOrderService {
             throw new RuntimeException("订单状态不允许取消");
         }
 
-        // 恢复库存
-        for (BuyerOrderItem item : order.getItems()) {
-            String productId = item.getProductId();
-            FarmerProduct product = farmerProductRepository.findById(productId)
-                    .orElse(null);
-            if (product != null) {
-                product.setStock(product.getStock() + item.getQuantity());
-                farmerProductRepository.save(product);
-            }
-        }
+        // 释放预占库存
+        stockReservationService.release(orderId, order.getItems());
 
         order.setStatus(BuyerOrder.OrderStatus.CANCELLED);
         order.setUpdatedAt(LocalDateTime.now());
@@ -354,11 +398,35 @@ public class BuyerOrderService {
             .action("申请退款")
             .actor(com.agriverse.entity.RefundHistory.ActorType.BUYER)
             .note(reason)
+            .createdAt(LocalDateTime.now())
             .build();
         refundHistoryRepository.save(refundHistory);
         
         log.info("退款申请已提交: orderId={}", orderId);
     }
+
+    /**
+     * 平台仲裁退款成功：买家订单置为已退款并释放预占库存，已取消或已退款的订单不重复回补
+     *
+     * @return 不存在对应买家订单时返回 false
+     */
+    public boolean completeArbitratedRefund(String orderId) {
+        BuyerOrder order = buyerOrderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            log.warn("仲裁订单没有对应的买家订单，跳过库存释放: orderId={}", orderId);
+            return false;
+        }
+        if (order.getStatus() != BuyerOrder.OrderStatus.CANCELLED
+                && order.getStatus() != BuyerOrder.OrderStatus.REFUNDED) {
+            stockReservationService.release(orderId, order.getItems());
+        }
+        order.setStatus(BuyerOrder.OrderStatus.REFUNDED);
+        order.setRefundStatus(BuyerOrder.RefundStatus.SUCCESS);
+        order.setUpdatedAt(LocalDateTime.now());
+        buyerOrderRepository.save(order);
+        log.info("仲裁退款已完成: orderId={}", orderId);
+        return true;
+    }
     
     /**
      * 获取退款详情
@@ -4,9 +4,11 @@ import com.agriverse.dto.BuyerProductDetailResponse;
 import com.agriverse.dto.BuyerProductListRequest;
 import com.agriverse.dto.BuyerProductListResponse;
 import com.agriverse.entity.FarmerProduct;
-import com.agriverse.entity.User;
 import com.agriverse.farmer.repository.FarmerProductRepository;
-import com.agriverse.auth.repository.UserRepository;
+import com.agriverse.farmer.service.ProductSearchIndex;
+import com.agriverse.auth.service.UserProfileResolver;
+import com.agriverse.util.PageCursor;
+import com.agriverse.util.PageTotalCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -17,6 +19,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -27,11 +32,23 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class BuyerProductService {
 
+    private static final String UNKNOWN_FARMER = "未知农户";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     @Autowired
     private FarmerProductRepository farmerProductRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private UserProfileResolver userProfileResolver;
+
+    @Autowired
+    private ProductCounterBuffer productCounterBuffer;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private PageTotalCache pageTotalCache;
 
     /**
      * 获取商品列表（仅显示已上架商品）
@@ -40,11 +57,25 @@ public class BuyerProductService {
         log.info("获取买家商品列表: search={}, category={}, page={}, pageSize={}",
                 request.getSearch(), request.getCategory(), request.getPage(), request.getPageSize());
 
+        // 传入游标时按 (createdAt, id) 定位翻页
+        if (request.getCursor() != null) {
+            return getProductListByCursor(request);
+        }
+
+        // 有关键词时优先走全文检索索引
+        if (request.getSearch() != null && !request.getSearch().isBlank() && productSearchIndex.isReady()) {
+            ProductSearchIndex.SearchResult result = productSearchIndex.search(
+                    request.getSearch(), request.getCategory(), request.getPage(), request.getPageSize());
+            if (result != null) {
+                return toListResponse(loadInOrder(result.productIds()), result.total(), request);
+            }
+        }
+
         // 构建分页参数
         Pageable pageable = PageRequest.of(
                 request.getPage() - 1,
                 request.getPageSize(),
-                Sort.by(Sort.Direction.DESC, "createdAt"));
+                Sort.by(Sort.Direction.DESC, "createdAt", "id"));
 
         // 查询已上架商品
         Page<FarmerProduct> productPage;
@@ -64,19 +95,75 @@ public class BuyerProductService {
                     pageable);
         }
 
-        // 转换为DTO
-        List<BuyerProductListResponse.ProductItem> productItems = productPage.getContent().stream()
-                .map(this::convertToProductItem)
+        return toListResponse(productPage.getContent(), productPage.getTotalElements(), request);
+    }
+
+    /**
+     * 游标分页获取商品列表
+     * 始终按上架时间倒序（不走相关度排序），翻到多深都只读取一页数据；总数按需从缓存读取
+     */
+    private BuyerProductListResponse getProductListByCursor(BuyerProductListRequest request) {
+        PageCursor cursor = PageCursor.decode(request.getCursor());
+        int pageSize = PageCursor.pageSize(request.getPageSize(), DEFAULT_PAGE_SIZE);
+
+        List<FarmerProduct> rows = farmerProductRepository.findByStatusAndCategoryAndSearchAfter(
+                FarmerProduct.ProductStatus.ON,
+                request.getCategory(),
+                request.getSearch(),
+                cursor.createdAt(),
+                cursor.id(),
+                PageRequest.ofSize(pageSize + 1));
+        PageCursor.Slice<FarmerProduct> slice = PageCursor.slice(
+                rows, pageSize, FarmerProduct::getCreatedAt, FarmerProduct::getId);
+
+        Long total = null;
+        if (Boolean.TRUE.equals(request.getWithTotal())) {
+            String key = "market|" + Objects.toString(request.getCategory(), "") + "|"
+                    + Objects.toString(request.getSearch(), "");
+            total = pageTotalCache.get(key, () -> farmerProductRepository.countByStatusAndCategoryAndSearch(
+                    FarmerProduct.ProductStatus.ON, request.getCategory(), request.getSearch()));
+        }
+
+        BuyerProductListResponse response = toListResponse(slice.content(), total, request);
+        response.setPage(null);
+        response.setPageSize(pageSize);
+        response.setNextCursor(slice.nextCursor());
+        response.setHasMore(slice.hasMore());
+        return response;
+    }
+
+    /**
+     * 组装商品列表响应
+     */
+    private BuyerProductListResponse toListResponse(List<FarmerProduct> products, Long total,
+                                                    BuyerProductListRequest request) {
+        // 批量解析本页农户信息，再转换为DTO
+        Map<String, UserProfileResolver.UserProfile> farmers = userProfileResolver.resolveAll(
+                products.stream().map(FarmerProduct::getFarmerId).collect(Collectors.toSet()));
+        List<BuyerProductListResponse.ProductItem> productItems = products.stream()
+                .map(product -> convertToProductItem(product, farmers.get(product.getFarmerId())))
                 .collect(Collectors.toList());
 
         return BuyerProductListResponse.builder()
                 .products(productItems)
-                .total(productPage.getTotalElements())
+                .total(total)
                 .page(request.getPage())
                 .pageSize(request.getPageSize())
                 .build();
     }
 
+    /**
+     * 按检索结果顺序加载商品
+     */
+    private List<FarmerProduct> loadInOrder(List<String> productIds) {
+        Map<String, FarmerProduct> byId = farmerProductRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(FarmerProduct::getId, Function.identity()));
+        return productIds.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
     /**
      * 获取商品详情
      */
@@ -91,14 +178,13 @@ public class BuyerProductService {
             throw new RuntimeException("商品未上架");
         }
 
-        // 增加浏览量
-        product.setViewCount((product.getViewCount() != null ? product.getViewCount() : 0) + 1);
-        farmerProductRepository.save(product);
+        // 增加浏览量（写入内存缓冲，由定时任务批量刷盘，读请求本身不写库）
+        productCounterBuffer.recordView(productId);
 
         // 获取农户信息
-        User farmer = userRepository.findById(product.getFarmerId()).orElse(null);
-        String farmerName = farmer != null && farmer.getName() != null ? farmer.getName() : "未知农户";
-        String farmerPhone = farmer != null && farmer.getPhone() != null ? farmer.getPhone() : "";
+        UserProfileResolver.UserProfile farmer = userProfileResolver.resolve(product.getFarmerId()).orElse(null);
+        String farmerName = farmer != null ? farmer.nameOr(UNKNOWN_FARMER) : UNKNOWN_FARMER;
+        String farmerPhone = farmer != null && farmer.phone() != null ? farmer.phone() : "";
 
         return BuyerProductDetailResponse.builder()
                 .id(product.getId())
@@ -111,9 +197,9 @@ public class BuyerProductService {
                 .farmerId(product.getFarmerId())
                 .farmerName(farmerName)
                 .farmerPhone(farmerPhone)
-                .viewCount(product.getViewCount())
-                .favoriteCount(product.getFavoriteCount())
-                .shareCount(product.getShareCount())
+                .viewCount(viewCountOf(product))
+                .favoriteCount(favoriteCountOf(product))
+                .shareCount(shareCountOf(product))
                 .createdAt(product.getCreatedAt())
                 .updatedAt(product.getUpdatedAt())
                 .build();
@@ -122,10 +208,9 @@ public class BuyerProductService {
     /**
      * 将实体转换为DTO
      */
-    private BuyerProductListResponse.ProductItem convertToProductItem(FarmerProduct product) {
-        // 获取农户信息
-        User farmer = userRepository.findById(product.getFarmerId()).orElse(null);
-        String farmerName = farmer != null && farmer.getName() != null ? farmer.getName() : "未知农户";
+    private BuyerProductListResponse.ProductItem convertToProductItem(FarmerProduct product,
+                                                                     UserProfileResolver.UserProfile farmer) {
+        String farmerName = farmer != null ? farmer.nameOr(UNKNOWN_FARMER) : UNKNOWN_FARMER;
 
         return BuyerProductListResponse.ProductItem.builder()
                 .id(product.getId())
@@ -137,10 +222,28 @@ public class BuyerProductService {
                 .description(product.getDescription())
                 .farmerId(product.getFarmerId())
                 .farmerName(farmerName)
-                .viewCount(product.getViewCount() != null ? product.getViewCount() : 0)
-                .favoriteCount(product.getFavoriteCount() != null ? product.getFavoriteCount() : 0)
-                .shareCount(product.getShareCount() != null ? product.getShareCount() : 0)
+                .viewCount(viewCountOf(product))
+                .favoriteCount(favoriteCountOf(product))
+                .shareCount(shareCountOf(product))
                 .createdAt(product.getCreatedAt())
                 .build();
     }
+
+    /**
+     * 计数 = 数据库已落盘值 + 内存缓冲中尚未刷盘的增量
+     */
+    private int viewCountOf(FarmerProduct product) {
+        int base = product.getViewCount() != null ? product.getViewCount() : 0;
+        return base + (int) productCounterBuffer.pendingViews(product.getId());
+    }
+
+    private int favoriteCountOf(FarmerProduct product) {
+        int base = product.getFavoriteCount() != null ? product.getFavoriteCount() : 0;
+        return base + (int) productCounterBuffer.pendingFavorites(product.getId());
+    }
+
+    private int shareCountOf(FarmerProduct product) {
+        int base = product.getShareCount() != null ? product.getShareCount() : 0;
+        return base + (int) productCounterBuffer.pendingShares(product.getId());
+    }
 }
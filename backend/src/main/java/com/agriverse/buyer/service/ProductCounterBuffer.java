@@ -0,0 +1,231 @@
+package com.agriverse.buyer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 商品计数写缓冲
+ * 浏览、收藏、分享次数先累加在内存中（每个商品一组LongAdder，无锁），
+ * 由定时任务合并为一次批量 UPDATE ... SET view_count = view_count + ? 刷入数据库，
+ * 应用关闭前会再刷一次，避免丢失计数。
+ * 一个刷盘周期内没有新增计数的商品会从缓冲中摘除，缓冲大小只与近期活跃的商品数有关。
+ */
+@Slf4j
+@Service
+public class ProductCounterBuffer {
+    private static final String FLUSH_SQL = "UPDATE farmer_products SET " +
+            "view_count = view_count + ?, favorite_count = favorite_count + ?, share_count = share_count + ? " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+    private final Counter flushedCounter;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+
+    private volatile long lastFlushAt = System.currentTimeMillis();
+
+    public ProductCounterBuffer(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushedCounter = Counter.builder("product.counter.flushed")
+                .description("已刷入数据库的商品计数增量")
+                .register(meterRegistry);
+        Gauge.builder("product.counter.flush.lag", this, ProductCounterBuffer::getFlushLagMillis)
+                .description("距上次成功刷盘的毫秒数")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("product.counter.pending", this, ProductCounterBuffer::getPendingTotal)
+                .description("尚未刷入数据库的商品计数增量")
+                .register(meterRegistry);
+        Gauge.builder("product.counter.tracked", this, ProductCounterBuffer::getTrackedProducts)
+                .description("缓冲中的商品数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次浏览
+     */
+    public void recordView(String productId) {
+        increment(productId, c -> c.views);
+    }
+
+    /**
+     * 记录一次收藏
+     */
+    public void recordFavorite(String productId) {
+        increment(productId, c -> c.favorites);
+    }
+
+    /**
+     * 记录一次分享
+     */
+    public void recordShare(String productId) {
+        increment(productId, c -> c.shares);
+    }
+
+    /**
+     * 尚未刷盘的浏览增量
+     */
+    public long pendingViews(String productId) {
+        Counters c = counters.get(productId);
+        return c != null ? c.views.sum() : 0L;
+    }
+
+    /**
+     * 尚未刷盘的收藏增量
+     */
+    public long pendingFavorites(String productId) {
+        Counters c = counters.get(productId);
+        return c != null ? c.favorites.sum() : 0L;
+    }
+
+    /**
+     * 尚未刷盘的分享增量
+     */
+    public long pendingShares(String productId) {
+        Counters c = counters.get(productId);
+        return c != null ? c.shares.sum() : 0L;
+    }
+
+    /**
+     * 定时将缓冲的计数批量刷入数据库
+     *
+     * @return 本次刷入的商品数
+     */
+    @Scheduled(fixedDelayString = "${app.product-counter.flush-interval-ms:5000}")
+    public synchronized int flush() {
+        List<Delta> deltas = new ArrayList<>();
+        counters.forEach((productId, c) -> {
+            long views = c.views.sumThenReset();
+            long favorites = c.favorites.sumThenReset();
+            long shares = c.shares.sumThenReset();
+            if (views != 0 || favorites != 0 || shares != 0) {
+                deltas.add(new Delta(productId, views, favorites, shares));
+            } else {
+                retire(productId, c);
+            }
+        });
+
+        if (deltas.isEmpty()) {
+            lastFlushAt = System.currentTimeMillis();
+            return 0;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, deltas, batchSize, (ps, d) -> {
+                ps.setLong(1, d.views);
+                ps.setLong(2, d.favorites);
+                ps.setLong(3, d.shares);
+                ps.setString(4, d.productId);
+            });
+        } catch (RuntimeException e) {
+            // 刷盘失败时把增量放回缓冲，等待下次重试
+            for (Delta d : deltas) {
+                Counters c = countersOf(d.productId);
+                c.views.add(d.views);
+                c.favorites.add(d.favorites);
+                c.shares.add(d.shares);
+            }
+            log.error("商品计数刷盘失败，将在下次重试: products={}", deltas.size(), e);
+            return 0;
+        }
+
+        lastFlushAt = System.currentTimeMillis();
+        flushedCounter.increment(deltas.stream().mapToLong(d -> d.views + d.favorites + d.shares).sum());
+        log.debug("商品计数已刷盘: products={}", deltas.size());
+        return deltas.size();
+    }
+
+    /**
+     * 应用关闭前排空缓冲
+     */
+    @PreDestroy
+    public void drain() {
+        int flushed = flush();
+        log.info("商品计数缓冲已排空: products={}", flushed);
+    }
+
+    /**
+     * 距上次成功刷盘的毫秒数
+     */
+    public long getFlushLagMillis() {
+        return System.currentTimeMillis() - lastFlushAt;
+    }
+
+    /**
+     * 缓冲中的商品数
+     */
+    public int getTrackedProducts() {
+        return counters.size();
+    }
+
+    /**
+     * 缓冲中的计数增量总数
+     */
+    public long getPendingTotal() {
+        long total = 0;
+        for (Counters c : counters.values()) {
+            total += c.views.sum() + c.favorites.sum() + c.shares.sum();
+        }
+        return total;
+    }
+
+    private void increment(String productId, Function<Counters, LongAdder> counter) {
+        Counters c = countersOf(productId);
+        counter.apply(c).increment();
+        if (c.retired) {
+            // 计数器已被刷盘线程摘除，刚才的增量可能没被转移，自行转移到新的计数器
+            c.transferTo(countersOf(productId));
+        }
+    }
+
+    /**
+     * 摘除空闲商品的计数器：先从缓冲移除再标记，随后把摘除前后并发写入的增量转移到新的计数器，
+     * 标记之前完成的写入由这里转移，之后的写入由写入线程自己转移，不会丢失
+     */
+    private void retire(String productId, Counters c) {
+        if (!counters.remove(productId, c)) {
+            return;
+        }
+        c.retired = true;
+        if (c.views.sum() != 0 || c.favorites.sum() != 0 || c.shares.sum() != 0) {
+            c.transferTo(countersOf(productId));
+        }
+    }
+
+    private Counters countersOf(String productId) {
+        Counters c = counters.get(productId);
+        return c != null ? c : counters.computeIfAbsent(productId, id -> new Counters());
+    }
+
+    private static final class Counters {
+        final LongAdder views = new LongAdder();
+        final LongAdder favorites = new LongAdder();
+        final LongAdder shares = new LongAdder();
+        volatile boolean retired;
+
+        void transferTo(Counters target) {
+            target.views.add(views.sumThenReset());
+            target.favorites.add(favorites.sumThenReset());
+            target.shares.add(shares.sumThenReset());
+        }
+    }
+
+    private record Delta(String productId, long views, long favorites, long shares) {
+    }
+}
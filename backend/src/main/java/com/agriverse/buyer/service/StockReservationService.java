@@ -0,0 +1,184 @@
+package com.agriverse.buyer.service;
+
+import com.agriverse.buyer.repository.StockReservationRepository;
+import com.agriverse.entity.BuyerOrderItem;
+import com.agriverse.entity.StockReservation;
+import com.agriverse.exception.BusinessException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 库存预占服务
+ * 预占（下单）-> 确认（支付）-> 释放（取消/退款）
+ *
+ * 库存扣减使用条件更新 stock = stock - q WHERE stock >= q，由数据库保证并发下不超卖；
+ * 多个商品按ID顺序扣减，避免并发订单交叉加锁导致死锁。
+ * 库存变更以JDBC批量提交，批大小沿用 hibernate.jdbc.batch_size。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional(propagation = Propagation.MANDATORY)
+public class StockReservationService {
+    private static final String DECREMENT_SQL =
+            "UPDATE farmer_products SET stock = stock - ?, updated_at = ? WHERE id = ? AND stock >= ?";
+    private static final String INCREMENT_SQL =
+            "UPDATE farmer_products SET stock = stock + ?, updated_at = ? WHERE id = ?";
+    private static final String RELEASE_SQL =
+            "UPDATE stock_reservations SET status = 'RELEASED', updated_at = ? WHERE id = ? AND status <> 'RELEASED'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StockReservationRepository reservationRepository;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+
+    /**
+     * 为订单预占库存，任一商品库存不足时抛出异常，由外层事务整体回滚
+     *
+     * @param orderId    订单ID
+     * @param quantities 商品ID -> 数量
+     */
+    public List<StockReservation> reserve(String orderId, Map<String, Integer> quantities) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp ts = Timestamp.valueOf(now);
+
+        // 按商品ID排序，保证所有事务以相同顺序锁行
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        for (Map.Entry<String, Integer> entry : entries) {
+            if (entry.getValue() == null || entry.getValue() <= 0) {
+                throw new BusinessException("购买数量必须大于0");
+            }
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(DECREMENT_SQL, entries, batchSize, (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setTimestamp(2, ts);
+            ps.setString(3, entry.getKey());
+            ps.setInt(4, entry.getValue());
+        });
+
+        List<StockReservation> reservations = new ArrayList<>(entries.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Map.Entry<String, Integer> entry = entries.get(index++);
+                // 驱动需返回真实影响行数（未开启 rewriteBatchedStatements），0 即库存不足
+                if (count < 1) {
+                    throw new BusinessException("STOCK_INSUFFICIENT", "商品库存不足: " + entry.getKey());
+                }
+                reservations.add(StockReservation.builder()
+                        .orderId(orderId)
+                        .productId(entry.getKey())
+                        .quantity(entry.getValue())
+                        .status(StockReservation.ReservationStatus.RESERVED)
+                        .createdAt(now)
+                        .updatedAt(now)
+                        .build());
+            }
+        }
+
+        List<StockReservation> saved = reservationRepository.saveAll(reservations);
+        log.debug("库存预占成功: orderId={}, products={}", orderId, saved.size());
+        return saved;
+    }
+
+    /**
+     * 确认预占（订单已支付），返回确认的记录数
+     */
+    public int confirm(String orderId) {
+        int confirmed = reservationRepository.transitionByOrderId(
+                orderId,
+                StockReservation.ReservationStatus.RESERVED,
+                StockReservation.ReservationStatus.CONFIRMED,
+                LocalDateTime.now());
+        log.debug("库存预占已确认: orderId={}, count={}", orderId, confirmed);
+        return confirmed;
+    }
+
+    /**
+     * 释放订单的全部预占并回补库存，重复调用不会重复回补
+     *
+     * @return 实际回补的商品件数
+     */
+    public int release(String orderId) {
+        Timestamp ts = Timestamp.valueOf(LocalDateTime.now());
+        List<StockReservation> reservations = reservationRepository.findByOrderId(orderId);
+
+        // 先批量抢占状态，只有抢占成功的记录回补库存
+        int[][] counts = jdbcTemplate.batchUpdate(RELEASE_SQL, reservations, batchSize, (ps, reservation) -> {
+            ps.setTimestamp(1, ts);
+            ps.setString(2, reservation.getId());
+        });
+        List<StockReservation> released = new ArrayList<>(reservations.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                StockReservation reservation = reservations.get(index++);
+                if (count == 1) {
+                    released.add(reservation);
+                }
+            }
+        }
+
+        int restored = restock(released.stream()
+                .map(r -> Map.entry(r.getProductId(), r.getQuantity()))
+                .toList(), ts);
+        log.debug("库存预占已释放: orderId={}, restored={}", orderId, restored);
+        return restored;
+    }
+
+    /**
+     * 释放订单库存；对于没有预占记录的历史订单，按订单项回补
+     */
+    public int release(String orderId, List<BuyerOrderItem> items) {
+        if (reservationRepository.existsByOrderId(orderId)) {
+            return release(orderId);
+        }
+        return restock(items.stream()
+                .map(item -> Map.entry(item.getProductId(), item.getQuantity()))
+                .toList(), Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * 批量回补库存（同样按商品ID顺序加锁），返回实际回补的商品件数；商品已不存在的行不计入
+     */
+    private int restock(List<Map.Entry<String, Integer>> entries, Timestamp ts) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<String, Integer>> sorted = entries.stream().sorted(Map.Entry.comparingByKey()).toList();
+        int[][] counts = jdbcTemplate.batchUpdate(INCREMENT_SQL, sorted, batchSize, (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setTimestamp(2, ts);
+            ps.setString(3, entry.getKey());
+        });
+
+        int restored = 0;
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Map.Entry<String, Integer> entry = sorted.get(index++);
+                if (count == 1) {
+                    restored += entry.getValue();
+                } else {
+                    log.warn("库存回补未生效: productId={}, quantity={}, updated={}",
+                            entry.getKey(), entry.getValue(), count);
+                }
+            }
+        }
+        return restored;
+    }
+}
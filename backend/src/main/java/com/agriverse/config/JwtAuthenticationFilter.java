@@ -39,9 +39,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userId = tokenProvider.getUserIdFromToken(jwt);
-                String role = tokenProvider.getRoleFromToken(jwt);
+            // 一次验签解析得到用户与角色，重复请求命中已验证令牌缓存
+            JwtTokenProvider.TokenPrincipal principal =
+                    StringUtils.hasText(jwt) ? tokenProvider.authenticate(jwt) : null;
+
+            if (principal != null) {
+                String userId = principal.userId();
+                String role = principal.role();
 
                 // 设置角色权限
                 List<GrantedAuthority> authorities = new ArrayList<>();
@@ -49,8 +53,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                     authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
                 }
 
+                // 以令牌主体作为认证主体（getName() 返回用户ID），灰度判断等可直接读取令牌中的用户属性
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userId,
+                        principal,
                         null,
                         authorities);
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -1,6 +1,7 @@
 package com.agriverse.config;
 
 import com.agriverse.util.JwtTokenProvider;
+import com.agriverse.util.PageCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -49,6 +50,7 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(Collections.singletonList("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Collections.singletonList(PageCursor.NEXT_CURSOR_HEADER));
         configuration.setAllowCredentials(false);
         configuration.setMaxAge(3600L);
 
@@ -22,4 +22,6 @@ public class BuyerOrderListResponse implements Serializable {
     private Long total;
     private Integer page;
     private Integer pageSize;
+    private String nextCursor;
+    private Boolean hasMore;
 }
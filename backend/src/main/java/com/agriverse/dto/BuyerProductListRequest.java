@@ -38,4 +38,16 @@ public class BuyerProductListRequest implements Serializable {
      */
     @Builder.Default
     private Integer pageSize = 20;
+
+    /**
+     * 游标分页位置（上一页返回的 nextCursor，空字符串表示第一页）
+     * 不传时按页码分页
+     */
+    private String cursor;
+
+    /**
+     * 游标分页时是否返回总数（缓存的近似值）
+     */
+    @Builder.Default
+    private Boolean withTotal = false;
 }
@@ -39,6 +39,16 @@ public class BuyerProductListResponse implements Serializable {
      */
     private Integer pageSize;
 
+    /**
+     * 下一页游标（游标分页时返回，没有更多数据时为空）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有下一页（游标分页时返回）
+     */
+    private Boolean hasMore;
+
     /**
      * 商品项DTO
      */
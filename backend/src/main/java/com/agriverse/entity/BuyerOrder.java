@@ -16,7 +16,8 @@ import java.util.List;
 @Table(name = "buyer_orders", indexes = {
         @Index(name = "idx_buyer_id", columnList = "buyerId"),
         @Index(name = "idx_status", columnList = "status"),
-        @Index(name = "idx_created_at", columnList = "createdAt")
+        @Index(name = "idx_created_at", columnList = "createdAt"),
+        @Index(name = "idx_buyer_created_at", columnList = "buyerId, createdAt DESC, id DESC")
 })
 @Data
 @Builder
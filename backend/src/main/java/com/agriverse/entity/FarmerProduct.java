@@ -15,7 +15,9 @@ import java.time.LocalDateTime;
         @Index(name = "idx_farmer_id", columnList = "farmerId"),
         @Index(name = "idx_status", columnList = "status"),
         @Index(name = "idx_name", columnList = "name"),
-        @Index(name = "idx_category", columnList = "category")
+        @Index(name = "idx_category", columnList = "category"),
+        @Index(name = "idx_status_created_at", columnList = "status, createdAt DESC, id DESC"),
+        @Index(name = "idx_farmer_created_at", columnList = "farmerId, createdAt DESC, id DESC")
 })
 @Data
 @Builder
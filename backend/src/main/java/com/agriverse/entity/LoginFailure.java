@@ -0,0 +1,48 @@
+package com.agriverse.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 登录失败计数实体
+ * 按手机号+客户端IP计数，多实例共享；他人从其他IP撞库不会锁住机主自己的登录
+ */
+@Entity
+@Table(name = "login_failures", indexes = {
+        @Index(name = "idx_login_failures_window", columnList = "window_start")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginFailure {
+    /**
+     * 计数键：手机号|客户端IP
+     */
+    @Id
+    @Column(name = "failure_key", length = 80)
+    private String failureKey;
+
+    @Column(nullable = false, length = 20)
+    private String phone;
+
+    @Column(name = "client_ip", nullable = false, length = 45)
+    private String clientIp;
+
+    /**
+     * 时间窗内失败次数
+     */
+    @Column(nullable = false)
+    private Integer attempts;
+
+    /**
+     * 时间窗开始时间（首次失败时间，窗口过期后的下一次失败重新开始计数）
+     */
+    @Column(name = "window_start", nullable = false)
+    private LocalDateTime windowStart;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
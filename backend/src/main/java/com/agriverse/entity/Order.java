@@ -16,7 +16,9 @@ import java.time.LocalDateTime;
     @Index(name = "idx_buyer_id", columnList = "buyerId"),
     @Index(name = "idx_farmer_id", columnList = "farmerId"),
     @Index(name = "idx_status", columnList = "status"),
-    @Index(name = "idx_created_at", columnList = "createdAt")
+    @Index(name = "idx_created_at", columnList = "createdAt"),
+    @Index(name = "idx_orders_created_amount", columnList = "createdAt, totalAmount"),
+    @Index(name = "idx_orders_refund_status_created", columnList = "refundStatus, createdAt")
 })
 @Data
 @Builder
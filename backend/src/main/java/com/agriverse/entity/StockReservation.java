@@ -0,0 +1,80 @@
+package com.agriverse.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存预占记录实体
+ * 下单时扣减的库存按订单逐商品记账，取消/退款时据此释放，保证同一笔预占只回补一次
+ */
+@Entity
+@Table(name = "stock_reservations", indexes = {
+        @Index(name = "idx_stock_reservation_order", columnList = "orderId"),
+        @Index(name = "idx_stock_reservation_product", columnList = "productId")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(nullable = false, length = 36)
+    private String orderId;
+
+    @Column(nullable = false, length = 36)
+    private String productId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private ReservationStatus status = ReservationStatus.RESERVED;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = now;
+        }
+        if (updatedAt == null) {
+            updatedAt = now;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * 预占状态枚举
+     */
+    public enum ReservationStatus {
+        RESERVED("已预占"),
+        CONFIRMED("已确认"),
+        RELEASED("已释放");
+
+        private final String displayName;
+
+        ReservationStatus(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.agriverse.farmer.controller;
 
 import com.agriverse.dto.*;
+import com.agriverse.exception.BusinessException;
 import com.agriverse.farmer.service.FarmerProductService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,7 +39,9 @@ public class FarmerProductController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false, defaultValue = "all") String status,
             @RequestParam(required = false, defaultValue = "1") Integer page,
-            @RequestParam(required = false, defaultValue = "20") Integer pageSize) {
+            @RequestParam(required = false, defaultValue = "20") Integer pageSize,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false, defaultValue = "false") boolean withTotal) {
         try {
             String farmerId = principal.getName();
             log.info("获取商品列表请求: farmerId={}, search={}, status={}, page={}, pageSize={}",
@@ -49,10 +52,15 @@ public class FarmerProductController {
                     .status(status)
                     .page(page)
                     .pageSize(pageSize)
+                    .cursor(cursor)
+                    .withTotal(withTotal)
                     .build();
 
             ProductListResponse response = farmerProductService.getProductList(farmerId, request);
             return ResponseEntity.ok(ApiResponse.success("获取成功", response));
+        } catch (BusinessException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error(400, e.getMessage()));
         } catch (Exception e) {
             log.error("获取商品列表异常", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -79,4 +80,69 @@ public interface FarmerProductRepository extends JpaRepository<FarmerProduct, St
                         @Param("category") String category,
                         @Param("search") String search,
                         Pageable pageable);
+
+        /**
+         * 游标分页：取指定位置之后的上架商品（买家市场用）
+         * 按 (createdAt, id) 倒序定位（createdAt <= 游标作为索引范围条件），配合 idx_status_created_at 索引只扫描一页数据
+         */
+        @Query("SELECT p FROM FarmerProduct p WHERE " +
+                        "p.status = :status AND " +
+                        "(:category IS NULL OR :category = '' OR p.category = :category) AND " +
+                        "(:search IS NULL OR :search = '' OR p.name LIKE %:search% OR p.origin LIKE %:search%) AND " +
+                        "p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id < :id) " +
+                        "ORDER BY p.createdAt DESC, p.id DESC")
+        List<FarmerProduct> findByStatusAndCategoryAndSearchAfter(
+                        @Param("status") FarmerProduct.ProductStatus status,
+                        @Param("category") String category,
+                        @Param("search") String search,
+                        @Param("createdAt") LocalDateTime createdAt,
+                        @Param("id") String id,
+                        Pageable limit);
+
+        /**
+         * 统计符合条件的上架商品数量（买家市场用）
+         */
+        @Query("SELECT COUNT(p) FROM FarmerProduct p WHERE " +
+                        "p.status = :status AND " +
+                        "(:category IS NULL OR :category = '' OR p.category = :category) AND " +
+                        "(:search IS NULL OR :search = '' OR p.name LIKE %:search% OR p.origin LIKE %:search%)")
+        long countByStatusAndCategoryAndSearch(
+                        @Param("status") FarmerProduct.ProductStatus status,
+                        @Param("category") String category,
+                        @Param("search") String search);
+
+        /**
+         * 游标分页：取指定位置之后的农户商品，status 为空时不过滤状态
+         */
+        @Query("SELECT p FROM FarmerProduct p WHERE " +
+                        "p.farmerId = :farmerId AND " +
+                        "(:status IS NULL OR p.status = :status) AND " +
+                        "(:search IS NULL OR :search = '' OR p.name LIKE %:search% OR p.origin LIKE %:search%) AND " +
+                        "p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id < :id) " +
+                        "ORDER BY p.createdAt DESC, p.id DESC")
+        List<FarmerProduct> findByFarmerIdAndSearchAfter(
+                        @Param("farmerId") String farmerId,
+                        @Param("status") FarmerProduct.ProductStatus status,
+                        @Param("search") String search,
+                        @Param("createdAt") LocalDateTime createdAt,
+                        @Param("id") String id,
+                        Pageable limit);
+
+        /**
+         * 统计农户符合条件的商品数量，status 为空时不过滤状态
+         */
+        @Query("SELECT COUNT(p) FROM FarmerProduct p WHERE " +
+                        "p.farmerId = :farmerId AND " +
+                        "(:status IS NULL OR p.status = :status) AND " +
+                        "(:search IS NULL OR :search = '' OR p.name LIKE %:search% OR p.origin LIKE %:search%)")
+        long countByFarmerIdAndSearch(
+                        @Param("farmerId") String farmerId,
+                        @Param("status") FarmerProduct.ProductStatus status,
+                        @Param("search") String search);
+
+
+        /**
+         * 按主键顺序分块读取商品（用于重建检索索引）
+         */
+        List<FarmerProduct> findByIdGreaterThanOrderByIdAsc(String id, Pageable pageable);
 }
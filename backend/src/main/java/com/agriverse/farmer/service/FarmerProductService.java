@@ -3,6 +3,8 @@ package com.agriverse.farmer.service;
 import com.agriverse.dto.*;
 import com.agriverse.entity.FarmerProduct;
 import com.agriverse.farmer.repository.FarmerProductRepository;
+import com.agriverse.util.PageCursor;
+import com.agriverse.util.PageTotalCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -15,6 +17,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -25,9 +28,17 @@ import java.util.stream.Collectors;
 @Transactional
 public class FarmerProductService {
 
+        private static final int DEFAULT_PAGE_SIZE = 20;
+
         @Autowired
         private FarmerProductRepository farmerProductRepository;
 
+        @Autowired
+        private ProductSearchIndex productSearchIndex;
+
+        @Autowired
+        private PageTotalCache pageTotalCache;
+
         /**
          * 创建商品
          */
@@ -53,6 +64,7 @@ public class FarmerProductService {
                                 .build();
 
                 FarmerProduct savedProduct = farmerProductRepository.save(product);
+                productSearchIndex.indexAfterCommit(savedProduct);
                 log.info("商品创建成功: productId={}", savedProduct.getId());
                 return convertToProductItem(savedProduct);
         }
@@ -65,11 +77,16 @@ public class FarmerProductService {
                                 farmerId, request.getSearch(), request.getStatus(), request.getPage(),
                                 request.getPageSize());
 
+                // 传入游标时按 (createdAt, id) 定位翻页
+                if (request.getCursor() != null) {
+                        return getProductListByCursor(farmerId, request);
+                }
+
                 // 构建分页参数
                 Pageable pageable = PageRequest.of(
                                 request.getPage() - 1,
                                 request.getPageSize(),
-                                Sort.by(Sort.Direction.DESC, "createdAt"));
+                                Sort.by(Sort.Direction.DESC, "createdAt", "id"));
 
                 // 查询商品
                 Page<FarmerProduct> productPage;
@@ -107,6 +124,55 @@ public class FarmerProductService {
                                 .build();
         }
 
+        /**
+         * 游标分页获取商品列表，总数按需从缓存读取
+         */
+        private ProductListResponse getProductListByCursor(String farmerId, ProductListRequest request) {
+                PageCursor cursor = PageCursor.decode(request.getCursor());
+                int pageSize = PageCursor.pageSize(request.getPageSize(), DEFAULT_PAGE_SIZE);
+                FarmerProduct.ProductStatus productStatus = toProductStatus(request.getStatus());
+
+                List<FarmerProduct> rows = farmerProductRepository.findByFarmerIdAndSearchAfter(
+                                farmerId,
+                                productStatus,
+                                request.getSearch(),
+                                cursor.createdAt(),
+                                cursor.id(),
+                                PageRequest.ofSize(pageSize + 1));
+                PageCursor.Slice<FarmerProduct> slice = PageCursor.slice(
+                                rows, pageSize, FarmerProduct::getCreatedAt, FarmerProduct::getId);
+
+                Long total = null;
+                if (Boolean.TRUE.equals(request.getWithTotal())) {
+                        String key = "farmer|" + farmerId + "|" + productStatus + "|"
+                                        + Objects.toString(request.getSearch(), "");
+                        total = pageTotalCache.get(key, () -> farmerProductRepository.countByFarmerIdAndSearch(
+                                        farmerId, productStatus, request.getSearch()));
+                }
+
+                return ProductListResponse.builder()
+                                .products(slice.content().stream()
+                                                .map(this::convertToProductItem)
+                                                .collect(Collectors.toList()))
+                                .total(total)
+                                .pageSize(pageSize)
+                                .nextCursor(slice.nextCursor())
+                                .hasMore(slice.hasMore())
+                                .build();
+        }
+
+        /**
+         * 将"on"/"off"转换为状态枚举，"all"或空表示不过滤
+         */
+        private FarmerProduct.ProductStatus toProductStatus(String status) {
+                if (status == null || status.isEmpty() || "all".equals(status)) {
+                        return null;
+                }
+                return "on".equalsIgnoreCase(status)
+                                ? FarmerProduct.ProductStatus.ON
+                                : FarmerProduct.ProductStatus.OFF;
+        }
+
         /**
          * 切换商品上下架状态
          */
@@ -126,6 +192,7 @@ public class FarmerProductService {
                 product.setUpdatedAt(LocalDateTime.now());
 
                 farmerProductRepository.save(product);
+                productSearchIndex.indexAfterCommit(product);
                 log.info("商品状态已更新: productId={}, newStatus={}", request.getProductId(), newStatus);
         }
 
@@ -0,0 +1,418 @@
+package com.agriverse.farmer.service;
+
+import com.agriverse.entity.FarmerProduct;
+import com.agriverse.farmer.repository.FarmerProductRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cjk.CJKBigramFilter;
+import org.apache.lucene.analysis.cjk.CJKWidthFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.QueryBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 商品全文检索索引（进程内Lucene）
+ * 对名称、产地、类别、描述建立倒排索引，中文按单字+二元切分，
+ * 替代 LIKE %search% 的全表扫描；结果按相关度排序，相同相关度按上架时间倒序。
+ *
+ * 商品新增、上下架和审核在事务提交后增量写入索引；启动时若索引与数据库数量不一致则后台重建。
+ * 增量写入与重建共用一把写锁：重建期间到达的增量写入先暂存，重建写完后在锁内按到达顺序重放，
+ * 不会被重建读到的旧数据覆盖，也不会产生重复文档。
+ */
+@Slf4j
+@Service
+public class ProductSearchIndex {
+    private static final String F_ID = "id";
+    private static final String F_FARMER_ID = "farmerId";
+    private static final String F_STATUS = "status";
+    private static final String F_CATEGORY_EXACT = "categoryExact";
+    private static final String F_CREATED_AT = "createdAt";
+
+    /** 检索字段及权重 */
+    private static final Map<String, Float> SEARCH_FIELDS = new LinkedHashMap<>();
+
+    static {
+        SEARCH_FIELDS.put("name", 4.0f);
+        SEARCH_FIELDS.put("category", 2.0f);
+        SEARCH_FIELDS.put("origin", 2.0f);
+        SEARCH_FIELDS.put("description", 1.0f);
+    }
+
+    private static final Sort RELEVANCE_SORT = new Sort(
+            SortField.FIELD_SCORE,
+            new SortField(F_CREATED_AT, SortField.Type.LONG, true));
+
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private final FarmerProductRepository farmerProductRepository;
+    private final String indexDir;
+    private final Analyzer indexAnalyzer = cjkAnalyzer(true);
+    private final Analyzer queryAnalyzer = cjkAnalyzer(false);
+
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private volatile boolean ready;
+    private volatile boolean rebuilding;
+
+    /** 增量写入、重建、刷新检索快照和定期提交之间的写锁 */
+    private final Object writeLock = new Object();
+
+    /** 重建期间暂存的增量写入：商品ID -> 最新商品（空表示删除），仅在持有 writeLock 时访问 */
+    private Map<String, Optional<FarmerProduct>> pendingWrites;
+
+    public ProductSearchIndex(FarmerProductRepository farmerProductRepository,
+                              @Value("${app.product-search.index-dir:}") String indexDir) {
+        this.farmerProductRepository = farmerProductRepository;
+        this.indexDir = indexDir;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = indexDir == null || indexDir.isBlank()
+                ? new ByteBuffersDirectory()
+                : FSDirectory.open(Paths.get(indexDir));
+        IndexWriterConfig config = new IndexWriterConfig(indexAnalyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+        log.info("商品检索索引已打开: dir={}, docs={}", indexDir == null || indexDir.isBlank() ? "memory" : indexDir,
+                writer.getDocStats().numDocs);
+    }
+
+    /**
+     * 启动后校验索引，与数据库数量不一致时在后台重建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyOnStartup() {
+        long indexed = writer.getDocStats().numDocs;
+        long stored = farmerProductRepository.count();
+        if (indexed == stored) {
+            ready = true;
+            return;
+        }
+        log.info("商品检索索引与数据库不一致，后台重建: indexed={}, stored={}", indexed, stored);
+        Thread.ofVirtual().name("product-index-rebuild").start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("商品检索索引重建失败", e);
+            }
+        });
+    }
+
+    /**
+     * 索引是否可用（首次重建完成前检索应回退到数据库查询）
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 事务提交后写入/更新商品索引；无事务时立即写入
+     */
+    public void indexAfterCommit(FarmerProduct product) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index(product);
+                }
+            });
+        } else {
+            index(product);
+        }
+    }
+
+    /**
+     * 写入/更新单个商品的索引
+     */
+    public void index(FarmerProduct product) {
+        try {
+            synchronized (writeLock) {
+                if (pendingWrites != null) {
+                    pendingWrites.put(product.getId(), Optional.of(product));
+                    return;
+                }
+                writer.updateDocument(new Term(F_ID, product.getId()), toDocument(product));
+                searcherManager.maybeRefresh();
+            }
+        } catch (IOException e) {
+            log.error("商品索引写入失败: productId={}", product.getId(), e);
+        }
+    }
+
+    /**
+     * 从索引中删除商品
+     */
+    public void delete(String productId) {
+        try {
+            synchronized (writeLock) {
+                if (pendingWrites != null) {
+                    pendingWrites.put(productId, Optional.empty());
+                    return;
+                }
+                writer.deleteDocuments(new Term(F_ID, productId));
+                searcherManager.maybeRefresh();
+            }
+        } catch (IOException e) {
+            log.error("商品索引删除失败: productId={}", productId, e);
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引，按主键分块读取，重建期间继续以旧快照提供检索；
+     * 期间的增量写入暂存，写完全量数据后重放再提交
+     *
+     * @return 重建的文档数
+     */
+    public synchronized long rebuild() {
+        long start = System.currentTimeMillis();
+        synchronized (writeLock) {
+            pendingWrites = new LinkedHashMap<>();
+            rebuilding = true;
+        }
+        long count = 0;
+        try {
+            writer.deleteAll();
+            String lastId = "";
+            while (true) {
+                List<FarmerProduct> chunk = farmerProductRepository.findByIdGreaterThanOrderByIdAsc(
+                        lastId, PageRequest.of(0, REBUILD_CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                List<Document> docs = new ArrayList<>(chunk.size());
+                for (FarmerProduct product : chunk) {
+                    docs.add(toDocument(product));
+                }
+                writer.addDocuments(docs);
+                count += chunk.size();
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+            synchronized (writeLock) {
+                replayPendingWrites();
+            }
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("商品检索索引重建失败", e);
+        } finally {
+            synchronized (writeLock) {
+                try {
+                    // 失败时同样重放，暂存的写入不会丢失
+                    replayPendingWrites();
+                } catch (IOException e) {
+                    log.error("商品索引暂存写入重放失败", e);
+                }
+                pendingWrites = null;
+                rebuilding = false;
+            }
+        }
+
+        try {
+            synchronized (writeLock) {
+                searcherManager.maybeRefreshBlocking();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ready = true;
+        log.info("商品检索索引重建完成: docs={}, elapsed={}ms", count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    /**
+     * 检索已上架商品
+     *
+     * @param text     关键词
+     * @param category 类别（可为空）
+     * @param page     页码（从1开始）
+     * @param pageSize 每页数量
+     * @return 命中的商品ID（按相关度排序）与总数；关键词无可检索内容时返回null
+     */
+    public SearchResult search(String text, String category, int page, int pageSize) {
+        Query textQuery = buildTextQuery(text);
+        if (textQuery == null) {
+            return null;
+        }
+
+        BooleanQuery.Builder builder = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(F_STATUS, FarmerProduct.ProductStatus.ON.name())), BooleanClause.Occur.FILTER)
+                .add(textQuery, BooleanClause.Occur.MUST);
+        if (category != null && !category.isEmpty()) {
+            builder.add(new TermQuery(new Term(F_CATEGORY_EXACT, category)), BooleanClause.Occur.FILTER);
+        }
+        Query query = builder.build();
+
+        int offset = Math.max(page - 1, 0) * pageSize;
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            TopDocs topDocs = searcher.search(query, offset + pageSize, RELEVANCE_SORT);
+            long total = topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO
+                    ? topDocs.totalHits.value
+                    : searcher.count(query);
+
+            List<String> ids = new ArrayList<>(pageSize);
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            for (int i = offset; i < hits.length; i++) {
+                ids.add(searcher.storedFields().document(hits[i].doc).get(F_ID));
+            }
+            return new SearchResult(ids, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException("商品检索失败", e);
+        } finally {
+            if (searcher != null) {
+                try {
+                    searcherManager.release(searcher);
+                } catch (IOException e) {
+                    log.warn("释放索引检索器失败", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 定期提交索引变更（与增量写入、刷新串行，不会提交写了一半的变更）
+     */
+    @Scheduled(fixedDelayString = "${app.product-search.commit-interval-ms:30000}")
+    public void commit() {
+        synchronized (writeLock) {
+            if (rebuilding || !writer.hasUncommittedChanges()) {
+                return;
+            }
+            try {
+                writer.commit();
+            } catch (IOException e) {
+                log.error("商品检索索引提交失败", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.commit();
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * 重放重建期间暂存的增量写入，调用方需持有 writeLock
+     */
+    private void replayPendingWrites() throws IOException {
+        for (Map.Entry<String, Optional<FarmerProduct>> entry : pendingWrites.entrySet()) {
+            Term id = new Term(F_ID, entry.getKey());
+            if (entry.getValue().isPresent()) {
+                writer.updateDocument(id, toDocument(entry.getValue().get()));
+            } else {
+                writer.deleteDocuments(id);
+            }
+        }
+        pendingWrites.clear();
+    }
+
+    private Query buildTextQuery(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        QueryBuilder queryBuilder = new QueryBuilder(queryAnalyzer);
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int clauses = 0;
+        for (Map.Entry<String, Float> field : SEARCH_FIELDS.entrySet()) {
+            // 同一字段内所有词元都需命中，语义上接近原 LIKE 子串匹配
+            Query fieldQuery = queryBuilder.createBooleanQuery(field.getKey(), text.trim(), BooleanClause.Occur.MUST);
+            if (fieldQuery != null) {
+                builder.add(new BoostQuery(fieldQuery, field.getValue()), BooleanClause.Occur.SHOULD);
+                clauses++;
+            }
+        }
+        return clauses > 0 ? builder.build() : null;
+    }
+
+    private Document toDocument(FarmerProduct product) {
+        Document doc = new Document();
+        doc.add(new StringField(F_ID, product.getId(), Field.Store.YES));
+        doc.add(new StringField(F_FARMER_ID, product.getFarmerId(), Field.Store.NO));
+        doc.add(new StringField(F_STATUS, product.getStatus().name(), Field.Store.NO));
+        doc.add(new StringField(F_CATEGORY_EXACT, product.getCategory(), Field.Store.NO));
+        doc.add(new TextField("name", product.getName(), Field.Store.NO));
+        doc.add(new TextField("category", product.getCategory(), Field.Store.NO));
+        doc.add(new TextField("origin", product.getOrigin(), Field.Store.NO));
+        if (product.getDescription() != null) {
+            doc.add(new TextField("description", product.getDescription(), Field.Store.NO));
+        }
+        long createdAt = product.getCreatedAt() != null
+                ? product.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0L;
+        doc.add(new NumericDocValuesField(F_CREATED_AT, createdAt));
+        return doc;
+    }
+
+    /**
+     * 中日韩文字二元切分分析器；索引时额外输出单字，使单字关键词也能命中
+     */
+    private static Analyzer cjkAnalyzer(boolean outputUnigrams) {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                StandardTokenizer tokenizer = new StandardTokenizer();
+                TokenStream stream = new CJKWidthFilter(tokenizer);
+                stream = new LowerCaseFilter(stream);
+                stream = new CJKBigramFilter(stream, CJKBigramFilter.HAN | CJKBigramFilter.HIRAGANA
+                        | CJKBigramFilter.KATAKANA | CJKBigramFilter.HANGUL, outputUnigrams);
+                return new TokenStreamComponents(tokenizer, stream);
+            }
+        };
+    }
+
+    /**
+     * 检索结果
+     */
+    public record SearchResult(List<String> productIds, long total) {
+    }
+}
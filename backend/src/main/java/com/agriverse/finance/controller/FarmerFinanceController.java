@@ -20,8 +20,7 @@ import com.agriverse.finance.dto.RepaymentSummaryResponse;
 import com.agriverse.finance.dto.FinancingApplicationDetailResponse;
 import com.agriverse.finance.repository.FinancingTimelineRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
-import com.agriverse.auth.repository.UserRepository;
-import com.agriverse.entity.User;
+import com.agriverse.auth.service.UserProfileResolver;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -59,7 +58,7 @@ public class FarmerFinanceController {
     private final FinancingStatisticsService statisticsService;
     private final FinancingTimelineRepository timelineRepository;
     private final RepaymentScheduleRepository scheduleRepository;
-    private final UserRepository userRepository;
+    private final UserProfileResolver userProfileResolver;
     
     /**
      * 提交融资申请
@@ -151,10 +150,8 @@ public class FarmerFinanceController {
                 .build();
             
             // 获取农户信息
-            User farmer = userRepository.findById(application.getFarmerId()).orElse(null);
-            if (farmer != null) {
-                response.setFarmerName(farmer.getName() != null ? farmer.getName() : farmer.getPhone());
-            }
+            userProfileResolver.resolve(application.getFarmerId())
+                .ifPresent(farmer -> response.setFarmerName(farmer.displayName()));
             
             return ResponseEntity.ok(ApiResponse.success("获取成功", response));
         } catch (Exception e) {
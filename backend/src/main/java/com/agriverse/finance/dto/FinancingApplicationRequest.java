@@ -28,5 +28,7 @@ public class FinancingApplicationRequest {
     private String purpose;
     
     private String productId; // 可选，如果选择特定产品
+    
+    private String repaymentMethod; // 可选：EQUAL_INSTALLMENT（默认）、EQUAL_PRINCIPAL、BULLET、SEASONAL
 }
 
@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
     @Index(name = "idx_farmer_id", columnList = "farmer_id"),
     @Index(name = "idx_status", columnList = "status"),
     @Index(name = "idx_product_id", columnList = "product_id"),
-    @Index(name = "idx_created_at", columnList = "created_at")
+    @Index(name = "idx_created_at", columnList = "created_at"),
+    @Index(name = "idx_financing_status_created", columnList = "status, created_at")
 })
 @Data
 @Builder
@@ -50,6 +51,11 @@ public class FinancingApplication {
     @Column(name = "interest_rate", precision = 5, scale = 2)
     private BigDecimal interestRate;
     
+    @Column(name = "repayment_method", length = 20)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private RepaymentMethod repaymentMethod = RepaymentMethod.EQUAL_INSTALLMENT;
+    
     @Column(name = "credit_score")
     private Integer creditScore;
     
@@ -95,5 +101,25 @@ public class FinancingApplication {
         REPAYING,     // 还款中
         SETTLED       // 已结清
     }
+    
+    /**
+     * 还款方式枚举
+     */
+    public enum RepaymentMethod {
+        EQUAL_INSTALLMENT("等额本息"),
+        EQUAL_PRINCIPAL("等额本金"),
+        BULLET("按月付息到期还本"),
+        SEASONAL("按月付息收获季还本");
+        
+        private final String displayName;
+        
+        RepaymentMethod(String displayName) {
+            this.displayName = displayName;
+        }
+        
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
 }
 
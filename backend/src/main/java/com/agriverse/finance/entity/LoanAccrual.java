@@ -0,0 +1,66 @@
+package com.agriverse.finance.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 计息流水实体（只增不改）
+ * 每日计息任务为每个还款计划每种类型至多记一笔，金额为当日新增的应计利息或罚息
+ */
+@Entity
+@Table(name = "loan_accruals", indexes = {
+    @Index(name = "uk_accrual_schedule_date_type", columnList = "schedule_id, accrual_date, accrual_type", unique = true),
+    @Index(name = "idx_accrual_financing_date", columnList = "financing_id, accrual_date")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanAccrual {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "financing_id", nullable = false, length = 36)
+    private String financingId;
+
+    @Column(name = "schedule_id", nullable = false, length = 36)
+    private String scheduleId;
+
+    @Column(name = "accrual_date", nullable = false)
+    private LocalDate accrualDate;
+
+    @Column(name = "accrual_type", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private AccrualType accrualType;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal amount;
+
+    /**
+     * 本笔覆盖的逾期天数（罚息，漏跑的日期在下次执行时一并补记）
+     */
+    @Column(name = "accrual_days")
+    private Integer accrualDays;
+
+    /**
+     * 罚息日利率
+     */
+    @Column(precision = 10, scale = 6)
+    private BigDecimal rate;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * 计息类型枚举
+     */
+    public enum AccrualType {
+        INTEREST,  // 应计利息
+        PENALTY    // 逾期罚息
+    }
+}
@@ -0,0 +1,47 @@
+package com.agriverse.finance.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 融资计息余额实体
+ * 每笔融资一行，计息任务写流水时在同一事务内累加，罚息查询和对账直接按主键读取
+ */
+@Entity
+@Table(name = "loan_accrual_balances")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanAccrualBalance {
+    @Id
+    @Column(name = "financing_id", length = 36)
+    private String financingId;
+
+    /**
+     * 累计应计利息
+     */
+    @Column(name = "accrued_interest", nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal accruedInterest = BigDecimal.ZERO;
+
+    /**
+     * 累计逾期罚息
+     */
+    @Column(name = "accrued_penalty", nullable = false, precision = 15, scale = 2)
+    @Builder.Default
+    private BigDecimal accruedPenalty = BigDecimal.ZERO;
+
+    /**
+     * 最近一次计入的计息日
+     */
+    @Column(name = "last_accrual_date")
+    private LocalDate lastAccrualDate;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
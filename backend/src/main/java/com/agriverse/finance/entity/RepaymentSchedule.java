@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 @Table(name = "repayment_schedules", indexes = {
     @Index(name = "idx_financing_id", columnList = "financing_id"),
     @Index(name = "idx_due_date", columnList = "due_date"),
-    @Index(name = "idx_status", columnList = "status")
+    @Index(name = "idx_status", columnList = "status"),
+    @Index(name = "idx_schedule_status_due_date", columnList = "status, due_date")
 })
 @Data
 @Builder
@@ -56,6 +57,30 @@ public class RepaymentSchedule {
     @Column(name = "paid_amount", precision = 15, scale = 2)
     private BigDecimal paidAmount;
     
+    /**
+     * 已计入流水的应计利息（仅由计息任务写入）
+     */
+    @Column(name = "accrued_interest", insertable = false, updatable = false,
+        columnDefinition = "DECIMAL(15,2) DEFAULT 0 NOT NULL")
+    @Builder.Default
+    private BigDecimal accruedInterest = BigDecimal.ZERO;
+    
+    /**
+     * 已计入流水的逾期罚息（仅由计息任务写入）
+     */
+    @Column(name = "accrued_penalty", insertable = false, updatable = false,
+        columnDefinition = "DECIMAL(15,2) DEFAULT 0 NOT NULL")
+    @Builder.Default
+    private BigDecimal accruedPenalty = BigDecimal.ZERO;
+    
+    /**
+     * 已计罚息的逾期天数（仅由计息任务写入）
+     */
+    @Column(name = "penalty_days", insertable = false, updatable = false,
+        columnDefinition = "INT DEFAULT 0 NOT NULL")
+    @Builder.Default
+    private Integer penaltyDays = 0;
+    
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
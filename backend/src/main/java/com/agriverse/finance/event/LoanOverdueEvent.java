@@ -0,0 +1,25 @@
+package com.agriverse.finance.event;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 融资转为逾期事件
+ * 逾期检测把还款计划由待还批量转为逾期后发布，每笔融资一条，供风险预警、通知等下游消费
+ *
+ * @param asOf  检测日期
+ * @param loans 本次有还款计划转为逾期的融资
+ */
+public record LoanOverdueEvent(LocalDate asOf, List<OverdueLoan> loans) {
+
+    /**
+     * @param financingId      融资申请ID
+     * @param overdueAmount    本次转为逾期的应还本息
+     * @param earliestDueDate  本次转为逾期的最早到期日
+     * @param scheduleCount    本次转为逾期的期数
+     */
+    public record OverdueLoan(String financingId, BigDecimal overdueAmount, LocalDate earliestDueDate,
+                              int scheduleCount) {
+    }
+}
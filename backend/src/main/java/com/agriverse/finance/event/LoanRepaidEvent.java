@@ -0,0 +1,11 @@
+package com.agriverse.finance.event;
+
+/**
+ * 融资还款事件
+ * 还款记录保存后在同一事务内发布，供风险预警等下游判断逾期是否已结清
+ *
+ * @param financingId 融资申请ID
+ * @param scheduleId  本次偿还的还款计划ID，未指定期次时为空
+ */
+public record LoanRepaidEvent(String financingId, String scheduleId) {
+}
@@ -1,11 +1,14 @@
 package com.agriverse.finance.repository;
 
 import com.agriverse.finance.entity.FinancingApplication;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -48,5 +51,58 @@ public interface FinancingApplicationRepository extends JpaRepository<FinancingA
      */
     @Query("SELECT COUNT(f) FROM FinancingApplication f WHERE f.status = :status")
     Long countByStatus(@Param("status") FinancingApplication.FinancingStatus status);
-}
+    
+    /**
+     * 汇总在途贷款（已放款、还款中）：[笔数, 总金额, 关联贷款产品的笔数]
+     */
+    @Query("SELECT COUNT(f), COALESCE(SUM(f.amount), 0), " +
+           "COALESCE(SUM(CASE WHEN f.productId IS NOT NULL THEN 1 ELSE 0 END), 0) " +
+           "FROM FinancingApplication f WHERE f.status IN ('DISBURSED', 'REPAYING')")
+    List<Object[]> summarizeActiveLoans();
+    
+    /**
+     * 按状态汇总：[状态, 申请数, 申请总额]
+     */
+    @Query("SELECT f.status, COUNT(f), COALESCE(SUM(f.amount), 0) FROM FinancingApplication f GROUP BY f.status")
+    List<Object[]> summarizeByStatus();
+    
+    /**
+     * 游标分页：取指定位置之后的融资申请，status 为空时不过滤状态
+     * 按 (createdAt, id) 倒序定位，配合 idx_created_at / idx_financing_status_created 索引只扫描一页数据
+     */
+    @Query("SELECT f FROM FinancingApplication f WHERE " +
+           "(:status IS NULL OR f.status = :status) AND " +
+           "f.createdAt <= :createdAt AND (f.createdAt < :createdAt OR f.id < :id) " +
+           "ORDER BY f.createdAt DESC, f.id DESC")
+    List<FinancingApplication> findPageAfter(@Param("status") FinancingApplication.FinancingStatus status,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") String id,
+                                             Pageable limit);
+    
+    /**
+     * 按ID升序取下一批在途贷款（已放款、还款中）的ID
+     */
+    @Query("SELECT f.id FROM FinancingApplication f WHERE f.status IN ('DISBURSED', 'REPAYING') " +
+           "AND f.id > :afterId ORDER BY f.id ASC")
+    List<String> findActiveIdsAfter(@Param("afterId") String afterId, Pageable limit);
+
+    /**
+     * 批量查询融资申请所属农户：[融资申请ID, 农户ID]
+     */
+    @Query("SELECT f.id, f.farmerId FROM FinancingApplication f WHERE f.id IN :ids")
+    List<Object[]> findFarmerIdsByIdIn(@Param("ids") Collection<String> ids);
 
+    /**
+     * 按ID升序取下一批有在途贷款（已放款、还款中）的农户ID
+     */
+    @Query("SELECT DISTINCT f.farmerId FROM FinancingApplication f WHERE f.status IN ('DISBURSED', 'REPAYING') " +
+           "AND f.farmerId > :afterId ORDER BY f.farmerId ASC")
+    List<String> findActiveFarmerIdsAfter(@Param("afterId") String afterId, Pageable limit);
+
+    /**
+     * 批量查询农户的在途贷款，按创建时间升序：[农户ID, 融资申请ID]
+     */
+    @Query("SELECT f.farmerId, f.id FROM FinancingApplication f WHERE f.farmerId IN :farmerIds " +
+           "AND f.status IN ('DISBURSED', 'REPAYING') ORDER BY f.createdAt ASC, f.id ASC")
+    List<Object[]> findActiveFinancingIdsByFarmerIdIn(@Param("farmerIds") Collection<String> farmerIds);
+}
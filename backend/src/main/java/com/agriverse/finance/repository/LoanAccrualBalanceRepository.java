@@ -0,0 +1,12 @@
+package com.agriverse.finance.repository;
+
+import com.agriverse.finance.entity.LoanAccrualBalance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 融资计息余额Repository
+ */
+@Repository
+public interface LoanAccrualBalanceRepository extends JpaRepository<LoanAccrualBalance, String> {
+}
@@ -0,0 +1,16 @@
+package com.agriverse.finance.repository;
+
+import com.agriverse.finance.entity.LoanAccrual;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 计息流水Repository
+ */
+@Repository
+public interface LoanAccrualRepository extends JpaRepository<LoanAccrual, String> {
+
+    List<LoanAccrual> findByFinancingIdOrderByAccrualDateAscScheduleIdAsc(String financingId);
+}
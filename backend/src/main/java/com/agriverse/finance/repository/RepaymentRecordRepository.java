@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -24,5 +25,14 @@ public interface RepaymentRecordRepository extends JpaRepository<RepaymentRecord
      */
     @Query("SELECT COALESCE(SUM(r.amount), 0) FROM RepaymentRecord r WHERE r.financingId = :financingId")
     BigDecimal getTotalRepaidAmount(@Param("financingId") String financingId);
+    
+    /**
+     * 按融资汇总多笔融资的已还本金和利息
+     *
+     * @return [融资申请ID, 已还本金, 已还利息]
+     */
+    @Query("SELECT r.financingId, COALESCE(SUM(r.principal), 0), COALESCE(SUM(r.interest), 0) " +
+           "FROM RepaymentRecord r WHERE r.financingId IN :financingIds GROUP BY r.financingId")
+    List<Object[]> sumRepaidByFinancingIdIn(@Param("financingIds") Collection<String> financingIds);
 }
 
@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -25,12 +27,59 @@ public interface RepaymentScheduleRepository extends JpaRepository<RepaymentSche
     List<RepaymentSchedule> findByFinancingIdAndStatus(String financingId, 
                                                         RepaymentSchedule.ScheduleStatus status);
     
+    /**
+     * 融资是否存在指定状态的还款计划
+     */
+    boolean existsByFinancingIdAndStatus(String financingId, RepaymentSchedule.ScheduleStatus status);
+    
     /**
      * 查询逾期的还款计划
      */
     @Query("SELECT r FROM RepaymentSchedule r WHERE r.dueDate < :date " +
            "AND r.status = 'PENDING'")
     List<RepaymentSchedule> findOverdueSchedules(@Param("date") LocalDate date);
+
+    /**
+     * 统计存在逾期还款计划的融资笔数（已标记逾期或到期未还）
+     */
+    @Query("SELECT COUNT(DISTINCT r.financingId) FROM RepaymentSchedule r WHERE r.status = 'OVERDUE' " +
+           "OR (r.status = 'PENDING' AND r.dueDate < :date)")
+    long countOverdueFinancings(@Param("date") LocalDate date);
+
+    /**
+     * 统计银行（放款操作员）放出的贷款中存在逾期还款计划的融资笔数（已标记逾期或到期未还）
+     */
+    @Query(value = "SELECT COUNT(DISTINCT s.financing_id) FROM repayment_schedules s " +
+           "JOIN disbursements d ON d.financing_id = s.financing_id AND d.status = 'SUCCESS' " +
+           "WHERE d.disbursed_by = :bankId AND (s.status = 'OVERDUE' OR (s.status = 'PENDING' AND s.due_date < :date))",
+           nativeQuery = true)
+    long countOverdueFinancingsByBank(@Param("bankId") String bankId, @Param("date") LocalDate date);
+    
+    /**
+     * 一次扫描汇总逾期还款计划（已标记逾期或到期未还）：
+     * [逾期融资笔数, 逾期本息, 到期日早于 badDebtDate 的融资笔数, 到期日早于 badDebtDate 的本息]
+     */
+    @Query("SELECT COUNT(DISTINCT r.financingId), COALESCE(SUM(r.principal + r.interest), 0), " +
+           "COUNT(DISTINCT CASE WHEN r.dueDate < :badDebtDate THEN r.financingId END), " +
+           "COALESCE(SUM(CASE WHEN r.dueDate < :badDebtDate THEN r.principal + r.interest ELSE 0 END), 0) " +
+           "FROM RepaymentSchedule r WHERE r.status = 'OVERDUE' " +
+           "OR (r.status = 'PENDING' AND r.dueDate < :date)")
+    List<Object[]> summarizeOverdue(@Param("date") LocalDate date,
+                                    @Param("badDebtDate") LocalDate badDebtDate);
+    
+    /**
+     * 汇总融资尚未还清的逾期计划上已计提的罚息
+     */
+    @Query("SELECT COALESCE(SUM(r.accruedPenalty), 0) FROM RepaymentSchedule r " +
+           "WHERE r.financingId = :financingId AND r.status = 'OVERDUE'")
+    BigDecimal sumOverduePenalty(@Param("financingId") String financingId);
+    
+    /**
+     * 批量查询多笔融资的待还、逾期还款计划
+     */
+    @Query("SELECT r FROM RepaymentSchedule r WHERE r.financingId IN :financingIds " +
+           "AND r.status IN ('PENDING', 'OVERDUE')")
+    List<RepaymentSchedule> findOutstandingByFinancingIdIn(@Param("financingIds") Collection<String> financingIds);
     
     /**
      * 查询指定日期范围内到期的还款计划
@@ -39,5 +88,18 @@ public interface RepaymentScheduleRepository extends JpaRepository<RepaymentSche
            "AND r.dueDate <= :endDate AND r.status = 'PENDING'")
     List<RepaymentSchedule> findUpcomingSchedules(@Param("startDate") LocalDate startDate,
                                                     @Param("endDate") LocalDate endDate);
-}
 
+    /**
+     * 按农户汇总全部贷款的还款行为（已到期期次为已还或逾期的期次，按时指还款日不晚于到期日）：
+     * [农户ID, 已到期期次数, 按时还款期次数, 最早逾期到期日, 未还本息, 逾期本息]
+     */
+    @Query(value = "SELECT a.farmer_id, " +
+           "SUM(CASE WHEN s.status IN ('PAID', 'OVERDUE') THEN 1 ELSE 0 END), " +
+           "SUM(CASE WHEN s.status = 'PAID' AND CAST(s.paid_at AS DATE) <= s.due_date THEN 1 ELSE 0 END), " +
+           "MIN(CASE WHEN s.status = 'OVERDUE' THEN s.due_date END), " +
+           "COALESCE(SUM(CASE WHEN s.status <> 'PAID' THEN s.total_amount END), 0), " +
+           "COALESCE(SUM(CASE WHEN s.status = 'OVERDUE' THEN s.total_amount END), 0) " +
+           "FROM financing_applications a JOIN repayment_schedules s ON s.financing_id = a.id " +
+           "WHERE a.farmer_id IN (:farmerIds) GROUP BY a.farmer_id", nativeQuery = true)
+    List<Object[]> summarizeBehaviorByFarmerIdIn(@Param("farmerIds") Collection<String> farmerIds);
+}
@@ -0,0 +1,222 @@
+package com.agriverse.finance.service;
+
+import com.agriverse.finance.entity.FinancingApplication.RepaymentMethod;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 还款计划计算引擎
+ * 全部以分为单位用整数计算：月利率表示为有理数 年利率/1200，每期利息 = 剩余本金 × 月利率 四舍五入到分；
+ * 等额本息的每期还款额由 (1+r)^n 的精确有理数计算后四舍五入到分，不经过浮点数，同样的输入在任何机器上结果一致。
+ * 各期本金之和恒等于贷款本金，舍入差额由最后一期承担
+ */
+public final class AmortizationEngine {
+
+    /**
+     * 年利率（%）保留的最大小数位数
+     */
+    private static final int RATE_SCALE = 4;
+
+    private AmortizationEngine() {
+    }
+
+    /**
+     * 贷款条件
+     *
+     * @param principalCents    贷款本金（分）
+     * @param annualRatePercent 年利率（%），如 5.5 表示 5.5%
+     * @param termMonths        期数（月）
+     * @param method            还款方式
+     * @param startDate         起息日，第 i 期到期日为起息日后 i 个月
+     * @param harvestMonths     收获月份，仅按季节还款时使用：到期月份属于其中的各期偿还本金
+     */
+    public record LoanTerms(long principalCents, BigDecimal annualRatePercent, int termMonths,
+                            RepaymentMethod method, LocalDate startDate, Set<Month> harvestMonths) {
+
+        public LoanTerms {
+            if (principalCents <= 0) {
+                throw new IllegalArgumentException("贷款本金必须大于0");
+            }
+            if (termMonths <= 0) {
+                throw new IllegalArgumentException("期数必须大于0");
+            }
+            if (annualRatePercent == null || annualRatePercent.signum() < 0) {
+                throw new IllegalArgumentException("年利率不能为负");
+            }
+            if (method == null) {
+                method = RepaymentMethod.EQUAL_INSTALLMENT;
+            }
+            harvestMonths = harvestMonths == null ? Set.of() : Set.copyOf(harvestMonths);
+        }
+    }
+
+    /**
+     * 一期还款
+     *
+     * @param number         期次，从1开始
+     * @param dueDate        到期日
+     * @param principalCents 应还本金（分）
+     * @param interestCents  应还利息（分）
+     */
+    public record Installment(int number, LocalDate dueDate, long principalCents, long interestCents) {
+
+        public long totalCents() {
+            return principalCents + interestCents;
+        }
+    }
+
+    /**
+     * 计算还款计划
+     */
+    public static List<Installment> schedule(LoanTerms terms) {
+        MonthlyRate rate = MonthlyRate.of(terms.annualRatePercent());
+        return switch (terms.method()) {
+            case EQUAL_INSTALLMENT -> rate.isZero()
+                ? principalPlan(terms, rate, allInstallments(terms.termMonths()))
+                : equalInstallment(terms, rate, payment(terms.principalCents(), rate, terms.termMonths()));
+            case EQUAL_PRINCIPAL -> principalPlan(terms, rate, allInstallments(terms.termMonths()));
+            case BULLET -> principalPlan(terms, rate, lastInstallmentOnly(terms.termMonths()));
+            case SEASONAL -> principalPlan(terms, rate, harvestInstallments(terms));
+        };
+    }
+
+    /**
+     * 等额本息每期还款额（分）：L·r·(1+r)^n / ((1+r)^n − 1)，r = u/D 时即 L·u·(D+u)^n / (D·((D+u)^n − D^n))
+     */
+    public static long equalInstallmentPayment(long principalCents, BigDecimal annualRatePercent, int termMonths) {
+        return payment(principalCents, MonthlyRate.of(annualRatePercent), termMonths);
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long payment(long principalCents, MonthlyRate rate, int termMonths) {
+        if (rate.isZero()) {
+            return divideHalfUp(BigInteger.valueOf(principalCents), BigInteger.valueOf(termMonths));
+        }
+        BigInteger d = BigInteger.valueOf(rate.denominator);
+        BigInteger u = BigInteger.valueOf(rate.numerator);
+        BigInteger growth = d.add(u).pow(termMonths);
+        BigInteger numerator = BigInteger.valueOf(principalCents).multiply(u).multiply(growth);
+        BigInteger denominator = d.multiply(growth.subtract(d.pow(termMonths)));
+        return divideHalfUp(numerator, denominator);
+    }
+
+    private static List<Installment> equalInstallment(LoanTerms terms, MonthlyRate rate, long payment) {
+        int n = terms.termMonths();
+        List<Installment> installments = new ArrayList<>(n);
+        long remaining = terms.principalCents();
+        for (int i = 1; i <= n; i++) {
+            long interest = rate.interest(remaining);
+            // 末期结清剩余本金；舍入使本金超过剩余时以剩余为准
+            long principal = i == n ? remaining : Math.min(payment - interest, remaining);
+            installments.add(new Installment(i, terms.startDate().plusMonths(i), principal, interest));
+            remaining -= principal;
+        }
+        return installments;
+    }
+
+    /**
+     * 本金在指定期次间平均分摊（向下取整到分，末期承担差额），利息按每期剩余本金计算
+     *
+     * @param principalInstallments 各期是否偿还本金，末期总是偿还
+     */
+    private static List<Installment> principalPlan(LoanTerms terms, MonthlyRate rate, boolean[] principalInstallments) {
+        int n = terms.termMonths();
+        int count = 0;
+        for (int i = 1; i <= n; i++) {
+            if (principalInstallments[i]) {
+                count++;
+            }
+        }
+        long share = terms.principalCents() / count;
+        List<Installment> installments = new ArrayList<>(n);
+        long remaining = terms.principalCents();
+        for (int i = 1; i <= n; i++) {
+            long interest = rate.interest(remaining);
+            long principal = i == n ? remaining : principalInstallments[i] ? share : 0L;
+            installments.add(new Installment(i, terms.startDate().plusMonths(i), principal, interest));
+            remaining -= principal;
+        }
+        return installments;
+    }
+
+    private static boolean[] allInstallments(int n) {
+        boolean[] result = new boolean[n + 1];
+        Arrays.fill(result, 1, n + 1, true);
+        return result;
+    }
+
+    private static boolean[] lastInstallmentOnly(int n) {
+        boolean[] result = new boolean[n + 1];
+        result[n] = true;
+        return result;
+    }
+
+    /**
+     * 到期月份为收获月的各期及末期偿还本金；期限内没有收获月时等同于到期还本
+     */
+    private static boolean[] harvestInstallments(LoanTerms terms) {
+        int n = terms.termMonths();
+        boolean[] result = new boolean[n + 1];
+        for (int i = 1; i < n; i++) {
+            result[i] = terms.harvestMonths().contains(terms.startDate().plusMonths(i).getMonth());
+        }
+        result[n] = true;
+        return result;
+    }
+
+    private static long divideHalfUp(BigInteger numerator, BigInteger denominator) {
+        BigInteger[] qr = numerator.divideAndRemainder(denominator);
+        long quotient = qr[0].longValueExact();
+        return qr[1].shiftLeft(1).compareTo(denominator) >= 0 ? quotient + 1 : quotient;
+    }
+
+    /**
+     * 月利率 = numerator / denominator（年利率% / 1200 的最简分数，如 5.5% 为 11/2400）
+     */
+    private record MonthlyRate(long numerator, long denominator) {
+
+        static MonthlyRate of(BigDecimal annualRatePercent) {
+            long numerator = annualRatePercent.setScale(RATE_SCALE, RoundingMode.HALF_UP)
+                .unscaledValue().longValueExact();
+            long denominator = 1200L * 10_000L;
+            long gcd = BigInteger.valueOf(numerator).gcd(BigInteger.valueOf(denominator)).longValueExact();
+            return new MonthlyRate(numerator / gcd, denominator / gcd);
+        }
+
+        boolean isZero() {
+            return numerator == 0;
+        }
+
+        /**
+         * 剩余本金一期的利息（分，四舍五入）
+         */
+        long interest(long remainingCents) {
+            if (numerator == 0 || remainingCents == 0) {
+                return 0;
+            }
+            long high = Math.multiplyHigh(remainingCents, numerator);
+            long product = remainingCents * numerator;
+            if (high != 0 || product < 0) {
+                return divideHalfUp(BigInteger.valueOf(remainingCents).multiply(BigInteger.valueOf(numerator)),
+                    BigInteger.valueOf(denominator));
+            }
+            long quotient = product / denominator;
+            return (product % denominator) * 2 >= denominator ? quotient + 1 : quotient;
+        }
+    }
+}
@@ -60,7 +60,9 @@ public class ContractService {
             .purpose(application.getPurpose())
             .startDate(LocalDate.now())
             .endDate(LocalDate.now().plusMonths(application.getTermMonths()))
-            .repaymentMethod("等额本息")
+            .repaymentMethod(application.getRepaymentMethod() != null ?
+                application.getRepaymentMethod().getDisplayName() :
+                FinancingApplication.RepaymentMethod.EQUAL_INSTALLMENT.getDisplayName())
             .status(Contract.ContractStatus.DRAFT)
             .build();
         
@@ -9,17 +9,22 @@ import com.agriverse.finance.entity.FinancingTimeline;
 import com.agriverse.finance.entity.RepaymentSchedule;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.FinancingTimelineRepository;
-import com.agriverse.finance.repository.RepaymentScheduleRepository;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * 融资申请服务
@@ -28,10 +33,22 @@ import java.util.List;
 @RequiredArgsConstructor
 @Transactional
 public class FinancingApplicationService {
+    private static final BigDecimal DEFAULT_RATE = BigDecimal.valueOf(5.5); // 默认年利率5.5%
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String INSERT_SCHEDULE_SQL = "INSERT INTO repayment_schedules (id, financing_id, " +
+        "installment_number, due_date, principal, interest, total_amount, status, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
     private final FinancingApplicationRepository applicationRepository;
     private final FinancingTimelineRepository timelineRepository;
     private final LoanProductRepository productRepository;
-    private final RepaymentScheduleRepository scheduleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * 按季节还款时的收获月份
+     */
+    @Value("${app.amortization.harvest-months:7,10}")
+    private List<Integer> harvestMonths;
     
     /**
      * 创建融资申请
@@ -59,6 +76,7 @@ public class FinancingApplicationService {
             .amount(request.getAmount())
             .termMonths(request.getTermMonths())
             .purpose(request.getPurpose())
+            .repaymentMethod(parseRepaymentMethod(request.getRepaymentMethod()))
             .status(FinancingApplication.FinancingStatus.APPLIED)
             .build();
         
@@ -111,54 +129,73 @@ public class FinancingApplicationService {
     }
     
     /**
-     * 生成还款计划（等额本息）
+     * 生成还款计划，按申请的还款方式计算
      */
     public List<RepaymentSchedule> generateRepaymentSchedule(FinancingApplication application) {
-        BigDecimal amount = application.getAmount();
-        BigDecimal rate = application.getInterestRate() != null ? 
-            application.getInterestRate().divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP) :
-            BigDecimal.valueOf(0.055); // 默认5.5%
-        int termMonths = application.getTermMonths();
-        
-        // 等额本息计算公式：每月还款额 = [贷款本金×月利率×(1+月利率)^还款月数]÷[(1+月利率)^还款月数－1]
-        BigDecimal monthlyRate = rate.divide(BigDecimal.valueOf(12), 6, RoundingMode.HALF_UP);
-        double powValue = Math.pow(monthlyRate.add(BigDecimal.ONE).doubleValue(), termMonths);
-        BigDecimal pow = BigDecimal.valueOf(powValue);
-        BigDecimal monthlyPayment = amount.multiply(monthlyRate).multiply(pow)
-            .divide(pow.subtract(BigDecimal.ONE), 2, RoundingMode.HALF_UP);
-        
-        List<RepaymentSchedule> schedules = new ArrayList<>();
-        BigDecimal remainingPrincipal = amount;
+        return generateRepaymentSchedules(List.of(application));
+    }
+    
+    /**
+     * 批量生成还款计划
+     * 计算由 AmortizationEngine 以分为单位完成，所有贷款的各期计划通过 JDBC 批量插入，不逐条经过持久化上下文
+     */
+    public List<RepaymentSchedule> generateRepaymentSchedules(List<FinancingApplication> applications) {
         LocalDate startDate = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        Set<Month> harvest = harvestMonths.stream().map(Month::of).collect(Collectors.toSet());
         
-        for (int i = 1; i <= termMonths; i++) {
-            RepaymentSchedule schedule = RepaymentSchedule.builder()
-                .financingId(application.getId())
-                .installmentNumber(i)
-                .dueDate(startDate.plusMonths(i))
-                .status(RepaymentSchedule.ScheduleStatus.PENDING)
-                .build();
-            
-            // 计算利息
-            BigDecimal interest = remainingPrincipal.multiply(monthlyRate)
-                .setScale(2, RoundingMode.HALF_UP);
-            
-            // 计算本金
-            BigDecimal principal = monthlyPayment.subtract(interest);
-            if (i == termMonths) {
-                // 最后一期，本金 = 剩余本金
-                principal = remainingPrincipal;
+        List<RepaymentSchedule> schedules = new ArrayList<>();
+        for (FinancingApplication application : applications) {
+            AmortizationEngine.LoanTerms terms = new AmortizationEngine.LoanTerms(
+                AmortizationEngine.toCents(application.getAmount()),
+                application.getInterestRate() != null ? application.getInterestRate() : DEFAULT_RATE,
+                application.getTermMonths(),
+                application.getRepaymentMethod(),
+                startDate,
+                harvest);
+            for (AmortizationEngine.Installment installment : AmortizationEngine.schedule(terms)) {
+                schedules.add(RepaymentSchedule.builder()
+                    .id(UUID.randomUUID().toString())
+                    .financingId(application.getId())
+                    .installmentNumber(installment.number())
+                    .dueDate(installment.dueDate())
+                    .principal(AmortizationEngine.fromCents(installment.principalCents()))
+                    .interest(AmortizationEngine.fromCents(installment.interestCents()))
+                    .totalAmount(AmortizationEngine.fromCents(installment.totalCents()))
+                    .status(RepaymentSchedule.ScheduleStatus.PENDING)
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
             }
-            
-            schedule.setPrincipal(principal);
-            schedule.setInterest(interest);
-            schedule.setTotalAmount(monthlyPayment);
-            
-            remainingPrincipal = remainingPrincipal.subtract(principal);
-            schedules.add(schedule);
         }
         
-        return scheduleRepository.saveAll(schedules);
+        jdbcTemplate.batchUpdate(INSERT_SCHEDULE_SQL, schedules, INSERT_BATCH_SIZE, (ps, schedule) -> {
+            ps.setString(1, schedule.getId());
+            ps.setString(2, schedule.getFinancingId());
+            ps.setInt(3, schedule.getInstallmentNumber());
+            ps.setObject(4, schedule.getDueDate());
+            ps.setBigDecimal(5, schedule.getPrincipal());
+            ps.setBigDecimal(6, schedule.getInterest());
+            ps.setBigDecimal(7, schedule.getTotalAmount());
+            ps.setString(8, schedule.getStatus().name());
+            ps.setObject(9, schedule.getCreatedAt());
+            ps.setObject(10, schedule.getUpdatedAt());
+        });
+        return schedules;
+    }
+    
+    /**
+     * 解析还款方式，为空时使用等额本息
+     */
+    public static FinancingApplication.RepaymentMethod parseRepaymentMethod(String method) {
+        if (method == null || method.isBlank()) {
+            return FinancingApplication.RepaymentMethod.EQUAL_INSTALLMENT;
+        }
+        try {
+            return FinancingApplication.RepaymentMethod.valueOf(method.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("INVALID_REPAYMENT_METHOD", "不支持的还款方式: " + method);
+        }
     }
     
     /**
@@ -0,0 +1,275 @@
+package com.agriverse.finance.service;
+
+import com.agriverse.bank.service.BankSystemConfigService;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.finance.entity.LoanAccrual;
+import com.agriverse.finance.entity.LoanAccrualBalance;
+import com.agriverse.finance.repository.LoanAccrualBalanceRepository;
+import com.agriverse.finance.repository.LoanAccrualRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 每日计息服务
+ * 需要计息的还款计划按ID升序分块，每块在独立事务内计算当日新增的应计利息和罚息，批量写入只增不改的计息流水，
+ * 同时累加还款计划上的已计金额和融资维度的计息余额；罚息查询、对账只读余额表
+ * <p>
+ * 利息按期内已过天数比例确认（累计值向下取整到分，逐日增量之和恰为该期利息），逾期或已还的计划确认全部利息；
+ * 罚息 = 逾期金额 × 日利率 × 新增逾期天数，漏跑的日期在下次执行时一并补记。重复执行同一日期不会重复记账，
+ * 补跑早于已计息日期的日期时只记尚未确认的增量，不会写入负数流水或回退余额
+ */
+@Slf4j
+@Service
+public class LoanAccrualService {
+    /**
+     * 罚息日利率配置项
+     */
+    public static final String PENALTY_RATE_KEY = "penalty.daily-rate";
+
+    /**
+     * 计息日期不合法（晚于今天）的业务错误码
+     */
+    public static final String INVALID_ACCRUAL_DATE = "INVALID_ACCRUAL_DATE";
+
+    private static final String SELECT_CHUNK_SQL = "SELECT id, financing_id, due_date, principal, interest, status, " +
+            "accrued_interest, penalty_days FROM repayment_schedules WHERE id > ? AND (status = 'OVERDUE' " +
+            "OR (status IN ('PENDING', 'PAID') AND accrued_interest < interest AND due_date < ?)) " +
+            "ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String INSERT_ACCRUAL_SQL = "INSERT INTO loan_accruals (id, financing_id, schedule_id, " +
+            "accrual_date, accrual_type, amount, accrual_days, rate, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SCHEDULE_SQL = "UPDATE repayment_schedules SET " +
+            "accrued_interest = accrued_interest + ?, accrued_penalty = accrued_penalty + ?, penalty_days = ? " +
+            "WHERE id = ?";
+
+    private static final String UPSERT_BALANCE_SQL = "INSERT INTO loan_accrual_balances (financing_id, " +
+            "accrued_interest, accrued_penalty, last_accrual_date, updated_at) VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE accrued_interest = accrued_interest + ?, " +
+            "accrued_penalty = accrued_penalty + ?, last_accrual_date = GREATEST(last_accrual_date, ?), " +
+            "updated_at = ?";
+
+    private final LoanAccrualRepository accrualRepository;
+    private final LoanAccrualBalanceRepository balanceRepository;
+    private final BankSystemConfigService configService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.accrual.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * 银行系统配置中未设置罚息日利率时使用
+     */
+    @Value("${app.accrual.penalty-daily-rate:0.0005}")
+    private double defaultPenaltyRate;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:20}")
+    private int batchSize;
+
+    public LoanAccrualService(LoanAccrualRepository accrualRepository,
+                              LoanAccrualBalanceRepository balanceRepository,
+                              BankSystemConfigService configService,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager) {
+        this.accrualRepository = accrualRepository;
+        this.balanceRepository = balanceRepository;
+        this.configService = configService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 每日计息（凌晨2点15分，在逾期状态更新之后执行）
+     */
+    @Scheduled(cron = "0 15 2 * * ?")
+    public void accrueDaily() {
+        log.info("开始每日计息");
+        int posted = accrue(LocalDate.now());
+        log.info("每日计息完成，共记 {} 笔计息流水", posted);
+    }
+
+    /**
+     * 计息至指定日期（含），不允许晚于今天（提前计息会写入尚未发生的利息和罚息，之后的正常计息也无法冲回）
+     *
+     * @return 写入的计息流水笔数
+     */
+    public int accrue(LocalDate date) {
+        if (date.isAfter(LocalDate.now())) {
+            throw new BusinessException(INVALID_ACCRUAL_DATE, "计息日期不能晚于今天");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("ACCRUAL_RUNNING", "计息任务正在进行中");
+        }
+        long start = System.currentTimeMillis();
+        BigDecimal penaltyRate = BigDecimal.valueOf(configService.getDouble(PENALTY_RATE_KEY, defaultPenaltyRate));
+        int scanned = 0;
+        int posted = 0;
+        try {
+            String afterId = "";
+            while (true) {
+                String from = afterId;
+                Chunk chunk = transactionTemplate.execute(status -> accrueChunk(date, penaltyRate, from));
+                scanned += chunk.scanned();
+                posted += chunk.posted();
+                if (chunk.scanned() < chunkSize) {
+                    break;
+                }
+                afterId = chunk.lastId();
+            }
+        } finally {
+            running.set(false);
+        }
+        log.info("计息完成: date={}, schedules={}, accruals={}, elapsed={}ms",
+                date, scanned, posted, System.currentTimeMillis() - start);
+        return posted;
+    }
+
+    /**
+     * 获取融资计息余额，尚未计息时各项为零
+     */
+    public LoanAccrualBalance getBalance(String financingId) {
+        return balanceRepository.findById(financingId)
+                .orElseGet(() -> LoanAccrualBalance.builder().financingId(financingId).build());
+    }
+
+    /**
+     * 批量获取融资计息余额，尚未计息的融资不在结果中
+     */
+    public Map<String, LoanAccrualBalance> getBalances(Collection<String> financingIds) {
+        return balanceRepository.findAllById(financingIds).stream()
+                .collect(Collectors.toMap(LoanAccrualBalance::getFinancingId, Function.identity()));
+    }
+
+    /**
+     * 获取融资累计逾期罚息
+     */
+    public BigDecimal getAccruedPenalty(String financingId) {
+        return getBalance(financingId).getAccruedPenalty();
+    }
+
+    /**
+     * 获取融资的计息流水（按计息日升序）
+     */
+    public List<LoanAccrual> getAccruals(String financingId) {
+        return accrualRepository.findByFinancingIdOrderByAccrualDateAscScheduleIdAsc(financingId);
+    }
+
+    /**
+     * 锁定下一块需要计息的还款计划，计算增量并批量写入
+     */
+    private Chunk accrueChunk(LocalDate date, BigDecimal penaltyRate, String afterId) {
+        // 当期尚未开始计息（到期日在一个月之后）的待还计划不参与
+        LocalDate horizon = date.plusMonths(1).plusDays(1);
+        List<Row> rows = jdbcTemplate.query(SELECT_CHUNK_SQL,
+                (rs, i) -> new Row(rs.getString(1), rs.getString(2), rs.getObject(3, LocalDate.class),
+                        rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getString(6), rs.getBigDecimal(7),
+                        rs.getInt(8)),
+                afterId, horizon, chunkSize);
+        if (rows.isEmpty()) {
+            return new Chunk(0, 0, afterId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> accruals = new ArrayList<>();
+        List<Object[]> scheduleUpdates = new ArrayList<>();
+        Map<String, BigDecimal[]> balanceDeltas = new LinkedHashMap<>();
+        for (Row row : rows) {
+            // 补跑更早的日期时目标值可能低于已计金额，已确认的利息不冲回
+            BigDecimal interest = interestTarget(row, date).subtract(row.accruedInterest()).max(BigDecimal.ZERO);
+            BigDecimal penalty = BigDecimal.ZERO;
+            int penaltyDays = row.penaltyDays();
+            if ("OVERDUE".equals(row.status())) {
+                int overdueDays = (int) Math.max(0, ChronoUnit.DAYS.between(row.dueDate(), date));
+                int newDays = overdueDays - penaltyDays;
+                if (newDays > 0) {
+                    penalty = row.principal().add(row.interest()).multiply(penaltyRate)
+                            .multiply(BigDecimal.valueOf(newDays)).setScale(2, RoundingMode.HALF_UP);
+                    penaltyDays = overdueDays;
+                    if (penalty.signum() != 0) {
+                        accruals.add(new Object[]{UUID.randomUUID().toString(), row.financingId(), row.id(), date,
+                                LoanAccrual.AccrualType.PENALTY.name(), penalty, newDays, penaltyRate, now});
+                    }
+                }
+            }
+            if (interest.signum() != 0) {
+                accruals.add(new Object[]{UUID.randomUUID().toString(), row.financingId(), row.id(), date,
+                        LoanAccrual.AccrualType.INTEREST.name(), interest, null, null, now});
+            }
+            if (interest.signum() != 0 || penalty.signum() != 0 || penaltyDays != row.penaltyDays()) {
+                scheduleUpdates.add(new Object[]{interest, penalty, penaltyDays, row.id()});
+                BigDecimal[] delta = balanceDeltas.computeIfAbsent(row.financingId(),
+                        id -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                delta[0] = delta[0].add(interest);
+                delta[1] = delta[1].add(penalty);
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ACCRUAL_SQL, accruals, batchSize, (ps, a) -> {
+            for (int i = 0; i < a.length; i++) {
+                ps.setObject(i + 1, a[i]);
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_SCHEDULE_SQL, scheduleUpdates, batchSize, (ps, u) -> {
+            ps.setBigDecimal(1, (BigDecimal) u[0]);
+            ps.setBigDecimal(2, (BigDecimal) u[1]);
+            ps.setInt(3, (Integer) u[2]);
+            ps.setString(4, (String) u[3]);
+        });
+        jdbcTemplate.batchUpdate(UPSERT_BALANCE_SQL, new ArrayList<>(balanceDeltas.entrySet()), batchSize,
+                (ps, e) -> {
+                    ps.setString(1, e.getKey());
+                    ps.setBigDecimal(2, e.getValue()[0]);
+                    ps.setBigDecimal(3, e.getValue()[1]);
+                    ps.setObject(4, date);
+                    ps.setObject(5, now);
+                    ps.setBigDecimal(6, e.getValue()[0]);
+                    ps.setBigDecimal(7, e.getValue()[1]);
+                    ps.setObject(8, date);
+                    ps.setObject(9, now);
+                });
+        return new Chunk(rows.size(), accruals.size(), rows.get(rows.size() - 1).id());
+    }
+
+    /**
+     * 截至计息日应确认的累计利息：期内按已过天数比例（向下取整到分），到期、逾期或已还时为全部利息
+     */
+    private static BigDecimal interestTarget(Row row, LocalDate date) {
+        if (!"PENDING".equals(row.status()) || !date.isBefore(row.dueDate())) {
+            return row.interest();
+        }
+        LocalDate periodStart = row.dueDate().minusMonths(1);
+        long periodDays = ChronoUnit.DAYS.between(periodStart, row.dueDate());
+        long elapsed = Math.max(0, ChronoUnit.DAYS.between(periodStart, date));
+        return row.interest().multiply(BigDecimal.valueOf(elapsed))
+                .divide(BigDecimal.valueOf(periodDays), 2, RoundingMode.DOWN);
+    }
+
+    private record Row(String id, String financingId, LocalDate dueDate, BigDecimal principal, BigDecimal interest,
+               String status, BigDecimal accruedInterest, int penaltyDays) {
+    }
+
+    private record Chunk(int scanned, int posted, String lastId) {
+    }
+}
@@ -1,69 +1,170 @@
 package com.agriverse.finance.service;
 
-import com.agriverse.finance.entity.RepaymentSchedule;
-import com.agriverse.finance.repository.RepaymentScheduleRepository;
-import lombok.RequiredArgsConstructor;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.finance.event.LoanOverdueEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 逾期管理服务
+ * 到期未还的还款计划按ID升序分块，每块一条 UPDATE 批量转为逾期（各块独立事务，锁持有时间有界），
+ * 全部完成后按融资汇总发布 {@link LoanOverdueEvent}。事件在一个独立事务中发布，
+ * 各监听器在该事务提交后分别以自己的新事务执行，一个监听器失败不影响其他监听器
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class OverdueService {
-    private final RepaymentScheduleRepository scheduleRepository;
-    
+    private static final String SELECT_CHUNK_SQL = "SELECT id, financing_id, due_date, principal + interest " +
+            "FROM repayment_schedules WHERE status = 'PENDING' AND due_date < ? AND id > ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE";
+
+    private static final String UPDATE_CHUNK_SQL = "UPDATE repayment_schedules SET status = 'OVERDUE', " +
+            "updated_at = ? WHERE status = 'PENDING' AND due_date < ? AND id > ? AND id <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter transitionedCounter;
+    private final Timer runTimer;
+
+    @Value("${app.overdue.chunk-size:5000}")
+    private int chunkSize;
+
+    private volatile double lastRowsPerSecond;
+
+    public OverdueService(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventPublisher,
+                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.transitionedCounter = Counter.builder("repayment.overdue.transitioned")
+                .description("转为逾期的还款计划数")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("repayment.overdue.run")
+                .description("逾期检测耗时")
+                .register(meterRegistry);
+        Gauge.builder("repayment.overdue.rows_per_second", this, s -> s.lastRowsPerSecond)
+                .description("最近一次逾期检测的每秒更新行数")
+                .register(meterRegistry);
+    }
+
     /**
      * 检测并更新逾期状态
      * 每天凌晨2点执行
      */
     @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
     public void checkAndUpdateOverdue() {
         log.info("开始检测逾期还款计划");
-        
-        LocalDate today = LocalDate.now();
-        List<RepaymentSchedule> overdueSchedules = scheduleRepository.findOverdueSchedules(today);
-        
-        int count = 0;
-        for (RepaymentSchedule schedule : overdueSchedules) {
-            if (schedule.getStatus() == RepaymentSchedule.ScheduleStatus.PENDING) {
-                schedule.setStatus(RepaymentSchedule.ScheduleStatus.OVERDUE);
-                scheduleRepository.save(schedule);
-                count++;
-            }
-        }
-        
+        int count = transitionOverdue(LocalDate.now());
         log.info("逾期检测完成，共更新 {} 条逾期记录", count);
     }
-    
+
     /**
      * 手动触发逾期检测
      */
-    @Transactional
     public int checkOverdueManually() {
-        LocalDate today = LocalDate.now();
-        List<RepaymentSchedule> overdueSchedules = scheduleRepository.findOverdueSchedules(today);
-        
-        int count = 0;
-        for (RepaymentSchedule schedule : overdueSchedules) {
-            if (schedule.getStatus() == RepaymentSchedule.ScheduleStatus.PENDING) {
-                schedule.setStatus(RepaymentSchedule.ScheduleStatus.OVERDUE);
-                scheduleRepository.save(schedule);
-                count++;
+        return transitionOverdue(LocalDate.now());
+    }
+
+    /**
+     * 将到期日早于 today 的待还计划转为逾期
+     *
+     * @return 转为逾期的还款计划数
+     */
+    public int transitionOverdue(LocalDate today) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("OVERDUE_CHECK_RUNNING", "逾期检测正在进行中");
+        }
+        long start = System.nanoTime();
+        Map<String, LoanOverdueEvent.OverdueLoan> loans = new LinkedHashMap<>();
+        int total = 0;
+        try {
+            String afterId = "";
+            while (true) {
+                String from = afterId;
+                Chunk chunk = transactionTemplate.execute(status -> transitionChunk(today, from));
+                if (chunk.rows().isEmpty()) {
+                    break;
+                }
+                total += chunk.updated();
+                chunk.rows().forEach(row -> loans.merge(row.financingId(),
+                        new LoanOverdueEvent.OverdueLoan(row.financingId(), row.amount(), row.dueDate(), 1),
+                        OverdueService::merge));
+                afterId = chunk.lastId();
+                if (chunk.rows().size() < chunkSize) {
+                    break;
+                }
+            }
+        } finally {
+            running.set(false);
+            long elapsed = System.nanoTime() - start;
+            runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            transitionedCounter.increment(total);
+            lastRowsPerSecond = elapsed > 0 ? total * 1e9 / elapsed : 0;
+            log.info("逾期状态批量更新: rows={}, loans={}, elapsed={}ms, rows/s={}",
+                    total, loans.size(), TimeUnit.NANOSECONDS.toMillis(elapsed), Math.round(lastRowsPerSecond));
+        }
+
+        if (!loans.isEmpty()) {
+            LoanOverdueEvent event = new LoanOverdueEvent(today, new ArrayList<>(loans.values()));
+            try {
+                transactionTemplate.executeWithoutResult(status -> eventPublisher.publishEvent(event));
+            } catch (RuntimeException e) {
+                log.error("逾期事件处理失败: loans={}", loans.size(), e);
             }
         }
-        
-        return count;
+        return total;
+    }
+
+    /**
+     * 锁定下一块到期未还的计划并在同一ID范围内批量更新
+     */
+    private Chunk transitionChunk(LocalDate today, String afterId) {
+        List<Row> rows = jdbcTemplate.query(SELECT_CHUNK_SQL,
+                (rs, i) -> new Row(rs.getString(1), rs.getString(2), rs.getObject(3, LocalDate.class),
+                        rs.getBigDecimal(4)),
+                today, afterId, chunkSize);
+        if (rows.isEmpty()) {
+            return new Chunk(rows, 0, afterId);
+        }
+        String lastId = rows.get(rows.size() - 1).id();
+        int updated = jdbcTemplate.update(UPDATE_CHUNK_SQL, LocalDateTime.now(), today, afterId, lastId);
+        return new Chunk(rows, updated, lastId);
     }
-}
 
+    private static LoanOverdueEvent.OverdueLoan merge(LoanOverdueEvent.OverdueLoan a, LoanOverdueEvent.OverdueLoan b) {
+        return new LoanOverdueEvent.OverdueLoan(a.financingId(),
+                a.overdueAmount().add(b.overdueAmount()),
+                a.earliestDueDate().isBefore(b.earliestDueDate()) ? a.earliestDueDate() : b.earliestDueDate(),
+                a.scheduleCount() + b.scheduleCount());
+    }
 
+    private record Row(String id, String financingId, LocalDate dueDate, BigDecimal amount) {
+    }
 
+    private record Chunk(List<Row> rows, int updated, String lastId) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.agriverse.finance.service;
 
+import com.agriverse.finance.entity.FinancingApplication;
 import com.agriverse.finance.entity.RepaymentSchedule;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
@@ -12,6 +13,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * 还款提醒服务
@@ -39,27 +42,29 @@ public class RepaymentReminderService {
         List<RepaymentSchedule> upcomingSchedules = scheduleRepository
             .findUpcomingSchedules(today, reminderEndDate);
         
+        // 一次查出涉及的融资申请，避免逐条查询
+        Map<String, String> farmerIds = applicationRepository.findAllById(
+                upcomingSchedules.stream().map(RepaymentSchedule::getFinancingId).distinct().toList())
+            .stream()
+            .collect(Collectors.toMap(FinancingApplication::getId, FinancingApplication::getFarmerId));
+        
         int count = 0;
         for (RepaymentSchedule schedule : upcomingSchedules) {
-            try {
-                var application = applicationRepository.findById(schedule.getFinancingId())
-                    .orElse(null);
-                
-                if (application != null) {
-                    notificationService.sendRepaymentReminder(
-                        application.getFarmerId(),
-                        schedule.getFinancingId(),
-                        schedule.getTotalAmount(),
-                        schedule.getDueDate()
-                    );
-                    count++;
-                }
-            } catch (Exception e) {
-                log.error("发送还款提醒失败: scheduleId={}, error={}", schedule.getId(), e.getMessage());
+            String farmerId = farmerIds.get(schedule.getFinancingId());
+            if (farmerId == null) {
+                log.warn("融资申请不存在: scheduleId={}, financingId={}", schedule.getId(), schedule.getFinancingId());
+                continue;
             }
+            notificationService.sendRepaymentReminder(
+                farmerId,
+                schedule.getFinancingId(),
+                schedule.getTotalAmount(),
+                schedule.getDueDate()
+            );
+            count++;
         }
         
-        log.info("还款提醒发送完成，共发送 {} 条", count);
+        log.info("还款提醒入队完成，共 {} 条", count);
     }
 }
 
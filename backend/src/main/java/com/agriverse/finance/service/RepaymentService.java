@@ -1,17 +1,20 @@
 package com.agriverse.finance.service;
 
+import com.agriverse.bank.service.BankRollupService;
 import com.agriverse.exception.BusinessException;
 import com.agriverse.finance.dto.EarlyRepaymentCalculateRequest;
 import com.agriverse.finance.dto.RepaymentRequest;
 import com.agriverse.finance.entity.FinancingApplication;
 import com.agriverse.finance.entity.RepaymentRecord;
 import com.agriverse.finance.entity.RepaymentSchedule;
+import com.agriverse.finance.event.LoanRepaidEvent;
 import com.agriverse.finance.repository.FinancingApplicationRepository;
 import com.agriverse.finance.repository.RepaymentRecordRepository;
 import com.agriverse.finance.repository.RepaymentScheduleRepository;
 import com.agriverse.notification.service.NotificationService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -31,6 +34,8 @@ public class RepaymentService {
     private final RepaymentScheduleRepository scheduleRepository;
     private final FinancingApplicationRepository applicationRepository;
     private final NotificationService notificationService;
+    private final BankRollupService bankRollupService;
+    private final ApplicationEventPublisher eventPublisher;
     
     /**
      * 正常还款
@@ -76,6 +81,7 @@ public class RepaymentService {
         boolean allPaid = allSchedules.stream()
             .allMatch(s -> s.getStatus() == RepaymentSchedule.ScheduleStatus.PAID);
         
+        boolean newlySettled = allPaid && application.getStatus() != FinancingApplication.FinancingStatus.SETTLED;
         if (allPaid) {
             application.setStatus(FinancingApplication.FinancingStatus.SETTLED);
             applicationRepository.save(application);
@@ -86,6 +92,12 @@ public class RepaymentService {
         
         RepaymentRecord saved = repaymentRecordRepository.save(record);
         
+        // 累加当日还款汇总
+        bankRollupService.recordRepayment(saved.getFinancingId(), saved.getPaidAt(), saved.getPrincipal(), newlySettled);
+        
+        // 逾期期次结清后由风险预警关闭逾期预警
+        eventPublisher.publishEvent(new LoanRepaidEvent(saved.getFinancingId(), saved.getScheduleId()));
+        
         // 发送还款成功通知（可选，这里暂时不发送，避免频繁通知）
         
         return saved;
@@ -0,0 +1,108 @@
+package com.agriverse.notification.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 通知出箱实体
+ * 业务方在自身事务内写入，提交后由派发器按渠道批量投递；站内信渠道的记录即用户收件箱
+ */
+@Entity
+@Table(name = "notification_outbox", indexes = {
+    @Index(name = "idx_notification_outbox_status_next", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_notification_outbox_user", columnList = "user_id, channel")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(name = "user_id", nullable = false, length = 36)
+    private String userId;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Channel channel;
+
+    @Column(nullable = false, length = 30)
+    @Enumerated(EnumType.STRING)
+    private NotificationType type;
+
+    /**
+     * 关联业务ID（融资申请ID、合同ID等）
+     */
+    @Column(name = "business_id", length = 36)
+    private String businessId;
+
+    @Column(nullable = false, length = 100)
+    private String title;
+
+    /**
+     * 内容（含审批意见等用户输入，不限长度，避免超长内容导致调用方事务回滚）
+     */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    /**
+     * 已尝试投递次数
+     */
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    /**
+     * 下次可投递时间（投递中时为租约到期时间）
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    /**
+     * 通知渠道枚举
+     */
+    public enum Channel {
+        IN_APP,     // 站内信
+        SMS,        // 短信
+        EMAIL       // 邮件
+    }
+
+    /**
+     * 通知类型枚举
+     */
+    public enum NotificationType {
+        APPROVAL,               // 审批结果
+        REPAYMENT_REMINDER,     // 还款提醒
+        OVERDUE_ALERT,          // 逾期提醒
+        CONTRACT_SIGN           // 合同签署提醒
+    }
+
+    /**
+     * 出箱状态枚举
+     */
+    public enum OutboxStatus {
+        PENDING,    // 待投递（含等待重试）
+        SENDING,    // 投递中
+        SENT,       // 已投递
+        SKIPPED,    // 无可用联系方式，未投递
+        FAILED      // 重试次数耗尽
+    }
+}
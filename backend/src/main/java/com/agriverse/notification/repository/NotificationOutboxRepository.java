@@ -0,0 +1,22 @@
+package com.agriverse.notification.repository;
+
+import com.agriverse.notification.entity.NotificationOutbox;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 通知出箱Repository
+ */
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, String> {
+    /**
+     * 查询用户某一渠道的通知（站内信收件箱）
+     */
+    Page<NotificationOutbox> findByUserIdAndChannelOrderByCreatedAtDesc(String userId,
+                                                                         NotificationOutbox.Channel channel,
+                                                                         Pageable pageable);
+
+    long countByStatus(NotificationOutbox.OutboxStatus status);
+}
@@ -0,0 +1,325 @@
+package com.agriverse.notification.service;
+
+import com.agriverse.auth.repository.UserRepository;
+import com.agriverse.auth.service.EmailService;
+import com.agriverse.auth.service.SmsService;
+import com.agriverse.entity.User;
+import com.agriverse.notification.entity.NotificationOutbox.Channel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 通知派发器
+ * 从出箱表认领一批到期通知（认领即写入租约，实例宕机后租约到期可被重新认领），批量解析接收人，
+ * 按渠道在虚拟线程上并发投递（每渠道并发数有上限），失败按指数退避重试，超过最大次数标记失败
+ */
+@Slf4j
+@Component
+public class NotificationDispatcher {
+    private static final String CLAIM_SQL = "SELECT id, user_id, channel, title, content, attempts " +
+            "FROM notification_outbox WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE";
+
+    private static final String LEASE_SQL = "UPDATE notification_outbox SET status = 'SENDING', " +
+            "next_attempt_at = ? WHERE id = ?";
+
+    private static final String SENT_SQL = "UPDATE notification_outbox SET status = 'SENT', " +
+            "attempts = attempts + 1, sent_at = ?, last_error = NULL WHERE id = ?";
+
+    private static final String SKIPPED_SQL = "UPDATE notification_outbox SET status = 'SKIPPED', " +
+            "last_error = ? WHERE id = ?";
+
+    private static final String RETRY_SQL = "UPDATE notification_outbox SET status = ?, attempts = ?, " +
+            "next_attempt_at = ?, last_error = ? WHERE id = ?";
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final EmailService emailService;
+    private final SmsService smsService;
+    private final MeterRegistry meterRegistry;
+    private final Timer batchTimer;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Channel, Semaphore> channelPermits = new EnumMap<>(Channel.class);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    @Value("${app.notification.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notification.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.notification.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.notification.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.notification.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    @Value("${app.notification.lease-seconds:300}")
+    private long leaseSeconds;
+
+    public NotificationDispatcher(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  UserRepository userRepository,
+                                  EmailService emailService,
+                                  SmsService smsService,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.notification.concurrency-per-channel:16}") int concurrency) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userRepository = userRepository;
+        this.emailService = emailService;
+        this.smsService = smsService;
+        this.meterRegistry = meterRegistry;
+        this.batchTimer = Timer.builder("notification.dispatch.batch")
+                .description("单批通知投递耗时")
+                .register(meterRegistry);
+        for (Channel channel : Channel.values()) {
+            channelPermits.put(channel, new Semaphore(concurrency));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 通知入队的事务提交后唤醒派发，多次唤醒合并为一次
+     */
+    public void wakeUp() {
+        if (enabled && wakeUpPending.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeUpPending.set(false);
+                dispatchPending();
+            });
+        }
+    }
+
+    /**
+     * 定时兜底：投递重试到期的通知及租约过期的通知
+     */
+    @Scheduled(fixedDelayString = "${app.notification.poll-interval-ms:2000}",
+            initialDelayString = "${app.notification.poll-interval-ms:2000}")
+    public void poll() {
+        if (enabled) {
+            dispatchPending();
+        }
+    }
+
+    /**
+     * 逐批认领并投递到期通知，直至无到期通知；已有派发在进行时直接返回
+     *
+     * @return 本次处理的通知数
+     */
+    public int dispatchPending() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        int total = 0;
+        try {
+            while (true) {
+                List<Message> batch = transactionTemplate.execute(status -> claim(LocalDateTime.now()));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batchTimer.record(() -> dispatch(batch));
+                total += batch.size();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("通知派发失败", e);
+        } finally {
+            running.set(false);
+        }
+        return total;
+    }
+
+    /**
+     * 锁定一批到期通知并写入租约
+     */
+    private List<Message> claim(LocalDateTime now) {
+        List<Message> batch = jdbcTemplate.query(CLAIM_SQL,
+                (rs, i) -> new Message(rs.getString(1), rs.getString(2), Channel.valueOf(rs.getString(3)),
+                        rs.getString(4), rs.getString(5), rs.getInt(6)),
+                now, batchSize);
+        if (!batch.isEmpty()) {
+            LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+            jdbcTemplate.batchUpdate(LEASE_SQL, batch, batch.size(), (ps, m) -> {
+                ps.setObject(1, leaseUntil);
+                ps.setString(2, m.id());
+            });
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Message> batch) {
+        Map<String, User> users = userRepository.findAllById(
+                        batch.stream().map(Message::userId).distinct().toList()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Future<Outcome>> futures = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            User user = users.get(message.userId());
+            futures.add(executor.submit(() -> deliverWithPermit(message, user)));
+        }
+        List<Outcome> outcomes = new ArrayList<>(batch.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                outcomes.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                outcomes.add(Outcome.failed(batch.get(i), "派发被中断"));
+            } catch (ExecutionException e) {
+                outcomes.add(Outcome.failed(batch.get(i), String.valueOf(e.getCause())));
+            }
+        }
+        transactionTemplate.executeWithoutResult(status -> record(outcomes, LocalDateTime.now()));
+    }
+
+    private Outcome deliverWithPermit(Message message, User user) throws InterruptedException {
+        Semaphore permits = channelPermits.get(message.channel());
+        permits.acquire();
+        try {
+            return deliver(message, user);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Outcome deliver(Message message, User user) {
+        if (user == null) {
+            return Outcome.skipped(message, "用户不存在");
+        }
+        try {
+            switch (message.channel()) {
+                case EMAIL -> {
+                    if (user.getEmail() == null || user.getEmail().isBlank()) {
+                        return Outcome.skipped(message, "用户未绑定邮箱");
+                    }
+                    // 等待邮件实际发出，同一时间排队的多封邮件由发送线程在同一连接上批量发送
+                    emailService.sendEmail(user.getEmail(), message.title(), message.content()).join();
+                }
+                case SMS -> {
+                    if (user.getPhone() == null || user.getPhone().isBlank()) {
+                        return Outcome.skipped(message, "用户未绑定手机号");
+                    }
+                    smsService.sendSms(user.getPhone(), message.content());
+                }
+                case IN_APP -> {
+                    // 站内信即出箱记录本身，标记已投递后用户即可在收件箱看到
+                }
+            }
+            return Outcome.sent(message);
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("通知投递失败: id={}, channel={}, attempts={}, error={}",
+                    message.id(), message.channel(), message.attempts() + 1, cause.getMessage());
+            return Outcome.failed(message, cause.getMessage());
+        }
+    }
+
+    /**
+     * 批量回写投递结果：成功、跳过、等待重试或重试耗尽
+     */
+    private void record(List<Outcome> outcomes, LocalDateTime now) {
+        Map<Result, List<Outcome>> byResult = outcomes.stream()
+                .collect(Collectors.groupingBy(Outcome::result, () -> new EnumMap<>(Result.class), Collectors.toList()));
+
+        List<Outcome> sent = byResult.getOrDefault(Result.SENT, List.of());
+        jdbcTemplate.batchUpdate(SENT_SQL, sent, batchSize, (ps, o) -> {
+            ps.setObject(1, now);
+            ps.setString(2, o.message().id());
+        });
+        List<Outcome> skipped = byResult.getOrDefault(Result.SKIPPED, List.of());
+        jdbcTemplate.batchUpdate(SKIPPED_SQL, skipped, batchSize, (ps, o) -> {
+            ps.setString(1, o.error());
+            ps.setString(2, o.message().id());
+        });
+        List<Outcome> failed = byResult.getOrDefault(Result.FAILED, List.of());
+        jdbcTemplate.batchUpdate(RETRY_SQL, failed, batchSize, (ps, o) -> {
+            int attempts = o.message().attempts() + 1;
+            boolean exhausted = attempts >= maxAttempts;
+            ps.setString(1, exhausted ? "FAILED" : "PENDING");
+            ps.setInt(2, attempts);
+            ps.setObject(3, exhausted ? now : now.plusSeconds(backoffSeconds(attempts)));
+            ps.setString(4, truncate(o.error()));
+            ps.setString(5, o.message().id());
+        });
+
+        for (Outcome outcome : outcomes) {
+            meterRegistry.counter("notification.dispatched",
+                    "channel", outcome.message().channel().name(),
+                    "result", outcome.result().name()).increment();
+        }
+        log.info("通知批次投递完成: total={}, sent={}, skipped={}, failed={}",
+                outcomes.size(), sent.size(), skipped.size(), failed.size());
+    }
+
+    /**
+     * 第 n 次失败后的等待时间：base * 2^(n-1)，不超过上限
+     */
+    private long backoffSeconds(int attempts) {
+        long backoff = backoffBaseSeconds << Math.min(attempts - 1, 20);
+        return Math.min(backoff, backoffMaxSeconds);
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private record Message(String id, String userId, Channel channel, String title, String content, int attempts) {
+    }
+
+    private enum Result {
+        SENT, SKIPPED, FAILED
+    }
+
+    private record Outcome(Message message, Result result, String error) {
+        static Outcome sent(Message message) {
+            return new Outcome(message, Result.SENT, null);
+        }
+
+        static Outcome skipped(Message message, String reason) {
+            return new Outcome(message, Result.SKIPPED, reason);
+        }
+
+        static Outcome failed(Message message, String error) {
+            return new Outcome(message, Result.FAILED, error);
+        }
+    }
+}
@@ -1,90 +1,116 @@
 package com.agriverse.notification.service;
 
-import com.agriverse.auth.repository.UserRepository;
-import com.agriverse.entity.User;
+import com.agriverse.notification.entity.NotificationOutbox.Channel;
+import com.agriverse.notification.entity.NotificationOutbox.NotificationType;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * 消息通知服务
+ * 通知写入出箱表（与调用方同一事务，回滚则不发送），事务提交后唤醒 {@link NotificationDispatcher} 异步投递，
+ * 调用方不再等待短信/邮件发送
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
-    private final UserRepository userRepository;
-    
+    private static final String INSERT_SQL = "INSERT INTO notification_outbox (id, user_id, channel, type, " +
+            "business_id, title, content, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    /**
+     * 标题列长度，超出部分截断（内容列为 TEXT，不截断）
+     */
+    private static final int TITLE_MAX_LENGTH = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationDispatcher dispatcher;
+
+    @Value("${app.notification.channels:IN_APP,SMS,EMAIL}")
+    private List<Channel> channels;
+
     /**
      * 发送审批结果通知
      */
     public void sendApprovalNotification(String farmerId, String financingId, String result, String comment) {
-        User farmer = userRepository.findById(farmerId).orElse(null);
-        if (farmer == null) {
-            log.warn("农户不存在: farmerId={}", farmerId);
-            return;
-        }
-        
-        String message = String.format("您的融资申请 %s 已%s。%s", 
-            financingId, result.equals("APPROVED") ? "通过审批" : "被拒绝", 
+        String message = String.format("您的融资申请 %s 已%s。%s",
+            financingId, result.equals("APPROVED") ? "通过审批" : "被拒绝",
             comment != null ? "审批意见：" + comment : "");
-        
-        // TODO: 集成实际的消息推送服务（短信、邮件、站内信等）
-        log.info("发送审批通知: farmerId={}, message={}", farmerId, message);
+        enqueue(farmerId, NotificationType.APPROVAL, financingId, "融资审批结果通知", message);
     }
-    
+
     /**
      * 发送还款提醒
      */
-    public void sendRepaymentReminder(String farmerId, String financingId, 
-                                     java.math.BigDecimal amount, java.time.LocalDate dueDate) {
-        User farmer = userRepository.findById(farmerId).orElse(null);
-        if (farmer == null) {
-            log.warn("农户不存在: farmerId={}", farmerId);
-            return;
-        }
-        
-        String message = String.format("您的融资 %s 有一笔还款即将到期，金额：¥%s，到期日期：%s", 
+    public void sendRepaymentReminder(String farmerId, String financingId,
+                                     BigDecimal amount, LocalDate dueDate) {
+        String message = String.format("您的融资 %s 有一笔还款即将到期，金额：¥%s，到期日期：%s",
             financingId, amount, dueDate);
-        
-        // TODO: 集成实际的消息推送服务
-        log.info("发送还款提醒: farmerId={}, message={}", farmerId, message);
+        enqueue(farmerId, NotificationType.REPAYMENT_REMINDER, financingId, "还款提醒", message);
     }
-    
+
     /**
      * 发送逾期提醒
      */
-    public void sendOverdueAlert(String farmerId, String financingId, 
-                                 java.math.BigDecimal overdueAmount, long overdueDays) {
-        User farmer = userRepository.findById(farmerId).orElse(null);
-        if (farmer == null) {
-            log.warn("农户不存在: farmerId={}", farmerId);
-            return;
-        }
-        
-        String message = String.format("您的融资 %s 已逾期 %d 天，逾期金额：¥%s，请尽快还款", 
+    public void sendOverdueAlert(String farmerId, String financingId,
+                                 BigDecimal overdueAmount, long overdueDays) {
+        String message = String.format("您的融资 %s 已逾期 %d 天，逾期金额：¥%s，请尽快还款",
             financingId, overdueDays, overdueAmount);
-        
-        // TODO: 集成实际的消息推送服务
-        log.info("发送逾期提醒: farmerId={}, message={}", farmerId, message);
+        enqueue(farmerId, NotificationType.OVERDUE_ALERT, financingId, "逾期提醒", message);
     }
-    
+
     /**
      * 发送合同签署提醒
      */
     public void sendContractSignReminder(String farmerId, String contractId) {
-        User farmer = userRepository.findById(farmerId).orElse(null);
-        if (farmer == null) {
-            log.warn("农户不存在: farmerId={}", farmerId);
-            return;
-        }
-        
         String message = String.format("您的合同 %s 已生成，请及时签署", contractId);
-        
-        // TODO: 集成实际的消息推送服务
-        log.info("发送合同签署提醒: farmerId={}, message={}", farmerId, message);
+        enqueue(farmerId, NotificationType.CONTRACT_SIGN, contractId, "合同签署提醒", message);
     }
-}
-
 
+    /**
+     * 按配置的渠道各写入一条出箱记录，接收人及其联系方式在投递时批量解析；
+     * 出箱记录与调用方同一事务写入，超长标题截断而不是让业务操作回滚
+     */
+    private void enqueue(String userId, NotificationType type, String businessId, String title, String content) {
+        if (userId == null) {
+            log.warn("通知接收人为空: type={}, businessId={}", type, businessId);
+            return;
+        }
+        String storedTitle = title.length() > TITLE_MAX_LENGTH ? title.substring(0, TITLE_MAX_LENGTH) : title;
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, channels, channels.size(), (ps, channel) -> {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, userId);
+            ps.setString(3, channel.name());
+            ps.setString(4, type.name());
+            ps.setString(5, businessId);
+            ps.setString(6, storedTitle);
+            ps.setString(7, content);
+            ps.setObject(8, now);
+            ps.setObject(9, now);
+        });
+        log.debug("通知已入队: userId={}, type={}, businessId={}", userId, type, businessId);
 
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatcher.wakeUp();
+                }
+            });
+        } else {
+            dispatcher.wakeUp();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.agriverse.order.repository;
 
 import com.agriverse.entity.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -32,5 +34,44 @@ public interface OrderRepository extends JpaRepository<Order, String>, JpaSpecif
     
     @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
     List<Object[]> countByStatusGroup();
+    
+    /**
+     * 汇总全部订单：[订单数, 订单总额]
+     */
+    @Query("SELECT COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM Order o")
+    List<Object[]> summarizeAll();
+    
+    /**
+     * 汇总时间段 [startTime, endTime) 内的订单：[订单数, 订单总额]
+     */
+    @Query("SELECT COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM Order o " +
+           "WHERE o.createdAt >= :startTime AND o.createdAt < :endTime")
+    List<Object[]> summarizeBetween(@Param("startTime") LocalDateTime startTime,
+                                    @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * 按月汇总 startTime 之后的订单：[年, 月, 订单数, 订单总额]
+     */
+    @Query("SELECT YEAR(o.createdAt), MONTH(o.createdAt), COUNT(o), COALESCE(SUM(o.totalAmount), 0) " +
+           "FROM Order o WHERE o.createdAt >= :startTime " +
+           "GROUP BY YEAR(o.createdAt), MONTH(o.createdAt)")
+    List<Object[]> summarizeByMonthSince(@Param("startTime") LocalDateTime startTime);
+    
+    /**
+     * 退款状态分布：[退款状态, 订单数]
+     */
+    @Query("SELECT o.refundStatus, COUNT(o) FROM Order o WHERE o.refundStatus IS NOT NULL GROUP BY o.refundStatus")
+    List<Object[]> countByRefundStatusGroup();
+    
+    /**
+     * 游标分页：取指定位置之后、退款状态属于给定集合的订单
+     * 按 (createdAt, id) 倒序定位，过滤在数据库完成，配合 idx_orders_refund_status_created 索引
+     */
+    @Query("SELECT o FROM Order o WHERE o.refundStatus IN :refundStatuses AND " +
+           "o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByRefundStatusInAfter(@Param("refundStatuses") Collection<Order.RefundStatus> refundStatuses,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") String id,
+                                          Pageable limit);
 }
-
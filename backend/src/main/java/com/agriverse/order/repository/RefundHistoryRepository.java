@@ -4,11 +4,17 @@ import com.agriverse.entity.RefundHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface RefundHistoryRepository extends JpaRepository<RefundHistory, String> {
     List<RefundHistory> findByOrderIdOrderByCreatedAtDesc(String orderId);
+
+    /**
+     * 一次查询多个订单的退款历史，按时间倒序
+     */
+    List<RefundHistory> findByOrderIdInOrderByCreatedAtDesc(Collection<String> orderIds);
 }
 
 
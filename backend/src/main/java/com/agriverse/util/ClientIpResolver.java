@@ -0,0 +1,22 @@
+package com.agriverse.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * 客户端IP解析
+ * 经反向代理时由 Tomcat RemoteIpValve（server.forward-headers-strategy=native）按受信代理列表
+ * （server.tomcat.remoteip.internal-proxies）解析 X-Forwarded-For 并改写 remoteAddr；
+ * 这里只读取 remoteAddr，不直接信任客户端可伪造的转发头
+ */
+public final class ClientIpResolver {
+
+    private ClientIpResolver() {
+    }
+
+    /**
+     * 获取请求的客户端IP
+     */
+    public static String resolve(HttpServletRequest request) {
+        return request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,305 @@
+package com.agriverse.util;
+
+import com.agriverse.exception.BusinessException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 系统配置注册表
+ * 全部配置加载为不可变快照，读取时按类型返回预先解析好的值，不加锁、不访问数据库；
+ * 修改配置或定时全量重载时生成新版本快照并以 CAS 原子替换，版本号保证较早开始的重载不会覆盖较新的修改。
+ * 热点路径（如罚息利率、风险阈值）可注册监听器，在配置变更时收到新值
+ */
+@Slf4j
+public class ConfigRegistry {
+
+    /**
+     * 一行配置的原始数据
+     *
+     * @param key   配置键
+     * @param value 配置值原文
+     * @param type  配置类型：STRING、NUMBER、BOOLEAN、JSON
+     */
+    public record Source(String key, String value, String type) {
+    }
+
+    private final String name;
+    private final Supplier<List<Source>> loader;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(0, Map.of()));
+    private final Map<String, List<Consumer<ConfigValue>>> watchers = new ConcurrentHashMap<>();
+
+    /**
+     * @param name         注册表名称（用于日志）
+     * @param loader       全量读取配置行
+     * @param objectMapper JSON 类型配置的解析器
+     */
+    public ConfigRegistry(String name, Supplier<List<Source>> loader, ObjectMapper objectMapper) {
+        this.name = name;
+        this.loader = loader;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 从数据库全量重载；重载期间快照已被其他修改替换时重新读取，避免用旧数据覆盖新版本
+     */
+    public void reload() {
+        while (true) {
+            Snapshot current = snapshot.get();
+            Map<String, ConfigValue> values = new HashMap<>();
+            for (Source source : loader.get()) {
+                // 未变化的配置沿用原对象，保留其版本号与已转换的结果
+                ConfigValue existing = current.values().get(source.key());
+                values.put(source.key(), existing != null && existing.matches(source)
+                        ? existing : parse(source, current.version() + 1));
+            }
+            Snapshot next = new Snapshot(current.version() + 1, Map.copyOf(values));
+            if (snapshot.compareAndSet(current, next)) {
+                log.debug("系统配置已重载: registry={}, version={}, size={}", name, next.version(), values.size());
+                notifyChanges(current, next);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 更新单个配置；在事务中调用时推迟到事务提交后生效，回滚则不生效
+     */
+    public void publishAfterCommit(Source source) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(source);
+                }
+            });
+        } else {
+            publish(source);
+        }
+    }
+
+    /**
+     * 以单个配置的新值生成下一版本快照
+     */
+    public void publish(Source source) {
+        while (true) {
+            Snapshot current = snapshot.get();
+            Map<String, ConfigValue> values = new HashMap<>(current.values());
+            values.put(source.key(), parse(source, current.version() + 1));
+            Snapshot next = new Snapshot(current.version() + 1, Map.copyOf(values));
+            if (snapshot.compareAndSet(current, next)) {
+                notifyChanges(current, next);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 当前快照版本，每次重载或修改加一
+     */
+    public long version() {
+        return snapshot.get().version();
+    }
+
+    /**
+     * 读取配置原文，不存在时返回null
+     */
+    public String get(String key) {
+        ConfigValue value = snapshot.get().values().get(key);
+        return value != null ? value.raw() : null;
+    }
+
+    /**
+     * 读取配置对象，不存在时返回null
+     */
+    public ConfigValue getValue(String key) {
+        return snapshot.get().values().get(key);
+    }
+
+    /**
+     * 按类型读取配置，不存在时返回null，类型不符时抛出业务异常
+     */
+    public <T> T get(String key, Class<T> type) {
+        ConfigValue value = snapshot.get().values().get(key);
+        return value != null ? value.as(type) : null;
+    }
+
+    /**
+     * 读取数值配置，不存在或不是数值时返回默认值
+     */
+    public double getDouble(String key, double defaultValue) {
+        ConfigValue value = snapshot.get().values().get(key);
+        return value != null && value.parsed() instanceof Number number ? number.doubleValue() : defaultValue;
+    }
+
+    /**
+     * 读取布尔配置，不存在或不是布尔值时返回默认值
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        ConfigValue value = snapshot.get().values().get(key);
+        return value != null && value.parsed() instanceof Boolean bool ? bool : defaultValue;
+    }
+
+    /**
+     * 监听配置变更：注册时以当前值回调一次，之后每次该配置变化时回调（配置被删除时为null）
+     */
+    public void watch(String key, Consumer<ConfigValue> listener) {
+        watchers.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(listener);
+        fire(key, listener, snapshot.get().values().get(key));
+    }
+
+    private void notifyChanges(Snapshot previous, Snapshot next) {
+        for (Map.Entry<String, List<Consumer<ConfigValue>>> entry : watchers.entrySet()) {
+            ConfigValue before = previous.values().get(entry.getKey());
+            ConfigValue after = next.values().get(entry.getKey());
+            if (before == null ? after == null : before.sameAs(after)) {
+                continue;
+            }
+            for (Consumer<ConfigValue> listener : entry.getValue()) {
+                fire(entry.getKey(), listener, after);
+            }
+        }
+    }
+
+    private void fire(String key, Consumer<ConfigValue> listener, ConfigValue value) {
+        try {
+            listener.accept(value);
+        } catch (RuntimeException e) {
+            log.error("系统配置监听器执行失败: registry={}, key={}", name, key, e);
+        }
+    }
+
+    private ConfigValue parse(Source source, long version) {
+        String type = source.type() != null ? source.type() : "STRING";
+        String raw = source.value();
+        if (raw == null) {
+            return new ConfigValue(source.key(), null, type, null, version, objectMapper);
+        }
+        try {
+            Object parsed = switch (type) {
+                case "NUMBER" -> Double.parseDouble(raw);
+                case "BOOLEAN" -> Boolean.parseBoolean(raw);
+                case "JSON" -> objectMapper.readTree(raw);
+                default -> raw;
+            };
+            return new ConfigValue(source.key(), raw, type, parsed, version, objectMapper);
+        } catch (Exception e) {
+            // 单个配置格式错误不影响其他配置加载，按类型读取时再报错
+            log.warn("系统配置解析失败: registry={}, key={}, type={}", name, source.key(), type);
+            return new ConfigValue(source.key(), raw, type, null, version, objectMapper);
+        }
+    }
+
+    private record Snapshot(long version, Map<String, ConfigValue> values) {
+    }
+
+    /**
+     * 快照中的一个配置值，包含原文、按配置类型预解析的值及其版本号
+     */
+    public static final class ConfigValue {
+        private final String key;
+        private final String raw;
+        private final String type;
+        private final Object parsed;
+        private final long version;
+        private final ObjectMapper objectMapper;
+        /** JSON 配置按目标类型转换后的结果，同一版本内只转换一次 */
+        private final Map<Class<?>, Object> converted = new ConcurrentHashMap<>();
+
+        private ConfigValue(String key, String raw, String type, Object parsed, long version, ObjectMapper objectMapper) {
+            this.key = key;
+            this.raw = raw;
+            this.type = type;
+            this.parsed = parsed;
+            this.version = version;
+            this.objectMapper = objectMapper;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public String raw() {
+            return raw;
+        }
+
+        public String type() {
+            return type;
+        }
+
+        public Object parsed() {
+            return parsed;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /**
+         * 转换为指定类型；数值可转换为 Integer、Long、BigDecimal，JSON 可转换为任意可反序列化的类型。
+         * JSON 转换结果在同一版本内共享，调用方不应修改
+         */
+        public <T> T as(Class<T> type) {
+            if (raw == null) {
+                return null;
+            }
+            if (parsed == null) {
+                throw new BusinessException("配置值类型转换失败: " + key);
+            }
+            try {
+                if (type.isInstance(parsed)) {
+                    return type.cast(parsed);
+                }
+                if (parsed instanceof Number number) {
+                    if (type == Integer.class) {
+                        return type.cast(number.intValue());
+                    }
+                    if (type == Long.class) {
+                        return type.cast(number.longValue());
+                    }
+                    if (type == BigDecimal.class) {
+                        return type.cast(new BigDecimal(raw));
+                    }
+                }
+                if (parsed instanceof JsonNode node) {
+                    return type.cast(converted.computeIfAbsent(type, t -> {
+                        try {
+                            return objectMapper.treeToValue(node, t);
+                        } catch (Exception e) {
+                            throw new IllegalArgumentException(e);
+                        }
+                    }));
+                }
+                if (type == String.class) {
+                    return type.cast(raw);
+                }
+            } catch (RuntimeException e) {
+                throw new BusinessException("配置值类型转换失败: " + key);
+            }
+            throw new BusinessException("配置值类型转换失败: " + key);
+        }
+
+        boolean matches(Source source) {
+            String sourceType = source.type() != null ? source.type() : "STRING";
+            return Objects.equals(raw, source.value()) && type.equals(sourceType);
+        }
+
+        boolean sameAs(ConfigValue other) {
+            return other != null && Objects.equals(raw, other.raw) && Objects.equals(type, other.type);
+        }
+    }
+}
@@ -1,12 +1,21 @@
 package com.agriverse.util;
 
+import com.agriverse.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -27,11 +36,33 @@ public class JwtTokenProvider {
     @Value("${jwt.refresh-expiration}")
     private long refreshExpiration;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private int verifiedCacheMaxSize;
+
+    @Value("${jwt.verified-cache.ttl-seconds:600}")
+    private long verifiedCacheTtlSeconds;
+
+    /**
+     * 签名密钥与解析器只在启动时构建一次
+     */
+    private SecretKey signingKey;
+    private JwtParser parser;
+
     /**
-     * 获取签名密钥
+     * 已验签令牌缓存：令牌哈希 -> 认证主体，条目在令牌过期时失效
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    private TtlCache<String, TokenPrincipal> verifiedTokens;
+
+    /**
+     * 签发、验签与缓存过期共用的时钟
+     */
+    private Clock clock = Clock.systemUTC();
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        this.parser = Jwts.parser().verifyWith(signingKey).clock(() -> new Date(clock.millis())).build();
+        this.verifiedTokens = new TtlCache<>(verifiedCacheMaxSize, verifiedCacheTtlSeconds * 1000, clock);
     }
 
     /**
@@ -44,6 +75,21 @@ public class JwtTokenProvider {
         return createToken(claims, userId, jwtExpiration);
     }
 
+    /**
+     * 生成访问令牌，并写入灰度规则所需的用户属性（注册时间、邮箱验证状态），
+     * 请求中判断灰度功能时直接读取令牌中的属性，无需查询用户
+     */
+    public String generateAccessToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("phone", user.getPhone());
+        claims.put("role", user.getRole() != null ? user.getRole().name() : null);
+        if (user.getCreatedAt() != null) {
+            claims.put("createdAt", user.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        claims.put("emailVerified", Boolean.TRUE.equals(user.getEmailVerified()));
+        return createToken(claims, user.getId(), jwtExpiration);
+    }
+
     /**
      * 生成刷新令牌
      */
@@ -57,7 +103,7 @@ public class JwtTokenProvider {
      * 创建令牌
      */
     private String createToken(Map<String, Object> claims, String subject, long expirationTime) {
-        Date now = new Date();
+        Date now = new Date(clock.millis());
         Date expiryDate = new Date(now.getTime() + expirationTime);
 
         return Jwts.builder()
@@ -65,7 +111,7 @@ public class JwtTokenProvider {
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
@@ -74,11 +120,7 @@ public class JwtTokenProvider {
      */
     public Claims getAllClaimsFromToken(String token) {
         try {
-            return Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getPayload();
+            return parser.parseSignedClaims(token).getPayload();
         } catch (ExpiredJwtException e) {
             log.warn("JWT已过期: {}", e.getMessage());
             throw new RuntimeException("Token已过期");
@@ -123,10 +165,7 @@ public class JwtTokenProvider {
      */
     public boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
+            parser.parseSignedClaims(token);
             return true;
         } catch (JwtException e) {
             log.warn("令牌验证失败: {}", e.getMessage());
@@ -137,10 +176,82 @@ public class JwtTokenProvider {
         }
     }
 
+    /**
+     * 验证令牌并返回认证主体（请求认证用）
+     * 只验签、解析一次；验证通过的令牌按哈希缓存到其过期时刻，同一令牌的后续请求直接命中缓存
+     *
+     * @return 认证主体，令牌无效或已过期时返回null
+     */
+    public TokenPrincipal authenticate(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        String key = hash(token);
+        TokenPrincipal cached = verifiedTokens.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims;
+        try {
+            claims = parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException e) {
+            log.warn("令牌验证失败: {}", e.getMessage());
+            return null;
+        } catch (IllegalArgumentException e) {
+            log.warn("令牌为空: {}", e.getMessage());
+            return null;
+        }
+
+        long expiresAt = claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+        TokenPrincipal principal = new TokenPrincipal(claims.getSubject(), claims.get("role", String.class), expiresAt,
+                claims.get("createdAt", Long.class), Boolean.TRUE.equals(claims.get("emailVerified", Boolean.class)));
+        verifiedTokens.putUntil(key, principal, expiresAt);
+        return principal;
+    }
+
+    /**
+     * 令牌的 SHA-256 摘要，作为缓存键避免在内存中保存令牌原文
+     */
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
     /**
      * 获取令牌过期时间
      */
     public Long getExpirationTime() {
         return jwtExpiration;
     }
+
+    /**
+     * 已验证令牌对应的认证主体
+     *
+     * @param userId          用户ID（subject）
+     * @param role            角色，刷新令牌为null
+     * @param expiresAtMillis 令牌过期时间戳（毫秒）
+     * @param createdAtMillis 用户注册时间戳（毫秒），令牌未携带时为null
+     * @param emailVerified   签发令牌时邮箱是否已验证
+     */
+    public record TokenPrincipal(String userId, String role, long expiresAtMillis,
+                                 Long createdAtMillis, boolean emailVerified) implements Principal {
+
+        public TokenPrincipal(String userId, String role, long expiresAtMillis) {
+            this(userId, role, expiresAtMillis, null, false);
+        }
+
+        /**
+         * 作为认证主体时名称即用户ID，控制器中 principal.getName() 仍返回用户ID
+         */
+        @Override
+        public String getName() {
+            return userId;
+        }
+    }
 }
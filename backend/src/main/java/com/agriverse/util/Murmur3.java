@@ -0,0 +1,80 @@
+package com.agriverse.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MurmurHash3 x86 32 位哈希
+ * 与各语言的标准实现（如 Guava murmur3_32、Python mmh3、Go murmur3）结果一致，
+ * 用于灰度分桶等需要跨服务、跨语言稳定且分布均匀的场景
+ */
+public final class Murmur3 {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private Murmur3() {
+    }
+
+    /**
+     * 对字符串的 UTF-8 字节计算哈希
+     */
+    public static int hash32(String value, int seed) {
+        return hash32(value.getBytes(StandardCharsets.UTF_8), seed);
+    }
+
+    /**
+     * 对字节数组计算哈希
+     */
+    public static int hash32(byte[] data, int seed) {
+        int h = seed;
+        int length = data.length;
+        int blocks = length >>> 2;
+
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 2;
+            int k = (data[offset] & 0xff)
+                    | (data[offset + 1] & 0xff) << 8
+                    | (data[offset + 2] & 0xff) << 16
+                    | (data[offset + 3] & 0xff) << 24;
+            h ^= mixK(k);
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xe6546b64;
+        }
+
+        int tail = blocks << 2;
+        int k = 0;
+        switch (length & 3) {
+            case 3:
+                k ^= (data[tail + 2] & 0xff) << 16;
+            case 2:
+                k ^= (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k ^= data[tail] & 0xff;
+                h ^= mixK(k);
+            default:
+                break;
+        }
+
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * 将键映射到 [0, buckets) 的桶，哈希按无符号数取模
+     */
+    public static int bucket(String key, int seed, int buckets) {
+        return (int) (Integer.toUnsignedLong(hash32(key, seed)) % buckets);
+    }
+
+    private static int mixK(int k) {
+        k *= C1;
+        k = Integer.rotateLeft(k, 15);
+        k *= C2;
+        return k;
+    }
+}
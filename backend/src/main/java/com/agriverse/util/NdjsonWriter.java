@@ -0,0 +1,85 @@
+package com.agriverse.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * NDJSON 写出器
+ * 每行一个 JSON 对象，逐条写入输出流并按批刷新，批量导出接口无需在内存中拼装整个数组；
+ * 配合游标分页逐页读取，内存占用只与单页条数有关
+ */
+public final class NdjsonWriter {
+
+    /**
+     * 流式读取时每页条数
+     */
+    public static final int STREAM_PAGE_SIZE = 500;
+
+    private static final int FLUSH_EVERY = 100;
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private int count;
+
+    /**
+     * @param objectMapper 与普通接口一致的序列化配置
+     * @param out          输出流（不会被关闭）
+     */
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        this.writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = objectMapper.getFactory().createGenerator(out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // 根值之间不加默认的空格分隔，由每行末尾的换行分隔
+        this.generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * 写出一行
+     */
+    public void write(Object value) throws IOException {
+        writer.writeValue(generator, value);
+        generator.writeRaw('\n');
+        if (++count % FLUSH_EVERY == 0) {
+            generator.flush();
+        }
+    }
+
+    /**
+     * 从第一页开始逐页读取并写出，直到没有下一页
+     *
+     * @param pageLoader 按游标读取一页
+     * @param afterPage  每页写出后执行（通常用于清空持久化上下文）
+     * @return 写出总行数
+     */
+    public <T> int writePages(Function<PageCursor, PageCursor.Slice<T>> pageLoader, Runnable afterPage)
+            throws IOException {
+        PageCursor cursor = PageCursor.FIRST;
+        while (true) {
+            PageCursor.Slice<T> page = pageLoader.apply(cursor);
+            for (T row : page.content()) {
+                write(row);
+            }
+            afterPage.run();
+            if (!page.hasMore()) {
+                break;
+            }
+            cursor = PageCursor.decode(page.nextCursor());
+        }
+        flush();
+        return count;
+    }
+
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,104 @@
+package com.agriverse.util;
+
+import com.agriverse.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页位置（createdAt DESC, id DESC 排序下的最后一条记录）
+ * 对外以不透明的 Base64 字符串传递，下一页查询 createdAt/id 严格小于该位置的记录，
+ * 无论翻到第几页都只扫描一页数据，不需要 OFFSET 和 COUNT(*)
+ *
+ * @param createdAt 上一页最后一条记录的创建时间
+ * @param id        上一页最后一条记录的ID（创建时间相同时的次序）
+ */
+public record PageCursor(LocalDateTime createdAt, String id) {
+
+    /**
+     * 第一页：位于所有记录之前
+     */
+    public static final PageCursor FIRST = new PageCursor(LocalDateTime.of(9999, 12, 31, 0, 0), "");
+
+    /**
+     * 单页最大条数，超过时按该值截断
+     */
+    public static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * 列表接口返回数组时，下一页游标通过该响应头返回
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 解析游标，空字符串表示第一页
+     *
+     * @throws BusinessException 游标格式非法
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(SEPARATOR);
+            if (sep <= 0 || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("missing separator");
+            }
+            return new PageCursor(LocalDateTime.parse(raw.substring(0, sep)), raw.substring(sep + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("INVALID_CURSOR", "分页游标无效");
+        }
+    }
+
+    /**
+     * 编码为不透明字符串
+     */
+    public String encode() {
+        String raw = createdAt.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 规范化每页条数：未指定或非正数时取默认值，超过 {@link #MAX_PAGE_SIZE} 时截断
+     */
+    public static int pageSize(Integer requested, int defaultSize) {
+        if (requested == null || requested <= 0) {
+            return defaultSize;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * 截取一页结果并生成下一页游标
+     * 调用方按 pageSize + 1 条查询，多出的一条只用于判断是否还有下一页
+     */
+    public static <T> Slice<T> slice(List<T> rows, int pageSize,
+                                     Function<T, LocalDateTime> createdAtOf, Function<T, String> idOf) {
+        if (rows.size() <= pageSize) {
+            return new Slice<>(rows, null);
+        }
+        List<T> content = rows.subList(0, pageSize);
+        T last = content.get(pageSize - 1);
+        return new Slice<>(content, new PageCursor(createdAtOf.apply(last), idOf.apply(last)).encode());
+    }
+
+    /**
+     * 一页游标分页结果
+     *
+     * @param content    本页数据
+     * @param nextCursor 下一页游标，没有更多数据时为null
+     */
+    public record Slice<T>(List<T> content, String nextCursor) {
+
+        public boolean hasMore() {
+            return nextCursor != null;
+        }
+    }
+}
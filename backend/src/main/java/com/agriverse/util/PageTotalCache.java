@@ -0,0 +1,45 @@
+package com.agriverse.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 列表总数缓存
+ * 游标分页默认不返回总数；调用方需要总数时按查询条件缓存 COUNT(*) 结果，
+ * 在有效期内返回的是近似值，避免每翻一页都做一次全量计数
+ */
+@Component
+public class PageTotalCache {
+
+    private final TtlCache<String, Long> cache;
+
+    public PageTotalCache(@Value("${app.pagination.total-cache.max-size:5000}") int maxSize,
+                          @Value("${app.pagination.total-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = new TtlCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    /**
+     * 读取缓存的总数，未命中时执行计数并缓存
+     *
+     * @param key     查询条件组成的键
+     * @param counter 实际计数逻辑
+     */
+    public long get(String key, LongSupplier counter) {
+        Long cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long total = counter.getAsLong();
+        cache.put(key, total);
+        return total;
+    }
+
+    /**
+     * 失效指定条件的缓存总数
+     */
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+}
@@ -0,0 +1,102 @@
+package com.agriverse.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 短时结果缓存（单飞加载）
+ * 同一个键在有效期内直接返回缓存结果；缓存失效时，并发到达的请求只有一个执行加载，
+ * 其余请求等待并共享同一个结果。加载失败不缓存，异常抛给本次等待的全部请求
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class SingleFlightCache<K, V> {
+
+    private final long ttlMillis;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param ttlMillis 结果有效期（毫秒），从加载完成时开始计算
+     */
+    public SingleFlightCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 读取缓存结果，未命中或已过期时加载
+     *
+     * @param key    缓存键
+     * @param loader 实际加载逻辑，在发起加载的请求线程上执行
+     */
+    public V get(K key, Supplier<V> loader) {
+        while (true) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired()) {
+                return await(entry);
+            }
+            Entry<V> loading = new Entry<>(new CompletableFuture<>());
+            boolean owner = entry == null
+                    ? entries.putIfAbsent(key, loading) == null
+                    : entries.replace(key, entry, loading);
+            if (!owner) {
+                // 其他请求已开始加载，重新读取后等待它的结果
+                continue;
+            }
+            try {
+                V value = loader.get();
+                loading.expiresAt = System.currentTimeMillis() + ttlMillis;
+                loading.future.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                entries.remove(key, loading);
+                loading.future.completeExceptionally(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 失效指定键，下一次读取重新加载
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * 失效全部缓存
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private static <V> V await(Entry<V> entry) {
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final CompletableFuture<V> future;
+        /** 加载完成前为 Long.MAX_VALUE，加载中的条目不会被视为过期 */
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(CompletableFuture<V> future) {
+            this.future = future;
+        }
+
+        boolean isExpired() {
+            return expiresAt <= System.currentTimeMillis();
+        }
+    }
+}
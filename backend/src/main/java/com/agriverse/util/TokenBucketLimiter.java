@@ -0,0 +1,104 @@
+package com.agriverse.util;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按键隔离的进程内令牌桶限流器
+ * 每个键一个桶，容量为 capacity，每个 refillPeriod 匀速补满；桶补满即与新建无异，可由 {@link #evictIdle()} 清理
+ *
+ * @param <K> 键类型
+ */
+public class TokenBucketLimiter<K> {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final ConcurrentHashMap<K, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity     桶容量（允许的突发次数）
+     * @param refillPeriod 从空桶补满所需时间
+     */
+    public TokenBucketLimiter(int capacity, Duration refillPeriod) {
+        if (capacity <= 0 || refillPeriod.isZero() || refillPeriod.isNegative()) {
+            throw new IllegalArgumentException("capacity和refillPeriod必须大于0");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = capacity / (double) refillPeriod.toNanos();
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return 取到返回true，桶已空返回false
+     */
+    public boolean tryAcquire(K key) {
+        long now = System.nanoTime();
+        boolean[] acquired = new boolean[1];
+        buckets.compute(key, (k, bucket) -> {
+            Bucket b = bucket != null ? bucket : new Bucket(capacity, now);
+            b.refill(now);
+            if (b.tokens >= 1) {
+                b.tokens -= 1;
+                acquired[0] = true;
+            }
+            return b;
+        });
+        return acquired[0];
+    }
+
+    /**
+     * 是否还有可用令牌（不消耗，读取不加锁，结果为近似值）
+     */
+    public boolean hasTokens(K key) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            return true;
+        }
+        return bucket.tokensAt(System.nanoTime()) >= 1;
+    }
+
+    /**
+     * 重置某个键（如登录成功后清除失败计数）
+     */
+    public void reset(K key) {
+        buckets.remove(key);
+    }
+
+    /**
+     * 清理已补满的桶，返回清理数量
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int before = buckets.size();
+        buckets.keySet().forEach(key -> buckets.computeIfPresent(key,
+                (k, b) -> b.tokensAt(now) >= capacity ? null : b));
+        return before - buckets.size();
+    }
+
+    /**
+     * 当前跟踪的键数
+     */
+    public int size() {
+        return buckets.size();
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long updatedAt;
+
+        Bucket(double tokens, long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+
+        double tokensAt(long now) {
+            return Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+        }
+
+        void refill(long now) {
+            tokens = tokensAt(now);
+            updatedAt = now;
+        }
+    }
+}
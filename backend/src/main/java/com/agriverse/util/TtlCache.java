@@ -0,0 +1,151 @@
+package com.agriverse.util;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * 有界、按过期时间淘汰的进程内缓存
+ * 基于 ConcurrentHashMap，读取不加锁，读到过期条目时惰性移除；
+ * 写入后超过容量时先清理过期条目，仍超出则淘汰最早过期的条目，一次腾出约10%的容量以摊薄淘汰开销
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class TtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Object trimLock = new Object();
+
+    /**
+     * @param maxSize   最大条目数
+     * @param ttlMillis 默认存活时间（毫秒）
+     */
+    public TtlCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, Clock.systemUTC());
+    }
+
+    /**
+     * @param maxSize   最大条目数
+     * @param ttlMillis 默认存活时间（毫秒）
+     * @param clock     过期判断使用的时钟
+     */
+    public TtlCache(int maxSize, long ttlMillis, Clock clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize必须大于0");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 读取缓存，不存在或已过期时返回null
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.millis()) {
+            // 只移除读到的这一条，避免误删并发写入的新值
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 以默认存活时间写入缓存
+     */
+    public void put(K key, V value) {
+        putUntil(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * 写入缓存并指定绝对过期时间（毫秒时间戳），取默认存活时间与指定时间中较早者
+     */
+    public void putUntil(K key, V value, long expiresAtMillis) {
+        long expiresAt = Math.min(expiresAtMillis, clock.millis() + ttlMillis);
+        entries.put(key, new Entry<>(value, expiresAt));
+        trimIfNeeded();
+    }
+
+    /**
+     * 批量写入缓存
+     */
+    public void putAll(Map<? extends K, ? extends V> values) {
+        long expiresAt = clock.millis() + ttlMillis;
+        values.forEach((key, value) -> entries.put(key, new Entry<>(value, expiresAt)));
+        trimIfNeeded();
+    }
+
+    /**
+     * 移除单个条目
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * 移除值满足条件的条目
+     */
+    public void invalidateIf(Predicate<V> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.value));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * 清理已过期的条目，返回清理数量
+     */
+    public int evictExpired() {
+        long now = clock.millis();
+        int before = entries.size();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        return Math.max(0, before - entries.size());
+    }
+
+    /**
+     * 当前条目数（包含尚未清理的过期条目）
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void trimIfNeeded() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        // 淘汰串行执行，读取不受影响
+        synchronized (trimLock) {
+            if (entries.size() <= maxSize) {
+                return;
+            }
+            evictExpired();
+            int target = maxSize - Math.max(1, maxSize / 10);
+            int excess = entries.size() - target;
+            if (entries.size() <= maxSize || excess <= 0) {
+                return;
+            }
+            entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt))
+                .limit(excess)
+                .toList()
+                .forEach(e -> entries.remove(e.getKey(), e.getValue()));
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
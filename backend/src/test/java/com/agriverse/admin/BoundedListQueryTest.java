@@ -0,0 +1,251 @@
+package com.agriverse.admin;
+
+import com.agriverse.admin.controller.AdminFinanceMonitorController;
+import com.agriverse.admin.dto.FinanceMonitorResponse;
+import com.agriverse.admin.dto.RefundDisputeResponse;
+import com.agriverse.admin.service.AdminFinanceMonitorService;
+import com.agriverse.admin.service.AdminRefundService;
+import com.agriverse.bank.controller.BankLoanController;
+import com.agriverse.bank.entity.Disbursement;
+import com.agriverse.bank.service.DisbursementService;
+import com.agriverse.finance.entity.FinancingApplication;
+import com.agriverse.finance.repository.FinancingApplicationRepository;
+import com.agriverse.util.PageCursor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 有界列表查询测试
+ * 退款纠纷、融资申请、放款记录：过滤在数据库完成，游标逐页翻到底不重不漏，NDJSON 流式导出与分页结果一致；
+ * 列表接口收到无效游标时返回 400
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class BoundedListQueryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2003, 5, 1, 9, 0);
+
+    @Autowired
+    private AdminRefundService refundService;
+
+    @Autowired
+    private AdminFinanceMonitorService financeMonitorService;
+
+    @Autowired
+    private DisbursementService disbursementService;
+
+    @Autowired
+    private FinancingApplicationRepository applicationRepository;
+
+    @Autowired
+    private AdminFinanceMonitorController financeMonitorController;
+
+    @Autowired
+    private BankLoanController bankLoanController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        String[] refundStatuses = {"PENDING", "REJECTED", "ESCALATED", "SUCCESS", "FAILED", null};
+        for (int i = 0; i < 30; i++) {
+            // 每两条共用一个创建时间，由ID决定次序
+            LocalDateTime createdAt = BASE.plusMinutes(i / 2);
+            String refundStatus = refundStatuses[i % refundStatuses.length];
+            jdbcTemplate.update("INSERT INTO orders (id, buyer_id, farmer_id, total_amount, status, refund_status, " +
+                            "created_at, updated_at) VALUES (?, 'blq-buyer', 'blq-farmer', 10.00, 'PAID', ?, ?, ?)",
+                    String.format("blq-order-%02d", i), refundStatus, createdAt, createdAt);
+        }
+        jdbcTemplate.update("INSERT INTO refund_histories (id, order_id, action, actor, note, created_at) " +
+                "VALUES ('blq-history-1', 'blq-order-00', '申请退款', 'BUYER', '质量问题', ?)", BASE);
+        jdbcTemplate.update("INSERT INTO refund_histories (id, order_id, action, actor, note, created_at) " +
+                "VALUES ('blq-history-2', 'blq-order-00', '拒绝退款', 'FARMER', NULL, ?)", BASE.plusHours(1));
+
+        String[] applicationStatuses = {"APPLIED", "REVIEWING", "APPROVED", "REPAYING", "REJECTED"};
+        for (int i = 0; i < 25; i++) {
+            LocalDateTime createdAt = BASE.plusMinutes(i / 3);
+            jdbcTemplate.update("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+                            "status, created_at, updated_at) VALUES (?, 'blq-farmer', ?, 12, '测试', ?, ?, ?)",
+                    String.format("blq-app-%02d", i), new BigDecimal(1000 + i),
+                    applicationStatuses[i % applicationStatuses.length], createdAt, createdAt);
+        }
+
+        for (int i = 0; i < 25; i++) {
+            LocalDateTime createdAt = BASE.plusMinutes(i / 4);
+            jdbcTemplate.update("INSERT INTO disbursements (id, financing_id, amount, status, created_at, updated_at) " +
+                            "VALUES (?, ?, 500.00, ?, ?, ?)",
+                    String.format("blq-disb-%02d", i), String.format("blq-app-%02d", i),
+                    i % 5 == 0 ? "FAILED" : "SUCCESS", createdAt, createdAt);
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM refund_histories WHERE id LIKE 'blq-%'");
+        jdbcTemplate.update("DELETE FROM orders WHERE id LIKE 'blq-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE id LIKE 'blq-%'");
+        jdbcTemplate.update("DELETE FROM disbursements WHERE id LIKE 'blq-%'");
+    }
+
+    @Test
+    public void testRefundDisputesPagedAndStreamed() throws Exception {
+        List<RefundDisputeResponse> paged = readAll(
+                cursor -> refundService.getRefundDisputes(cursor, 4), RefundDisputeResponse::getOrderId);
+        Set<String> statuses = Set.of("PENDING", "REJECTED", "ESCALATED");
+        paged.forEach(d -> assertTrue(statuses.contains(d.getRefundStatus())));
+        assertOrderedByCreatedAtDesc(paged, RefundDisputeResponse::getCreatedAt, RefundDisputeResponse::getOrderId);
+
+        // 本测试的30个订单中有15个处于纠纷状态
+        List<String> ours = paged.stream().map(RefundDisputeResponse::getOrderId)
+                .filter(id -> id.startsWith("blq-")).toList();
+        assertEquals(15, ours.size());
+        assertEquals("blq-order-26", ours.get(0));
+        assertEquals("blq-order-00", ours.get(ours.size() - 1));
+
+        // 退款历史批量加载，仍按时间倒序
+        RefundDisputeResponse first = paged.stream()
+                .filter(d -> d.getOrderId().equals("blq-order-00")).findFirst().orElseThrow();
+        assertEquals(List.of("拒绝退款", "申请退款"),
+                first.getRefundHistory().stream().map(RefundDisputeResponse.RefundHistoryItem::getAction).toList());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rows = refundService.streamRefundDisputes(out);
+        assertEquals(paged.size(), rows);
+        assertEquals(paged.stream().map(RefundDisputeResponse::getOrderId).toList(),
+                lines(out).stream().map(line -> line.get("orderId").asText()).toList());
+    }
+
+    @Test
+    public void testFinanceMonitorAggregatesAndPages() throws Exception {
+        FinanceMonitorResponse monitor = financeMonitorService.getFinanceMonitor(null, null, 10);
+
+        // 统计与逐条加载在内存中汇总的结果一致
+        List<FinancingApplication> all = applicationRepository.findAll();
+        assertEquals(all.size(), monitor.getTotalApplications());
+        assertEquals(all.stream().filter(a -> a.getStatus() == FinancingApplication.FinancingStatus.APPLIED
+                || a.getStatus() == FinancingApplication.FinancingStatus.REVIEWING).count(),
+                (long) monitor.getPendingApprovals());
+        assertEquals(0, all.stream().map(FinancingApplication::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add).compareTo(monitor.getTotalAmount()));
+        assertEquals(0, all.stream().filter(a -> a.getStatus() == FinancingApplication.FinancingStatus.REPAYING)
+                .map(FinancingApplication::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add).compareTo(monitor.getRepayingAmount()));
+
+        // 响应只带一页申请
+        assertTrue(monitor.getApplications().size() <= 10);
+        assertEquals(all.size() > 10, monitor.getHasMore());
+
+        List<FinancingApplication> repaying = readAll(
+                cursor -> financeMonitorService.getApplicationPage("REPAYING", cursor, 2), FinancingApplication::getId);
+        repaying.forEach(a -> assertEquals(FinancingApplication.FinancingStatus.REPAYING, a.getStatus()));
+        assertEquals(5, repaying.stream().filter(a -> a.getId().startsWith("blq-")).count());
+        assertOrderedByCreatedAtDesc(repaying, FinancingApplication::getCreatedAt, FinancingApplication::getId);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(repaying.size(), financeMonitorService.streamApplications("REPAYING", out));
+        assertEquals(repaying.stream().map(FinancingApplication::getId).toList(),
+                lines(out).stream().map(line -> line.get("id").asText()).toList());
+    }
+
+    @Test
+    public void testDisbursementsPagedAndStreamed() throws Exception {
+        List<Disbursement> failed = readAll(
+                cursor -> disbursementService.getDisbursements("FAILED", cursor, 2), Disbursement::getId);
+        failed.forEach(d -> assertEquals(Disbursement.DisbursementStatus.FAILED, d.getStatus()));
+        assertEquals(5, failed.stream().filter(d -> d.getId().startsWith("blq-")).count());
+
+        List<Disbursement> all = readAll(
+                cursor -> disbursementService.getDisbursements(null, cursor, 7), Disbursement::getId);
+        assertEquals(25, all.stream().filter(d -> d.getId().startsWith("blq-")).count());
+        assertOrderedByCreatedAtDesc(all, Disbursement::getCreatedAt, Disbursement::getId);
+
+        // 未指定或超过上限的每页条数
+        assertTrue(disbursementService.getDisbursements(null, null, null).content().size() <= 50);
+        assertTrue(disbursementService.getDisbursements(null, null, 10_000).content().size()
+                <= PageCursor.MAX_PAGE_SIZE);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(all.size(), disbursementService.streamDisbursements(null, out));
+        List<JsonNode> lines = lines(out);
+        assertEquals(all.stream().map(Disbursement::getId).toList(),
+                lines.stream().map(line -> line.get("id").asText()).toList());
+        assertEquals(0, new BigDecimal("500.00").compareTo(lines.get(0).get("amount").decimalValue()));
+
+        assertThrows(RuntimeException.class, () -> disbursementService.getDisbursements(null, "not-a-cursor", 10));
+    }
+
+    @Test
+    @WithMockUser(roles = {"ADMIN", "BANK"})
+    public void testInvalidCursorReturnsBadRequest() {
+        assertEquals(HttpStatus.BAD_REQUEST,
+                financeMonitorController.getFinanceMonitor(null, "not-a-cursor", 10).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                bankLoanController.getDisbursements(null, "not-a-cursor", 10).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                bankLoanController.getReconciliationList(null, null, "not-a-cursor", 10).getStatusCode());
+    }
+
+    /**
+     * 从第一页逐页翻到底，断言各页之间没有重复
+     */
+    private static <T> List<T> readAll(Function<String, PageCursor.Slice<T>> pageLoader, Function<T, String> idOf) {
+        List<T> all = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            PageCursor.Slice<T> page = pageLoader.apply(cursor);
+            for (T row : page.content()) {
+                assertTrue(seen.add(idOf.apply(row)), "重复记录: " + idOf.apply(row));
+                all.add(row);
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return all;
+    }
+
+    private static <T> void assertOrderedByCreatedAtDesc(List<T> rows, Function<T, LocalDateTime> createdAtOf,
+                                                         Function<T, String> idOf) {
+        for (int i = 1; i < rows.size(); i++) {
+            int byTime = createdAtOf.apply(rows.get(i - 1)).compareTo(createdAtOf.apply(rows.get(i)));
+            assertTrue(byTime > 0 || (byTime == 0 && idOf.apply(rows.get(i - 1)).compareTo(idOf.apply(rows.get(i))) > 0));
+        }
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream out) throws Exception {
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertTrue(body.isEmpty() || body.endsWith("\n"));
+        List<JsonNode> result = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isEmpty()) {
+                result.add(objectMapper.readTree(line));
+            }
+        }
+        return result;
+    }
+}
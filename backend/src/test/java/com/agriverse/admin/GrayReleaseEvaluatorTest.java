@@ -0,0 +1,150 @@
+package com.agriverse.admin;
+
+import com.agriverse.admin.entity.AdminGrayRelease;
+import com.agriverse.admin.repository.AdminGrayReleaseRepository;
+import com.agriverse.admin.service.AdminGrayReleaseService;
+import com.agriverse.admin.service.AdminOperationLogService;
+import com.agriverse.admin.service.GrayReleaseEvaluator;
+import com.agriverse.auth.repository.UserRepository;
+import com.agriverse.entity.User;
+import com.agriverse.util.JwtTokenProvider;
+import com.agriverse.util.Murmur3;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * 灰度规则求值测试
+ * 覆盖 murmur3 与标准实现一致、分桶均匀且稳定、目标用户规则、批量求值及从访问令牌读取用户属性不查询数据库
+ */
+public class GrayReleaseEvaluatorTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final long DAY = 24 * 3600 * 1000L;
+
+    @Test
+    public void testMurmur3MatchesReferenceVectors() {
+        assertEquals(0, Murmur3.hash32("", 0));
+        assertEquals(0x248bfa47, Murmur3.hash32("hello", 0));
+        assertEquals(0x2e4ff723, Murmur3.hash32("The quick brown fox jumps over the lazy dog", 0));
+        assertEquals(0xfaf6cdb3, Murmur3.hash32("Hello, world!", 1234));
+        assertEquals(0x3c2569b2, Murmur3.hash32("a", 0));
+        assertEquals(0x9bbfd75f, Murmur3.hash32("ab", 0));
+        assertEquals(0xb3dd93fa, Murmur3.hash32("abc", 0));
+    }
+
+    @Test
+    public void testBucketsAreUniformAndSticky() {
+        int users = 100_000;
+        int[] counts = new int[100];
+        for (int i = 0; i < users; i++) {
+            counts[GrayReleaseEvaluator.bucket("new-checkout", "user-" + i)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, "分桶不均匀: " + count);
+        }
+        assertEquals(GrayReleaseEvaluator.bucket("new-checkout", "user-42"),
+                GrayReleaseEvaluator.bucket("new-checkout", "user-42"));
+
+        GrayReleaseEvaluator evaluator = evaluator(release("new-checkout", 30, AdminGrayRelease.TargetUsers.ALL, true));
+        int enabled = 0;
+        for (int i = 0; i < users; i++) {
+            if (evaluator.isEnabled("new-checkout", new GrayReleaseEvaluator.Subject("user-" + i, null, false))) {
+                enabled++;
+            }
+        }
+        assertEquals(0.30, enabled / (double) users, 0.01);
+    }
+
+    @Test
+    public void testTargetRulesAndEvaluateAll() {
+        AdminGrayReleaseRepository repository = mock(AdminGrayReleaseRepository.class);
+        when(repository.findAll()).thenReturn(List.of(
+                release("all", 100, AdminGrayRelease.TargetUsers.ALL, true),
+                release("new-only", 100, AdminGrayRelease.TargetUsers.NEW, true),
+                release("vip-only", 100, AdminGrayRelease.TargetUsers.VIP, true),
+                release("disabled", 100, AdminGrayRelease.TargetUsers.ALL, false),
+                release("zero", 0, AdminGrayRelease.TargetUsers.ALL, true)));
+        GrayReleaseEvaluator evaluator = new GrayReleaseEvaluator(repository);
+        evaluator.reload();
+
+        GrayReleaseEvaluator.Subject newUser = new GrayReleaseEvaluator.Subject("u1", NOW - 5 * DAY, false);
+        GrayReleaseEvaluator.Subject oldVip = new GrayReleaseEvaluator.Subject("u2", NOW - 90 * DAY, true);
+        GrayReleaseEvaluator.Subject unknown = new GrayReleaseEvaluator.Subject("u3", null, false);
+
+        assertEquals(Map.of("all", true, "new-only", true, "vip-only", false, "disabled", false, "zero", false),
+                evaluator.evaluateAll(newUser));
+        assertEquals(Map.of("all", true, "new-only", false, "vip-only", true, "disabled", false, "zero", false),
+                evaluator.evaluateAll(oldVip));
+        assertFalse(evaluator.isEnabled("new-only", unknown));
+        assertFalse(evaluator.isEnabled("missing", newUser));
+        assertFalse(evaluator.isEnabled("all", null));
+
+        for (int i = 0; i < 1000; i++) {
+            evaluator.isEnabled("all", newUser);
+        }
+        verify(repository, times(1)).findAll();
+    }
+
+    @Test
+    public void testPrincipalAttributesComeFromToken() {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret",
+                "test-secret-key-for-testing-only-not-for-production-use-at-least-32-characters-long");
+        ReflectionTestUtils.setField(provider, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(provider, "refreshExpiration", 60_000L);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", 100);
+        ReflectionTestUtils.setField(provider, "verifiedCacheTtlSeconds", 600L);
+        provider.init();
+
+        User user = User.builder().id("user-7").phone("13800000007").role(User.UserRole.BUYER)
+                .createdAt(LocalDateTime.now().minusDays(3)).emailVerified(false).build();
+        JwtTokenProvider.TokenPrincipal token = provider.authenticate(provider.generateAccessToken(user));
+        assertNotNull(token.createdAtMillis());
+        assertFalse(token.emailVerified());
+        UsernamePasswordAuthenticationToken authentication =
+                new UsernamePasswordAuthenticationToken(token, null, List.of());
+        assertEquals("user-7", authentication.getName());
+
+        AdminGrayReleaseRepository repository = mock(AdminGrayReleaseRepository.class);
+        when(repository.findAll()).thenReturn(List.of(
+                release("new-only", 100, AdminGrayRelease.TargetUsers.NEW, true),
+                release("vip-only", 100, AdminGrayRelease.TargetUsers.VIP, true)));
+        GrayReleaseEvaluator evaluator = new GrayReleaseEvaluator(repository);
+        evaluator.reload();
+        UserRepository userRepository = mock(UserRepository.class);
+        AdminGrayReleaseService service = new AdminGrayReleaseService(repository,
+                mock(AdminOperationLogService.class), userRepository, evaluator);
+
+        assertTrue(service.isFeatureEnabled("new-only", authentication));
+        assertEquals(Map.of("new-only", true, "vip-only", false), service.evaluateAll(authentication));
+        verifyNoInteractions(userRepository);
+
+        // 非令牌主体时按用户ID查询一次
+        when(userRepository.findById("user-7")).thenReturn(Optional.of(user));
+        assertTrue(service.isFeatureEnabled("new-only", () -> "user-7"));
+        verify(userRepository, times(1)).findById(any());
+    }
+
+    private GrayReleaseEvaluator evaluator(AdminGrayRelease... releases) {
+        AdminGrayReleaseRepository repository = mock(AdminGrayReleaseRepository.class);
+        when(repository.findAll()).thenReturn(List.of(releases));
+        GrayReleaseEvaluator evaluator = new GrayReleaseEvaluator(repository);
+        evaluator.reload();
+        return evaluator;
+    }
+
+    private AdminGrayRelease release(String feature, int percent, AdminGrayRelease.TargetUsers target, boolean enabled) {
+        return AdminGrayRelease.builder().id(feature).featureName(feature).releasePercent(percent)
+                .targetUsers(target).enabled(enabled).updatedAt(LocalDateTime.now()).build();
+    }
+}
@@ -0,0 +1,169 @@
+package com.agriverse.admin;
+
+import com.agriverse.admin.dto.OrderAnalyticsSnapshot;
+import com.agriverse.admin.service.OrderAnalyticsService;
+import com.agriverse.bank.dto.TrendData;
+import com.agriverse.entity.Order;
+import com.agriverse.order.repository.OrderRepository;
+import com.agriverse.util.SingleFlightCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单统计测试
+ * 聚合查询结果与逐条加载订单在内存中汇总的结果一致，并发刷新只计算一次，缓存到期后重新计算
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class OrderAnalyticsServiceTest {
+
+    @Autowired
+    private OrderAnalyticsService orderAnalyticsService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime twoMonthsAgo = YearMonth.from(now).minusMonths(2).atDay(1).atTime(10, 0);
+        LocalDateTime longAgo = now.minusMonths(8);
+        insert("oa-1", "100.50", "PAID", null, now);
+        insert("oa-2", "20.00", "COMPLETED", "SUCCESS", now);
+        insert("oa-3", "35.25", "REFUNDING", "PENDING", twoMonthsAgo);
+        insert("oa-4", "12.00", "PAID", null, twoMonthsAgo.plusDays(3));
+        insert("oa-5", "999.99", "CANCELLED", "REJECTED", longAgo);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM orders WHERE id LIKE 'oa-%'");
+        orderAnalyticsService.invalidate();
+    }
+
+    @Test
+    public void testAggregatesMatchInHeapCalculation() {
+        LocalDateTime now = LocalDateTime.now();
+        OrderAnalyticsSnapshot snapshot = orderAnalyticsService.compute(6, now);
+
+        List<Order> all = orderRepository.findAll();
+        assertEquals(all.size(), snapshot.totalOrders());
+        assertEquals(0, sum(all).compareTo(snapshot.totalAmount()));
+
+        LocalDate today = now.toLocalDate();
+        List<Order> todayOrders = all.stream()
+                .filter(o -> o.getCreatedAt().toLocalDate().equals(today))
+                .toList();
+        assertEquals(todayOrders.size(), snapshot.todayOrders());
+        assertEquals(0, sum(todayOrders).compareTo(snapshot.todayAmount()));
+
+        assertEquals(all.stream().collect(Collectors.groupingBy(o -> o.getStatus().name(), Collectors.counting())),
+                snapshot.statusDistribution());
+        assertEquals(all.stream().filter(o -> o.getRefundStatus() != null)
+                        .collect(Collectors.groupingBy(o -> o.getRefundStatus().name(), Collectors.counting())),
+                snapshot.refundStatusDistribution());
+
+        // 6个月趋势，含本月，无订单的月份为0，8个月前的订单不计入
+        assertEquals(6, snapshot.orderTrend().size());
+        for (int i = 0; i < 6; i++) {
+            YearMonth month = YearMonth.from(today).minusMonths(5 - i);
+            List<Order> inMonth = all.stream().filter(o -> YearMonth.from(o.getCreatedAt()).equals(month)).toList();
+            TrendData count = snapshot.orderTrend().get(i);
+            TrendData revenue = snapshot.revenueTrend().get(i);
+            assertEquals(month.getMonthValue() + "月", count.getName());
+            assertEquals(0, BigDecimal.valueOf(inMonth.size()).compareTo(count.getValue()));
+            assertEquals(0, sum(inMonth).compareTo(revenue.getValue()));
+        }
+    }
+
+    @Test
+    public void testSnapshotCachedUntilInvalidated() {
+        OrderAnalyticsSnapshot first = orderAnalyticsService.getSnapshot();
+        insert("oa-6", "1.00", "PAID", null, LocalDateTime.now());
+        assertSame(first, orderAnalyticsService.getSnapshot());
+
+        orderAnalyticsService.invalidate();
+        OrderAnalyticsSnapshot refreshed = orderAnalyticsService.getSnapshot();
+        assertEquals(first.totalOrders() + 1, refreshed.totalOrders());
+    }
+
+    @Test
+    public void testConcurrentLoadsCollapseIntoOne() throws Exception {
+        SingleFlightCache<String, Integer> cache = new SingleFlightCache<>(200);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get("dashboard", () -> {
+                        sleep(200);
+                        return loads.incrementAndGet();
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(1, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+
+            // 加载失败不缓存，异常抛给调用方，下一次重新加载
+            assertThrows(IllegalStateException.class, () -> cache.get("broken", () -> {
+                throw new IllegalStateException("数据库不可用");
+            }));
+            assertEquals(7, cache.get("broken", () -> 7));
+
+            // 到期后重新加载
+            sleep(250);
+            assertEquals(2, cache.get("dashboard", loads::incrementAndGet));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void insert(String id, String amount, String status, String refundStatus, LocalDateTime createdAt) {
+        jdbcTemplate.update("INSERT INTO orders (id, buyer_id, farmer_id, total_amount, status, refund_status, " +
+                        "created_at, updated_at) VALUES (?, 'oa-buyer', 'oa-farmer', ?, ?, ?, ?, ?)",
+                id, new BigDecimal(amount), status, refundStatus, createdAt, createdAt);
+    }
+
+    private static BigDecimal sum(List<Order> orders) {
+        return orders.stream().map(Order::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
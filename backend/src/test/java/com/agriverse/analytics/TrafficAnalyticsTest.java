@@ -0,0 +1,178 @@
+package com.agriverse.analytics;
+
+import com.agriverse.analytics.entity.TrafficStat;
+import com.agriverse.analytics.filter.TrafficTrackingFilter;
+import com.agriverse.analytics.service.TrafficAnalyticsService;
+import com.agriverse.util.HyperLogLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 访问量统计测试
+ * HyperLogLog 估计精度、合并等于并集、序列化往返；过滤器按访客计数；刷新入库后本地与库中数据合并读取
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class TrafficAnalyticsTest {
+
+    @Autowired
+    private TrafficAnalyticsService trafficAnalyticsService;
+
+    @Autowired
+    private TrafficTrackingFilter trafficTrackingFilter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        // 清空库中数据及本节点尚未刷新的统计（含其他测试请求产生的访问）
+        jdbcTemplate.update("DELETE FROM traffic_stats");
+        ((Map<?, ?>) ReflectionTestUtils.getField(trafficAnalyticsService, "days")).clear();
+        ReflectionTestUtils.setField(trafficAnalyticsService, "current", null);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testSketchAccuracyMergeAndSerialization() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (int i = 0; i < 300_000; i++) {
+            String id = "visitor-" + i;
+            (i < 200_000 ? first : second).add(id);
+            if (i >= 100_000 && i < 200_000) {
+                second.add(id);
+            }
+            union.add(id);
+        }
+        assertEquals(200_000, first.estimate(), 200_000 * 0.02);
+        assertEquals(300_000, union.estimate(), 300_000 * 0.02);
+
+        // 合并按寄存器取最大值，结果与直接统计并集完全相同
+        HyperLogLog merged = first.copy().merge(second);
+        assertEquals(union.estimate(), merged.estimate());
+        assertArrayEquals(union.toBytes(), merged.toBytes());
+
+        byte[] bytes = merged.toBytes();
+        assertEquals(HyperLogLog.SERIALIZED_BYTES, bytes.length);
+        assertEquals(12288, bytes.length);
+        assertEquals(merged.estimate(), HyperLogLog.fromBytes(bytes).estimate());
+        assertArrayEquals(bytes, HyperLogLog.fromBytes(bytes).toBytes());
+
+        // 小基数走线性计数，重复元素不重复计数
+        HyperLogLog small = new HyperLogLog();
+        for (int i = 0; i < 100; i++) {
+            small.add("u:" + (i % 10));
+        }
+        assertEquals(10, small.estimate());
+        assertEquals(0, HyperLogLog.fromBytes(null).estimate());
+    }
+
+    @Test
+    public void testFilterCountsVisitors() throws Exception {
+        // 同一匿名访客访问两次，另一匿名访客一次
+        doFilter(anonymous("10.0.0.1", "Mozilla/5.0"));
+        doFilter(anonymous("10.0.0.1", "Mozilla/5.0"));
+        doFilter(anonymous("10.0.0.2", "Mozilla/5.0"));
+
+        // 登录用户按用户ID计数，与IP无关
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("traffic-user", null, List.of()));
+        doFilter(anonymous("10.0.0.3", "curl"));
+        doFilter(anonymous("10.0.0.4", "curl"));
+        SecurityContextHolder.clearContext();
+
+        // 健康检查与预检请求不计入
+        MockHttpServletRequest actuator = new MockHttpServletRequest("GET", "/actuator/health");
+        doFilter(actuator);
+        MockHttpServletRequest preflight = anonymous("10.0.0.5", "Mozilla/5.0");
+        preflight.setMethod("OPTIONS");
+        doFilter(preflight);
+
+        TrafficAnalyticsService.TrafficSummary summary = trafficAnalyticsService.getSummary();
+        assertEquals(5, summary.todayPv());
+        assertEquals(3, summary.todayUv());
+        assertEquals(5, summary.totalPv());
+        assertEquals(3, summary.totalUv());
+    }
+
+    @Test
+    public void testFlushMergesIntoDayAndTotalRows() {
+        String yesterday = LocalDate.now().minusDays(1).toString();
+        HyperLogLog earlier = new HyperLogLog();
+        for (int i = 0; i < 50; i++) {
+            earlier.add("u:" + i);
+        }
+        jdbcTemplate.update("INSERT INTO traffic_stats (period_key, pv, uv_sketch, updated_at) VALUES (?, ?, ?, NOW())",
+                yesterday, 120L, earlier.toBytes());
+        jdbcTemplate.update("INSERT INTO traffic_stats (period_key, pv, uv_sketch, updated_at) VALUES (?, ?, ?, NOW())",
+                TrafficStat.TOTAL, 120L, earlier.toBytes());
+
+        // 今日访客 u:40 ~ u:79，与昨日有10人重叠
+        for (int i = 40; i < 80; i++) {
+            trafficAnalyticsService.record("u:" + i);
+        }
+        TrafficAnalyticsService.TrafficSummary beforeFlush = trafficAnalyticsService.getSummary();
+        trafficAnalyticsService.flush();
+        TrafficAnalyticsService.TrafficSummary afterFlush = trafficAnalyticsService.getSummary();
+
+        // 刷新前后读到的数据一致：未刷新部分在本地合并，刷新后全部来自数据库
+        assertEquals(beforeFlush, afterFlush);
+        assertEquals(40, afterFlush.todayPv());
+        assertEquals(40, afterFlush.todayUv());
+        assertEquals(160, afterFlush.totalPv());
+        assertEquals(80, afterFlush.totalUv());
+
+        String today = LocalDate.now().toString();
+        assertEquals(40L, jdbcTemplate.queryForObject(
+                "SELECT pv FROM traffic_stats WHERE period_key = ?", Long.class, today));
+        assertEquals(160L, jdbcTemplate.queryForObject(
+                "SELECT pv FROM traffic_stats WHERE period_key = ?", Long.class, TrafficStat.TOTAL));
+        byte[] stored = jdbcTemplate.queryForObject(
+                "SELECT uv_sketch FROM traffic_stats WHERE period_key = ?", byte[].class, TrafficStat.TOTAL);
+        assertEquals(HyperLogLog.SERIALIZED_BYTES, stored.length);
+
+        // 再次刷新没有新访问时不改动数据；重复访客只增加 PV
+        trafficAnalyticsService.flush();
+        trafficAnalyticsService.record("u:40");
+        trafficAnalyticsService.flush();
+        TrafficAnalyticsService.TrafficSummary summary = trafficAnalyticsService.getSummary();
+        assertEquals(41, summary.todayPv());
+        assertEquals(40, summary.todayUv());
+        assertEquals(161, summary.totalPv());
+        assertEquals(80, summary.totalUv());
+    }
+
+    private void doFilter(MockHttpServletRequest request) throws Exception {
+        trafficTrackingFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+    }
+
+    private static MockHttpServletRequest anonymous(String ip, String userAgent) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products");
+        request.setRemoteAddr(ip);
+        request.addHeader("User-Agent", userAgent);
+        return request;
+    }
+}
@@ -0,0 +1,174 @@
+package com.agriverse.auth;
+
+import com.agriverse.auth.controller.AuthController;
+import com.agriverse.auth.repository.VerificationCodeRepository;
+import com.agriverse.auth.service.AuthService;
+import com.agriverse.auth.service.AuthThrottleService;
+import com.agriverse.auth.service.EmailService;
+import com.agriverse.auth.service.VerificationCodeService;
+import com.agriverse.dto.LoginRequest;
+import com.agriverse.dto.SendCodeRequest;
+import com.agriverse.entity.VerificationCode;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.util.TokenBucketLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 认证限流与验证码存储测试
+ * 覆盖令牌桶突发与补充、发送冷却、验证码在内存中校验计数及数据库写穿/回读与共享尝试计数，
+ * 以及控制器仅将限流异常映射为 429
+ * （登录失败计数见 {@link LoginFailureThrottleTest}）
+ */
+public class AuthThrottleTest {
+
+    private static final String EMAIL = "throttle@test.com";
+
+    @Test
+    public void testTokenBucketBurstAndRefill() throws InterruptedException {
+        TokenBucketLimiter<String> limiter = new TokenBucketLimiter<>(3, Duration.ofMillis(300));
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+        // 不同键互不影响
+        assertTrue(limiter.tryAcquire("b"));
+
+        Thread.sleep(150);
+        assertTrue(limiter.tryAcquire("a"));
+
+        Thread.sleep(350);
+        assertEquals(2, limiter.evictIdle());
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    public void testSendCodeCooldown() {
+        AuthThrottleService throttle = throttle();
+
+        throttle.checkSendCode(EMAIL, "13800000000", "10.0.0.1");
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> throttle.checkSendCode(EMAIL.toUpperCase(), "13800000001", "10.0.0.1"));
+        assertEquals(AuthThrottleService.TOO_MANY_REQUESTS, e.getCode());
+        throttle.checkSendCode("other@test.com", "13800000002", "10.0.0.1");
+    }
+
+    @Test
+    public void testOnlyThrottleErrorsMapTo429() {
+        AuthService authService = mock(AuthService.class);
+        AuthController controller = new AuthController();
+        ReflectionTestUtils.setField(controller, "authService", authService);
+        MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+        LoginRequest login = new LoginRequest();
+        login.setPhone("13800000000");
+        SendCodeRequest sendCode = new SendCodeRequest();
+        sendCode.setEmail(EMAIL);
+
+        when(authService.login(any(), any()))
+                .thenThrow(new BusinessException(AuthThrottleService.TOO_MANY_REQUESTS, "请求过于频繁"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, controller.login(login, httpRequest).getStatusCode());
+        when(authService.sendVerificationCode(any(), any()))
+                .thenThrow(new BusinessException(AuthThrottleService.TOO_MANY_REQUESTS, "请求过于频繁"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS,
+                controller.sendVerificationCode(sendCode, httpRequest).getStatusCode());
+
+        // 其他业务异常沿用原有映射
+        reset(authService);
+        when(authService.login(any(), any())).thenThrow(new BusinessException("USER_DISABLED", "账户已被禁用"));
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.login(login, httpRequest).getStatusCode());
+        when(authService.sendVerificationCode(any(), any()))
+                .thenThrow(new BusinessException("INVALID_EMAIL", "邮箱格式不正确"));
+        assertEquals(HttpStatus.BAD_REQUEST, controller.sendVerificationCode(sendCode, httpRequest).getStatusCode());
+    }
+
+    @Test
+    public void testVerifyInMemoryCountsAttemptsWithoutDatabase() {
+        VerificationCodeRepository repository = mock(VerificationCodeRepository.class);
+        VerificationCodeService service = codeService(repository, false);
+
+        String code = service.generateAndSendCode("13800000000", EMAIL, "register");
+        service.verify(EMAIL, code, "register");
+        RuntimeException wrong = assertThrows(RuntimeException.class,
+                () -> service.verify(EMAIL, "000000".equals(code) ? "111111" : "000000", "register"));
+        assertEquals("验证码错误或已过期", wrong.getMessage());
+        service.verify(EMAIL, code, "register");
+
+        // 第4次尝试超过上限，验证码作废
+        assertThrows(RuntimeException.class, () -> service.verify(EMAIL, code, "register"));
+        assertThrows(RuntimeException.class, () -> service.verify(EMAIL, code, "register"));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void testWriteThroughAndReadThrough() {
+        VerificationCodeRepository repository = mock(VerificationCodeRepository.class);
+        when(repository.save(any())).thenAnswer(inv -> {
+            VerificationCode saved = inv.getArgument(0);
+            saved.setId("code-1");
+            return saved;
+        });
+        when(repository.incrementAttempts(any(), anyInt())).thenReturn(1);
+        VerificationCodeService service = codeService(repository, true);
+
+        String code = service.generateAndSendCode("13800000000", EMAIL, "register");
+        verify(repository).save(any());
+        service.verify(EMAIL, code, "register");
+        verify(repository).incrementAttempts("code-1", 3);
+        service.consume(EMAIL, code, "register");
+        verify(repository).markUsed("code-1");
+
+        // 其他实例签发的验证码：内存未命中时从数据库回读一次
+        VerificationCode stored = VerificationCode.builder().id("code-2").email(EMAIL).code("654321")
+                .type(VerificationCode.CodeType.RESET).expiredAt(LocalDateTime.now().plusMinutes(5))
+                .attempts(0).used(false).build();
+        when(repository.findFirstByEmailAndTypeAndUsedFalseAndExpiredAtAfterOrderByCreatedAtDesc(
+                eq(EMAIL), eq(VerificationCode.CodeType.RESET), any())).thenReturn(Optional.of(stored));
+        service.verify(EMAIL, "654321", "reset");
+        service.verify(EMAIL, "654321", "reset");
+        verify(repository, times(1)).findFirstByEmailAndTypeAndUsedFalseAndExpiredAtAfterOrderByCreatedAtDesc(
+                eq(EMAIL), eq(VerificationCode.CodeType.RESET), any());
+
+        // 数据库中的尝试次数已被其他实例用尽：本实例内存计数未满也拒绝，并作废本地验证码
+        when(repository.incrementAttempts("code-2", 3)).thenReturn(0);
+        RuntimeException exhausted = assertThrows(RuntimeException.class,
+                () -> service.verify(EMAIL, "654321", "reset"));
+        assertEquals("验证码尝试次数过多", exhausted.getMessage());
+        assertThrows(RuntimeException.class, () -> service.verify(EMAIL, "654321", "reset"));
+        verify(repository, times(2)).findFirstByEmailAndTypeAndUsedFalseAndExpiredAtAfterOrderByCreatedAtDesc(
+                eq(EMAIL), eq(VerificationCode.CodeType.RESET), any());
+    }
+
+    private AuthThrottleService throttle() {
+        return new AuthThrottleService(codeService(mock(VerificationCodeRepository.class), false),
+                mock(JdbcTemplate.class), new SimpleMeterRegistry(), 60, 10, 3600, 20, 3600, 30, 60, 30, 60, 5, 900);
+    }
+
+    private VerificationCodeService codeService(VerificationCodeRepository repository, boolean writeThrough) {
+        VerificationCodeService service = new VerificationCodeService();
+        ReflectionTestUtils.setField(service, "verificationCodeRepository", repository);
+        EmailService emailService = mock(EmailService.class);
+        when(emailService.sendVerificationCode(any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+        ReflectionTestUtils.setField(service, "emailService", emailService);
+        ReflectionTestUtils.setField(service, "codeExpiration", 600);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "writeThrough", writeThrough);
+        ReflectionTestUtils.setField(service, "storeMaxSize", 100);
+        service.init();
+        return service;
+    }
+}
@@ -0,0 +1,137 @@
+package com.agriverse.auth;
+
+import com.agriverse.auth.service.EmailService;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 异步邮件发送测试
+ * 以 GreenMail 内嵌 SMTP 服务器代替真实邮箱服务，校验排队异步发送、连接断开后重连、发送失败回调与队列满拒绝
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.starttls.required=false"
+})
+@ActiveProfiles("test")
+public class EmailServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void testQueuedMailsAreDeliveredAsynchronously() throws Exception {
+        double sentBefore = meterRegistry.get("mail.sent").counter().count();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            futures.add(emailService.sendEmail("user" + i + "@test.com", "主题" + i, "正文" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(30, received.length);
+        Map<String, String> subjects = new HashMap<>();
+        for (MimeMessage message : received) {
+            subjects.put(GreenMailUtil.getAddressList(message.getAllRecipients()), message.getSubject());
+        }
+        assertEquals(30, subjects.size());
+        assertEquals("主题0", subjects.get("user0@test.com"));
+        assertEquals("主题29", subjects.get("user29@test.com"));
+        assertEquals(30, meterRegistry.get("mail.sent").counter().count() - sentBefore, 0.001);
+    }
+
+    @Test
+    public void testFailureCompletesFutureAndReconnectsAfterwards() throws Exception {
+        // 先发一封，让发送线程建立并持有连接
+        emailService.sendEmail("first@test.com", "第一封", "正文").get(30, TimeUnit.SECONDS);
+
+        greenMail.stop();
+        double failedBefore = meterRegistry.get("mail.failed").counter().count();
+        CompletableFuture<Void> failed = emailService.sendEmail("down@test.com", "服务不可用", "正文");
+        assertThrows(ExecutionException.class, () -> failed.get(30, TimeUnit.SECONDS));
+        assertTrue(meterRegistry.get("mail.failed").counter().count() > failedBefore);
+
+        // 服务恢复后重新建立连接
+        greenMail.start();
+        emailService.sendEmail("back@test.com", "恢复", "正文").get(30, TimeUnit.SECONDS);
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch sending = new CountDownLatch(1);
+        JavaMailSender blockingSender = mock(JavaMailSender.class);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(blockingSender).send(any(SimpleMailMessage[].class));
+
+        EmailService service = new EmailService();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(service, "mailSender", blockingSender);
+        ReflectionTestUtils.setField(service, "meterRegistry", registry);
+        ReflectionTestUtils.setField(service, "fromEmail", "noreply@test.com");
+        ReflectionTestUtils.setField(service, "queueCapacity", 2);
+        ReflectionTestUtils.setField(service, "connections", 1);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "enqueueTimeoutMs", 10L);
+        ReflectionTestUtils.setField(service, "idleCloseSeconds", 30L);
+        service.start();
+        try {
+            // 第一封被发送线程取走并阻塞，之后两封占满队列
+            CompletableFuture<Void> inFlight = service.sendEmail("a@test.com", "s", "c");
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+            service.sendEmail("b@test.com", "s", "c");
+            service.sendEmail("c@test.com", "s", "c");
+            assertEquals(2.0, registry.get("mail.queue.size").gauge().value());
+
+            assertThrows(RuntimeException.class, () -> service.sendEmail("d@test.com", "s", "c"));
+            assertEquals(1.0, registry.get("mail.dropped").counter().count());
+
+            release.countDown();
+            inFlight.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            service.stop();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.agriverse.auth;
+
+import com.agriverse.util.JwtTokenProvider;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JWT 令牌认证测试
+ * 覆盖单次解析认证、已验证令牌缓存命中、篡改令牌拒绝以及缓存随令牌过期失效
+ */
+public class JwtTokenProviderTest {
+
+    private static final String SECRET = "test-secret-key-for-testing-only-not-for-production-use-at-least-32-characters-long";
+
+    private final MutableClock clock = new MutableClock();
+
+    private JwtTokenProvider provider(long expirationMillis) {
+        JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "clock", clock);
+        ReflectionTestUtils.setField(provider, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(provider, "jwtExpiration", expirationMillis);
+        ReflectionTestUtils.setField(provider, "refreshExpiration", expirationMillis);
+        ReflectionTestUtils.setField(provider, "verifiedCacheMaxSize", 100);
+        ReflectionTestUtils.setField(provider, "verifiedCacheTtlSeconds", 600L);
+        provider.init();
+        return provider;
+    }
+
+    @Test
+    public void testAuthenticateReturnsPrincipalAndCachesIt() {
+        JwtTokenProvider provider = provider(60_000);
+        String token = provider.generateAccessToken("user-1", "13800000000", "BUYER");
+
+        JwtTokenProvider.TokenPrincipal first = provider.authenticate(token);
+        assertNotNull(first);
+        assertEquals("user-1", first.userId());
+        assertEquals("BUYER", first.role());
+        assertTrue(first.expiresAtMillis() > clock.millis());
+
+        // 第二次命中缓存，返回同一个认证主体
+        assertSame(first, provider.authenticate(token));
+    }
+
+    @Test
+    public void testTamperedOrForeignTokenRejected() {
+        JwtTokenProvider provider = provider(60_000);
+        String token = provider.generateAccessToken("user-1", "13800000000", "BUYER");
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertNull(provider.authenticate(tampered));
+        assertNull(provider.authenticate("not-a-jwt"));
+        assertNull(provider.authenticate(""));
+    }
+
+    @Test
+    public void testCachedTokenEvictedAtExpiry() {
+        JwtTokenProvider provider = provider(1_500);
+        String token = provider.generateAccessToken("user-1", "13800000000", "FARMER");
+
+        assertNotNull(provider.authenticate(token));
+        clock.advance(1_000);
+        assertNotNull(provider.authenticate(token));
+        clock.advance(1_000);
+        assertNull(provider.authenticate(token));
+    }
+
+    /**
+     * 可手动拨动的测试时钟（JWT 以秒为精度，起点取整秒）
+     */
+    private static class MutableClock extends Clock {
+        private long millis = 1_700_000_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.agriverse.auth;
+
+import com.agriverse.auth.service.AuthThrottleService;
+import com.agriverse.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 登录失败计数测试
+ * 失败次数按手机号+IP记录在数据库：超过上限后拒绝该IP上的该手机号，其他IP不受影响，成功登录与时间窗过期后重新计数
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class LoginFailureThrottleTest {
+
+    private static final String PHONE = "13700000000";
+    private static final String ATTACKER_IP = "203.0.113.7";
+    private static final String OWNER_IP = "198.51.100.2";
+
+    @Autowired
+    private AuthThrottleService throttle;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM login_failures WHERE phone = ?", PHONE);
+    }
+
+    @Test
+    public void testFailuresAreCountedPerPhoneAndIp() {
+        for (int i = 0; i < 5; i++) {
+            throttle.checkLogin(PHONE, ATTACKER_IP);
+            throttle.recordLoginFailure(PHONE, ATTACKER_IP);
+        }
+        BusinessException e = assertThrows(BusinessException.class, () -> throttle.checkLogin(PHONE, ATTACKER_IP));
+        assertEquals(AuthThrottleService.TOO_MANY_REQUESTS, e.getCode());
+        assertEquals(5, attempts(ATTACKER_IP));
+
+        // 机主从自己的IP登录不受影响，成功后清除自己的计数
+        throttle.recordLoginFailure(PHONE, OWNER_IP);
+        throttle.checkLogin(PHONE, OWNER_IP);
+        throttle.recordLoginSuccess(PHONE, OWNER_IP);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM login_failures WHERE client_ip = ?",
+                Integer.class, OWNER_IP));
+        assertThrows(BusinessException.class, () -> throttle.checkLogin(PHONE, ATTACKER_IP));
+    }
+
+    @Test
+    public void testExpiredWindowRestartsCount() {
+        for (int i = 0; i < 5; i++) {
+            throttle.recordLoginFailure(PHONE, ATTACKER_IP);
+        }
+        assertThrows(BusinessException.class, () -> throttle.checkLogin(PHONE, ATTACKER_IP));
+
+        jdbcTemplate.update("UPDATE login_failures SET window_start = ? WHERE phone = ?",
+                LocalDateTime.now().minusHours(1), PHONE);
+        throttle.checkLogin(PHONE, ATTACKER_IP);
+        throttle.recordLoginFailure(PHONE, ATTACKER_IP);
+        assertEquals(1, attempts(ATTACKER_IP));
+
+        jdbcTemplate.update("UPDATE login_failures SET window_start = ? WHERE phone = ?",
+                LocalDateTime.now().minusHours(1), PHONE);
+        throttle.evictIdle();
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM login_failures WHERE phone = ?",
+                Integer.class, PHONE));
+    }
+
+    private int attempts(String clientIp) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM login_failures WHERE phone = ? AND client_ip = ?",
+                Integer.class, PHONE, clientIp);
+    }
+}
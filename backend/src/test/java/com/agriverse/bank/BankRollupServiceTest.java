@@ -0,0 +1,153 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.dto.DashboardStatisticsResponse;
+import com.agriverse.bank.dto.TrendData;
+import com.agriverse.bank.entity.BankDailyRollup;
+import com.agriverse.bank.repository.BankDailyRollupRepository;
+import com.agriverse.bank.service.BankDashboardService;
+import com.agriverse.bank.service.BankRollupService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 银行每日汇总测试
+ * 验证放款/还款增量累加与按历史全量回填结果一致（结清日期不随融资申请后续修改变化），
+ * 以及仪表盘按银行或全部银行从汇总表读取的余额与趋势
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class BankRollupServiceTest {
+
+    private static final String FARMER_ID = "rollup-farmer";
+
+    @Autowired
+    private BankRollupService rollupService;
+
+    @Autowired
+    private BankDashboardService dashboardService;
+
+    @Autowired
+    private BankDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM repayment_records WHERE financing_id IN " +
+                "(SELECT id FROM financing_applications WHERE farmer_id = ?)", FARMER_ID);
+        jdbcTemplate.update("DELETE FROM disbursements WHERE financing_id IN " +
+                "(SELECT id FROM financing_applications WHERE farmer_id = ?)", FARMER_ID);
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id = ?", FARMER_ID);
+        rollupRepository.deleteAll();
+    }
+
+    @Test
+    public void testIncrementalRollupMatchesBackfill() {
+        LocalDateTime twoMonthsAgo = LocalDateTime.now().minusMonths(2).withDayOfMonth(10);
+        LocalDateTime today = LocalDateTime.now();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            String loanA = disburse("bank-a", new BigDecimal("10000.00"), twoMonthsAgo);
+            String loanB = disburse("bank-a", new BigDecimal("5000.00"), twoMonthsAgo);
+            String loanC = disburse("bank-b", new BigDecimal("8000.00"), today);
+
+            repay(loanA, new BigDecimal("10000.00"), today, true);
+            repay(loanB, new BigDecimal("1200.00"), today, false);
+            repay(loanC, new BigDecimal("800.00"), today, false);
+        });
+
+        List<String> incremental = snapshot();
+        assertEquals(3, incremental.size());
+
+        // 结清后融资申请再被修改，回填的结清日期仍是结清还款当天
+        jdbcTemplate.update("UPDATE financing_applications SET updated_at = ? WHERE farmer_id = ? AND status = 'SETTLED'",
+                today.plusDays(3), FARMER_ID);
+        rollupService.rebuild();
+        assertEquals(incremental, snapshot());
+
+        // 按银行统计时只看到自己放出的贷款
+        DashboardStatisticsResponse bankA = dashboardService.getDashboardStatistics("bank-a");
+        assertEquals(0, bankA.getTodayDisbursedCount());
+        assertEquals(0, BigDecimal.ZERO.compareTo(bankA.getTodayDisbursedAmount()));
+        assertEquals(1, bankA.getOutstandingLoansCount());
+        assertEquals(0, new BigDecimal("3800.00").compareTo(bankA.getOutstandingAmount()));
+
+        List<TrendData> balance = bankA.getBalanceTrend();
+        assertEquals(6, balance.size());
+        assertEquals(0, new BigDecimal("15000.00").compareTo(balance.get(3).getValue()));
+        assertEquals(0, new BigDecimal("3800.00").compareTo(balance.get(5).getValue()));
+        assertEquals(0, new BigDecimal("15000.00").compareTo(bankA.getDisbursementTrend().get(3).getValue()));
+
+        DashboardStatisticsResponse bankB = dashboardService.getDashboardStatistics("bank-b");
+        assertEquals(1, bankB.getTodayDisbursedCount());
+        assertEquals(0, new BigDecimal("8000.00").compareTo(bankB.getTodayDisbursedAmount()));
+        assertEquals(1, bankB.getOutstandingLoansCount());
+        assertEquals(0, new BigDecimal("7200.00").compareTo(bankB.getOutstandingAmount()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(bankB.getDisbursementTrend().get(3).getValue()));
+
+        // 不指定银行时统计全部银行
+        DashboardStatisticsResponse all = dashboardService.getDashboardStatistics(null);
+        assertTrue(all.getTodayDisbursedCount() >= bankA.getTodayDisbursedCount() + bankB.getTodayDisbursedCount());
+        assertTrue(all.getOutstandingLoansCount() >= bankA.getOutstandingLoansCount() + bankB.getOutstandingLoansCount());
+        assertTrue(all.getOutstandingAmount().compareTo(
+                bankA.getOutstandingAmount().add(bankB.getOutstandingAmount())) >= 0);
+    }
+
+    private String disburse(String bankId, BigDecimal amount, LocalDateTime at) {
+        String financingId = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+                        "status, disbursed_at, disbursed_amount, created_at, updated_at) " +
+                        "VALUES (?, ?, ?, 12, '春耕', 'DISBURSED', ?, ?, ?, ?)",
+                financingId, FARMER_ID, amount, at, amount, at, at);
+        jdbcTemplate.update("INSERT INTO disbursements (id, financing_id, amount, status, disbursed_by, " +
+                        "disbursed_at, created_at, updated_at) VALUES (?, ?, ?, 'SUCCESS', ?, ?, ?, ?)",
+                UUID.randomUUID().toString(), financingId, amount, bankId, at, at, at);
+        rollupService.recordDisbursement(bankId, at, amount);
+        return financingId;
+    }
+
+    private void repay(String financingId, BigDecimal principal, LocalDateTime at, boolean settled) {
+        jdbcTemplate.update("INSERT INTO repayment_records (id, financing_id, repayment_type, amount, principal, " +
+                        "interest, penalty, paid_at, created_at) VALUES (?, ?, 'NORMAL', ?, ?, 0, 0, ?, ?)",
+                UUID.randomUUID().toString(), financingId, principal, principal, at, at);
+        if (settled) {
+            jdbcTemplate.update("UPDATE financing_applications SET status = 'SETTLED', updated_at = ? WHERE id = ?",
+                    at, financingId);
+        }
+        rollupService.recordRepayment(financingId, at, principal, settled);
+    }
+
+    private List<String> snapshot() {
+        return rollupRepository.findAll().stream()
+                .sorted(Comparator.comparing(BankDailyRollup::getStatDate).thenComparing(BankDailyRollup::getBankId))
+                .map(r -> r.getStatDate() + "|" + r.getBankId() + "|" + r.getDisbursedCount() + "|"
+                        + r.getDisbursedAmount().stripTrailingZeros().toPlainString() + "|"
+                        + r.getRepaidPrincipal().stripTrailingZeros().toPlainString() + "|" + r.getSettledCount())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,132 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.entity.BankSystemConfig;
+import com.agriverse.bank.repository.BankSystemConfigRepository;
+import com.agriverse.bank.service.BankSystemConfigService;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.util.ConfigRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 系统配置快照测试
+ * 覆盖启动全量加载后读取不访问数据库、类型预解析、修改随事务提交原子生效、监听器回调及重载与修改并发时的版本控制
+ */
+public class BankSystemConfigServiceTest {
+
+    @Test
+    public void testTypedReadsServedFromSnapshot() {
+        BankSystemConfigRepository repository = mock(BankSystemConfigRepository.class);
+        when(repository.findAll()).thenReturn(List.of(
+                config("penalty.daily-rate", "0.0005", BankSystemConfig.ConfigType.NUMBER),
+                config("risk.auto-approve", "true", BankSystemConfig.ConfigType.BOOLEAN),
+                config("risk.levels", "{\"high\":80,\"low\":40}", BankSystemConfig.ConfigType.JSON),
+                config("bank.name", "农信银行", BankSystemConfig.ConfigType.STRING),
+                config("broken.number", "abc", BankSystemConfig.ConfigType.NUMBER)));
+        BankSystemConfigService service = service(repository);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0.0005, service.getConfigValue("penalty.daily-rate", Double.class));
+            assertEquals(Boolean.TRUE, service.getConfigValue("risk.auto-approve", Boolean.class));
+        }
+        assertEquals(new BigDecimal("0.0005"), service.getConfigValue("penalty.daily-rate", BigDecimal.class));
+        assertEquals(0.0005, service.getDouble("penalty.daily-rate", 0.001));
+        assertEquals(0.001, service.getDouble("missing", 0.001));
+        assertEquals("农信银行", service.getConfigValue("bank.name"));
+        assertNull(service.getConfigValue("missing", Double.class));
+
+        // JSON 在加载时解析，同一版本内转换结果复用
+        Map<?, ?> levels = service.getConfigValue("risk.levels", Map.class);
+        assertEquals(80, levels.get("high"));
+        assertSame(levels, service.getConfigValue("risk.levels", Map.class));
+
+        // 格式错误的配置不影响其他配置，按类型读取时报错
+        assertEquals("abc", service.getConfigValue("broken.number"));
+        assertThrows(BusinessException.class, () -> service.getConfigValue("broken.number", Double.class));
+        assertThrows(BusinessException.class, () -> service.getConfigValue("bank.name", Boolean.class));
+
+        verify(repository, times(1)).findAll();
+        verify(repository, never()).findByConfigKey(anyString());
+    }
+
+    @Test
+    public void testSetConfigValuePublishesAfterCommit() {
+        BankSystemConfigRepository repository = mock(BankSystemConfigRepository.class);
+        BankSystemConfig stored = config("penalty.daily-rate", "0.0005", BankSystemConfig.ConfigType.NUMBER);
+        when(repository.findAll()).thenReturn(List.of(stored));
+        when(repository.findByConfigKey("penalty.daily-rate")).thenReturn(Optional.of(stored));
+        when(repository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        BankSystemConfigService service = service(repository);
+
+        List<Double> seen = new ArrayList<>();
+        service.watch("penalty.daily-rate", v -> seen.add(v != null ? v.as(Double.class) : null));
+        assertEquals(List.of(0.0005), seen);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.setConfigValue("penalty.daily-rate", "0.0006", null, null, "admin");
+            // 事务提交前仍是旧值
+            assertEquals(0.0005, service.getDouble("penalty.daily-rate", 0));
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(0.0006, service.getDouble("penalty.daily-rate", 0));
+        assertEquals(List.of(0.0005, 0.0006), seen);
+
+        // 未变化的全量重载不触发监听器
+        service.reload();
+        assertEquals(List.of(0.0005, 0.0006), seen);
+    }
+
+    @Test
+    public void testReloadRetriesWhenNewerVersionPublished() {
+        AtomicInteger loads = new AtomicInteger();
+        ConfigRegistry[] holder = new ConfigRegistry[1];
+        ConfigRegistry registry = new ConfigRegistry("test", () -> {
+            if (loads.incrementAndGet() == 2) {
+                // 重载读取数据库期间，另一个请求提交了新值
+                holder[0].publish(new ConfigRegistry.Source("threshold", "90", "NUMBER"));
+                return List.of(new ConfigRegistry.Source("threshold", "80", "NUMBER"));
+            }
+            return List.of(new ConfigRegistry.Source("threshold", loads.get() == 1 ? "80" : "90", "NUMBER"));
+        }, new ObjectMapper());
+        holder[0] = registry;
+
+        registry.reload();
+        assertEquals(1, registry.version());
+        assertEquals(80, registry.get("threshold", Integer.class));
+
+        registry.reload();
+        // 读到的旧数据未覆盖较新的版本，重新读取后生效
+        assertEquals(3, loads.get());
+        assertEquals(90, registry.get("threshold", Integer.class));
+        assertEquals(3, registry.version());
+    }
+
+    private BankSystemConfigService service(BankSystemConfigRepository repository) {
+        BankSystemConfigService service = new BankSystemConfigService(repository, new ObjectMapper());
+        service.init();
+        return service;
+    }
+
+    private BankSystemConfig config(String key, String value, BankSystemConfig.ConfigType type) {
+        return BankSystemConfig.builder().id(key).configKey(key).configValue(value).configType(type).build();
+    }
+}
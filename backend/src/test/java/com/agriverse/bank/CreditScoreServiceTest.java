@@ -0,0 +1,155 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.LatestCreditScore;
+import com.agriverse.bank.entity.RiskAlertRecord;
+import com.agriverse.bank.event.CreditScoreSavedEvent;
+import com.agriverse.bank.repository.CreditScoreRepository;
+import com.agriverse.bank.repository.RiskAlertRecordRepository;
+import com.agriverse.bank.service.CreditScoreService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量重新评分测试
+ * 按还款行为分块评分，评分写入历史并更新农户最新评分，评分未变化时不写历史，低分打开高风险预警、回升后关闭
+ */
+@SpringBootTest(properties = "app.credit-rescoring.chunk-size=1")
+@ActiveProfiles("test")
+public class CreditScoreServiceTest {
+
+    private static final String CLEAN_FARMER = "rescore-farmer-a";
+    private static final String LATE_FARMER = "rescore-farmer-b";
+
+    @Autowired
+    private CreditScoreService creditScoreService;
+
+    @Autowired
+    private CreditScoreRepository creditScoreRepository;
+
+    @Autowired
+    private RiskAlertRecordRepository alertRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM risk_alerts WHERE customer_id LIKE 'rescore-%'");
+        jdbcTemplate.update("DELETE FROM latest_credit_scores WHERE farmer_id LIKE 'rescore-%'");
+        jdbcTemplate.update("DELETE FROM credit_scores WHERE farmer_id LIKE 'rescore-%'");
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id LIKE 'rescore-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id LIKE 'rescore-%'");
+    }
+
+    @Test
+    public void testRescorePortfolio() {
+        LocalDate asOf = LocalDate.now();
+        insertApplication("rescore-loan-a", CLEAN_FARMER);
+        insertSchedule("rescore-loan-a", 1, asOf.minusDays(60), "PAID", asOf.minusDays(60).atTime(12, 0));
+        insertSchedule("rescore-loan-a", 2, asOf.minusDays(30), "PAID", asOf.minusDays(31).atTime(12, 0));
+        insertSchedule("rescore-loan-a", 3, asOf.plusDays(1), "PENDING", null);
+
+        insertApplication("rescore-loan-b", LATE_FARMER);
+        for (int i = 1; i <= 3; i++) {
+            LocalDate due = asOf.minusDays(150 - i * 30L);
+            insertSchedule("rescore-loan-b", i, due, "PAID", due.atTime(9, 0));
+        }
+        insertSchedule("rescore-loan-b", 4, asOf.minusDays(30), "OVERDUE", null);
+        insertSchedule("rescore-loan-b", 5, asOf.plusDays(1), "PENDING", null);
+
+        // 人工评分的收入、资产、经验分在重新评分时沿用
+        CreditScore manual = creditScoreRepository.save(CreditScore.builder()
+            .financingId("rescore-loan-a")
+            .farmerId(CLEAN_FARMER)
+            .creditHistoryScore(70)
+            .incomeScore(85)
+            .assetScore(60)
+            .debtRatioScore(70)
+            .experienceScore(90)
+            .totalScore(72)
+            .riskLevel(CreditScore.RiskLevel.MEDIUM)
+            .reviewerId("rescore-reviewer")
+            .reviewedAt(LocalDateTime.now().minusDays(1))
+            .createdAt(LocalDateTime.now().minusDays(1))
+            .build());
+        eventPublisher.publishEvent(new CreditScoreSavedEvent(List.of(manual)));
+        assertEquals(manual.getId(), creditScoreService.getLatestScore(CLEAN_FARMER).getCreditScoreId());
+
+        assertTrue(creditScoreService.rescorePortfolio(asOf) >= 2);
+
+        LatestCreditScore clean = creditScoreService.getLatestScore(CLEAN_FARMER);
+        assertEquals(100, clean.getTotalScore());
+        assertEquals(CreditScore.RiskLevel.LOW, clean.getRiskLevel());
+        CreditScore rescored = creditScoreRepository.findById(clean.getCreditScoreId()).orElseThrow();
+        assertEquals(CreditScoreService.RESCORING_REVIEWER, rescored.getReviewerId());
+        assertEquals(85, rescored.getIncomeScore());
+        assertEquals(60, rescored.getAssetScore());
+        assertEquals(90, rescored.getExperienceScore());
+
+        // 4期到期3期按时、最早逾期30天：信用历史 75 − 15 = 60；逾期占未还一半：负债分50
+        LatestCreditScore late = creditScoreService.getLatestScore(LATE_FARMER);
+        assertEquals("rescore-loan-b", late.getFinancingId());
+        assertEquals(56, late.getTotalScore());
+        assertEquals(CreditScore.RiskLevel.HIGH, late.getRiskLevel());
+        CreditScore lateScore = creditScoreRepository.findById(late.getCreditScoreId()).orElseThrow();
+        assertEquals(60, lateScore.getCreditHistoryScore());
+        assertEquals(50, lateScore.getDebtRatioScore());
+        RiskAlertRecord alert = alertRepository.findByDedupKey("HIGH_RISK:" + LATE_FARMER).orElseThrow();
+        assertEquals(RiskAlertRecord.AlertStatus.OPEN, alert.getStatus());
+
+        // 逾期期次补还后再评分：历史保留两条，最新评分指向新记录，预警关闭
+        jdbcTemplate.update("UPDATE repayment_schedules SET status = 'PAID', paid_at = ? WHERE id = ?",
+            LocalDateTime.now(), "rescore-loan-b-4");
+        creditScoreService.rescorePortfolio(asOf);
+
+        LatestCreditScore recovered = creditScoreService.getLatestScore(LATE_FARMER);
+        assertEquals(85, recovered.getTotalScore());
+        assertNotEquals(late.getCreditScoreId(), recovered.getCreditScoreId());
+        assertEquals(2, creditScoreRepository.findTop10ByFarmerIdOrderByCreatedAtDesc(LATE_FARMER).size());
+        assertEquals(RiskAlertRecord.AlertStatus.CLOSED,
+            alertRepository.findByDedupKey("HIGH_RISK:" + LATE_FARMER).orElseThrow().getStatus());
+
+        // 还款行为不变时再评分：不新增历史，最新评分不变
+        creditScoreService.rescorePortfolio(asOf);
+        assertEquals(2, creditScoreRepository.findTop10ByFarmerIdOrderByCreatedAtDesc(LATE_FARMER).size());
+        assertEquals(2, creditScoreRepository.findTop10ByFarmerIdOrderByCreatedAtDesc(CLEAN_FARMER).size());
+        assertEquals(recovered.getCreditScoreId(), creditScoreService.getLatestScore(LATE_FARMER).getCreditScoreId());
+        assertNull(creditScoreService.getLatestScore("rescore-farmer-none"));
+    }
+
+    private void insertApplication(String id, String farmerId) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+            "status, created_at, updated_at) VALUES (?, ?, 5000.00, 5, '春耕', 'REPAYING', ?, ?)",
+            id, farmerId, now, now);
+    }
+
+    private void insertSchedule(String financingId, int number, LocalDate due, String status, LocalDateTime paidAt) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO repayment_schedules (id, financing_id, installment_number, due_date, " +
+            "principal, interest, total_amount, status, paid_at, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, 1000.00, 10.00, 1010.00, ?, ?, ?, ?)",
+            financingId + "-" + number, financingId, number, due, status, paidAt, now, now);
+    }
+}
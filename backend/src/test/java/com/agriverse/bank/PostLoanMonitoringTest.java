@@ -0,0 +1,164 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.dto.PostLoanMonitoringRow;
+import com.agriverse.bank.service.PostLoanService;
+import com.agriverse.exception.BusinessException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 贷后监控列表测试
+ * 分组聚合得到的每行与单笔监控的统计一致，排序与分页在数据库完成且逐页翻到底不重不漏
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class PostLoanMonitoringTest {
+
+    private static final String FARMER_ID = "plm-farmer";
+    private static final int LOANS = 23;
+
+    @Autowired
+    private PostLoanService postLoanService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = LocalDate.now();
+        List<Object[]> loans = new ArrayList<>();
+        List<Object[]> schedules = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            String id = String.format("plm-%03d", i);
+            // 第 i 笔：6期，前 i % 7 期已还，其后 i % 3 期逾期，其余待还；每5笔有1笔已结清不在列表中
+            String status = i % 5 == 4 ? "SETTLED" : i % 2 == 0 ? "REPAYING" : "DISBURSED";
+            loans.add(new Object[]{id, FARMER_ID, new BigDecimal(6000 + i * 100), status, now, now});
+            int paid = Math.min(i % 7, 6);
+            int overdue = Math.min(i % 3, 6 - paid);
+            for (int n = 1; n <= 6; n++) {
+                String scheduleStatus = n <= paid ? "PAID" : n <= paid + overdue ? "OVERDUE" : "PENDING";
+                BigDecimal total = new BigDecimal(1000 + i * 10 + n);
+                schedules.add(new Object[]{id + "-" + n, id, n, today.plusMonths(n - 4), total, scheduleStatus,
+                        now, now});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+                "status, created_at, updated_at) VALUES (?, ?, ?, 6, '春耕', ?, ?, ?)", loans);
+        jdbcTemplate.batchUpdate("INSERT INTO repayment_schedules (id, financing_id, installment_number, due_date, " +
+                "principal, interest, total_amount, status, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, 0, 0, ?, ?, ?, ?)", schedules);
+        // 尚未生成还款计划的在途贷款也在列表中
+        jdbcTemplate.update("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+                "status, created_at, updated_at) VALUES ('plm-empty', ?, 5000, 6, '春耕', 'DISBURSED', ?, ?)",
+                FARMER_ID, now, now);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id LIKE 'plm-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id = ?", FARMER_ID);
+    }
+
+    @Test
+    public void testRowsMatchPerLoanMonitoring() {
+        List<PostLoanMonitoringRow> rows = readAll("overdueAmount", "DESC", 5);
+        assertEquals(LOANS - LOANS / 5 + 1, rows.size());
+        assertTrue(rows.stream().noneMatch(r -> "SETTLED".equals(r.status())));
+
+        for (PostLoanMonitoringRow row : rows) {
+            Map<String, Object> detail = postLoanService.getPostLoanMonitoring(row.financingId());
+            assertEquals(detail.get("totalInstallments"), row.totalInstallments());
+            assertEquals(detail.get("paidInstallments"), row.paidInstallments());
+            assertEquals(detail.get("overdueInstallments"), row.overdueInstallments());
+            assertEquals(0, ((BigDecimal) detail.get("paidAmount")).compareTo(row.paidAmount()));
+            assertEquals(0, ((BigDecimal) detail.get("overdueAmount")).compareTo(row.overdueAmount()));
+            assertEquals(0, ((BigDecimal) detail.get("repaymentRate")).compareTo(row.getRepaymentRate()));
+            assertEquals(row.totalInstallments(), ((List<?>) detail.get("schedules")).size());
+        }
+
+        PostLoanMonitoringRow empty = rows.stream()
+                .filter(r -> r.financingId().equals("plm-empty")).findFirst().orElseThrow();
+        assertEquals(0, empty.totalInstallments());
+        assertEquals(0, BigDecimal.ZERO.compareTo(empty.getRepaymentRate()));
+        assertNull(empty.nextDueDate());
+
+        // plm-001：1期已还、1期逾期，最早未还一期为第2期
+        PostLoanMonitoringRow one = rows.stream()
+                .filter(r -> r.financingId().equals("plm-001")).findFirst().orElseThrow();
+        assertEquals(1, one.paidInstallments());
+        assertEquals(1, one.overdueInstallments());
+        assertEquals(4, one.pendingInstallments());
+        assertEquals(0, new BigDecimal("1012").compareTo(one.overdueAmount()));
+        assertEquals(LocalDate.now().plusMonths(-2), one.nextDueDate());
+    }
+
+    @Test
+    public void testSortedAndPagedInDatabase() throws Exception {
+        List<PostLoanMonitoringRow> byOverdue = readAll("overdueAmount", "DESC", 4);
+        for (int i = 1; i < byOverdue.size(); i++) {
+            assertTrue(byOverdue.get(i - 1).overdueAmount().compareTo(byOverdue.get(i).overdueAmount()) >= 0);
+        }
+
+        List<PostLoanMonitoringRow> byRate = readAll("REPAYMENT_RATE", "asc", 6);
+        for (int i = 1; i < byRate.size(); i++) {
+            assertTrue(byRate.get(i - 1).getRepaymentRate().compareTo(byRate.get(i).getRepaymentRate()) <= 0);
+        }
+
+        Page<PostLoanMonitoringRow> first = postLoanService.getAllPostLoanMonitoring(null, null, 0, 3);
+        assertEquals(3, first.getContent().size());
+        assertTrue(first.getTotalElements() >= LOANS - LOANS / 5 + 1);
+
+        // 列表行不含还款计划明细，还款率随行返回
+        JsonNode json = objectMapper.valueToTree(first.getContent().get(0));
+        assertFalse(json.has("schedules"));
+        assertTrue(json.has("repaymentRate"));
+
+        assertThrows(BusinessException.class, () -> postLoanService.getAllPostLoanMonitoring("farmerName", null, 0, 10));
+        assertThrows(BusinessException.class, () -> postLoanService.getAllPostLoanMonitoring(null, "sideways", 0, 10));
+    }
+
+    /**
+     * 从第一页逐页读到最后一页，只保留本测试的贷款，断言各页之间没有重复
+     */
+    private List<PostLoanMonitoringRow> readAll(String sort, String direction, int size) {
+        List<PostLoanMonitoringRow> all = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        Page<PostLoanMonitoringRow> page;
+        int number = 0;
+        do {
+            page = postLoanService.getAllPostLoanMonitoring(sort, direction, number++, size);
+            assertTrue(page.getContent().size() <= size);
+            for (PostLoanMonitoringRow row : page.getContent()) {
+                assertTrue(seen.add(row.financingId()), "重复记录: " + row.financingId());
+                if (row.financingId().startsWith("plm-")) {
+                    all.add(row);
+                }
+            }
+        } while (page.hasNext());
+        return all;
+    }
+}
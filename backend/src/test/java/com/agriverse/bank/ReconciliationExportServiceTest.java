@@ -0,0 +1,209 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.entity.ReconciliationRecord;
+import com.agriverse.bank.service.ReconciliationExportService;
+import com.agriverse.bank.service.ReconciliationExportService.ExportFormat;
+import com.agriverse.bank.service.ReconciliationService;
+import com.agriverse.util.PageCursor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对账单流式导出测试
+ * 校验 CSV、Excel、T+1 定长文件、NDJSON 的内容、行序与汇总，以及对账列表的游标分页
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ReconciliationExportServiceTest {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2002, 3, 1);
+    private static final int DAYS = 3;
+    private static final int PER_DAY = 200;
+
+    @Autowired
+    private ReconciliationExportService exportService;
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (int d = 0; d < DAYS; d++) {
+            for (int i = 0; i < PER_DAY; i++) {
+                boolean difference = i == 0;
+                rows.add(new Object[]{"export-" + d + "-" + i, String.format("export-loan-%04d", i),
+                        FIRST_DATE.plusDays(d), difference ? "DIFFERENCE" : "NORMAL",
+                        difference ? new BigDecimal("-12.34") : BigDecimal.ZERO,
+                        difference ? "金额不符, 备注含\"引号\"" : null, now});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO reconciliation_records (id, financing_id, reconciliation_date, " +
+                "disbursed_amount, repaid_principal, repaid_interest, pending_principal, pending_interest, " +
+                "overdue_principal, overdue_interest, overdue_penalty, status, difference_amount, " +
+                "difference_reason, created_at) " +
+                "VALUES (?, ?, ?, 3060.00, 1000.00, 20.00, 1000.00, 20.00, 1000.00, 20.00, 5.10, ?, ?, ?, ?)", rows);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM reconciliation_records WHERE id LIKE 'export-%'");
+    }
+
+    @Test
+    public void testCsvExport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rows = exportService.export(FIRST_DATE, FIRST_DATE.plusDays(DAYS - 1), ExportFormat.CSV, out);
+        assertEquals(DAYS * PER_DAY, rows);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertTrue(csv.startsWith("\uFEFF融资申请ID,对账日期"));
+        String[] lines = csv.split("\r\n");
+        assertEquals(DAYS * PER_DAY + 1, lines.length);
+        assertEquals("export-loan-0000,2002-03-01,3060.00,1000.00,20.00,1000.00,20.00,1000.00,20.00,5.10," +
+                "-12.34,DIFFERENCE,\"金额不符, 备注含\"\"引号\"\"\"", lines[1]);
+        assertTrue(lines[2].startsWith("export-loan-0001,2002-03-01,"));
+        assertTrue(lines[lines.length - 1].startsWith("export-loan-0199,2002-03-03,"));
+    }
+
+    @Test
+    public void testExcelExport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(FIRST_DATE, FIRST_DATE, ExportFormat.EXCEL, out);
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(PER_DAY, sheet.getLastRowNum());
+            assertEquals("融资申请ID", sheet.getRow(0).getCell(0).getStringCellValue());
+            Row first = sheet.getRow(1);
+            assertEquals("export-loan-0000", first.getCell(0).getStringCellValue());
+            assertEquals(3060.00, first.getCell(2).getNumericCellValue(), 0.001);
+            assertEquals(-12.34, first.getCell(10).getNumericCellValue(), 0.001);
+            assertEquals("DIFFERENCE", first.getCell(11).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void testT1FixedWidthExport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(FIRST_DATE, FIRST_DATE.plusDays(DAYS - 1), ExportFormat.T1, out);
+
+        String[] lines = out.toString(StandardCharsets.US_ASCII).split("\r\n");
+        assertEquals(DAYS * PER_DAY + 2, lines.length);
+        for (String line : lines) {
+            assertEquals(191, line.length());
+        }
+        assertTrue(lines[0].startsWith("H2002030120020303"));
+
+        String detail = lines[1];
+        assertEquals("D", detail.substring(0, 1));
+        assertEquals("export-loan-0000", detail.substring(1, 37).trim());
+        assertEquals("20020301", detail.substring(37, 45));
+        assertEquals("000000000306000", detail.substring(45, 60));
+        assertEquals("-000000000001234", detail.substring(165, 181));
+        assertEquals("DIFFERENCE", detail.substring(181, 191).trim());
+
+        String trailer = lines[lines.length - 1];
+        assertEquals("T" + String.format("%010d", DAYS * PER_DAY)
+                + String.format("%018d", 306000L * DAYS * PER_DAY)
+                + String.format("%018d", 102000L * DAYS * PER_DAY), trailer.trim());
+    }
+
+    @Test
+    public void testNdjsonExport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int rows = exportService.export(FIRST_DATE, FIRST_DATE.plusDays(DAYS - 1), ExportFormat.NDJSON, out);
+        assertEquals(DAYS * PER_DAY, rows);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(DAYS * PER_DAY, lines.length);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("export-loan-0000", first.get("financingId").asText());
+        assertEquals("2002-03-01", first.get("reconciliationDate").asText());
+        assertEquals(0, new BigDecimal("-12.34").compareTo(first.get("differenceAmount").decimalValue()));
+        assertEquals("DIFFERENCE", first.get("status").asText());
+        assertEquals("export-loan-0199", objectMapper.readTree(lines[lines.length - 1]).get("financingId").asText());
+    }
+
+    @Test
+    public void testExportFormatAcceptsNamesAndExtensions() {
+        assertEquals(ExportFormat.EXCEL, ExportFormat.of(null));
+        assertEquals(ExportFormat.EXCEL, ExportFormat.of("xlsx"));
+        assertEquals(ExportFormat.EXCEL, ExportFormat.of("Excel"));
+        assertEquals(ExportFormat.CSV, ExportFormat.of(" csv "));
+        assertEquals(ExportFormat.T1, ExportFormat.of("txt"));
+        assertThrows(IllegalArgumentException.class, () -> ExportFormat.of("pdf"));
+    }
+
+    @Test
+    public void testReconciliationListPaging() {
+        LocalDate last = FIRST_DATE.plusDays(DAYS - 1);
+        // 超过上限的每页条数按上限截断
+        PageCursor.Slice<ReconciliationRecord> page =
+                reconciliationService.getReconciliationList(FIRST_DATE, last, null, 1000);
+        assertEquals(PageCursor.MAX_PAGE_SIZE, page.content().size());
+        assertEquals(last, page.content().get(0).getReconciliationDate());
+        assertEquals("export-loan-0199", page.content().get(0).getFinancingId());
+
+        // 逐页翻到底：按 (对账日期, 融资申请ID) 倒序、不重不漏，每页只查询一页数据
+        List<ReconciliationRecord> all = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            page = reconciliationService.getReconciliationList(FIRST_DATE, last, cursor, 70);
+            assertTrue(page.content().size() <= 70);
+            for (ReconciliationRecord record : page.content()) {
+                assertTrue(ids.add(record.getId()));
+                all.add(record);
+            }
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+        assertEquals(DAYS * PER_DAY, all.size());
+        assertEquals((DAYS * PER_DAY + 69) / 70, pages);
+        for (int i = 1; i < all.size(); i++) {
+            ReconciliationRecord prev = all.get(i - 1);
+            ReconciliationRecord next = all.get(i);
+            int byDate = prev.getReconciliationDate().compareTo(next.getReconciliationDate());
+            assertTrue(byDate > 0 || (byDate == 0 && prev.getFinancingId().compareTo(next.getFinancingId()) > 0));
+        }
+
+        // 日期范围在数据库中过滤
+        assertEquals(PER_DAY, reconciliationService.getReconciliationList(FIRST_DATE, FIRST_DATE, null, 200)
+                .content().size());
+        assertFalse(reconciliationService.getReconciliationList(FIRST_DATE, FIRST_DATE, null, 200).hasMore());
+    }
+}
@@ -0,0 +1,209 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.entity.ReconciliationCheckpoint;
+import com.agriverse.bank.repository.ReconciliationCheckpointRepository;
+import com.agriverse.bank.service.ReconciliationService;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.finance.service.LoanAccrualService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对账服务测试
+ * 小分块、多线程下校验对账金额与状态、重跑不产生重复记录并清除已结清融资的旧记录，
+ * 中断后从检查点继续，以及其他实例持有租约时拒绝重复执行
+ */
+@SpringBootTest(properties = {
+        "app.reconciliation.chunk-size=37",
+        "app.reconciliation.workers=3"
+})
+@ActiveProfiles("test")
+public class ReconciliationServiceTest {
+
+    private static final String FARMER_ID = "recon-farmer";
+    private static final LocalDate RECONCILE_DATE = LocalDate.of(2001, 1, 1);
+    private static final int LOANS = 400;
+
+    private static final String OUR_RECORDS = "FROM reconciliation_records WHERE reconciliation_date = ? " +
+            "AND financing_id LIKE 'recon-%'";
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private LoanAccrualService accrualService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        seedLoans();
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM reconciliation_records WHERE reconciliation_date = ?", RECONCILE_DATE);
+        jdbcTemplate.update("DELETE FROM reconciliation_checkpoints WHERE reconciliation_date = ?", RECONCILE_DATE);
+        jdbcTemplate.update("DELETE FROM loan_accruals WHERE financing_id LIKE 'recon-%'");
+        jdbcTemplate.update("DELETE FROM loan_accrual_balances WHERE financing_id LIKE 'recon-%'");
+        jdbcTemplate.update("DELETE FROM repayment_records WHERE financing_id LIKE 'recon-%'");
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id LIKE 'recon-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id = ?", FARMER_ID);
+    }
+
+    @Test
+    public void testReconcileInChunksAndRerunWithoutDuplicates() {
+        // 逾期罚息取自逾期计划上计提的罚息
+        accrualService.accrue(LocalDate.now());
+        int processed = reconciliationService.reconcileByDate(RECONCILE_DATE);
+        assertTrue(processed >= LOANS);
+        assertOneRecordPerLoan();
+
+        Map<String, Object> normal = jdbcTemplate.queryForMap("SELECT * " + OUR_RECORDS +
+                " AND financing_id = ?", RECONCILE_DATE, idOf(1));
+        assertEquals("NORMAL", normal.get("STATUS"));
+        assertEquals(0, new BigDecimal("1000.00").compareTo((BigDecimal) normal.get("REPAID_PRINCIPAL")));
+        assertEquals(0, new BigDecimal("20.00").compareTo((BigDecimal) normal.get("PENDING_INTEREST")));
+        assertEquals(0, new BigDecimal("1000.00").compareTo((BigDecimal) normal.get("OVERDUE_PRINCIPAL")));
+        assertEquals(0, new BigDecimal("5.10").compareTo((BigDecimal) normal.get("OVERDUE_PENALTY")));
+
+        Map<String, Object> difference = jdbcTemplate.queryForMap("SELECT * " + OUR_RECORDS +
+                " AND financing_id = ?", RECONCILE_DATE, idOf(10));
+        assertEquals("DIFFERENCE", difference.get("STATUS"));
+        assertEquals(0, new BigDecimal("940.00").compareTo((BigDecimal) difference.get("DIFFERENCE_AMOUNT")));
+
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(RECONCILE_DATE).orElseThrow();
+        assertEquals(ReconciliationCheckpoint.CheckpointStatus.COMPLETED, checkpoint.getStatus());
+        assertEquals(processed, checkpoint.getProcessedCount());
+
+        // 已完成的日期重跑，覆盖而不是追加
+        assertEquals(processed, reconciliationService.reconcileByDate(RECONCILE_DATE));
+        assertOneRecordPerLoan();
+    }
+
+    @Test
+    public void testResumeFromCheckpointAfterCrash() {
+        reconciliationService.reconcileByDate(RECONCILE_DATE);
+
+        // 模拟在第200笔之后中断：之后的记录未写入，检查点停在第200笔
+        String watermark = idOf(200);
+        jdbcTemplate.update("DELETE " + OUR_RECORDS + " AND financing_id > ?", RECONCILE_DATE, watermark);
+        int kept = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reconciliation_records " +
+                "WHERE reconciliation_date = ?", Integer.class, RECONCILE_DATE);
+        jdbcTemplate.update("UPDATE reconciliation_checkpoints SET status = 'RUNNING', last_financing_id = ?, " +
+                "processed_count = ? WHERE reconciliation_date = ?", watermark, kept, RECONCILE_DATE);
+        List<String> keptIds = jdbcTemplate.queryForList("SELECT id " + OUR_RECORDS + " ORDER BY id",
+                String.class, RECONCILE_DATE);
+
+        int processed = reconciliationService.reconcileByDate(RECONCILE_DATE);
+
+        assertEquals(kept + LOANS - 200, processed);
+        assertOneRecordPerLoan();
+        // 检查点之前的记录没有被重写
+        List<String> afterResume = jdbcTemplate.queryForList("SELECT id " + OUR_RECORDS +
+                " AND financing_id <= ? ORDER BY id", String.class, RECONCILE_DATE, watermark);
+        assertEquals(keptIds, afterResume);
+    }
+
+    @Test
+    public void testRerunDropsRecordsOfLoansNoLongerActive() {
+        reconciliationService.reconcileByDate(RECONCILE_DATE);
+
+        // 分块中间和末尾各有一笔结清，重跑后这两笔的旧记录被删除
+        jdbcTemplate.update("UPDATE financing_applications SET status = 'SETTLED' WHERE id IN (?, ?)",
+                idOf(50), idOf(LOANS));
+        reconciliationService.reconcileByDate(RECONCILE_DATE);
+
+        assertEquals(LOANS - 2, jdbcTemplate.queryForObject("SELECT COUNT(*) " + OUR_RECORDS,
+                Integer.class, RECONCILE_DATE));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) " + OUR_RECORDS +
+                " AND financing_id IN (?, ?)", Integer.class, RECONCILE_DATE, idOf(50), idOf(LOANS)));
+    }
+
+    @Test
+    public void testLeaseHeldByAnotherInstanceRejectsRun() {
+        jdbcTemplate.update("INSERT INTO reconciliation_checkpoints (reconciliation_date, processed_count, " +
+                "status, lease_owner, lease_until, updated_at) VALUES (?, 0, 'RUNNING', 'other-node', ?, ?)",
+                RECONCILE_DATE, LocalDateTime.now().plusMinutes(5), LocalDateTime.now());
+
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> reconciliationService.reconcileByDate(RECONCILE_DATE));
+        assertEquals("RECONCILIATION_RUNNING", e.getCode());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) " + OUR_RECORDS,
+                Integer.class, RECONCILE_DATE));
+
+        // 租约过期后可以接手
+        jdbcTemplate.update("UPDATE reconciliation_checkpoints SET lease_until = ? WHERE reconciliation_date = ?",
+                LocalDateTime.now().minusSeconds(1), RECONCILE_DATE);
+        assertTrue(reconciliationService.reconcileByDate(RECONCILE_DATE) >= LOANS);
+        assertOneRecordPerLoan();
+        ReconciliationCheckpoint checkpoint = checkpointRepository.findById(RECONCILE_DATE).orElseThrow();
+        assertEquals(ReconciliationCheckpoint.CheckpointStatus.COMPLETED, checkpoint.getStatus());
+        assertNull(checkpoint.getLeaseUntil());
+    }
+
+    private void assertOneRecordPerLoan() {
+        assertEquals(LOANS, jdbcTemplate.queryForObject("SELECT COUNT(*) " + OUR_RECORDS,
+                Integer.class, RECONCILE_DATE));
+        assertEquals(LOANS, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT financing_id) " + OUR_RECORDS,
+                Integer.class, RECONCILE_DATE));
+    }
+
+    /**
+     * 每笔贷款三期（各本金1000、利息20）：第1期已还、第2期待还、第3期逾期10天；
+     * 每10笔中有1笔放款金额与还款计划不符
+     */
+    private void seedLoans() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        LocalDate today = LocalDate.now();
+        List<Object[]> loans = new ArrayList<>();
+        List<Object[]> schedules = new ArrayList<>();
+        List<Object[]> records = new ArrayList<>();
+        for (int i = 1; i <= LOANS; i++) {
+            String id = idOf(i);
+            BigDecimal disbursed = new BigDecimal(i % 10 == 0 ? "4000.00" : "3060.00");
+            loans.add(new Object[]{id, FARMER_ID, disbursed, disbursed, now, now, now});
+            schedules.add(schedule(id, 1, today.minusMonths(1), "PAID", now));
+            schedules.add(schedule(id, 2, today.plusMonths(1), "PENDING", now));
+            schedules.add(schedule(id, 3, today.minusDays(10), "OVERDUE", now));
+            records.add(new Object[]{id + "-r", id, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO financing_applications (id, farmer_id, amount, term_months, " +
+                "purpose, status, disbursed_amount, disbursed_at, created_at, updated_at) " +
+                "VALUES (?, ?, ?, 3, '春耕', 'REPAYING', ?, ?, ?, ?)", loans);
+        jdbcTemplate.batchUpdate("INSERT INTO repayment_schedules (id, financing_id, installment_number, " +
+                "due_date, principal, interest, total_amount, status, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, 1000.00, 20.00, 1020.00, ?, ?, ?)", schedules);
+        jdbcTemplate.batchUpdate("INSERT INTO repayment_records (id, financing_id, repayment_type, amount, " +
+                "principal, interest, penalty, paid_at, created_at) " +
+                "VALUES (?, ?, 'NORMAL', 1020.00, 1000.00, 20.00, 0, ?, ?)", records);
+    }
+
+    private Object[] schedule(String financingId, int number, LocalDate due, String status, Timestamp now) {
+        return new Object[]{financingId + "-" + number, financingId, number, due, status, now, now};
+    }
+
+    private String idOf(int i) {
+        return String.format("recon-%05d", i);
+    }
+}
@@ -0,0 +1,214 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.dto.RiskAlert;
+import com.agriverse.bank.entity.CreditScore;
+import com.agriverse.bank.entity.RiskAlertRecord;
+import com.agriverse.bank.event.CreditScoreSavedEvent;
+import com.agriverse.bank.repository.RiskAlertRecordRepository;
+import com.agriverse.bank.service.RiskAlertService;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.finance.event.LoanOverdueEvent;
+import com.agriverse.finance.event.LoanRepaidEvent;
+import com.agriverse.finance.service.OverdueService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 风险预警测试
+ * 逾期、还款、信用评分事件增量打开和关闭预警（高风险按农户、逾期按融资去重），
+ * 同一去重键的预警ID不变、确认状态保留，列表按状态分页；按融资去重的旧高风险预警在迁移时关闭
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class RiskAlertServiceTest {
+
+    private static final String FARMER_ID = "alert-farmer";
+    private static final String LOAN = "alert-loan";
+
+    @Autowired
+    private RiskAlertService alertService;
+
+    @Autowired
+    private RiskAlertRecordRepository alertRepository;
+
+    @Autowired
+    private OverdueService overdueService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        insertApplication(LOAN);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM risk_alerts WHERE financing_id LIKE 'alert-%'");
+        jdbcTemplate.update("DELETE FROM latest_credit_scores WHERE farmer_id LIKE 'alert-%'");
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id LIKE 'alert-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id = ?", FARMER_ID);
+    }
+
+    @Test
+    public void testOverdueAlertLifecycle() {
+        LocalDate today = LocalDate.now();
+        insertSchedule(LOAN, 1, today.minusDays(40), "PENDING");
+        insertSchedule(LOAN, 2, today.minusDays(10), "PENDING");
+        insertSchedule(LOAN, 3, today.plusDays(20), "PENDING");
+
+        overdueService.transitionOverdue(today.minusDays(20));
+        RiskAlertRecord opened = overdueAlert();
+        assertEquals(RiskAlertRecord.AlertStatus.OPEN, opened.getStatus());
+        assertEquals(FARMER_ID, opened.getCustomerId());
+        assertEquals(1, opened.getOccurrences());
+
+        // 确认后再有期次逾期：同一条预警，保持已确认
+        RiskAlert acknowledged = alertService.acknowledge(opened.getId(), "alert-reviewer");
+        assertEquals("ACKNOWLEDGED", acknowledged.getStatus());
+        overdueService.transitionOverdue(today);
+        RiskAlertRecord refreshed = overdueAlert();
+        assertEquals(opened.getId(), refreshed.getId());
+        assertEquals(RiskAlertRecord.AlertStatus.ACKNOWLEDGED, refreshed.getStatus());
+        assertEquals("alert-reviewer", refreshed.getAcknowledgedBy());
+
+        // 仍有逾期期次时还款不关闭，全部结清后关闭
+        repay(LOAN, 1);
+        assertEquals(RiskAlertRecord.AlertStatus.ACKNOWLEDGED, overdueAlert().getStatus());
+        repay(LOAN, 2);
+        RiskAlertRecord closed = overdueAlert();
+        assertEquals(RiskAlertRecord.AlertStatus.CLOSED, closed.getStatus());
+        assertNotNull(closed.getClosedAt());
+        assertThrows(BusinessException.class, () -> alertService.acknowledge(closed.getId(), "alert-reviewer"));
+
+        // 再次逾期：重新打开同一条预警，清除确认信息
+        overdueService.transitionOverdue(today.plusDays(21));
+        RiskAlertRecord reopened = overdueAlert();
+        assertEquals(opened.getId(), reopened.getId());
+        assertEquals(RiskAlertRecord.AlertStatus.OPEN, reopened.getStatus());
+        assertEquals(2, reopened.getOccurrences());
+        assertNull(reopened.getAcknowledgedBy());
+        assertNull(reopened.getClosedAt());
+    }
+
+    @Test
+    public void testCreditScoreAlertsAndPaging() {
+        List<LoanOverdueEvent.OverdueLoan> loans = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            String financingId = String.format("alert-page-%02d", i);
+            insertApplication(financingId);
+            loans.add(new LoanOverdueEvent.OverdueLoan(financingId, new BigDecimal("100.00"), LocalDate.now(), 1));
+        }
+        eventPublisher.publishEvent(new LoanOverdueEvent(LocalDate.now(), loans));
+
+        // 同一农户以最后一条评分为准
+        eventPublisher.publishEvent(new CreditScoreSavedEvent(List.of(
+            score(LOAN, FARMER_ID, 80), score(LOAN, FARMER_ID, 45), score("alert-page-00", "alert-farmer-2", 70))));
+        RiskAlertRecord highRisk = alertRepository.findByDedupKey("HIGH_RISK:" + FARMER_ID).orElseThrow();
+        assertEquals(RiskAlertRecord.AlertStatus.OPEN, highRisk.getStatus());
+        assertEquals("HIGH", highRisk.getAlertLevel());
+        assertEquals(LOAN, highRisk.getFinancingId());
+        assertTrue(alertRepository.findByDedupKey("HIGH_RISK:alert-farmer-2").isEmpty());
+
+        // 未关闭的预警分页翻到底不重不漏
+        Set<String> seen = new HashSet<>();
+        int ours = 0;
+        int page = 0;
+        Page<RiskAlert> result;
+        do {
+            result = alertService.getAlerts(null, page++, 5);
+            assertTrue(result.getContent().size() <= 5);
+            for (RiskAlert alert : result.getContent()) {
+                assertTrue(seen.add(alert.getId()), "重复预警: " + alert.getId());
+                assertNotEquals("CLOSED", alert.getStatus());
+                if (alert.getFinancingId().startsWith("alert-")) {
+                    ours++;
+                }
+            }
+        } while (result.hasNext());
+        assertEquals(13, ours);
+
+        // 评分回升后关闭，出现在已关闭列表中
+        eventPublisher.publishEvent(new CreditScoreSavedEvent(List.of(score(LOAN, FARMER_ID, 75))));
+        assertTrue(alertService.getAlerts("closed", 0, 200).getContent().stream()
+            .anyMatch(a -> a.getId().equals(highRisk.getId())));
+        assertThrows(BusinessException.class, () -> alertService.getAlerts("UNKNOWN", 0, 10));
+    }
+
+    @Test
+    public void testCloseLegacyHighRiskAlerts() {
+        eventPublisher.publishEvent(new CreditScoreSavedEvent(List.of(score(LOAN, FARMER_ID, 40))));
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO risk_alerts (id, dedup_key, alert_type, alert_level, customer_id, " +
+            "financing_id, description, status, raised_at, occurrences, updated_at) " +
+            "VALUES (?, ?, 'HIGH_RISK', 'HIGH', ?, ?, '旧高风险预警', 'OPEN', ?, 1, ?)",
+            UUID.randomUUID().toString(), "HIGH_RISK:" + LOAN, FARMER_ID, LOAN, now, now);
+
+        assertEquals(1, alertService.closeLegacyHighRiskAlerts());
+        RiskAlertRecord legacy = alertRepository.findByDedupKey("HIGH_RISK:" + LOAN).orElseThrow();
+        assertEquals(RiskAlertRecord.AlertStatus.CLOSED, legacy.getStatus());
+        assertNotNull(legacy.getClosedAt());
+        assertEquals(RiskAlertRecord.AlertStatus.OPEN,
+            alertRepository.findByDedupKey("HIGH_RISK:" + FARMER_ID).orElseThrow().getStatus());
+
+        // 再次执行不影响按农户去重的预警
+        assertEquals(0, alertService.closeLegacyHighRiskAlerts());
+    }
+
+    private RiskAlertRecord overdueAlert() {
+        return alertRepository.findByDedupKey("OVERDUE:" + LOAN).orElseThrow();
+    }
+
+    private void repay(String financingId, int number) {
+        jdbcTemplate.update("UPDATE repayment_schedules SET status = 'PAID', paid_at = ? WHERE id = ?",
+            LocalDateTime.now(), financingId + "-" + number);
+        eventPublisher.publishEvent(new LoanRepaidEvent(financingId, financingId + "-" + number));
+    }
+
+    private void insertApplication(String id) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+            "status, created_at, updated_at) VALUES (?, ?, 3000.00, 3, '春耕', 'REPAYING', ?, ?)",
+            id, FARMER_ID, now, now);
+    }
+
+    private void insertSchedule(String financingId, int number, LocalDate due, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO repayment_schedules (id, financing_id, installment_number, due_date, " +
+            "principal, interest, total_amount, status, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, 1000.00, 10.00, 1010.00, ?, ?, ?)",
+            financingId + "-" + number, financingId, number, due, status, now, now);
+    }
+
+    private static CreditScore score(String financingId, String farmerId, int totalScore) {
+        return CreditScore.builder()
+            .id(UUID.randomUUID().toString())
+            .financingId(financingId)
+            .farmerId(farmerId)
+            .totalScore(totalScore)
+            .riskLevel(totalScore >= 60 ? CreditScore.RiskLevel.MEDIUM : CreditScore.RiskLevel.HIGH)
+            .build();
+    }
+}
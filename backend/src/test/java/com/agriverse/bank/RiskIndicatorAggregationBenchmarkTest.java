@@ -0,0 +1,217 @@
+package com.agriverse.bank;
+
+import com.agriverse.bank.dto.RiskPortfolioSnapshot;
+import com.agriverse.bank.service.RiskManagementService;
+import com.agriverse.finance.entity.FinancingApplication;
+import com.agriverse.finance.entity.RepaymentSchedule;
+import com.agriverse.finance.repository.FinancingApplicationRepository;
+import com.agriverse.finance.repository.RepaymentScheduleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 风险指标聚合基准测试
+ * 默认以少量还款计划校验数据库端聚合与加载实体后内存汇总得到的指标一致；
+ * 指定 -Drisk.bench.schedules（如1000000）时另按该规模造数，并把两种方式的耗时写入日志
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class RiskIndicatorAggregationBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskIndicatorAggregationBenchmarkTest.class);
+
+    private static final String FARMER_ID = "risk-bench-farmer";
+    private static final int INSTALLMENTS = 10;
+    private static final int SCHEDULES = 2_000;
+
+    private static final String INSERT_LOAN_SQL = "INSERT INTO financing_applications (id, farmer_id, product_id, " +
+            "amount, term_months, purpose, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, '春耕', ?, ?, ?)";
+
+    private static final String INSERT_SCHEDULE_SQL = "INSERT INTO repayment_schedules (id, financing_id, " +
+            "installment_number, due_date, principal, interest, total_amount, status, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private RiskManagementService riskManagementService;
+
+    @Autowired
+    private FinancingApplicationRepository applicationRepository;
+
+    @Autowired
+    private RepaymentScheduleRepository scheduleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id LIKE 'risk-bench-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id = ?", FARMER_ID);
+    }
+
+    @Test
+    public void testAggregateMatchesInHeap() {
+        assertAggregateMatchesInHeap(SCHEDULES);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "risk.bench.schedules", matches = ".+")
+    public void testAggregateMatchesInHeapAtBenchmarkScale() {
+        assertAggregateMatchesInHeap(Integer.getInteger("risk.bench.schedules"));
+    }
+
+    /**
+     * 按 schedules 条还款计划造数，校验两种口径的指标一致，并记录各自耗时
+     */
+    private void assertAggregateMatchesInHeap(int schedules) {
+        LocalDate today = LocalDate.now();
+        seedLoanBook(schedules / INSTALLMENTS, today);
+
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        long begin = System.nanoTime();
+        RiskPortfolioSnapshot inHeap = readOnly.execute(status -> inHeapSnapshot(today));
+        long inHeapNanos = System.nanoTime() - begin;
+
+        // 相同查询在数据未变时可能命中数据库结果缓存，只计首次执行
+        begin = System.nanoTime();
+        RiskPortfolioSnapshot aggregated = riskManagementService.getPortfolioSnapshot(today);
+        long aggregateNanos = System.nanoTime() - begin;
+
+        log.info("风险指标基准(schedules={}): 内存汇总={}ms, 数据库聚合={}ms",
+                schedules, inHeapNanos / 1_000_000, aggregateNanos / 1_000_000);
+
+        assertEquals(inHeap.totalLoans(), aggregated.totalLoans());
+        assertEquals(0, inHeap.totalAmount().compareTo(aggregated.totalAmount()));
+        assertEquals(inHeap.jointLoans(), aggregated.jointLoans());
+        assertEquals(inHeap.overdueLoans(), aggregated.overdueLoans());
+        assertEquals(0, inHeap.overdueAmount().compareTo(aggregated.overdueAmount()));
+        assertEquals(inHeap.badDebtLoans(), aggregated.badDebtLoans());
+        assertEquals(0, inHeap.badDebtAmount().compareTo(aggregated.badDebtAmount()));
+        assertEquals(0, inHeap.overdueRate().compareTo(aggregated.overdueRate()));
+        assertTrue(aggregated.badDebtLoans() > 0 && aggregated.badDebtLoans() < aggregated.overdueLoans());
+    }
+
+    @Test
+    public void testSnapshotCountsMarkedOverdueAndBadDebtBuckets() {
+        LocalDate today = LocalDate.now();
+        RiskPortfolioSnapshot before = riskManagementService.getPortfolioSnapshot(today);
+
+        LocalDateTime now = LocalDateTime.now();
+        insertLoan("risk-bench-a", "product-1", "10000.00", "REPAYING", now);
+        insertLoan("risk-bench-b", null, "30000.00", "DISBURSED", now);
+        insertLoan("risk-bench-c", null, "5000.00", "SETTLED", now);
+        // a：已标记逾期且超过90天 + 到期未还10天；b：到期未还10天 + 未到期
+        insertSchedule("risk-bench-a", 1, today.minusDays(120), "1000.00", "50.00", "OVERDUE", now);
+        insertSchedule("risk-bench-a", 2, today.minusDays(10), "1000.00", "40.00", "PENDING", now);
+        insertSchedule("risk-bench-b", 1, today.minusDays(10), "2000.00", "100.00", "PENDING", now);
+        insertSchedule("risk-bench-b", 2, today.plusDays(20), "2000.00", "90.00", "PENDING", now);
+        insertSchedule("risk-bench-c", 1, today.minusDays(200), "5000.00", "10.00", "PAID", now);
+
+        RiskPortfolioSnapshot after = riskManagementService.getPortfolioSnapshot(today);
+        assertEquals(2, after.totalLoans() - before.totalLoans());
+        assertEquals(0, new BigDecimal("40000.00").compareTo(after.totalAmount().subtract(before.totalAmount())));
+        assertEquals(1, after.jointLoans() - before.jointLoans());
+        assertEquals(2, after.overdueLoans() - before.overdueLoans());
+        assertEquals(0, new BigDecimal("4190.00").compareTo(after.overdueAmount().subtract(before.overdueAmount())));
+        assertEquals(1, after.badDebtLoans() - before.badDebtLoans());
+        assertEquals(0, new BigDecimal("1050.00").compareTo(after.badDebtAmount().subtract(before.badDebtAmount())));
+    }
+
+    /**
+     * 原实现的口径：加载在途贷款和逾期还款计划实体后在内存中汇总
+     */
+    private RiskPortfolioSnapshot inHeapSnapshot(LocalDate today) {
+        List<FinancingApplication> activeLoans = applicationRepository.findByStatusIn(List.of(
+                FinancingApplication.FinancingStatus.DISBURSED,
+                FinancingApplication.FinancingStatus.REPAYING));
+        List<RepaymentSchedule> overdueSchedules = scheduleRepository.findOverdueSchedules(today);
+        LocalDate badDebtDate = today.minusDays(90);
+
+        Set<String> overdueIds = overdueSchedules.stream()
+                .map(RepaymentSchedule::getFinancingId).collect(Collectors.toSet());
+        List<RepaymentSchedule> badDebt = overdueSchedules.stream()
+                .filter(s -> s.getDueDate().isBefore(badDebtDate)).collect(Collectors.toList());
+
+        return new RiskPortfolioSnapshot(
+                activeLoans.size(),
+                activeLoans.stream().map(FinancingApplication::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add),
+                activeLoans.stream().filter(a -> a.getProductId() != null).count(),
+                overdueIds.size(),
+                overdueSchedules.stream().map(s -> s.getPrincipal().add(s.getInterest()))
+                        .reduce(BigDecimal.ZERO, BigDecimal::add),
+                badDebt.stream().map(RepaymentSchedule::getFinancingId).distinct().count(),
+                badDebt.stream().map(s -> s.getPrincipal().add(s.getInterest()))
+                        .reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    /**
+     * 第 i 笔贷款首期到期日回溯 i % 15 个月；已到期的分期中每4笔有3笔已还，其余到期未还
+     */
+    private void seedLoanBook(int loans, LocalDate today) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> loanRows = new ArrayList<>();
+        List<Object[]> scheduleRows = new ArrayList<>();
+        for (int i = 0; i < loans; i++) {
+            String loanId = String.format("risk-bench-%07d", i);
+            loanRows.add(new Object[]{loanId, FARMER_ID, i % 3 == 0 ? "product-1" : null,
+                    new BigDecimal("12000.00"), INSTALLMENTS, i % 5 == 0 ? "SETTLED" : "REPAYING", now, now});
+
+            LocalDate firstDue = today.minusMonths(i % 15);
+            for (int n = 0; n < INSTALLMENTS; n++) {
+                LocalDate due = firstDue.plusMonths(n).minusDays(1);
+                String status = due.isBefore(today) && (i + n) % 4 != 0 ? "PAID" : "PENDING";
+                scheduleRows.add(new Object[]{loanId + "-" + n, loanId, n + 1, Date.valueOf(due),
+                        new BigDecimal("1200.00"), new BigDecimal("36.50"), new BigDecimal("1236.50"),
+                        status, now, now});
+            }
+            if (scheduleRows.size() >= 10_000) {
+                jdbcTemplate.batchUpdate(INSERT_LOAN_SQL, loanRows);
+                jdbcTemplate.batchUpdate(INSERT_SCHEDULE_SQL, scheduleRows);
+                loanRows.clear();
+                scheduleRows.clear();
+            }
+        }
+        if (!loanRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LOAN_SQL, loanRows);
+            jdbcTemplate.batchUpdate(INSERT_SCHEDULE_SQL, scheduleRows);
+        }
+    }
+
+    private void insertLoan(String id, String productId, String amount, String status, LocalDateTime at) {
+        jdbcTemplate.update(INSERT_LOAN_SQL, id, FARMER_ID, productId, new BigDecimal(amount), 12, status, at, at);
+    }
+
+    private void insertSchedule(String financingId, int number, LocalDate due, String principal,
+                                String interest, String status, LocalDateTime at) {
+        BigDecimal p = new BigDecimal(principal);
+        BigDecimal r = new BigDecimal(interest);
+        jdbcTemplate.update(INSERT_SCHEDULE_SQL, financingId + "-" + number, financingId, number, due,
+                p, r, p.add(r), status, at, at);
+    }
+}
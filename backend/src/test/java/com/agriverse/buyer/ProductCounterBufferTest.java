@@ -0,0 +1,133 @@
+package com.agriverse.buyer;
+
+import com.agriverse.buyer.service.ProductCounterBuffer;
+import com.agriverse.entity.FarmerProduct;
+import com.agriverse.farmer.repository.FarmerProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 商品计数写缓冲测试
+ * 刷盘后计数落库、缓冲清零，空闲商品从缓冲摘除；并发写入与刷盘交错时计数不丢失
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ProductCounterBufferTest {
+
+    @Autowired
+    private ProductCounterBuffer buffer;
+
+    @Autowired
+    private FarmerProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testFlushWritesDeltasAndDropsIdleProducts() {
+        FarmerProduct product = createProduct();
+        for (int i = 0; i < 5; i++) {
+            buffer.recordView(product.getId());
+        }
+        buffer.recordFavorite(product.getId());
+        buffer.recordShare(product.getId());
+        buffer.recordShare(product.getId());
+        assertEquals(5, buffer.pendingViews(product.getId()));
+
+        buffer.flush();
+        Map<String, Object> row = counts(product.getId());
+        assertEquals(5, ((Number) row.get("view_count")).intValue());
+        assertEquals(1, ((Number) row.get("favorite_count")).intValue());
+        assertEquals(2, ((Number) row.get("share_count")).intValue());
+        assertEquals(0, buffer.pendingViews(product.getId()));
+
+        // 一个周期没有新增计数后摘除，再次写入时重新登记
+        buffer.flush();
+        assertEquals(0, buffer.getTrackedProducts());
+        buffer.recordView(product.getId());
+        assertEquals(1, buffer.getTrackedProducts());
+        buffer.flush();
+        assertEquals(6, ((Number) counts(product.getId()).get("view_count")).intValue());
+    }
+
+    @Test
+    public void testConcurrentRecordsSurviveFlushAndRetirement() throws Exception {
+        FarmerProduct product = createProduct();
+        int threads = 8;
+        int perThread = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean recording = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    buffer.recordView(product.getId());
+                    if (i % 500 == 0) {
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+        Future<?> flusher = pool.submit(() -> {
+            start.await();
+            while (recording.get()) {
+                buffer.flush();
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        recording.set(false);
+        flusher.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        buffer.flush();
+
+        assertEquals(threads * perThread, ((Number) counts(product.getId()).get("view_count")).intValue());
+        assertEquals(0, buffer.pendingViews(product.getId()));
+    }
+
+    private Map<String, Object> counts(String productId) {
+        return jdbcTemplate.queryForMap(
+                "SELECT view_count, favorite_count, share_count FROM farmer_products WHERE id = ?", productId);
+    }
+
+    private FarmerProduct createProduct() {
+        LocalDateTime now = LocalDateTime.now();
+        return productRepository.save(FarmerProduct.builder()
+                .farmerId("farmer-counter")
+                .name("计数测试商品")
+                .category("水果")
+                .price(9.9)
+                .stock(10)
+                .origin("测试产地")
+                .status(FarmerProduct.ProductStatus.ON)
+                .viewCount(0)
+                .favoriteCount(0)
+                .shareCount(0)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+}
@@ -0,0 +1,180 @@
+package com.agriverse.buyer;
+
+import com.agriverse.admin.dto.RefundArbitrationRequest;
+import com.agriverse.admin.service.AdminRefundService;
+import com.agriverse.buyer.repository.BuyerOrderRepository;
+import com.agriverse.buyer.service.BuyerOrderService;
+import com.agriverse.dto.BuyerOrderResponse;
+import com.agriverse.dto.CreateOrderRequest;
+import com.agriverse.dto.UpdateOrderStatusRequest;
+import com.agriverse.entity.BuyerOrder;
+import com.agriverse.entity.FarmerProduct;
+import com.agriverse.farmer.repository.FarmerProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存预占并发测试
+ * 并发下单争抢有限库存，验证不超卖，且取消订单只回补一次；平台仲裁退款成功后回补库存。
+ * 默认以100个并发下单执行；指定 -Dstock.bench.checkouts（如500）时另按该规模执行并把耗时写入日志
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class StockReservationConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StockReservationConcurrencyTest.class);
+
+    private static final int CHECKOUTS = 100;
+    private static final int STOCK = 30;
+
+    @Autowired
+    private BuyerOrderService buyerOrderService;
+
+    @Autowired
+    private FarmerProductRepository productRepository;
+
+    @Autowired
+    private BuyerOrderRepository buyerOrderRepository;
+
+    @Autowired
+    private AdminRefundService adminRefundService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testNoOversellUnderParallelCheckout() throws Exception {
+        assertNoOversell(CHECKOUTS, STOCK);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "stock.bench.checkouts", matches = ".+")
+    public void testNoOversellAtBenchmarkScale() throws Exception {
+        int checkouts = Integer.getInteger("stock.bench.checkouts");
+        assertNoOversell(checkouts, checkouts / 4);
+    }
+
+    private void assertNoOversell(int checkouts, int stock) throws Exception {
+        FarmerProduct product = createProduct(stock);
+
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        Queue<BuyerOrderResponse> orders = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < checkouts; i++) {
+            String buyerId = "buyer-" + i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    orders.add(buyerOrderService.createOrder(buyerId, orderOf(product.getId(), 1)));
+                    succeeded.incrementAndGet();
+                } catch (RuntimeException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        pool.shutdown();
+
+        log.info("并发下单: checkouts={}, succeeded={}, rejected={}, elapsed={}ms",
+                checkouts, succeeded.get(), rejected.get(), elapsedMs);
+
+        FarmerProduct after = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(stock, succeeded.get(), "成功订单数应等于初始库存");
+        assertEquals(checkouts - stock, rejected.get());
+        assertEquals(0, after.getStock(), "库存不应为负或剩余");
+
+        // 取消一个订单两次：库存只回补一次
+        BuyerOrderResponse first = orders.peek();
+        assertNotNull(first);
+        buyerOrderService.cancelOrder(first.getBuyerId(), first.getId());
+        assertThrows(RuntimeException.class,
+                () -> buyerOrderService.cancelOrder(first.getBuyerId(), first.getId()));
+        assertEquals(1, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    public void testArbitratedRefundRestoresStock() {
+        FarmerProduct product = createProduct(10);
+        BuyerOrderResponse order = buyerOrderService.createOrder("buyer-refund", orderOf(product.getId(), 3));
+        buyerOrderService.updateOrderStatus("buyer-refund", order.getId(),
+                UpdateOrderStatusRequest.builder().status("paid").build());
+        buyerOrderService.applyRefund("buyer-refund", order.getId(), "质量问题");
+        assertEquals(7, productRepository.findById(product.getId()).orElseThrow().getStock());
+
+        // 平台侧退款纠纷与买家订单共用订单ID
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO orders (id, buyer_id, farmer_id, total_amount, status, refund_status, " +
+                "created_at, updated_at) VALUES (?, 'buyer-refund', 'farmer-flash-sale', 29.70, 'REFUNDING', " +
+                "'ESCALATED', ?, ?)", order.getId(), now, now);
+
+        RefundArbitrationRequest request = new RefundArbitrationRequest(order.getId(), "SUCCESS", "商品破损");
+        adminRefundService.processRefundArbitration(request, "admin-refund");
+        assertEquals(10, productRepository.findById(product.getId()).orElseThrow().getStock());
+        BuyerOrder refunded = buyerOrderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(BuyerOrder.OrderStatus.REFUNDED, refunded.getStatus());
+        assertEquals(BuyerOrder.RefundStatus.SUCCESS, refunded.getRefundStatus());
+
+        // 重复仲裁不重复回补
+        adminRefundService.processRefundArbitration(request, "admin-refund");
+        assertEquals(10, productRepository.findById(product.getId()).orElseThrow().getStock());
+    }
+
+    private FarmerProduct createProduct(int stock) {
+        LocalDateTime now = LocalDateTime.now();
+        return productRepository.save(FarmerProduct.builder()
+                .farmerId("farmer-flash-sale")
+                .name("秒杀测试商品")
+                .category("水果")
+                .price(9.9)
+                .stock(stock)
+                .origin("测试产地")
+                .status(FarmerProduct.ProductStatus.ON)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+
+    private CreateOrderRequest orderOf(String productId, int quantity) {
+        return CreateOrderRequest.builder()
+                .items(List.of(CreateOrderRequest.OrderItemRequest.builder()
+                        .productId(productId)
+                        .quantity(quantity)
+                        .build()))
+                .shippingName("测试买家")
+                .shippingPhone("13800000000")
+                .shippingAddress("测试地址")
+                .paymentMethod("wechat")
+                .build();
+    }
+}
@@ -0,0 +1,203 @@
+package com.agriverse.farmer;
+
+import com.agriverse.buyer.service.BuyerOrderService;
+import com.agriverse.buyer.service.BuyerProductService;
+import com.agriverse.dto.BuyerProductListRequest;
+import com.agriverse.dto.BuyerProductListResponse;
+import com.agriverse.dto.ProductListRequest;
+import com.agriverse.dto.ProductListResponse;
+import com.agriverse.farmer.service.FarmerProductService;
+import com.agriverse.util.PageCursor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 商品列表分页基准测试
+ * 基准默认不执行，指定 -Dpagination.bench.pages（如5000）时按该深度造数，对比页码分页与游标分页
+ * 在第1页和深页的耗时（写入日志），并校验两种方式结果一致；
+ * 默认执行的用例校验游标逐页衔接，以及每页条数按默认值和上限规范化
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class ProductListPaginationBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductListPaginationBenchmarkTest.class);
+
+    private static final String FARMER_ID = "bench-farmer";
+    private static final int PAGE_SIZE = 20;
+    private static final int DEEP_PAGE = Integer.getInteger("pagination.bench.pages", 5000);
+    private static final int ROWS = PAGE_SIZE * DEEP_PAGE + 100;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final String INSERT_SQL = "INSERT INTO farmer_products (id, farmer_id, name, category, price, " +
+            "stock, origin, description, status, view_count, favorite_count, share_count, created_at, updated_at) " +
+            "VALUES (?, ?, ?, '水果', 10.0, 100, '山东', NULL, 'ON', 0, 0, 0, ?, ?)";
+
+    @Autowired
+    private FarmerProductService farmerProductService;
+
+    @Autowired
+    private BuyerProductService buyerProductService;
+
+    @Autowired
+    private BuyerOrderService buyerOrderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @EnabledIfSystemProperty(named = "pagination.bench.pages", matches = ".+")
+    public void testDeepPageLatencyOffsetVsCursor() {
+        insertRows(ROWS);
+        try {
+            // 深页之前最后一条记录（按 createdAt/id 倒序）
+            int lastBeforeDeepPage = ROWS - (DEEP_PAGE - 1) * PAGE_SIZE + 1;
+            String deepCursor = new PageCursor(createdAtOf(lastBeforeDeepPage), idOf(lastBeforeDeepPage)).encode();
+
+            long offsetFirst = medianNanos(() -> offsetPage(1));
+            long offsetDeep = medianNanos(() -> offsetPage(DEEP_PAGE));
+            long cursorFirst = medianNanos(() -> cursorPage(""));
+            long cursorDeep = medianNanos(() -> cursorPage(deepCursor));
+
+            log.info("分页基准(rows={}, pageSize={}): offset page1={}ms page{}={}ms; cursor page1={}ms page{}={}ms",
+                    ROWS, PAGE_SIZE, offsetFirst / 1_000_000, DEEP_PAGE, offsetDeep / 1_000_000,
+                    cursorFirst / 1_000_000, DEEP_PAGE, cursorDeep / 1_000_000);
+
+            // 两种分页方式的深页内容一致
+            ProductListResponse offset = offsetPage(DEEP_PAGE);
+            ProductListResponse cursor = cursorPage(deepCursor);
+            assertEquals(ids(offset), ids(cursor));
+            assertTrue(cursor.getHasMore());
+            assertNull(cursor.getTotal());
+        } finally {
+            jdbcTemplate.update("DELETE FROM farmer_products WHERE farmer_id = ?", FARMER_ID);
+        }
+    }
+
+    @Test
+    public void testCursorWalkMatchesOffsetPages() {
+        insertRows(50);
+        try {
+            // 同一创建时间下有多条记录时，按 id 次序衔接，不重复不遗漏
+            List<String> walked = new ArrayList<>();
+            String cursor = "";
+            ProductListResponse page;
+            do {
+                page = farmerProductService.getProductList(FARMER_ID, ProductListRequest.builder()
+                        .status("all").pageSize(7).cursor(cursor).withTotal(true).build());
+                walked.addAll(ids(page));
+                assertEquals(50L, page.getTotal());
+                cursor = page.getNextCursor();
+            } while (page.getHasMore());
+
+            List<String> expected = IntStream.iterate(50, i -> i > 0, i -> i - 1)
+                    .mapToObj(this::idOf)
+                    .collect(Collectors.toList());
+            assertEquals(expected, walked);
+        } finally {
+            jdbcTemplate.update("DELETE FROM farmer_products WHERE farmer_id = ?", FARMER_ID);
+        }
+    }
+
+    @Test
+    public void testInvalidCursorRejected() {
+        assertThrows(RuntimeException.class, () -> farmerProductService.getProductList(FARMER_ID,
+                ProductListRequest.builder().status("all").pageSize(PAGE_SIZE).cursor("not-a-cursor").build()));
+    }
+
+    @Test
+    public void testCursorPageSizeNormalized() {
+        insertRows(PageCursor.MAX_PAGE_SIZE + 10);
+        try {
+            // 未指定、0、负数取默认20条，超过上限按200条截断
+            for (Integer requested : new Integer[]{null, 0, -5, 1_000_000}) {
+                int expected = requested != null && requested > 0 ? PageCursor.MAX_PAGE_SIZE : PAGE_SIZE;
+
+                ProductListResponse farmerPage = farmerProductService.getProductList(FARMER_ID,
+                        ProductListRequest.builder().status("all").pageSize(requested).cursor("").build());
+                assertEquals(expected, farmerPage.getProducts().size());
+                assertEquals(expected, farmerPage.getPageSize());
+                assertTrue(farmerPage.getHasMore());
+
+                BuyerProductListResponse marketPage = buyerProductService.getProductList(
+                        BuyerProductListRequest.builder().pageSize(requested).cursor("").build());
+                assertEquals(expected, marketPage.getProducts().size());
+                assertEquals(expected, marketPage.getPageSize());
+
+                assertEquals(expected, buyerOrderService.getOrderListByCursor(
+                        "bench-buyer", null, "", requested, false).getPageSize());
+            }
+        } finally {
+            jdbcTemplate.update("DELETE FROM farmer_products WHERE farmer_id = ?", FARMER_ID);
+        }
+    }
+
+    private ProductListResponse offsetPage(int page) {
+        return farmerProductService.getProductList(FARMER_ID, ProductListRequest.builder()
+                .status("all").page(page).pageSize(PAGE_SIZE).build());
+    }
+
+    private ProductListResponse cursorPage(String cursor) {
+        return farmerProductService.getProductList(FARMER_ID, ProductListRequest.builder()
+                .status("all").pageSize(PAGE_SIZE).cursor(cursor).build());
+    }
+
+    private long medianNanos(Supplier<ProductListResponse> query) {
+        for (int i = 0; i < 3; i++) {
+            query.get();
+        }
+        long[] samples = new long[7];
+        for (int i = 0; i < samples.length; i++) {
+            long begin = System.nanoTime();
+            query.get();
+            samples[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    /**
+     * 第 i 条记录（1..n）：每3条共用一个创建时间，倒序排列即 i 从大到小
+     */
+    private void insertRows(int n) {
+        List<Object[]> rows = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            Timestamp createdAt = Timestamp.valueOf(createdAtOf(i));
+            rows.add(new Object[]{idOf(i), FARMER_ID, "基准商品" + i, createdAt, createdAt});
+        }
+        for (int from = 0; from < rows.size(); from += 5000) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows.subList(from, Math.min(from + 5000, rows.size())));
+        }
+    }
+
+    private LocalDateTime createdAtOf(int i) {
+        return BASE_TIME.plusSeconds(i / 3);
+    }
+
+    private String idOf(int i) {
+        return String.format("bench-%06d", i);
+    }
+
+    private List<String> ids(ProductListResponse response) {
+        return response.getProducts().stream()
+                .map(ProductListResponse.ProductItem::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,126 @@
+package com.agriverse.farmer;
+
+import com.agriverse.entity.FarmerProduct;
+import com.agriverse.farmer.repository.FarmerProductRepository;
+import com.agriverse.farmer.service.ProductSearchIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 商品全文检索索引测试
+ * 覆盖中文分词命中、相关度排序、类别/上架状态过滤与增量更新，以及重建期间到达的增量写入
+ */
+public class ProductSearchIndexTest {
+
+    private FarmerProductRepository repository;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        repository = mock(FarmerProductRepository.class);
+        index = new ProductSearchIndex(repository, "");
+        index.open();
+
+        index.index(product("p1", "红富士苹果", "水果", "山东烟台", "脆甜多汁", FarmerProduct.ProductStatus.ON, 1));
+        index.index(product("p2", "库尔勒香梨", "水果", "新疆库尔勒", "适合搭配苹果食用", FarmerProduct.ProductStatus.ON, 2));
+        index.index(product("p3", "五常大米", "粮油", "黑龙江五常", "稻花香", FarmerProduct.ProductStatus.ON, 3));
+        index.index(product("p4", "苹果干", "零食", "陕西洛川", "下架商品", FarmerProduct.ProductStatus.OFF, 4));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    public void testNameMatchRanksAboveDescriptionMatch() {
+        ProductSearchIndex.SearchResult result = index.search("苹果", null, 1, 10);
+
+        assertEquals(List.of("p1", "p2"), result.productIds());
+        assertEquals(2, result.total());
+    }
+
+    @Test
+    public void testSingleCharacterAndOriginSearch() {
+        assertEquals(List.of("p2"), index.search("梨", null, 1, 10).productIds());
+        assertEquals(List.of("p3"), index.search("黑龙江", null, 1, 10).productIds());
+    }
+
+    @Test
+    public void testCategoryFilterAndOffShelfExcluded() {
+        assertEquals(List.of("p3"), index.search("五常", "粮油", 1, 10).productIds());
+        assertTrue(index.search("五常", "水果", 1, 10).productIds().isEmpty());
+        assertTrue(index.search("苹果干", null, 1, 10).productIds().isEmpty());
+    }
+
+    @Test
+    public void testIncrementalUpdateAndPaging() {
+        index.index(product("p4", "苹果干", "零食", "陕西洛川", "重新上架", FarmerProduct.ProductStatus.ON, 4));
+
+        ProductSearchIndex.SearchResult page1 = index.search("苹果", null, 1, 2);
+        ProductSearchIndex.SearchResult page2 = index.search("苹果", null, 2, 2);
+        assertEquals(3, page1.total());
+        assertEquals(2, page1.productIds().size());
+        assertEquals(List.of("p2"), page2.productIds());
+
+        index.delete("p4");
+        assertEquals(2, index.search("苹果", null, 1, 10).total());
+    }
+
+    @Test
+    public void testWritesDuringRebuildAreNotOverwrittenOrDuplicated() {
+        FarmerProduct stale = product("p1", "红富士苹果", "水果", "山东烟台", "脆甜多汁", FarmerProduct.ProductStatus.ON, 1);
+        FarmerProduct fresh = product("p1", "烟台红富士", "水果", "山东烟台", "脆甜多汁", FarmerProduct.ProductStatus.ON, 1);
+        FarmerProduct rice = product("p3", "五常大米", "粮油", "黑龙江五常", "稻花香", FarmerProduct.ProductStatus.ON, 3);
+        // 重建读到旧数据之后、写入索引之前，商品更新和删除提交并写入索引
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyString(), any())).thenAnswer(invocation -> {
+            if (!"".equals(invocation.getArgument(0))) {
+                return List.of();
+            }
+            index.index(fresh);
+            index.delete("p3");
+            return List.of(stale, rice);
+        });
+
+        assertEquals(2, index.rebuild());
+        assertEquals(List.of("p1"), index.search("烟台", null, 1, 10).productIds());
+        assertEquals(1, index.search("富士", null, 1, 10).total());
+        assertTrue(index.search("苹果", null, 1, 10).productIds().isEmpty());
+        assertTrue(index.search("五常", null, 1, 10).productIds().isEmpty());
+
+        // 重建结束后增量写入恢复直接生效
+        index.index(stale);
+        assertEquals(List.of("p1"), index.search("苹果", null, 1, 10).productIds());
+    }
+
+    @Test
+    public void testBlankKeywordReturnsNull() {
+        assertNull(index.search("  ", null, 1, 10));
+    }
+
+    private FarmerProduct product(String id, String name, String category, String origin, String description,
+                                  FarmerProduct.ProductStatus status, int day) {
+        return FarmerProduct.builder()
+                .id(id)
+                .farmerId("farmer-1")
+                .name(name)
+                .category(category)
+                .origin(origin)
+                .description(description)
+                .price(10.0)
+                .stock(100)
+                .status(status)
+                .createdAt(LocalDateTime.of(2025, 1, day, 0, 0))
+                .build();
+    }
+}
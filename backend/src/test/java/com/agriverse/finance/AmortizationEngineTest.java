@@ -0,0 +1,129 @@
+package com.agriverse.finance;
+
+import com.agriverse.finance.entity.FinancingApplication.RepaymentMethod;
+import com.agriverse.finance.service.AmortizationEngine;
+import com.agriverse.finance.service.AmortizationEngine.Installment;
+import com.agriverse.finance.service.AmortizationEngine.LoanTerms;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 还款计划计算引擎测试
+ * 黄金值按标准公式精确计算后四舍五入到分，各种还款方式下各期本金之和恒等于贷款本金
+ */
+public class AmortizationEngineTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 15);
+
+    @Test
+    public void testEqualInstallmentGoldenValues() {
+        // 1万元、年利率6%、12期：每期860.66元，首期利息50.00元，末期结清后共付利息327.96元
+        List<Installment> plan = AmortizationEngine.schedule(terms(1_000_000, "6", 12, RepaymentMethod.EQUAL_INSTALLMENT));
+        assertEquals(86_066, AmortizationEngine.equalInstallmentPayment(1_000_000, new BigDecimal("6"), 12));
+        assertEquals(12, plan.size());
+        assertEquals(new Installment(1, LocalDate.of(2024, 2, 15), 81_066, 5_000), plan.get(0));
+        for (int i = 0; i < 11; i++) {
+            assertEquals(86_066, plan.get(i).totalCents());
+        }
+        assertEquals(new Installment(12, LocalDate.of(2025, 1, 15), 85_642, 428), plan.get(11));
+        assertEquals(32_796, totalInterest(plan));
+        assertPrincipalRepaid(plan, 1_000_000);
+
+        // 30万元、年利率5.5%、36期：每期9058.77元
+        assertEquals(905_877, AmortizationEngine.equalInstallmentPayment(30_000_000, new BigDecimal("5.5"), 36));
+    }
+
+    @Test
+    public void testEqualPrincipalGoldenValues() {
+        // 12万元、年利率6%、12期：每期本金1万元，首期10600.00元，此后每期递减50.00元
+        List<Installment> plan = AmortizationEngine.schedule(terms(12_000_000, "6", 12, RepaymentMethod.EQUAL_PRINCIPAL));
+        for (int i = 0; i < 12; i++) {
+            assertEquals(1_000_000, plan.get(i).principalCents());
+            assertEquals(1_060_000 - 5_000L * i, plan.get(i).totalCents());
+        }
+        assertEquals(390_000, totalInterest(plan));
+
+        // 不能整除时末期承担差额
+        List<Installment> uneven = AmortizationEngine.schedule(terms(100_000, "4.35", 3, RepaymentMethod.EQUAL_PRINCIPAL));
+        assertEquals(List.of(33_333L, 33_333L, 33_334L), uneven.stream().map(Installment::principalCents).toList());
+        assertPrincipalRepaid(uneven, 100_000);
+    }
+
+    @Test
+    public void testBulletAndSeasonal() {
+        // 10万元、年利率6%、12期按月付息到期还本：每期利息500.00元，末期还本
+        List<Installment> bullet = AmortizationEngine.schedule(terms(10_000_000, "6", 12, RepaymentMethod.BULLET));
+        bullet.forEach(installment -> assertEquals(50_000, installment.interestCents()));
+        assertEquals(10_050_000, bullet.get(11).totalCents());
+        assertEquals(600_000, totalInterest(bullet));
+        assertPrincipalRepaid(bullet, 10_000_000);
+
+        // 12万元、收获月为7月和10月：7月、10月到期的两期与末期各还本金4万元
+        List<Installment> seasonal = AmortizationEngine.schedule(new LoanTerms(12_000_000, new BigDecimal("6"), 12,
+                RepaymentMethod.SEASONAL, START, Set.of(Month.JULY, Month.OCTOBER)));
+        assertEquals(4_000_000, seasonal.get(5).principalCents());
+        assertEquals(Month.JULY, seasonal.get(5).dueDate().getMonth());
+        assertEquals(4_000_000, seasonal.get(8).principalCents());
+        assertEquals(4_000_000, seasonal.get(11).principalCents());
+        assertEquals(540_000, totalInterest(seasonal));
+        assertPrincipalRepaid(seasonal, 12_000_000);
+
+        // 期限内没有收获月时等同于到期还本
+        List<Installment> noHarvest = AmortizationEngine.schedule(new LoanTerms(10_000_000, new BigDecimal("6"), 3,
+                RepaymentMethod.SEASONAL, START, Set.of(Month.OCTOBER)));
+        assertEquals(AmortizationEngine.schedule(terms(10_000_000, "6", 3, RepaymentMethod.BULLET)), noHarvest);
+    }
+
+    @Test
+    public void testZeroRateAndInvariants() {
+        List<Installment> free = AmortizationEngine.schedule(terms(100_000, "0", 3, RepaymentMethod.EQUAL_INSTALLMENT));
+        assertEquals(List.of(33_333L, 33_333L, 33_334L), free.stream().map(Installment::principalCents).toList());
+        assertEquals(0, totalInterest(free));
+
+        // 各种金额、利率、期限下本金无负数、总和等于本金，同样的输入结果一致
+        String[] rates = {"3.85", "4.35", "5.5", "7.2", "12", "24"};
+        for (RepaymentMethod method : RepaymentMethod.values()) {
+            for (long principal = 1; principal < 100_000_000; principal = principal * 7 + 13) {
+                for (String rate : rates) {
+                    for (int months : new int[]{1, 6, 13, 36, 120}) {
+                        List<Installment> plan = AmortizationEngine.schedule(new LoanTerms(principal,
+                                new BigDecimal(rate), months, method, START, Set.of(Month.JULY, Month.OCTOBER)));
+                        assertEquals(months, plan.size());
+                        plan.forEach(installment -> assertTrue(installment.principalCents() >= 0));
+                        assertPrincipalRepaid(plan, principal);
+                        assertEquals(plan, AmortizationEngine.schedule(new LoanTerms(principal,
+                                new BigDecimal(rate), months, method, START, Set.of(Month.JULY, Month.OCTOBER))));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCentsConversionAndValidation() {
+        assertEquals(123_457, AmortizationEngine.toCents(new BigDecimal("1234.565")));
+        assertEquals(new BigDecimal("1234.57"), AmortizationEngine.fromCents(123_457));
+        assertThrows(IllegalArgumentException.class, () -> terms(0, "6", 12, RepaymentMethod.BULLET));
+        assertThrows(IllegalArgumentException.class, () -> terms(100, "6", 0, RepaymentMethod.BULLET));
+        assertThrows(IllegalArgumentException.class, () -> terms(100, "-1", 12, RepaymentMethod.BULLET));
+    }
+
+    private static LoanTerms terms(long principalCents, String rate, int months, RepaymentMethod method) {
+        return new LoanTerms(principalCents, new BigDecimal(rate), months, method, START, Set.of());
+    }
+
+    private static long totalInterest(List<Installment> plan) {
+        return plan.stream().mapToLong(Installment::interestCents).sum();
+    }
+
+    private static void assertPrincipalRepaid(List<Installment> plan, long principalCents) {
+        assertEquals(principalCents, plan.stream().mapToLong(Installment::principalCents).sum());
+    }
+}
@@ -0,0 +1,182 @@
+package com.agriverse.finance;
+
+import com.agriverse.bank.service.OverdueManagementService;
+import com.agriverse.exception.BusinessException;
+import com.agriverse.finance.entity.LoanAccrual;
+import com.agriverse.finance.entity.LoanAccrualBalance;
+import com.agriverse.finance.service.LoanAccrualService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 每日计息服务测试
+ * 逐日计息的利息增量之和等于该期利息，罚息按新增逾期天数补记，重复执行同一日期不重复记账，余额与流水一致，
+ * 补跑更早的日期不冲减已计金额，不允许计息至未来日期
+ */
+@SpringBootTest(properties = "app.accrual.chunk-size=2")
+@ActiveProfiles("test")
+public class LoanAccrualServiceTest {
+
+    private static final String LOAN = "accrual-loan";
+    private static final LocalDate DUE = LocalDate.now().minusDays(1);
+
+    @Autowired
+    private LoanAccrualService accrualService;
+
+    @Autowired
+    private OverdueManagementService overdueManagementService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+                "status, created_at, updated_at) VALUES (?, 'accrual-farmer', 3000.00, 3, '春耕', 'REPAYING', ?, ?)",
+                LOAN, now, now);
+        // 1期已还（尚未计息）、2期逾期10天、3期当期计息中
+        insertSchedule(1, DUE.minusMonths(1).minusDays(10), "25.00", "PAID", now);
+        insertSchedule(2, DUE.minusDays(38), "20.00", "OVERDUE", now);
+        insertSchedule(3, DUE, "31.00", "PENDING", now);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM loan_accruals WHERE financing_id = ?", LOAN);
+        jdbcTemplate.update("DELETE FROM loan_accrual_balances WHERE financing_id = ?", LOAN);
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id = ?", LOAN);
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE id = ?", LOAN);
+    }
+
+    @Test
+    public void testDailyInterestSumsToScheduledInterest() {
+        LocalDate periodStart = DUE.minusMonths(1);
+        for (LocalDate date = periodStart.minusDays(1); !date.isAfter(DUE.plusDays(1)); date = date.plusDays(1)) {
+            accrualService.accrue(date);
+        }
+
+        List<LoanAccrual> interest = entries(LOAN + "-3", LoanAccrual.AccrualType.INTEREST);
+        interest.forEach(a -> assertTrue(a.getAmount().signum() > 0));
+        assertTrue(interest.get(0).getAccrualDate().isAfter(periodStart));
+        assertEquals(DUE, interest.get(interest.size() - 1).getAccrualDate());
+        assertEquals(0, new BigDecimal("31.00").compareTo(sum(interest)));
+        assertEquals(0, new BigDecimal("31.00").compareTo(scheduleColumn(3, "accrued_interest")));
+
+        // 已还的计划一次确认全部利息，逾期计划的利息同样全部确认
+        assertEquals(1, entries(LOAN + "-1", LoanAccrual.AccrualType.INTEREST).size());
+        LoanAccrualBalance balance = accrualService.getBalance(LOAN);
+        assertEquals(0, new BigDecimal("76.00").compareTo(balance.getAccruedInterest()));
+        assertEquals(DUE.plusDays(1), balance.getLastAccrualDate());
+    }
+
+    @Test
+    public void testPenaltyCatchesUpMissedDaysWithoutDuplicates() {
+        LocalDate today = DUE.minusDays(28);
+        // 首次计息补记此前全部10天：1020.00 × 0.05% × 10
+        accrualService.accrue(today);
+        assertEquals(0, new BigDecimal("5.10").compareTo(overdueManagementService.calculateOverduePenalty(LOAN)));
+
+        // 重复执行同一日期不记账
+        assertEquals(0, accrualService.accrue(today));
+        assertEquals(1, entries(LOAN + "-2", LoanAccrual.AccrualType.PENALTY).size());
+
+        // 漏跑两天后一笔补记3天
+        accrualService.accrue(today.plusDays(3));
+        List<LoanAccrual> penalties = entries(LOAN + "-2", LoanAccrual.AccrualType.PENALTY);
+        assertEquals(2, penalties.size());
+        assertEquals(3, penalties.get(1).getAccrualDays());
+        assertEquals(0, new BigDecimal("1.53").compareTo(penalties.get(1).getAmount()));
+        assertEquals(13, scheduleColumn(2, "penalty_days").intValue());
+
+        // 余额与流水、还款计划上的累计值一致
+        LoanAccrualBalance balance = accrualService.getBalance(LOAN);
+        assertEquals(0, new BigDecimal("6.63").compareTo(balance.getAccruedPenalty()));
+        assertEquals(0, sum(accrualService.getAccruals(LOAN).stream()
+                .filter(a -> a.getAccrualType() == LoanAccrual.AccrualType.PENALTY).toList())
+                .compareTo(balance.getAccruedPenalty()));
+        assertEquals(0, scheduleColumn(2, "accrued_penalty").compareTo(balance.getAccruedPenalty()));
+
+        // 计划转为已还后不再计罚息；逾期罚息只统计未还清的逾期计划，累计罚息保留
+        jdbcTemplate.update("UPDATE repayment_schedules SET status = 'PAID' WHERE id = ?", LOAN + "-2");
+        accrualService.accrue(today.plusDays(5));
+        assertEquals(2, entries(LOAN + "-2", LoanAccrual.AccrualType.PENALTY).size());
+        assertEquals(0, BigDecimal.ZERO.compareTo(overdueManagementService.calculateOverduePenalty(LOAN)));
+        assertEquals(0, new BigDecimal("6.63").compareTo(overdueManagementService.getCumulativePenalty(LOAN)));
+    }
+
+    @Test
+    public void testBackDatedRunDoesNotReverseAccruals() {
+        accrualService.accrue(DUE.plusDays(1));
+        LoanAccrualBalance before = accrualService.getBalance(LOAN);
+        int entries = accrualService.getAccruals(LOAN).size();
+
+        // 补跑当期中段和逾期之前的日期：不记账，余额和最后计息日不回退
+        assertEquals(0, accrualService.accrue(DUE.minusDays(15)));
+        assertEquals(0, accrualService.accrue(DUE.minusDays(40)));
+        assertEquals(entries, accrualService.getAccruals(LOAN).size());
+        accrualService.getAccruals(LOAN).forEach(a -> assertTrue(a.getAmount().signum() > 0));
+
+        LoanAccrualBalance after = accrualService.getBalance(LOAN);
+        assertEquals(0, before.getAccruedInterest().compareTo(after.getAccruedInterest()));
+        assertEquals(0, before.getAccruedPenalty().compareTo(after.getAccruedPenalty()));
+        assertEquals(DUE.plusDays(1), after.getLastAccrualDate());
+        assertEquals(0, new BigDecimal("31.00").compareTo(scheduleColumn(3, "accrued_interest")));
+    }
+
+    @Test
+    public void testRejectsFutureAccrualDate() {
+        BusinessException e = assertThrows(BusinessException.class,
+                () -> accrualService.accrue(LocalDate.now().plusDays(1)));
+        assertEquals(LoanAccrualService.INVALID_ACCRUAL_DATE, e.getCode());
+        assertTrue(accrualService.getAccruals(LOAN).isEmpty());
+
+        // 被拒绝后不占用运行标记，当天计息照常执行
+        accrualService.accrue(LocalDate.now());
+        assertFalse(accrualService.getAccruals(LOAN).isEmpty());
+    }
+
+    @Test
+    public void testUnknownFinancingHasZeroBalance() {
+        assertEquals(0, BigDecimal.ZERO.compareTo(overdueManagementService.calculateOverduePenalty("accrual-none")));
+        assertEquals(0, BigDecimal.ZERO.compareTo(accrualService.getBalance("accrual-none").getAccruedInterest()));
+    }
+
+    private void insertSchedule(int number, LocalDate due, String interest, String status, LocalDateTime now) {
+        BigDecimal i = new BigDecimal(interest);
+        jdbcTemplate.update("INSERT INTO repayment_schedules (id, financing_id, installment_number, due_date, " +
+                "principal, interest, total_amount, status, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, 1000.00, ?, ?, ?, ?, ?)",
+                LOAN + "-" + number, LOAN, number, due, i, i.add(new BigDecimal("1000.00")), status, now, now);
+    }
+
+    private List<LoanAccrual> entries(String scheduleId, LoanAccrual.AccrualType type) {
+        return accrualService.getAccruals(LOAN).stream()
+                .filter(a -> a.getScheduleId().equals(scheduleId) && a.getAccrualType() == type)
+                .toList();
+    }
+
+    private BigDecimal scheduleColumn(int number, String column) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("SELECT " + column + " FROM repayment_schedules " +
+                "WHERE id = ?", LOAN + "-" + number);
+        return new BigDecimal(row.values().iterator().next().toString());
+    }
+
+    private static BigDecimal sum(List<LoanAccrual> accruals) {
+        return accruals.stream().map(LoanAccrual::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
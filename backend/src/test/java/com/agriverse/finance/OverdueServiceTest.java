@@ -0,0 +1,155 @@
+package com.agriverse.finance;
+
+import com.agriverse.finance.event.LoanOverdueEvent;
+import com.agriverse.finance.service.OverdueService;
+import com.agriverse.notification.service.NotificationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * 逾期检测测试
+ * 小分块下批量转逾期只影响到期未还的计划，按融资汇总发布逾期事件、记录指标并向农户发送逾期提醒；
+ * 逾期提醒失败不影响风险预警
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@RecordApplicationEvents
+public class OverdueServiceTest {
+
+    private static final String FARMER_ID = "overdue-farmer";
+
+    @Autowired
+    private OverdueService overdueService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationEvents events;
+
+    @SpyBean
+    private NotificationService notificationService;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        // 先转掉其他测试遗留的到期未还计划，本测试的计数只包含自己的数据
+        overdueService.transitionOverdue(LocalDate.now());
+        events.clear();
+        ReflectionTestUtils.setField(overdueService, "chunkSize", 4);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        ReflectionTestUtils.setField(overdueService, "chunkSize", 5000);
+        jdbcTemplate.update("DELETE FROM notification_outbox WHERE user_id = ?", FARMER_ID);
+        jdbcTemplate.update("DELETE FROM risk_alerts WHERE financing_id LIKE 'overdue-%'");
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id LIKE 'overdue-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id = ?", FARMER_ID);
+    }
+
+    @Test
+    public void testTransitionsPastDuePendingSchedulesInChunks() {
+        LocalDate today = LocalDate.now();
+        loan("overdue-a");
+        loan("overdue-b");
+        // a：10期均已到期未还，跨多个分块
+        for (int n = 1; n <= 10; n++) {
+            schedule("overdue-a", n, today.minusDays(40 - n), "PENDING");
+        }
+        // b：1期到期未还、1期未到期、1期已还
+        schedule("overdue-b", 1, today.minusDays(1), "PENDING");
+        schedule("overdue-b", 2, today, "PENDING");
+        schedule("overdue-b", 3, today.minusDays(60), "PAID");
+
+        double before = meterRegistry.get("repayment.overdue.transitioned").counter().count();
+        int updated = overdueService.transitionOverdue(today);
+        assertEquals(11, updated);
+        assertEquals(11.0, meterRegistry.get("repayment.overdue.transitioned").counter().count() - before);
+
+        Map<String, String> statuses = jdbcTemplate.queryForList(
+                        "SELECT id, status FROM repayment_schedules WHERE financing_id LIKE 'overdue-%'").stream()
+                .collect(Collectors.toMap(r -> (String) r.get("ID"), r -> (String) r.get("STATUS")));
+        for (int n = 1; n <= 10; n++) {
+            assertEquals("OVERDUE", statuses.get("overdue-a-" + n));
+        }
+        assertEquals("OVERDUE", statuses.get("overdue-b-1"));
+        assertEquals("PENDING", statuses.get("overdue-b-2"));
+        assertEquals("PAID", statuses.get("overdue-b-3"));
+
+        List<LoanOverdueEvent> published = events.stream(LoanOverdueEvent.class).toList();
+        assertEquals(1, published.size());
+        assertEquals(2, published.get(0).loans().size());
+        Map<String, LoanOverdueEvent.OverdueLoan> loans = published.get(0).loans().stream()
+                .collect(Collectors.toMap(LoanOverdueEvent.OverdueLoan::financingId, l -> l));
+        LoanOverdueEvent.OverdueLoan a = loans.get("overdue-a");
+        assertEquals(10, a.scheduleCount());
+        assertEquals(0, new BigDecimal("10200.00").compareTo(a.overdueAmount()));
+        assertEquals(today.minusDays(39), a.earliestDueDate());
+        assertEquals(1, loans.get("overdue-b").scheduleCount());
+        assertEquals(today.minusDays(1), loans.get("overdue-b").earliestDueDate());
+
+        // 每笔新逾期的融资各有一条逾期提醒
+        assertEquals(List.of("overdue-a", "overdue-b"), jdbcTemplate.queryForList(
+                "SELECT DISTINCT business_id FROM notification_outbox WHERE user_id = ? AND type = 'OVERDUE_ALERT' " +
+                "ORDER BY business_id", String.class, FARMER_ID));
+
+        // 再次执行时已无待转逾期的计划
+        assertEquals(0, overdueService.transitionOverdue(today));
+        assertEquals(1, events.stream(LoanOverdueEvent.class).count());
+    }
+
+    @Test
+    public void testFailedOverdueAlertDoesNotSkipRiskAlerts() {
+        LocalDate today = LocalDate.now();
+        loan("overdue-c");
+        schedule("overdue-c", 1, today.minusDays(5), "PENDING");
+        doThrow(new IllegalStateException("通知入队失败"))
+                .when(notificationService).sendOverdueAlert(eq(FARMER_ID), anyString(), any(), anyLong());
+
+        assertEquals(1, overdueService.transitionOverdue(today));
+        assertEquals("OVERDUE", jdbcTemplate.queryForObject(
+                "SELECT status FROM repayment_schedules WHERE id = 'overdue-c-1'", String.class));
+        assertEquals("OPEN", jdbcTemplate.queryForObject(
+                "SELECT status FROM risk_alerts WHERE dedup_key = 'OVERDUE:overdue-c'", String.class));
+    }
+
+    private void loan(String id) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+                "status, created_at, updated_at) VALUES (?, ?, 10200.00, 10, '春耕', 'REPAYING', ?, ?)",
+                id, FARMER_ID, now, now);
+    }
+
+    private void schedule(String financingId, int number, LocalDate due, String status) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO repayment_schedules (id, financing_id, installment_number, due_date, " +
+                "principal, interest, total_amount, status, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, 1000.00, 20.00, 1020.00, ?, ?, ?)",
+                financingId + "-" + number, financingId, number, due, status, now, now);
+    }
+}
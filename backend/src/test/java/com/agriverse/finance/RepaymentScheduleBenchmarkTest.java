@@ -0,0 +1,151 @@
+package com.agriverse.finance;
+
+import com.agriverse.finance.entity.FinancingApplication;
+import com.agriverse.finance.entity.FinancingApplication.RepaymentMethod;
+import com.agriverse.finance.entity.RepaymentSchedule;
+import com.agriverse.finance.service.AmortizationEngine;
+import com.agriverse.finance.service.FinancingApplicationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 还款计划生成基准测试
+ * 默认以少量贷款校验纯计算各期本金之和等于贷款本金，并批量生成入库校验落库结果；
+ * 指定 -Damortization.bench.loans（如200000）时另按该规模计时纯计算吞吐，耗时写入日志
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class RepaymentScheduleBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RepaymentScheduleBenchmarkTest.class);
+
+    private static final String FARMER_ID = "amort-bench-farmer";
+    private static final int LOANS = 1_000;
+    private static final int PERSISTED_LOANS = 2_000;
+    private static final String[] RATES = {"3.85", "4.35", "5.5", "6", "7.2"};
+    private static final int[] TERMS = {6, 12, 24, 36};
+
+    @Autowired
+    private FinancingApplicationService financingApplicationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM repayment_schedules WHERE financing_id LIKE 'amort-bench-%'");
+        jdbcTemplate.update("DELETE FROM financing_applications WHERE farmer_id = ?", FARMER_ID);
+    }
+
+    @Test
+    public void testEngineRepaysPrincipal() {
+        assertEngineRepaysPrincipal(LOANS);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "amortization.bench.loans", matches = ".+")
+    public void testEngineThroughput() {
+        assertEngineRepaysPrincipal(Integer.getInteger("amortization.bench.loans"));
+    }
+
+    /**
+     * 按 loans 笔贷款纯计算还款计划，校验各期本金之和等于贷款本金，并记录耗时
+     */
+    private void assertEngineRepaysPrincipal(int loans) {
+        RepaymentMethod[] methods = RepaymentMethod.values();
+        LocalDate start = LocalDate.now();
+        long checksum = 0;
+        long installments = 0;
+        long begin = System.nanoTime();
+        for (int i = 0; i < loans; i++) {
+            long principal = 10_000_000L + i * 137L;
+            List<AmortizationEngine.Installment> plan = AmortizationEngine.schedule(new AmortizationEngine.LoanTerms(
+                    principal, new BigDecimal(RATES[i % RATES.length]), TERMS[i % TERMS.length],
+                    methods[i % methods.length], start, Set.of(Month.JULY, Month.OCTOBER)));
+            long repaid = 0;
+            for (AmortizationEngine.Installment installment : plan) {
+                repaid += installment.principalCents();
+                checksum += installment.interestCents();
+            }
+            assertEquals(principal, repaid);
+            installments += plan.size();
+        }
+        long nanos = System.nanoTime() - begin;
+
+        log.info("还款计划计算基准(loans={}, installments={}): {}ms, {} 笔/秒 (checksum={})",
+                loans, installments, nanos / 1_000_000, Math.round(loans / (nanos / 1e9)), checksum);
+        assertTrue(checksum > 0);
+    }
+
+    @Test
+    public void testBatchGenerateAndPersist() {
+        LocalDateTime now = LocalDateTime.now();
+        RepaymentMethod[] methods = RepaymentMethod.values();
+        List<FinancingApplication> applications = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        BigDecimal expectedPrincipal = BigDecimal.ZERO;
+        int expectedInstallments = 0;
+        for (int i = 0; i < PERSISTED_LOANS; i++) {
+            FinancingApplication application = FinancingApplication.builder()
+                    .id(String.format("amort-bench-%05d", i))
+                    .farmerId(FARMER_ID)
+                    .amount(new BigDecimal("50000.00").add(BigDecimal.valueOf(i, 2)))
+                    .termMonths(TERMS[i % TERMS.length])
+                    .interestRate(i % 7 == 0 ? null : new BigDecimal(RATES[i % RATES.length]))
+                    .repaymentMethod(methods[i % methods.length])
+                    .purpose("春耕")
+                    .status(FinancingApplication.FinancingStatus.APPROVED)
+                    .build();
+            applications.add(application);
+            rows.add(new Object[]{application.getId(), FARMER_ID, application.getAmount(),
+                    application.getTermMonths(), application.getRepaymentMethod().name(), now, now});
+            expectedPrincipal = expectedPrincipal.add(application.getAmount());
+            expectedInstallments += application.getTermMonths();
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO financing_applications (id, farmer_id, amount, term_months, purpose, " +
+                "repayment_method, status, created_at, updated_at) VALUES (?, ?, ?, ?, '春耕', ?, 'APPROVED', ?, ?)", rows);
+
+        long begin = System.nanoTime();
+        List<RepaymentSchedule> generated = financingApplicationService.generateRepaymentSchedules(applications);
+        long nanos = System.nanoTime() - begin;
+        log.info("还款计划批量生成入库(loans={}, installments={}): {}ms",
+                PERSISTED_LOANS, generated.size(), nanos / 1_000_000);
+
+        assertEquals(expectedInstallments, generated.size());
+        Map<String, Object> totals = jdbcTemplate.queryForMap("SELECT COUNT(*) AS cnt, SUM(principal) AS principal, " +
+                "SUM(CASE WHEN total_amount = principal + interest THEN 0 ELSE 1 END) AS mismatched " +
+                "FROM repayment_schedules WHERE financing_id LIKE 'amort-bench-%'");
+        assertEquals(expectedInstallments, ((Number) totals.get("cnt")).intValue());
+        assertEquals(0, expectedPrincipal.compareTo((BigDecimal) totals.get("principal")));
+        assertEquals(0, ((Number) totals.get("mismatched")).intValue());
+
+        // 每笔贷款期次连续且各期本金之和等于贷款本金
+        List<Map<String, Object>> perLoan = jdbcTemplate.queryForList("SELECT s.financing_id, COUNT(*) AS cnt, " +
+                "MAX(s.installment_number) AS last_number, SUM(s.principal) AS principal, MAX(a.amount) AS amount " +
+                "FROM repayment_schedules s JOIN financing_applications a ON a.id = s.financing_id " +
+                "WHERE s.financing_id LIKE 'amort-bench-%' GROUP BY s.financing_id");
+        assertEquals(PERSISTED_LOANS, perLoan.size());
+        for (Map<String, Object> loan : perLoan) {
+            assertEquals(((Number) loan.get("cnt")).intValue(), ((Number) loan.get("last_number")).intValue());
+            assertEquals(0, ((BigDecimal) loan.get("amount")).compareTo((BigDecimal) loan.get("principal")));
+        }
+    }
+}
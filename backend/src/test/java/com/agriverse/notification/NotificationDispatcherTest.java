@@ -0,0 +1,218 @@
+package com.agriverse.notification;
+
+import com.agriverse.auth.service.SmsService;
+import com.agriverse.notification.service.NotificationDispatcher;
+import com.agriverse.notification.service.NotificationService;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 通知出箱派发测试
+ * 以 GreenMail 内嵌 SMTP 服务器代替真实邮箱服务，校验入队随业务事务提交/回滚、超长内容不影响业务事务、
+ * 按渠道批量投递与失败退避重试
+ */
+@SpringBootTest(properties = {
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=",
+        "spring.mail.password=",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false",
+        "spring.mail.properties.mail.smtp.starttls.required=false"
+})
+@ActiveProfiles("test")
+public class NotificationDispatcherTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private static final String WITH_EMAIL = "notify-user-1";
+    private static final String PHONE_ONLY = "notify-user-2";
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private NotificationDispatcher dispatcher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private SmsService smsService;
+
+    @BeforeEach
+    public void setUp() {
+        cleanUp();
+        user(WITH_EMAIL, "13900000001", "notify1@test.com");
+        user(PHONE_ONLY, "13900000002", null);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 5);
+        jdbcTemplate.update("DELETE FROM notification_outbox");
+        jdbcTemplate.update("DELETE FROM users WHERE id LIKE 'notify-%'");
+    }
+
+    @Test
+    public void testEnqueueCommitsWithCallerTransaction() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            notificationService.sendContractSignReminder(WITH_EMAIL, "contract-1");
+            status.setRollbackOnly();
+        });
+        assertEquals(0, count());
+
+        tx.executeWithoutResult(status -> notificationService.sendContractSignReminder(WITH_EMAIL, "contract-1"));
+        assertEquals(3, count());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_outbox " +
+                "WHERE status = 'PENDING' AND type = 'CONTRACT_SIGN' AND business_id = 'contract-1'", Integer.class));
+        verifyNoInteractions(smsService);
+        assertEquals(0, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    public void testOversizedContentDoesNotRollBackCaller() {
+        String comment = "审".repeat(3000);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                notificationService.sendApprovalNotification(WITH_EMAIL, "financing-1", "REJECTED", comment));
+
+        List<String> contents = jdbcTemplate.queryForList("SELECT content FROM notification_outbox " +
+                "WHERE type = 'APPROVAL' AND business_id = 'financing-1'", String.class);
+        assertEquals(3, contents.size());
+        contents.forEach(content -> assertTrue(content.endsWith(comment)));
+    }
+
+    @Test
+    public void testDispatchByChannelWithBulkRecipients() throws Exception {
+        notificationService.sendApprovalNotification(WITH_EMAIL, "loan-1", "APPROVED", "资料齐全");
+        notificationService.sendRepaymentReminder(PHONE_ONLY, "loan-2", new BigDecimal("1020.00"),
+                LocalDate.of(2030, 1, 1));
+        notificationService.sendOverdueAlert("notify-missing", "loan-3", new BigDecimal("500.00"), 3);
+
+        assertEquals(9, dispatcher.dispatchPending());
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertEquals(1, received.length);
+        assertEquals("notify1@test.com", GreenMailUtil.getAddressList(received[0].getAllRecipients()));
+        assertEquals("融资审批结果通知", received[0].getSubject());
+        assertTrue(received[0].getContent().toString().contains("loan-1"));
+        verify(smsService).sendSms(eq("13900000001"), any());
+        verify(smsService).sendSms(eq("13900000002"), any());
+        verifyNoMoreInteractions(smsService);
+
+        Map<String, String> statuses = statuses();
+        assertEquals("SENT", statuses.get(WITH_EMAIL + "/EMAIL"));
+        assertEquals("SENT", statuses.get(WITH_EMAIL + "/SMS"));
+        assertEquals("SENT", statuses.get(WITH_EMAIL + "/IN_APP"));
+        assertEquals("SKIPPED", statuses.get(PHONE_ONLY + "/EMAIL"));
+        assertEquals("SENT", statuses.get(PHONE_ONLY + "/SMS"));
+        assertEquals("SKIPPED", statuses.get("notify-missing/IN_APP"));
+
+        // 已投递的通知不会再次认领
+        assertEquals(0, dispatcher.dispatchPending());
+    }
+
+    @Test
+    public void testFailedDeliveryRetriesWithBackoff() {
+        greenMail.stop();
+        notificationService.sendApprovalNotification(WITH_EMAIL, "loan-1", "REJECTED", null);
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchPending();
+        Map<String, Object> email = emailRow();
+        assertEquals("PENDING", email.get("STATUS"));
+        assertEquals(1, email.get("ATTEMPTS"));
+        assertNotNull(email.get("LAST_ERROR"));
+        LocalDateTime next = ((java.sql.Timestamp) email.get("NEXT_ATTEMPT_AT")).toLocalDateTime();
+        assertFalse(next.isBefore(before.plusSeconds(30)));
+
+        // 退避期内不重试
+        greenMail.start();
+        assertEquals(0, dispatcher.dispatchPending());
+
+        makeDue();
+        dispatcher.dispatchPending();
+        email = emailRow();
+        assertEquals("SENT", email.get("STATUS"));
+        assertEquals(2, email.get("ATTEMPTS"));
+        assertNull(email.get("LAST_ERROR"));
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts() {
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 2);
+        greenMail.stop();
+        notificationService.sendContractSignReminder(WITH_EMAIL, "contract-2");
+
+        dispatcher.dispatchPending();
+        makeDue();
+        dispatcher.dispatchPending();
+        makeDue();
+        dispatcher.dispatchPending();
+
+        Map<String, Object> email = emailRow();
+        assertEquals("FAILED", email.get("STATUS"));
+        assertEquals(2, email.get("ATTEMPTS"));
+        greenMail.start();
+    }
+
+    private int count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_outbox", Integer.class);
+    }
+
+    private Map<String, String> statuses() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT user_id, channel, status FROM notification_outbox");
+        return rows.stream().collect(Collectors.toMap(
+                r -> r.get("USER_ID") + "/" + r.get("CHANNEL"), r -> (String) r.get("STATUS")));
+    }
+
+    private Map<String, Object> emailRow() {
+        return jdbcTemplate.queryForMap("SELECT * FROM notification_outbox WHERE user_id = ? AND channel = 'EMAIL'",
+                WITH_EMAIL);
+    }
+
+    private void makeDue() {
+        jdbcTemplate.update("UPDATE notification_outbox SET next_attempt_at = ? WHERE status = 'PENDING'",
+                LocalDateTime.now().minusSeconds(1));
+    }
+
+    private void user(String id, String phone, String email) {
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("INSERT INTO users (id, phone, password, name, email, role, enabled, email_verified, " +
+                "login_attempts, created_at, updated_at) VALUES (?, ?, 'x', '通知测试', ?, 'FARMER', TRUE, FALSE, 0, ?, ?)",
+                id, phone, email, now, now);
+    }
+}
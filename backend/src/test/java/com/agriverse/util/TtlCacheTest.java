@@ -0,0 +1,151 @@
+package com.agriverse.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TTL缓存测试
+ * 使用可拨动的时钟验证过期、绝对过期时间、容量淘汰和并发读写
+ */
+public class TtlCacheTest {
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        MutableClock clock = new MutableClock();
+        TtlCache<String, String> cache = new TtlCache<>(10, 1000, clock);
+
+        cache.put("a", "1");
+        clock.advance(999);
+        assertEquals("1", cache.get("a"));
+        clock.advance(1);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size(), "读到过期条目时应移除");
+    }
+
+    @Test
+    public void testPutUntilTakesEarlierExpiry() {
+        MutableClock clock = new MutableClock();
+        TtlCache<String, String> cache = new TtlCache<>(10, 1000, clock);
+
+        cache.putUntil("short", "1", clock.millis() + 100);
+        cache.putUntil("long", "2", clock.millis() + 5000);
+        clock.advance(100);
+        assertNull(cache.get("short"));
+        assertEquals("2", cache.get("long"));
+        clock.advance(900);
+        assertNull(cache.get("long"), "不应超过默认存活时间");
+    }
+
+    @Test
+    public void testCapacityEvictsExpiredThenEarliestExpiring() {
+        MutableClock clock = new MutableClock();
+        TtlCache<Integer, Integer> cache = new TtlCache<>(10, 1000, clock);
+
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+            clock.advance(10);
+        }
+        cache.put(10, 10);
+        assertTrue(cache.size() <= 10);
+        assertNull(cache.get(0), "最早过期的条目先被淘汰");
+        assertEquals(10, cache.get(10));
+
+        // 超出容量时过期条目优先清理
+        clock.advance(2000);
+        cache.putAll(Map.of(100, 100, 101, 101));
+        cache.put(102, 102);
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testInvalidate() {
+        TtlCache<String, Integer> cache = new TtlCache<>(10, 1000, new MutableClock());
+        cache.putAll(Map.of("a", 1, "b", 2, "c", 3));
+
+        cache.invalidate("a");
+        cache.invalidateIf(v -> v == 2);
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(3, cache.get("c"));
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testEvictExpired() {
+        MutableClock clock = new MutableClock();
+        TtlCache<String, String> cache = new TtlCache<>(10, 1000, clock);
+        cache.put("a", "1");
+        cache.putUntil("b", "2", clock.millis() + 10);
+        clock.advance(10);
+
+        assertEquals(1, cache.evictExpired());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testConcurrentReadsAndWritesStayBounded() throws Exception {
+        TtlCache<Integer, Integer> cache = new TtlCache<>(100, 60_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t * 10_000;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(offset + i, i);
+                    Integer value = cache.get(offset + i / 2);
+                    assertTrue(value == null || value == i / 2);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertTrue(cache.size() <= 100 + 8, "并发写入后条目数应保持有界: " + cache.size());
+    }
+
+    /**
+     * 可手动拨动的测试时钟
+     */
+    private static class MutableClock extends Clock {
+        private long millis = 1_000_000L;
+
+        void advance(long deltaMillis) {
+            millis += deltaMillis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -189,7 +189,11 @@ export interface FinanceMonitorResponse {
   rejectedApplications: number;
   totalAmount: number;
   approvedAmount: number;
+  /** 当前页融资申请 */
   applications: any[];
+  /** 下一页游标，没有更多数据时为空 */
+  nextCursor?: string | null;
+  hasMore: boolean;
 }
 
 /**
@@ -351,11 +355,23 @@ export async function getOrderDetail(
 }
 
 /**
- * 获取融资监控数据
+ * 获取融资监控数据（统计数据及一页融资申请，游标在响应体的 nextCursor 中）
+ * @param status 申请状态（可选）
+ * @param cursor 上一页返回的 nextCursor，不传表示第一页
+ * @param pageSize 每页条数（可选，默认20）
  * @returns 融资监控数据
  */
-export async function getFinanceMonitor(): Promise<FinanceMonitorResponse> {
-  return get<FinanceMonitorResponse>('/admin/finance/monitor');
+export async function getFinanceMonitor(
+  status?: string,
+  cursor?: string,
+  pageSize?: number
+): Promise<FinanceMonitorResponse> {
+  const params = new URLSearchParams();
+  if (status) params.append('status', status);
+  if (cursor) params.append('cursor', cursor);
+  if (pageSize) params.append('pageSize', String(pageSize));
+  const query = params.toString();
+  return get<FinanceMonitorResponse>(`/admin/finance/monitor${query ? `?${query}` : ''}`);
 }
 
 /**
@@ -1,6 +1,7 @@
 // 银行相关 API
 
-import { get, post, put, del } from './client';
+import { get, getWithCursor, post, put, del, postForBlob, DownloadedFile } from './client';
+import { Page, CursorPage } from './types';
 
 /**
  * 贷款产品
@@ -83,8 +84,8 @@ export interface CreditScore {
   financingId: string;
   farmerId: string;
   creditHistoryScore?: number;
-  incomeScore: number;
-  assetScore: number;
+  incomeScore?: number;
+  assetScore?: number;
   debtRatioScore: number;
   experienceScore?: number;
   totalScore: number;
@@ -277,15 +278,25 @@ export async function disburseLoan(
 }
 
 /**
- * 获取放款列表
+ * 获取放款列表（游标分页）
  * @param status 放款状态（可选）
- * @returns 放款列表
+ * @param cursor 上一页返回的 nextCursor，不传表示第一页
+ * @param pageSize 每页条数（可选，默认50）
+ * @returns 一页放款记录及下一页游标
  */
 export async function getDisbursements(
-  status?: string
-): Promise<Disbursement[]> {
-  const params = status ? `?status=${status}` : '';
-  return get<Disbursement[]>(`/bank/loan/disbursements${params}`);
+  status?: string,
+  cursor?: string,
+  pageSize?: number
+): Promise<CursorPage<Disbursement>> {
+  const params = new URLSearchParams();
+  if (status) params.append('status', status);
+  if (cursor) params.append('cursor', cursor);
+  if (pageSize) params.append('pageSize', String(pageSize));
+  const query = params.toString();
+  return getWithCursor<Disbursement>(
+    `/bank/loan/disbursements${query ? `?${query}` : ''}`
+  );
 }
 
 /**
@@ -368,6 +379,34 @@ export interface ReconciliationExportRequest {
 /**
  * 贷后监控数据
  */
+/**
+ * 贷后监控列表行
+ */
+export interface PostLoanMonitoringRow {
+  financingId: string;
+  farmerId: string;
+  amount: number;
+  status: string;
+  totalInstallments: number;
+  paidInstallments: number;
+  pendingInstallments: number;
+  overdueInstallments: number;
+  totalAmount: number;
+  paidAmount: number;
+  pendingAmount: number;
+  overdueAmount: number;
+  repaymentRate: number;  // 还款率（%）
+  nextDueDate?: string;
+}
+
+export type PostLoanMonitoringSort =
+  | 'overdueAmount'
+  | 'repaymentRate'
+  | 'pendingAmount'
+  | 'overdueInstallments'
+  | 'amount'
+  | 'nextDueDate';
+
 export interface PostLoanMonitoring {
   financingId: string;
   farmerId: string;
@@ -438,20 +477,26 @@ export async function reconcile(date?: string): Promise<number> {
 }
 
 /**
- * 获取对账列表
+ * 获取对账列表（游标分页，全量数据请使用导出接口）
  * @param startDate 开始日期（可选）
  * @param endDate 结束日期（可选）
- * @returns 对账记录列表
+ * @param cursor 上一页返回的 nextCursor，不传表示第一页
+ * @param pageSize 每页条数（可选，默认50）
+ * @returns 一页对账记录及下一页游标
  */
 export async function getReconciliationList(
   startDate?: string,
-  endDate?: string
-): Promise<ReconciliationRecord[]> {
+  endDate?: string,
+  cursor?: string,
+  pageSize?: number
+): Promise<CursorPage<ReconciliationRecord>> {
   const params = new URLSearchParams();
   if (startDate) params.append('startDate', startDate);
   if (endDate) params.append('endDate', endDate);
+  if (cursor) params.append('cursor', cursor);
+  if (pageSize) params.append('pageSize', String(pageSize));
   const query = params.toString();
-  return get<ReconciliationRecord[]>(
+  return getWithCursor<ReconciliationRecord>(
     `/bank/loan/reconciliation/list${query ? `?${query}` : ''}`
   );
 }
@@ -476,25 +521,25 @@ export async function getReconciliationStatistics(
 }
 
 /**
- * 导出对账单
+ * 导出对账单（服务端流式返回文件内容）
  * @param request 导出请求
- * @returns 文件下载URL
+ * @returns 文件内容和服务端给出的文件名
  */
 export async function exportReconciliation(
   request: ReconciliationExportRequest
-): Promise<string> {
-  return post<string>('/bank/loan/reconciliation/export', request);
+): Promise<DownloadedFile> {
+  return postForBlob('/bank/loan/reconciliation/export', request);
 }
 
 /**
- * 导出T+1文件
+ * 导出T+1文件（服务端流式返回文件内容）
  * @param request 导出请求
- * @returns 文件下载URL
+ * @returns 文件内容和服务端给出的文件名
  */
 export async function exportT1File(
   request: ReconciliationExportRequest
-): Promise<string> {
-  return post<string>('/bank/loan/reconciliation/export-t1', request);
+): Promise<DownloadedFile> {
+  return postForBlob('/bank/loan/reconciliation/export-t1', request);
 }
 
 /**
@@ -511,11 +556,23 @@ export async function getPostLoanMonitoring(
 }
 
 /**
- * 获取所有贷后监控列表
- * @returns 贷后监控列表
- */
-export async function getAllPostLoanMonitoring(): Promise<PostLoanMonitoring[]> {
-  return get<PostLoanMonitoring[]>('/bank/loan/post-loan/monitoring');
+ * 获取贷后监控列表（服务端排序分页，不含还款计划明细）
+ * @param params 排序字段、方向与分页参数
+ * @returns 贷后监控列表分页
+ */
+export async function getAllPostLoanMonitoring(params?: {
+  sort?: PostLoanMonitoringSort;
+  direction?: 'ASC' | 'DESC';
+  page?: number;
+  size?: number;
+}): Promise<Page<PostLoanMonitoringRow>> {
+  const query = new URLSearchParams();
+  if (params?.sort) query.append('sort', params.sort);
+  if (params?.direction) query.append('direction', params.direction);
+  if (params?.page !== undefined) query.append('page', String(params.page));
+  if (params?.size !== undefined) query.append('size', String(params.size));
+  const qs = query.toString();
+  return get<Page<PostLoanMonitoringRow>>(`/bank/loan/post-loan/monitoring${qs ? `?${qs}` : ''}`);
 }
 
 
@@ -3,6 +3,8 @@
  * 统一处理 HTTP 请求/响应、错误处理、token管理等
  */
 
+import type { CursorPage } from './types';
+
 export class ApiError extends Error {
   constructor(
     public code: number,
@@ -99,6 +101,30 @@ export async function get<T = any>(
   return handleResponse<T>(response);
 }
 
+/**
+ * 游标分页 GET 请求：列表在响应体中，下一页游标在 X-Next-Cursor 响应头中
+ */
+export async function getWithCursor<T = any>(
+  endpoint: string,
+  options?: RequestInit
+): Promise<CursorPage<T>> {
+  const url = `${API_BASE_URL}${endpoint}`;
+
+  const response = await fetch(url, {
+    method: 'GET',
+    headers: {
+      'Content-Type': 'application/json',
+      ...getAuthHeader(),
+      ...options?.headers,
+    },
+    ...options,
+  });
+
+  const nextCursor = response.headers.get('X-Next-Cursor');
+  const items = await handleResponse<T[]>(response);
+  return { items: items ?? [], nextCursor, hasMore: nextCursor !== null };
+}
+
 /**
  * POST 请求
  */
@@ -123,6 +149,55 @@ export async function post<T = any>(
   return handleResponse<T>(response);
 }
 
+/**
+ * 下载的文件
+ */
+export interface DownloadedFile {
+  blob: Blob;
+  fileName: string;
+}
+
+/**
+ * 从 Content-Disposition 中解析文件名
+ */
+function parseFileName(disposition: string | null, fallback: string): string {
+  const match = disposition?.match(/filename\*?=(?:UTF-8'')?"?([^";]+)"?/i);
+  return match ? decodeURIComponent(match[1]) : fallback;
+}
+
+/**
+ * POST 请求并以二进制文件接收响应（用于流式导出等非 JSON 响应）
+ */
+export async function postForBlob(
+  endpoint: string,
+  body?: any,
+  options?: RequestInit
+): Promise<DownloadedFile> {
+  const url = `${API_BASE_URL}${endpoint}`;
+
+  const response = await fetch(url, {
+    method: 'POST',
+    headers: {
+      'Content-Type': 'application/json',
+      ...getAuthHeader(),
+      ...options?.headers,
+    },
+    body: body ? JSON.stringify(body) : undefined,
+    ...options,
+  });
+
+  if (!response.ok) {
+    // 错误响应沿用统一的错误处理
+    return handleResponse<DownloadedFile>(response);
+  }
+
+  const fileName = parseFileName(
+    response.headers.get('content-disposition'),
+    endpoint.substring(endpoint.lastIndexOf('/') + 1)
+  );
+  return { blob: await response.blob(), fileName };
+}
+
 /**
  * PUT 请求
  */
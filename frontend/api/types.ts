@@ -14,6 +14,16 @@ export interface Page<T> {
   numberOfElements: number;
 }
 
+/**
+ * 游标分页响应（下一页游标由服务端在 X-Next-Cursor 响应头中返回）
+ */
+export interface CursorPage<T> {
+  items: T[];
+  /** 下一页游标，没有更多数据时为 null */
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
 /**
  * API响应基础结构
  */